@@ -52,6 +52,7 @@ public class ExtensionFileFilter extends FileFilter implements java.io.FileFilte
 
         final List<Class<? extends FileImporter>> importerNames = Arrays.asList(
                 org.openstreetmap.josm.io.OsmImporter.class,
+                org.openstreetmap.josm.io.PbfImporter.class,
                 org.openstreetmap.josm.io.OsmChangeImporter.class,
                 org.openstreetmap.josm.io.GpxImporter.class,
                 org.openstreetmap.josm.io.NMEAImporter.class,
@@ -97,6 +98,7 @@ public class ExtensionFileFilter extends FileFilter implements java.io.FileFilte
                 org.openstreetmap.josm.io.OsmExporter.class,
                 org.openstreetmap.josm.io.OsmGzipExporter.class,
                 org.openstreetmap.josm.io.OsmBzip2Exporter.class,
+                org.openstreetmap.josm.io.PbfExporter.class,
                 org.openstreetmap.josm.io.GeoJSONExporter.CurrentProjection.class, // needs to be considered earlier than GeoJSONExporter
                 org.openstreetmap.josm.io.GeoJSONExporter.class,
                 org.openstreetmap.josm.io.WMSLayerExporter.class,
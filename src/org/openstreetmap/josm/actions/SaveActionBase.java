@@ -20,6 +20,7 @@ import org.openstreetmap.josm.gui.layer.Layer;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 import org.openstreetmap.josm.gui.widgets.AbstractFileChooser;
 import org.openstreetmap.josm.io.FileExporter;
+import org.openstreetmap.josm.io.OsmExporter;
 import org.openstreetmap.josm.tools.Shortcut;
 
 /**
@@ -90,29 +91,33 @@ public abstract class SaveActionBase extends DiskAccessAction {
             return false;
 
         try {
-            boolean exported = false;
+            FileExporter exported = null;
             boolean canceled = false;
             for (FileExporter exporter : ExtensionFileFilter.exporters) {
                 if (exporter.acceptFile(file, layer)) {
                     exporter.exportData(file, layer);
-                    exported = true;
+                    exported = exporter;
                     canceled = exporter.isCanceled();
                     break;
                 }
             }
-            if (!exported) {
+            if (exported == null) {
                 JOptionPane.showMessageDialog(Main.parent, tr("No Exporter found! Nothing saved."), tr("Warning"),
                         JOptionPane.WARNING_MESSAGE);
                 return false;
             } else if (canceled) {
                 return false;
             }
-            if (!layer.isRenamed()) {
-                layer.setName(file.getName());
-            }
-            layer.setAssociatedFile(file);
-            if (layer instanceof OsmDataLayer) {
-                ((OsmDataLayer) layer).onPostSaveToFile();
+            // OSM data exported to another format (GeoJSON, PBF) cannot be loaded back with its modifications:
+            // the layer is not saved to the file
+            if (!(layer instanceof OsmDataLayer) || exported instanceof OsmExporter) {
+                if (!layer.isRenamed()) {
+                    layer.setName(file.getName());
+                }
+                layer.setAssociatedFile(file);
+                if (layer instanceof OsmDataLayer) {
+                    ((OsmDataLayer) layer).onPostSaveToFile();
+                }
             }
             Main.parent.repaint();
         } catch (IOException e) {
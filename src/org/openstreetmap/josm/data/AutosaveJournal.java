@@ -0,0 +1,418 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.NodeData;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.PrimitiveData;
+import org.openstreetmap.josm.data.osm.PrimitiveId;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationData;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.RelationMemberData;
+import org.openstreetmap.josm.data.osm.SimplePrimitiveId;
+import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.WayData;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.io.Compression;
+import org.openstreetmap.josm.io.IllegalDataException;
+import org.openstreetmap.josm.io.OsmReader;
+import org.openstreetmap.josm.io.OsmWriter;
+import org.openstreetmap.josm.io.OsmWriterFactory;
+
+/**
+ * Append-only log of the changes made to a data set since it has been completely autosaved.
+ * <p>
+ * Each entry holds the current state of the primitives changed since the previous entry, and the ids of the
+ * primitives removed from the data set. Primitives are identified by their unique id, which is also the id written
+ * in the autosaved file (the checkpoint), so that the entries can be applied in order to the primitives read from it.
+ * <p>
+ * Entries are preceded by their length: an entry left incomplete by a crash is ignored.
+ */
+final class AutosaveJournal {
+
+    private static final int MAGIC = 0x4a4f534a;
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int FLAG_MODIFIED = 1;
+    private static final int FLAG_DELETED = 2;
+    private static final int FLAG_INCOMPLETE = 4;
+    private static final int FLAG_INVISIBLE = 8;
+
+    private static final int USER_NONE = 0;
+    private static final int USER_OSM = 1;
+    private static final int USER_LOCAL = 2;
+
+    private final File file;
+    private int entryCount;
+
+    /**
+     * Constructs a new {@code AutosaveJournal}. The file is created when the first entry is appended.
+     * @param file the journal file
+     */
+    AutosaveJournal(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Replies the journal file.
+     * @return the journal file
+     */
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * Replies the number of entries appended to the journal.
+     * @return the number of entries appended to the journal
+     */
+    int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Appends an entry to the journal. The caller must hold the read lock of the data set.
+     * @param ds the data set
+     * @param changed the changed primitives. The ones which are no longer in the data set are ignored
+     * @param removed the ids of the primitives removed from the data set
+     * @throws IOException if the entry cannot be written
+     */
+    void append(DataSet ds, Collection<? extends OsmPrimitive> changed, Collection<? extends PrimitiveId> removed)
+            throws IOException {
+        List<OsmPrimitive> primitives = new ArrayList<>(changed.size());
+        for (OsmPrimitive p : changed) {
+            if (p.getDataSet() == ds) {
+                primitives.add(p);
+            }
+        }
+        List<PrimitiveId> removedIds = new ArrayList<>(removed.size());
+        for (PrimitiveId id : removed) {
+            // primitives removed then added again, by undo for instance, are written as changed
+            if (ds.getPrimitiveById(id) == null) {
+                removedIds.add(id);
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(primitives.size());
+        for (OsmPrimitive p : primitives) {
+            write(out, p);
+        }
+        out.writeInt(removedIds.size());
+        for (PrimitiveId id : removedIds) {
+            out.writeByte(id.getType().ordinal());
+            out.writeLong(id.getUniqueId());
+        }
+        out.flush();
+
+        boolean created = !file.exists() || file.length() == 0;
+        try (DataOutputStream journal = new DataOutputStream(new FileOutputStream(file, !created))) {
+            if (created) {
+                journal.writeInt(MAGIC);
+                journal.writeInt(FORMAT_VERSION);
+            }
+            journal.writeInt(bytes.size());
+            bytes.writeTo(journal);
+        }
+        entryCount++;
+    }
+
+    private static void write(DataOutputStream out, OsmPrimitive p) throws IOException {
+        out.writeByte(p.getType().ordinal());
+        out.writeLong(p.getUniqueId());
+        out.writeInt(p.getVersion());
+        out.writeInt(p.getChangesetId());
+        out.writeInt(p.getRawTimestamp());
+        User user = p.getUser();
+        if (user != null && user.isOsmUser()) {
+            out.writeByte(USER_OSM);
+            out.writeLong(user.getId());
+            out.writeUTF(user.getName());
+        } else if (user != null && user.isLocalUser()) {
+            out.writeByte(USER_LOCAL);
+            out.writeUTF(user.getName());
+        } else {
+            out.writeByte(USER_NONE);
+        }
+        out.writeByte((p.isModified() ? FLAG_MODIFIED : 0)
+                | (p.isDeleted() ? FLAG_DELETED : 0)
+                | (p.isIncomplete() ? FLAG_INCOMPLETE : 0)
+                | (p.isVisible() ? 0 : FLAG_INVISIBLE));
+        Map<String, String> keys = p.getKeys();
+        out.writeInt(keys.size());
+        for (Entry<String, String> e : keys.entrySet()) {
+            out.writeUTF(e.getKey());
+            out.writeUTF(e.getValue());
+        }
+        if (p instanceof Node) {
+            LatLon coor = ((Node) p).getCoor();
+            out.writeBoolean(coor != null);
+            if (coor != null) {
+                out.writeDouble(coor.lat());
+                out.writeDouble(coor.lon());
+            }
+        } else if (p instanceof Way) {
+            Way w = (Way) p;
+            out.writeInt(w.getNodesCount());
+            for (int i = 0; i < w.getNodesCount(); i++) {
+                out.writeLong(w.getNode(i).getUniqueId());
+            }
+        } else {
+            List<RelationMember> members = ((Relation) p).getMembers();
+            out.writeInt(members.size());
+            for (RelationMember member : members) {
+                out.writeByte(member.getType().ordinal());
+                out.writeLong(member.getUniqueId());
+                out.writeUTF(member.getRole());
+            }
+        }
+    }
+
+    private static PrimitiveData read(DataInputStream in) throws IOException {
+        OsmPrimitiveType type = OsmPrimitiveType.values()[in.readByte()];
+        PrimitiveData data = type == OsmPrimitiveType.NODE ? new NodeData()
+                : type == OsmPrimitiveType.WAY ? new WayData() : new RelationData();
+        data.setId(in.readLong());
+        data.setVersion(in.readInt());
+        data.setChangesetId(in.readInt());
+        data.setRawTimestamp(in.readInt());
+        switch (in.readByte()) {
+        case USER_OSM:
+            long uid = in.readLong();
+            data.setUser(User.createOsmUser(uid, in.readUTF()));
+            break;
+        case USER_LOCAL:
+            data.setUser(User.createLocalUser(in.readUTF()));
+            break;
+        default:
+            break;
+        }
+        int flags = in.readByte();
+        data.setModified((flags & FLAG_MODIFIED) != 0);
+        data.setDeleted((flags & FLAG_DELETED) != 0);
+        data.setIncomplete((flags & FLAG_INCOMPLETE) != 0);
+        data.setVisible((flags & FLAG_INVISIBLE) == 0);
+        int keysCount = in.readInt();
+        Map<String, String> keys = new HashMap<>(keysCount * 2);
+        for (int i = 0; i < keysCount; i++) {
+            keys.put(in.readUTF(), in.readUTF());
+        }
+        data.setKeys(keys);
+        if (data instanceof NodeData) {
+            if (in.readBoolean()) {
+                ((NodeData) data).setCoor(new LatLon(in.readDouble(), in.readDouble()));
+            }
+        } else if (data instanceof WayData) {
+            int count = in.readInt();
+            List<Long> nodes = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                nodes.add(in.readLong());
+            }
+            ((WayData) data).setNodes(nodes);
+        } else {
+            int count = in.readInt();
+            List<RelationMemberData> members = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                OsmPrimitiveType memberType = OsmPrimitiveType.values()[in.readByte()];
+                long memberId = in.readLong();
+                members.add(new RelationMemberData(in.readUTF(), memberType, memberId));
+            }
+            ((RelationData) data).setMembers(members);
+        }
+        return data;
+    }
+
+    /**
+     * Reader of a checkpoint which gives access to the primitives read, by their id in the file.
+     */
+    private static final class CheckpointReader extends OsmReader {
+        DataSet parse(InputStream in) throws IllegalDataException {
+            return doParseDataSet(in, NullProgressMonitor.INSTANCE);
+        }
+
+        Map<PrimitiveId, OsmPrimitive> getPrimitives() {
+            return externalIdMap;
+        }
+    }
+
+    /**
+     * Applies a journal to the autosaved file it belongs to, and writes the file again.
+     * The journal is left untouched: the caller deletes it once the file is safely written.
+     * @param checkpoint the autosaved file
+     * @param journal the journal
+     * @return the number of entries applied
+     * @throws IOException if a file cannot be read or written
+     * @throws IllegalDataException if the file or the journal is not consistent
+     */
+    static int replay(File checkpoint, File journal) throws IOException, IllegalDataException {
+        CheckpointReader reader = new CheckpointReader();
+        DataSet ds;
+        try (InputStream in = Compression.getUncompressedFileInputStream(checkpoint)) {
+            ds = reader.parse(in);
+        }
+        Map<PrimitiveId, OsmPrimitive> primitives = new HashMap<>(reader.getPrimitives());
+        int count;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(journal))) {
+            count = replay(ds, primitives, in);
+        }
+
+        File tmp = new File(checkpoint.getPath() + ".tmp");
+        try (OutputStream out = Compression.byExtension(checkpoint.getName()).getCompressedOutputStream(new FileOutputStream(tmp));
+             OsmWriter w = OsmWriterFactory.createOsmWriter(
+                     new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)), false, ds.getVersion())) {
+            w.header(!ds.isUploadDiscouraged());
+            w.writeDataSources(ds);
+            w.writeContent(ds);
+            w.footer();
+        }
+        Files.move(tmp.toPath(), checkpoint.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return count;
+    }
+
+    /**
+     * Applies the entries of a journal to a data set.
+     * @param ds the data set read from the checkpoint
+     * @param primitives the primitives of the data set, by their id in the checkpoint. Updated as primitives are added or removed
+     * @param in the journal
+     * @return the number of entries applied
+     * @throws IOException if the journal cannot be read
+     * @throws IllegalDataException if the journal does not match the data set
+     */
+    static int replay(DataSet ds, Map<PrimitiveId, OsmPrimitive> primitives, InputStream in) throws IOException, IllegalDataException {
+        DataInputStream journal = new DataInputStream(in);
+        try {
+            if (journal.readInt() != MAGIC || journal.readInt() != FORMAT_VERSION)
+                throw new IllegalDataException(tr("Unsupported autosave journal"));
+        } catch (EOFException e) {
+            return 0;
+        }
+        int count = 0;
+        while (true) {
+            byte[] entry;
+            try {
+                entry = new byte[journal.readInt()];
+                journal.readFully(entry);
+            } catch (EOFException e) {
+                // end of the journal, or last entry not completely written
+                return count;
+            }
+            apply(ds, primitives, new DataInputStream(new ByteArrayInputStream(entry)));
+            count++;
+        }
+    }
+
+    private static void apply(DataSet ds, Map<PrimitiveId, OsmPrimitive> primitives, DataInputStream entry)
+            throws IOException, IllegalDataException {
+        int count = entry.readInt();
+        List<PrimitiveData> changed = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            changed.add(read(entry));
+        }
+        count = entry.readInt();
+        List<PrimitiveId> removed = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            OsmPrimitiveType type = OsmPrimitiveType.values()[entry.readByte()];
+            removed.add(new SimplePrimitiveId(entry.readLong(), type));
+        }
+
+        ds.beginUpdate();
+        try {
+            // create the new primitives first, ways and relations may refer to each other
+            for (PrimitiveData data : changed) {
+                PrimitiveId id = data.getPrimitiveId();
+                if (!primitives.containsKey(id)) {
+                    OsmPrimitive p = data.getType().newInstance(Math.max(0, data.getUniqueId()), false);
+                    if (p instanceof Node) {
+                        // a complete node must have coordinates when added
+                        p.load(data);
+                    }
+                    ds.addPrimitive(p);
+                    primitives.put(id, p);
+                }
+            }
+            // referenced primitives are loaded before the primitives referring to them, deleted ones after
+            for (OsmPrimitiveType type : new OsmPrimitiveType[] {OsmPrimitiveType.NODE, OsmPrimitiveType.WAY, OsmPrimitiveType.RELATION}) {
+                for (PrimitiveData data : changed) {
+                    if (data.getType() == type && !data.isDeleted()) {
+                        load(primitives, data);
+                    }
+                }
+            }
+            for (OsmPrimitiveType type : new OsmPrimitiveType[] {OsmPrimitiveType.RELATION, OsmPrimitiveType.WAY, OsmPrimitiveType.NODE}) {
+                for (PrimitiveData data : changed) {
+                    if (data.getType() == type && data.isDeleted()) {
+                        load(primitives, data);
+                    }
+                }
+            }
+            for (PrimitiveId id : removed) {
+                OsmPrimitive p = primitives.remove(id);
+                if (p != null && p.getDataSet() == ds) {
+                    ds.removePrimitive(p);
+                }
+            }
+        } finally {
+            ds.endUpdate();
+        }
+    }
+
+    private static void load(Map<PrimitiveId, OsmPrimitive> primitives, PrimitiveData data) throws IllegalDataException {
+        // translate the ids of the journal to the ids of the primitives read from the checkpoint
+        if (data instanceof WayData) {
+            List<Long> nodes = ((WayData) data).getNodes();
+            for (int i = 0; i < nodes.size(); i++) {
+                nodes.set(i, get(primitives, new SimplePrimitiveId(nodes.get(i), OsmPrimitiveType.NODE)).getUniqueId());
+            }
+        } else if (data instanceof RelationData) {
+            List<RelationMemberData> members = new ArrayList<>();
+            for (RelationMemberData member : ((RelationData) data).getMembers()) {
+                OsmPrimitive p = get(primitives, new SimplePrimitiveId(member.getUniqueId(), member.getType()));
+                members.add(new RelationMemberData(member.getRole(), p));
+            }
+            ((RelationData) data).setMembers(members);
+        }
+        OsmPrimitive p = primitives.get(data.getPrimitiveId());
+        p.load(data);
+        if (p.isVisible() != data.isVisible()) {
+            p.setVisible(data.isVisible());
+        }
+    }
+
+    private static OsmPrimitive get(Map<PrimitiveId, OsmPrimitive> primitives, PrimitiveId id) throws IllegalDataException {
+        OsmPrimitive p = primitives.get(id);
+        if (p == null)
+            throw new IllegalDataException(tr("Autosave journal refers to missing {0} {1}", id.getType().getAPIName(), id.getUniqueId()));
+        return p;
+    }
+}
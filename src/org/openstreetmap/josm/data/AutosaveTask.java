@@ -16,10 +16,12 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
@@ -28,9 +30,14 @@ import java.util.regex.Pattern;
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.actions.OpenFileAction.OpenFileTask;
 import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.PrimitiveId;
+import org.openstreetmap.josm.data.osm.SimplePrimitiveId;
 import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
 import org.openstreetmap.josm.data.osm.event.DataSetListenerAdapter;
 import org.openstreetmap.josm.data.osm.event.DataSetListenerAdapter.Listener;
+import org.openstreetmap.josm.data.osm.event.PrimitivesRemovedEvent;
 import org.openstreetmap.josm.data.preferences.BooleanProperty;
 import org.openstreetmap.josm.data.preferences.IntegerProperty;
 import org.openstreetmap.josm.gui.MapView;
@@ -39,6 +46,7 @@ import org.openstreetmap.josm.gui.Notification;
 import org.openstreetmap.josm.gui.layer.Layer;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.io.IllegalDataException;
 import org.openstreetmap.josm.io.OsmExporter;
 import org.openstreetmap.josm.io.OsmImporter;
 import org.openstreetmap.josm.tools.Utils;
@@ -58,6 +66,11 @@ import org.openstreetmap.josm.tools.Utils;
  *      open with another versions of JOSM or fix the problem manually.
  *
  *      The deleted layers dir keeps at most PROP_DELETED_LAYERS files.
+ *
+ * Unless PROP_JOURNAL is disabled, a layer is not completely saved again each time it changes:
+ * the changed primitives are appended to a journal next to the last saved file, see {@link AutosaveJournal}.
+ * The layer is saved again when the journal has PROP_JOURNAL_ENTRIES entries, or becomes larger than
+ * half of the saved file. The journal is applied to the saved file before the layer is restored.
  */
 public class AutosaveTask extends TimerTask implements LayerChangeListener, Listener {
 
@@ -72,20 +85,73 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
     public static final IntegerProperty PROP_INDEX_LIMIT = new IntegerProperty("autosave.index-limit", 1000);
     /** Defines if a notification should be displayed after each autosave */
     public static final BooleanProperty PROP_NOTIFICATION = new BooleanProperty("autosave.notification", false);
+    /** Defines if the changes are appended to a journal instead of saving the whole layer each time */
+    public static final BooleanProperty PROP_JOURNAL = new BooleanProperty("autosave.journal", true);
+    /** The maximal number of journal entries before the whole layer is saved again */
+    public static final IntegerProperty PROP_JOURNAL_ENTRIES = new IntegerProperty("autosave.journal.maxEntries", 20);
 
     protected static final class AutosaveLayerInfo {
         private final OsmDataLayer layer;
         private String layerName;
         private String layerFileName;
         private final Deque<File> backupFiles = new LinkedList<>();
+        /** The journal of the last backup file, {@code null} if the next change must be saved in a new file */
+        private AutosaveJournal journal;
+        private int dataSourcesCount;
+        private boolean uploadDiscouraged;
 
         AutosaveLayerInfo(OsmDataLayer layer) {
             this.layer = layer;
         }
     }
 
+    /**
+     * Changes made to a data set since it has been saved.
+     */
+    private static final class DataSetChanges {
+        private final Set<OsmPrimitive> changed = new HashSet<>();
+        private final Set<PrimitiveId> removed = new HashSet<>();
+        /** {@code true} if the changes are not known, the whole data set must be saved */
+        private boolean unknown;
+
+        private void add(AbstractDatasetChangedEvent event) {
+            if (unknown)
+                return;
+            if (event instanceof DataChangedEvent) {
+                List<AbstractDatasetChangedEvent> events = ((DataChangedEvent) event).getEvents();
+                if (events == null) {
+                    setUnknown();
+                } else {
+                    for (AbstractDatasetChangedEvent e : events) {
+                        add(e);
+                    }
+                }
+            } else if (event instanceof PrimitivesRemovedEvent) {
+                for (OsmPrimitive p : event.getPrimitives()) {
+                    if (p.getDataSet() == null) {
+                        removed.add(new SimplePrimitiveId(p.getUniqueId(), p.getType()));
+                    } else if (p.isDeleted()) {
+                        changed.add(p);
+                    } else {
+                        // primitive added again with another id, after upload
+                        setUnknown();
+                        return;
+                    }
+                }
+            } else {
+                changed.addAll(event.getPrimitives());
+            }
+        }
+
+        private void setUnknown() {
+            unknown = true;
+            changed.clear();
+            removed.clear();
+        }
+    }
+
     private final DataSetListenerAdapter datasetAdapter = new DataSetListenerAdapter(this);
-    private final Set<DataSet> changedDatasets = new HashSet<>();
+    private final Map<DataSet, DataSetChanges> changedDatasets = new HashMap<>();
     private final List<AutosaveLayerInfo> layersInfo = new ArrayList<>();
     private Timer timer;
     private final Object layersLock = new Object();
@@ -198,34 +264,73 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
         }
     }
 
-    private void savelayer(AutosaveLayerInfo info) {
+    private void savelayer(AutosaveLayerInfo info, boolean checkpoint) {
         if (!info.layer.getName().equals(info.layerName)) {
             setLayerFileName(info);
             info.layerName = info.layer.getName();
         }
-        if (changedDatasets.remove(info.layer.data)) {
+        DataSetChanges changes;
+        synchronized (changedDatasets) {
+            changes = changedDatasets.remove(info.layer.data);
+        }
+        boolean journalPending = info.journal != null && info.journal.getEntryCount() > 0;
+        if ((changes != null && (checkpoint || !appendToJournal(info, changes))) || (checkpoint && journalPending)) {
             File file = getNewLayerFile(info, new Date(), 0);
             if (file != null) {
                 info.backupFiles.add(file);
-                new OsmExporter().exportData(file, info.layer, true /* no backup with appended ~ */);
+                info.dataSourcesCount = info.layer.data.dataSources.size();
+                info.uploadDiscouraged = info.layer.isUploadDiscouraged();
+                new OsmExporter().exportSnapshot(file, info.layer, true /* no backup with appended ~ */);
+                info.journal = PROP_JOURNAL.get() ? new AutosaveJournal(getJournalFile(file)) : null;
             }
         }
         while (info.backupFiles.size() > PROP_FILES_PER_LAYER.get()) {
             File oldFile = info.backupFiles.remove();
             if (Utils.deleteFile(oldFile, marktr("Unable to delete old backup file {0}"))) {
                 Utils.deleteFile(getPidFile(oldFile), marktr("Unable to delete old backup file {0}"));
+                File journalFile = getJournalFile(oldFile);
+                if (journalFile.exists()) {
+                    Utils.deleteFile(journalFile, marktr("Unable to delete old backup file {0}"));
+                }
             }
         }
     }
 
+    /**
+     * Appends the changes of a layer to the journal of its last backup file.
+     * @param info the layer
+     * @param changes the changes made since the layer has been saved
+     * @return {@code true} if the changes have been appended, {@code false} if the layer must be saved in a new file
+     */
+    private static boolean appendToJournal(AutosaveLayerInfo info, DataSetChanges changes) {
+        AutosaveJournal journal = info.journal;
+        DataSet ds = info.layer.data;
+        if (journal == null || changes.unknown || journal.getEntryCount() >= PROP_JOURNAL_ENTRIES.get()
+                || journal.getFile().length() > info.backupFiles.getLast().length() / 2
+                || ds.dataSources.size() != info.dataSourcesCount || info.layer.isUploadDiscouraged() != info.uploadDiscouraged)
+            return false;
+        ds.getReadLock().lock();
+        try {
+            journal.append(ds, changes.changed, changes.removed);
+            return true;
+        } catch (IOException e) {
+            Main.warn(tr("Unable to write autosave journal {0}: {1}", journal.getFile().getAbsolutePath(), e.getMessage()));
+            return false;
+        } finally {
+            ds.getReadLock().unlock();
+        }
+    }
+
     @Override
     public void run() {
         synchronized (layersLock) {
             try {
                 for (AutosaveLayerInfo info: layersInfo) {
-                    savelayer(info);
+                    savelayer(info, false);
+                }
+                synchronized (changedDatasets) {
+                    changedDatasets.clear();
                 }
-                changedDatasets.clear();
                 if (PROP_NOTIFICATION.get() && !layersInfo.isEmpty()) {
                     displayNotification();
                 }
@@ -278,7 +383,7 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
                     AutosaveLayerInfo info = it.next();
                     if (info.layer == osmLayer) {
 
-                        savelayer(info);
+                        savelayer(info, true);
                         File lastFile = info.backupFiles.pollLast();
                         if (lastFile != null) {
                             moveToDeletedLayersFolder(lastFile);
@@ -286,6 +391,10 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
                         for (File file: info.backupFiles) {
                             if (Utils.deleteFile(file)) {
                                 Utils.deleteFile(getPidFile(file));
+                                File journalFile = getJournalFile(file);
+                                if (journalFile.exists()) {
+                                    Utils.deleteFile(journalFile);
+                                }
                             }
                         }
 
@@ -298,13 +407,40 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
 
     @Override
     public void processDatasetEvent(AbstractDatasetChangedEvent event) {
-        changedDatasets.add(event.getDataset());
+        synchronized (changedDatasets) {
+            DataSetChanges changes = changedDatasets.get(event.getDataset());
+            if (changes == null) {
+                changes = new DataSetChanges();
+                changedDatasets.put(event.getDataset(), changes);
+            }
+            changes.add(event);
+        }
     }
 
     protected File getPidFile(File osmFile) {
         return new File(autosaveDir, osmFile.getName().replaceFirst("[.][^.]+$", ".pid"));
     }
 
+    protected File getJournalFile(File osmFile) {
+        return new File(autosaveDir, osmFile.getName().replaceFirst("[.][^.]+$", ".journal"));
+    }
+
+    /**
+     * Applies the journal of an autosaved file, if any, so that the file contains the last saved changes.
+     * @param osmFile the file, usually from the autosave dir
+     */
+    private void replayJournal(File osmFile) {
+        File journalFile = getJournalFile(osmFile);
+        if (journalFile.exists()) {
+            try {
+                AutosaveJournal.replay(osmFile, journalFile);
+                Utils.deleteFile(journalFile, marktr("Unable to delete autosave journal {0}"));
+            } catch (IOException | IllegalDataException e) {
+                Main.warn(tr("Unable to apply autosave journal {0}: {1}", journalFile.getAbsolutePath(), e.getMessage()));
+            }
+        }
+    }
+
     /**
      * Replies the list of .osm files still present in autosave dir, that are not currently managed by another instance of JOSM.
      * These files are hence unsaved layers from an old instance of JOSM that crashed and may be recovered by this instance.
@@ -353,7 +489,15 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
     }
 
     public void recoverUnsavedLayers() {
-        List<File> files = getUnsavedLayersFiles();
+        final List<File> files = getUnsavedLayersFiles();
+        Main.worker.submit(new Runnable() {
+            @Override
+            public void run() {
+                for (File f: files) {
+                    replayJournal(f);
+                }
+            }
+        });
         final OpenFileTask openFileTsk = new OpenFileTask(files, null, tr("Restoring files"));
         Main.worker.submit(openFileTsk);
         Main.worker.submit(new Runnable() {
@@ -377,6 +521,11 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
     private void moveToDeletedLayersFolder(File f) {
         File backupFile = new File(deletedLayersDir, f.getName());
         File pidFile = getPidFile(f);
+        replayJournal(f);
+        File journalFile = getJournalFile(f);
+        if (journalFile.exists() && !journalFile.renameTo(new File(deletedLayersDir, journalFile.getName()))) {
+            Utils.deleteFile(journalFile, marktr("Unable to delete autosave journal {0}"));
+        }
 
         if (backupFile.exists()) {
             deletedLayers.remove(backupFile);
@@ -2,9 +2,15 @@
 package org.openstreetmap.josm.data.cache;
 
 import java.io.IOException;
-import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.Semaphore;
@@ -18,15 +24,19 @@ import org.openstreetmap.josm.Main;
  * Queue for ThreadPoolExecutor that implements per-host limit. It will acquire a semaphore for each task
  * and it will set a runnable task with semaphore release, when job has finished.
  *
- * This implementation doesn't guarantee to have at most hostLimit connections per host[1], and it doesn't
- * guarantee that all threads will be busy, when there is work for them[2].
+ * Jobs are not taken in FIFO order: a thread takes the job with the lowest {@link JCSCachedTileLoaderJob#getPriority()}
+ * among the jobs whose host limit is not reached. The jobs are grouped by host, each group being sorted by priority,
+ * so that taking a job only looks at the first job of each host. The priority of a job is evaluated when it is queued,
+ * and again for all queued jobs by {@link #reprioritize()}, e.g. when the viewport changes. When the limit is reached
+ * for all queued jobs, the thread waits until a job finishes or a new job is queued, without holding any job, so that
+ * the jobs can still be canceled.
+ *
+ * Only the {@link java.util.concurrent.BlockingQueue} methods used by ThreadPoolExecutor see the grouped jobs.
+ *
+ * This implementation doesn't guarantee to have at most hostLimit connections per host[1].
  *
  * [1] More connection per host may happen, when ThreadPoolExecutor is growing its pool, and thus
  *     tasks do not go through the Queue
- * [2] If we have a queue, and for all hosts in queue we will fail to acquire semaphore, the thread
- *     take the first available job and wait for semaphore. It might be the case, that semaphore was released
- *     for some task further in queue, but this implementation doesn't try to detect such situation
- *
  *
  */
 public class HostLimitQueue extends LinkedBlockingDeque<Runnable> {
@@ -35,6 +45,36 @@ public class HostLimitQueue extends LinkedBlockingDeque<Runnable> {
     private final Map<String, Semaphore> hostSemaphores = new ConcurrentHashMap<>();
     private final int hostLimit;
 
+    /** Guards the queued jobs, notified when a job is queued or when a job finishes */
+    private final transient Object lock = new Object();
+    /** The queued jobs, by host, sorted by priority. Removed jobs are only dropped when they reach the head */
+    private final transient Map<String, PriorityQueue<QueuedJob>> hostJobs = new LinkedHashMap<>();
+    /** The queued jobs */
+    private final transient Map<JCSCachedTileLoaderJob<?, ?>, QueuedJob> queuedJobs = new IdentityHashMap<>();
+    /** Incremented for each queued job, to take jobs of the same priority in the order of submission */
+    private long sequence;
+
+    private static final class QueuedJob implements Comparable<QueuedJob> {
+        private final JCSCachedTileLoaderJob<?, ?> job;
+        private final String host;
+        private final long sequence;
+        private double priority;
+        private boolean removed;
+
+        QueuedJob(JCSCachedTileLoaderJob<?, ?> job, String host, long sequence) {
+            this.job = job;
+            this.host = host;
+            this.sequence = sequence;
+            this.priority = job.getPriority();
+        }
+
+        @Override
+        public int compareTo(QueuedJob o) {
+            int c = Double.compare(priority, o.priority);
+            return c != 0 ? c : Long.compare(sequence, o.sequence);
+        }
+    }
+
     /**
      * Creates an unbounded queue
      * @param hostLimit how many parallel calls to host to allow
@@ -44,69 +84,257 @@ public class HostLimitQueue extends LinkedBlockingDeque<Runnable> {
         this.hostLimit = hostLimit;
     }
 
-    private JCSCachedTileLoaderJob<?, ?> findJob() {
-        for (Iterator<Runnable> it = iterator(); it.hasNext();) {
-            Runnable r = it.next();
-            if (r instanceof JCSCachedTileLoaderJob) {
-                JCSCachedTileLoaderJob<?, ?> job = (JCSCachedTileLoaderJob<?, ?>) r;
-                if (tryAcquireSemaphore(job)) {
-                    if (remove(job)) {
-                        return job;
-                    } else {
-                        // we have acquired the semaphore, but we didn't manage to remove job, as someone else did
-                        // release the semaphore and look for another candidate
-                        releaseSemaphore(job);
-                    }
-                } else {
-                    URL url = null;
-                    try {
-                        url = job.getUrl();
-                    } catch (IOException e) {
-                        if (Main.isDebugEnabled()) {
-                            Main.debug(e.getMessage());
-                        }
-                    }
-                    Main.debug("TMS - Skipping job {0} because host limit reached", url);
+    /**
+     * Evaluates again the priorities of the queued jobs, and sorts them accordingly.
+     */
+    public void reprioritize() {
+        synchronized (lock) {
+            for (PriorityQueue<QueuedJob> jobs : hostJobs.values()) {
+                jobs.clear();
+            }
+            for (QueuedJob queued : queuedJobs.values()) {
+                queued.priority = queued.job.getPriority();
+                hostJobs.get(queued.host).add(queued);
+            }
+        }
+    }
+
+    /**
+     * Takes the queued job with the lowest priority among the hosts whose limit is not reached. Must be called with
+     * {@link #lock} held.
+     * @return the job, or {@code null} if there is no job, or if the limit is reached for all the queued jobs
+     */
+    private Runnable findJob() {
+        // no host limit for other tasks
+        Runnable r = super.poll();
+        if (r != null)
+            return r;
+        QueuedJob best = null;
+        for (Iterator<PriorityQueue<QueuedJob>> it = hostJobs.values().iterator(); it.hasNext();) {
+            PriorityQueue<QueuedJob> jobs = it.next();
+            while (!jobs.isEmpty() && jobs.peek().removed) {
+                jobs.poll();
+            }
+            QueuedJob head = jobs.peek();
+            if (head == null) {
+                it.remove();
+            } else if (getSemaphore(head.host).availablePermits() == 0) {
+                if (Main.isDebugEnabled()) {
+                    Main.debug("TMS - Skipping host {0} because host limit reached", head.host);
                 }
+            } else if (best == null || head.compareTo(best) < 0) {
+                best = head;
             }
         }
-        return null;
+        // permits are only acquired with the lock held, so the permit of the best job is still available
+        if (best == null || !tryAcquireSemaphore(best.job))
+            return null;
+        hostJobs.get(best.host).poll();
+        queuedJobs.remove(best.job);
+        return best.job;
+    }
+
+    private void signalChange() {
+        synchronized (lock) {
+            lock.notifyAll();
+        }
     }
 
     @Override
-    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
-        Runnable job = findJob();
-        if (job != null) {
-            return job;
+    public boolean offer(Runnable e) {
+        synchronized (lock) {
+            if (e instanceof JCSCachedTileLoaderJob) {
+                JCSCachedTileLoaderJob<?, ?> job = (JCSCachedTileLoaderJob<?, ?>) e;
+                String host = getHost(job);
+                QueuedJob queued = new QueuedJob(job, host, sequence++);
+                queuedJobs.put(job, queued);
+                PriorityQueue<QueuedJob> jobs = hostJobs.get(host);
+                if (jobs == null) {
+                    jobs = new PriorityQueue<>();
+                    hostJobs.put(host, jobs);
+                }
+                jobs.add(queued);
+            } else if (!super.offer(e)) {
+                return false;
+            }
+            lock.notifyAll();
+            return true;
         }
-        job = pollFirst(timeout, unit);
-        if (job != null) {
-            acquireSemaphore(job);
+    }
+
+    @Override
+    public boolean add(Runnable e) {
+        if (!offer(e))
+            throw new IllegalStateException("Queue full");
+        return true;
+    }
+
+    @Override
+    public void put(Runnable e) {
+        offer(e);
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (lock) {
+            while (true) {
+                Runnable job = findJob();
+                long left = deadline - System.nanoTime();
+                if (job != null || left <= 0) {
+                    return job;
+                }
+                TimeUnit.NANOSECONDS.timedWait(lock, left);
+            }
         }
-        return job;
     }
 
     @Override
     public Runnable take() throws InterruptedException {
-        Runnable job = findJob();
-        if (job != null) {
-            return job;
+        synchronized (lock) {
+            while (true) {
+                Runnable job = findJob();
+                if (job != null) {
+                    return job;
+                }
+                lock.wait();
+            }
         }
-        job = takeFirst();
-        if (job != null) {
-            acquireSemaphore(job);
+    }
+
+    @Override
+    public Runnable poll() {
+        synchronized (lock) {
+            return findJob();
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        synchronized (lock) {
+            QueuedJob queued = queuedJobs.remove(o);
+            if (queued != null) {
+                queued.removed = true;
+                return true;
+            }
+            return super.remove(o);
+        }
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        synchronized (lock) {
+            return queuedJobs.containsKey(o) || super.contains(o);
         }
-        return job;
     }
 
-    private  Semaphore getSemaphore(JCSCachedTileLoaderJob<?, ?> job) {
-        String host;
+    @Override
+    public int size() {
+        synchronized (lock) {
+            return queuedJobs.size() + super.size();
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public void clear() {
+        synchronized (lock) {
+            for (QueuedJob queued : queuedJobs.values()) {
+                queued.removed = true;
+            }
+            queuedJobs.clear();
+            hostJobs.clear();
+            super.clear();
+        }
+    }
+
+    /**
+     * Returns the queued jobs, regardless of the host limits: the other tasks in the order of submission, then the
+     * jobs in no particular order.
+     * @return the queued jobs
+     */
+    private List<Runnable> getQueued() {
+        synchronized (lock) {
+            List<Runnable> result = new ArrayList<>(Arrays.asList(super.toArray(new Runnable[0])));
+            result.addAll(queuedJobs.keySet());
+            return result;
+        }
+    }
+
+    /**
+     * Returns an iterator over a snapshot of the queued jobs. Its {@code remove} method removes the job from this queue.
+     */
+    @Override
+    public Iterator<Runnable> iterator() {
+        final Iterator<Runnable> it = getQueued().iterator();
+        return new Iterator<Runnable>() {
+            private Runnable last;
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public Runnable next() {
+                last = it.next();
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                if (last == null)
+                    throw new IllegalStateException();
+                HostLimitQueue.this.remove(last);
+                last = null;
+            }
+        };
+    }
+
+    @Override
+    public Object[] toArray() {
+        return getQueued().toArray();
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a) {
+        return getQueued().toArray(a);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c, int maxElements) {
+        synchronized (lock) {
+            int count = 0;
+            for (Runnable r : getQueued()) {
+                if (count >= maxElements)
+                    break;
+                remove(r);
+                c.add(r);
+                count++;
+            }
+            return count;
+        }
+    }
+
+    private static String getHost(JCSCachedTileLoaderJob<?, ?> job) {
         try {
-            host = job.getUrl().getHost();
+            return job.getUrl().getHost();
         } catch (IOException e) {
             // do not pass me illegal URL's
             throw new IllegalArgumentException(e);
         }
+    }
+
+    private Semaphore getSemaphore(String host) {
         Semaphore limit = hostSemaphores.get(host);
         if (limit == null) {
             synchronized (hostSemaphores) {
@@ -120,46 +348,25 @@ public class HostLimitQueue extends LinkedBlockingDeque<Runnable> {
         return limit;
     }
 
-    private void acquireSemaphore(Runnable job) throws InterruptedException {
-        if (job instanceof JCSCachedTileLoaderJob) {
-            final JCSCachedTileLoaderJob<?, ?> jcsJob = (JCSCachedTileLoaderJob<?, ?>) job;
-            Semaphore limit = getSemaphore(jcsJob);
-            if (limit != null) {
-                limit.acquire();
-                jcsJob.setFinishedTask(new Runnable() {
-                    @Override
-                    public void run() {
-                        releaseSemaphore(jcsJob);
-                    }
-                });
-            }
-        }
-    }
-
     private boolean tryAcquireSemaphore(final JCSCachedTileLoaderJob<?, ?> job) {
-        boolean ret = true;
-        Semaphore limit = getSemaphore(job);
-        if (limit != null) {
-            ret = limit.tryAcquire();
-            if (ret) {
-                job.setFinishedTask(new Runnable() {
-                    @Override
-                    public void run() {
-                        releaseSemaphore(job);
-                    }
-                });
-            }
+        boolean ret = getSemaphore(getHost(job)).tryAcquire();
+        if (ret) {
+            job.setFinishedTask(new Runnable() {
+                @Override
+                public void run() {
+                    releaseSemaphore(job);
+                }
+            });
         }
         return ret;
     }
 
     private void releaseSemaphore(JCSCachedTileLoaderJob<?, ?> job) {
-        Semaphore limit = getSemaphore(job);
-        if (limit != null) {
-            limit.release();
-            if (limit.availablePermits() > hostLimit) {
-                Main.warn("More permits than it should be");
-            }
+        Semaphore limit = getSemaphore(getHost(job));
+        limit.release();
+        signalChange();
+        if (limit.availablePermits() > hostLimit) {
+            Main.warn("More permits than it should be");
         }
     }
 }
@@ -496,6 +496,15 @@ public abstract class JCSCachedTileLoaderJob<K, V extends CacheEntry> implements
 
     }
 
+    /**
+     * Returns the priority of this job. When queued in a {@link HostLimitQueue}, jobs with a lower value are run first.
+     * The priority may change while the job is queued.
+     * @return the priority of this job, 0 by default
+     */
+    public double getPriority() {
+        return 0;
+    }
+
     /**
      * Marks this job as canceled
      */
@@ -3,6 +3,7 @@ package org.openstreetmap.josm.data.imagery;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -43,6 +44,11 @@ public class TMSCachedTileLoader implements TileLoader, CachedTileLoader {
      */
     public static final IntegerProperty HOST_LIMIT = new IntegerProperty("imagery.tms.tmsloader.maxjobsperhost", 6);
 
+    /**
+     * Number of threads decoding the tile images, separately from the download threads
+     */
+    public static final IntegerProperty DECODER_THREAD_LIMIT = new IntegerProperty("imagery.tms.tmsloader.decoders",
+            Runtime.getRuntime().availableProcessors());
 
     /**
      * separate from JCS thread pool for TMS loader, so we can have different thread pools for default JCS
@@ -51,7 +57,14 @@ public class TMSCachedTileLoader implements TileLoader, CachedTileLoader {
     private static ThreadPoolExecutor DEFAULT_DOWNLOAD_JOB_DISPATCHER = getNewThreadPoolExecutor("TMS-downloader-%d");
 
 
+    /**
+     * decodes the downloaded images, so that the download threads are not kept busy by the decoding, and that the
+     * number of images decoded at once does not exceed the number of processors. Shared by all the loaders
+     */
+    private static final ThreadPoolExecutor DECODE_JOB_DISPATCHER = getNewDecodeExecutor("TMS-decoder-%d");
+
     private ThreadPoolExecutor downloadExecutor = DEFAULT_DOWNLOAD_JOB_DISPATCHER;
+    private volatile TileViewport viewport;
 
     /**
      * Constructor
@@ -95,10 +108,24 @@ public class TMSCachedTileLoader implements TileLoader, CachedTileLoader {
         return getNewThreadPoolExecutor(name, THREAD_LIMIT.get().intValue());
     }
 
+    /**
+     * @param nameFormat see {@link Utils#newThreadFactory(String, int)}
+     * @return new ThreadPoolExecutor that runs the tasks with the highest priority first, see {@link #getDecodeExecutor()}
+     */
+    private static ThreadPoolExecutor getNewDecodeExecutor(String nameFormat) {
+        int workers = Math.max(1, DECODER_THREAD_LIMIT.get());
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(workers, workers, 30, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<Runnable>(), Utils.newThreadFactory(nameFormat, Thread.NORM_PRIORITY));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     @Override
     public TileJob createTileLoaderJob(Tile tile) {
-        return new TMSCachedTileLoaderJob(listener, tile, cache,
+        TMSCachedTileLoaderJob job = new TMSCachedTileLoaderJob(listener, tile, cache,
                 connectTimeout, readTimeout, headers, getDownloadExecutor());
+        job.setTileLoader(this);
+        return job;
     }
 
     @Override
@@ -114,18 +141,51 @@ public class TMSCachedTileLoader implements TileLoader, CachedTileLoader {
     }
 
     /**
-     * cancels all outstanding tasks in the queue. This rollbacks the state of the tiles in the queue
+     * cancels all outstanding tasks of this loader in the queue. This rollbacks the state of the tiles in the queue
      * to loading = false / loaded = false
      */
     @Override
     public void cancelOutstandingTasks() {
         for (Runnable r: downloadExecutor.getQueue()) {
-            if (downloadExecutor.remove(r) && r instanceof TMSCachedTileLoaderJob) {
+            if (r instanceof TMSCachedTileLoaderJob && ((TMSCachedTileLoaderJob) r).getTileLoader() == this
+                    && downloadExecutor.remove(r)) {
                 ((TMSCachedTileLoaderJob) r).handleJobCancellation();
             }
         }
     }
 
+    /**
+     * Sets the tiles displayed by the layer. The queued tiles are loaded from the center of the viewport to its edges,
+     * starting with the zoom level of the viewport, and the queued tiles outside of the viewport are canceled.
+     *
+     * @param viewport the displayed tiles, or {@code null} if unknown. All outstanding tasks are canceled in this case
+     */
+    public void setViewport(TileViewport viewport) {
+        this.viewport = viewport;
+        if (viewport == null) {
+            cancelOutstandingTasks();
+            return;
+        }
+        for (Runnable r: downloadExecutor.getQueue()) {
+            if (r instanceof TMSCachedTileLoaderJob) {
+                TMSCachedTileLoaderJob job = (TMSCachedTileLoaderJob) r;
+                if (job.getTileLoader() == this && !viewport.isVisible(job.getRequestedTile()) && downloadExecutor.remove(r)) {
+                    job.handleJobCancellation();
+                }
+            }
+        }
+        if (downloadExecutor.getQueue() instanceof HostLimitQueue) {
+            ((HostLimitQueue) downloadExecutor.getQueue()).reprioritize();
+        }
+    }
+
+    /**
+     * @return the tiles displayed by the layer, or {@code null} if unknown
+     */
+    public TileViewport getViewport() {
+        return viewport;
+    }
+
     /**
      * Sets the download executor that will be used to download tiles instead of default one.
      * You can use {@link #getNewThreadPoolExecutor} to create a new download executor with separate
@@ -143,4 +203,11 @@ public class TMSCachedTileLoader implements TileLoader, CachedTileLoader {
     public ThreadPoolExecutor getDownloadExecutor() {
         return downloadExecutor;
     }
+
+    /**
+     * @return executor that decodes the images of the tiles, once they have been downloaded or read from the cache
+     */
+    public static ThreadPoolExecutor getDecodeExecutor() {
+        return DECODE_JOB_DISPATCHER;
+    }
 }
@@ -14,6 +14,7 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -44,8 +45,11 @@ public class TMSCachedTileLoaderJob extends JCSCachedTileLoaderJob<String, Buffe
             30 /*days*/ * 24 /*hours*/ * 60 /*minutes*/ * 60 /*seconds*/ *1000L /*milliseconds*/);
     private static final LongProperty MINIMUM_EXPIRES = new LongProperty("imagery.generic.minimum_expires",
             1 /*hour*/ * 60 /*minutes*/ * 60 /*seconds*/ *1000L /*milliseconds*/);
+    /** Order of submission of the decoding tasks, so that tasks of the same priority are run in this order */
+    private static final AtomicLong decodeSequence = new AtomicLong();
     private final Tile tile;
     private volatile URL url;
+    private TMSCachedTileLoader tileLoader;
 
     // we need another deduplication of Tile Loader listeners, as for each submit, new TMSCachedTileLoaderJob was created
     // that way, we reduce calls to tileLoadingFinished, and general CPU load due to surplus Map repaints
@@ -158,6 +162,36 @@ public class TMSCachedTileLoaderJob extends JCSCachedTileLoaderJob<String, Buffe
         }
     }
 
+    /**
+     * Decodes the image of a tile, in the decode executor of {@link TMSCachedTileLoader}.
+     */
+    private final class DecodeTask implements Runnable, Comparable<DecodeTask> {
+        private final CacheEntry object;
+        private final CacheEntryAttributes attributes;
+        private final LoadResult result;
+        private final Set<TileLoaderListener> listeners;
+        private final double priority = getPriority();
+        private final long sequence = decodeSequence.getAndIncrement();
+
+        DecodeTask(CacheEntry object, CacheEntryAttributes attributes, LoadResult result, Set<TileLoaderListener> listeners) {
+            this.object = object;
+            this.attributes = attributes;
+            this.result = result;
+            this.listeners = listeners;
+        }
+
+        @Override
+        public void run() {
+            finishTileLoading(object, attributes, result, listeners);
+        }
+
+        @Override
+        public int compareTo(DecodeTask o) {
+            int cmp = Double.compare(priority, o.priority);
+            return cmp != 0 ? cmp : Long.compare(sequence, o.sequence);
+        }
+    }
+
     @Override
     public void loadingFinished(CacheEntry object, CacheEntryAttributes attributes, LoadResult result) {
         this.attributes = attributes; // as we might get notification from other object than our selfs, pass attributes along
@@ -165,6 +199,15 @@ public class TMSCachedTileLoaderJob extends JCSCachedTileLoaderJob<String, Buffe
         synchronized (inProgress) {
             listeners = inProgress.remove(getCacheKey());
         }
+        if (result == LoadResult.CANCELED) {
+            finishTileLoading(object, attributes, result, listeners);
+        } else {
+            // the tile stays in loading state until its image is decoded
+            TMSCachedTileLoader.getDecodeExecutor().execute(new DecodeTask(object, attributes, result, listeners));
+        }
+    }
+
+    private void finishTileLoading(CacheEntry object, CacheEntryAttributes attributes, LoadResult result, Set<TileLoaderListener> listeners) {
         boolean status = result.equals(LoadResult.SUCCESS);
 
         try {
@@ -241,6 +284,39 @@ public class TMSCachedTileLoaderJob extends JCSCachedTileLoaderJob<String, Buffe
         submit(false);
     }
 
+    /**
+     * Returns the priority of the tile in the viewport of the tile loader, see {@link TileViewport#getPriority(Tile)}.
+     * Tiles are loaded after all the tiles of the viewport if the viewport is unknown.
+     */
+    @Override
+    public double getPriority() {
+        TileViewport viewport = tileLoader != null ? tileLoader.getViewport() : null;
+        return viewport != null ? viewport.getPriority(tile) : Double.MAX_VALUE;
+    }
+
+    /**
+     * Sets the loader which created this job, which provides the viewport used to compute the priority of the job.
+     * @param tileLoader the loader which created this job
+     */
+    void setTileLoader(TMSCachedTileLoader tileLoader) {
+        this.tileLoader = tileLoader;
+    }
+
+    /**
+     * @return the loader which created this job, or {@code null}
+     */
+    TMSCachedTileLoader getTileLoader() {
+        return tileLoader;
+    }
+
+    /**
+     * Returns the tile loaded by this job, without looking it up in the cache, unlike {@link #getTile()}.
+     * @return the tile loaded by this job
+     */
+    Tile getRequestedTile() {
+        return tile;
+    }
+
     @Override
     protected CacheEntryAttributes parseHeaders(HttpClient.Response urlConn) {
         CacheEntryAttributes ret = super.parseHeaders(urlConn);
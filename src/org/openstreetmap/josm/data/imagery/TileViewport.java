@@ -0,0 +1,88 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.imagery;
+
+import org.openstreetmap.gui.jmapviewer.Tile;
+
+/**
+ * The tiles displayed by an imagery layer: a range of tiles at the zoom level of the layer.
+ * <p>
+ * It is used by {@link TMSCachedTileLoader} to load the tiles at the center of the map view first, and to cancel
+ * the tiles which are no longer displayed.
+ */
+public final class TileViewport {
+
+    /**
+     * Weight of the difference of zoom level in the priority, in tiles of the viewport zoom level. The tiles of the
+     * other zoom levels are used to fill the missing tiles, so they are loaded after the close tiles of this zoom level
+     */
+    private static final double ZOOM_LEVEL_WEIGHT = 2;
+
+    private final int zoom;
+    private final int minX;
+    private final int minY;
+    private final int maxX;
+    private final int maxY;
+
+    /**
+     * Constructs a new {@code TileViewport}.
+     * @param zoom the zoom level
+     * @param minX the lowest x index of the displayed tiles
+     * @param minY the lowest y index of the displayed tiles
+     * @param maxX the highest x index of the displayed tiles
+     * @param maxY the highest y index of the displayed tiles
+     */
+    public TileViewport(int zoom, int minX, int minY, int maxX, int maxY) {
+        this.zoom = zoom;
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+    /**
+     * Returns the zoom level of the displayed tiles.
+     * @return the zoom level of the displayed tiles
+     */
+    public int getZoom() {
+        return zoom;
+    }
+
+    /**
+     * Returns the ratio between the size of a tile of the given zoom level, and the size of a tile of the viewport.
+     * @param tileZoom zoom level of a tile
+     * @return the size of a tile of the given zoom level, in tiles of the viewport
+     */
+    private double getScale(int tileZoom) {
+        return Math.scalb(1.0, zoom - tileZoom);
+    }
+
+    /**
+     * Determines if a tile covers a part of the viewport. Tiles of any zoom level are accepted.
+     * @param tile the tile
+     * @return {@code true} if the tile covers a part of the viewport
+     */
+    public boolean isVisible(Tile tile) {
+        double scale = getScale(tile.getZoom());
+        double x = tile.getXtile() * scale;
+        double y = tile.getYtile() * scale;
+        return x < maxX + 1 && x + scale > minX && y < maxY + 1 && y + scale > minY;
+    }
+
+    /**
+     * Returns the priority of a tile: the distance between the centers of the tile and of the viewport, in tiles of
+     * the viewport, increased for the tiles of other zoom levels.
+     * @param tile the tile
+     * @return the priority of the tile. The tiles with the lowest value should be loaded first
+     */
+    public double getPriority(Tile tile) {
+        double scale = getScale(tile.getZoom());
+        double dx = (tile.getXtile() + 0.5) * scale - (minX + maxX + 1) / 2d;
+        double dy = (tile.getYtile() + 0.5) * scale - (minY + maxY + 1) / 2d;
+        return Math.sqrt(dx * dx + dy * dy) + Math.abs(tile.getZoom() - zoom) * ZOOM_LEVEL_WEIGHT;
+    }
+
+    @Override
+    public String toString() {
+        return "TileViewport [zoom=" + zoom + ", minX=" + minX + ", minY=" + minY + ", maxX=" + maxX + ", maxY=" + maxY + ']';
+    }
+}
@@ -38,6 +38,9 @@ public class WMSCachedTileLoader extends TMSCachedTileLoader {
 
     @Override
     public TileJob createTileLoaderJob(Tile tile) {
-        return new WMSCachedTileLoaderJob(listener, tile, cache, connectTimeout, readTimeout, headers, getDownloadExecutor());
+        WMSCachedTileLoaderJob job = new WMSCachedTileLoaderJob(listener, tile, cache, connectTimeout, readTimeout, headers,
+                getDownloadExecutor());
+        job.setTileLoader(this);
+        return job;
     }
 }
@@ -381,6 +381,40 @@ public abstract class AbstractPrimitive implements IPrimitive {
      */
     protected volatile String[] keys;
 
+    /**
+     * Creates a pool of key/value arrays, compared by content. Such a pool is used by {@link #internKeys(Storage)}
+     * to share identical tag sets between primitives.
+     * @return a new, empty pool of key/value arrays
+     */
+    public static Storage<String[]> createKeysPool() {
+        return new Storage<>(new Hash<String[], String[]>() {
+            @Override
+            public int getHashCode(String[] k) {
+                return Arrays.hashCode(k);
+            }
+
+            @Override
+            public boolean equals(String[] k, String[] t) {
+                return Arrays.equals(k, t);
+            }
+        });
+    }
+
+    /**
+     * Shares the key/value array of this primitive with the other primitives of the pool having exactly the same tags,
+     * in the same order. This reduces memory consumption when many primitives carry identical tags (i.e. {@code building=yes}).
+     * <p>
+     * This is safe as the array is never modified in place, it is replaced on every change (see {@link #keys}).
+     *
+     * @param pool the pool of key/value arrays, see {@link #createKeysPool()}
+     */
+    public void internKeys(Storage<String[]> pool) {
+        String[] keys = this.keys;
+        if (keys != null) {
+            this.keys = pool.putUnique(keys);
+        }
+    }
+
     /**
      * Replies the map of key/value pairs. Never replies null. The map can be empty, though.
      *
@@ -394,9 +394,46 @@ public final class DataSet implements Data, Cloneable, ProjectionChangeListener
     }
 
     /**
-     * All relations/relationships
+     * Segments of all ways, indexed by their position. Built in the background after the first call to
+     * {@link #searchWaySegments}.
      */
-    private final Collection<Relation> relations = new ArrayList<>();
+    final SegmentIndex segments = new SegmentIndex(ways, lock.readLock());
+
+    /**
+     * Searches for way segments in the given bounding box.
+     * <p>
+     * This method takes the read lock of the data set. It can be called by a thread that already holds it, but it must
+     * not be called from tasks run in a thread pool by a thread holding the lock: the task would wait for any writer
+     * queued meanwhile, and the writer for the thread holding the lock, which waits for the task.
+     * @param bbox the bounding box
+     * @return List of way segments crossing the given bounding box. Can be empty but not null
+     */
+    public List<WaySegment> searchWaySegments(BBox bbox) {
+        lock.readLock().lock();
+        try {
+            List<WaySegment> result = segments.search(bbox);
+            if (result == null) {
+                // too large for the index, or index not ready: look at the segments of the ways in the bbox, with the same check
+                result = new ArrayList<>();
+                for (Way w : ways.search(bbox)) {
+                    for (int i = 0; i < w.getNodesCount() - 1; i++) {
+                        WaySegment segment = new WaySegment(w, i);
+                        if (SegmentIndex.intersects(segment, bbox)) {
+                            result.add(segment);
+                        }
+                    }
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * All relations/relationships, indexed by the bbox of their members.
+     */
+    private final QuadBuckets<Relation> relations = new QuadBuckets<>();
 
     /**
      * Replies an unmodifiable collection of relations in this dataset
@@ -415,14 +452,7 @@ public final class DataSet implements Data, Cloneable, ProjectionChangeListener
     public List<Relation> searchRelations(BBox bbox) {
         lock.readLock().lock();
         try {
-            // QuadBuckets might be useful here (don't forget to do reindexing after some of rm is changed)
-            List<Relation> result = new ArrayList<>();
-            for (Relation r: relations) {
-                if (r.getBBox().intersects(bbox)) {
-                    result.add(r);
-                }
-            }
-            return result;
+            return relations.search(bbox);
         } finally {
             lock.readLock().unlock();
         }
@@ -509,6 +539,7 @@ public final class DataSet implements Data, Cloneable, ProjectionChangeListener
                 success = nodes.add((Node) primitive);
             } else if (primitive instanceof Way) {
                 success = ways.add((Way) primitive);
+                segments.addWay((Way) primitive);
             } else if (primitive instanceof Relation) {
                 success = relations.add((Relation) primitive);
             }
@@ -522,6 +553,60 @@ public final class DataSet implements Data, Cloneable, ProjectionChangeListener
         }
     }
 
+    /**
+     * Adds several primitives to the dataset at once.
+     * <p>
+     * Nodes and ways are bulk loaded into the spatial index, which is much faster than adding them one by one
+     * when a whole file or download is loaded. Ways must refer to nodes that are either already in this dataset
+     * or part of {@code primitives}. Relations are added one by one after nodes and ways.
+     *
+     * @param primitives the primitives to add
+     * @see #addPrimitive(OsmPrimitive)
+     */
+    public void addPrimitives(Collection<? extends OsmPrimitive> primitives) {
+        beginUpdate();
+        try {
+            List<Node> newNodes = new ArrayList<>();
+            List<Way> newWays = new ArrayList<>();
+            List<Relation> newRelations = new ArrayList<>();
+            Set<PrimitiveId> ids = new HashSet<>();
+            for (OsmPrimitive primitive : primitives) {
+                if (getPrimitiveById(primitive) != null || !ids.add(primitive.getPrimitiveId()))
+                    throw new DataIntegrityProblemException(
+                            tr("Unable to add primitive {0} to the dataset because it is already included", primitive.toString()));
+                if (primitive instanceof Node) {
+                    newNodes.add((Node) primitive);
+                } else if (primitive instanceof Way) {
+                    newWays.add((Way) primitive);
+                } else if (primitive instanceof Relation) {
+                    newRelations.add((Relation) primitive);
+                }
+            }
+            bulkAdd(nodes, newNodes);
+            bulkAdd(ways, newWays);
+            segments.addWays(newWays);
+            for (Relation relation : newRelations) {
+                addPrimitive(relation);
+            }
+        } finally {
+            endUpdate();
+        }
+    }
+
+    private <T extends OsmPrimitive> void bulkAdd(QuadBuckets<T> index, List<T> primitives) {
+        if (primitives.isEmpty())
+            return;
+        for (T primitive : primitives) {
+            primitive.updatePosition(); // Set cached bbox for way (required for reindexWay to work properly)
+        }
+        index.addAll(primitives);
+        for (T primitive : primitives) {
+            allPrimitives.add(primitive);
+            primitive.setDataset(this);
+        }
+        firePrimitivesAdded(primitives, false);
+    }
+
     /**
      * Removes a primitive from the dataset. This method only removes the
      * primitive form the respective collection of primitives managed
@@ -542,6 +627,7 @@ public final class DataSet implements Data, Cloneable, ProjectionChangeListener
                 success = nodes.remove(primitive);
             } else if (primitive instanceof Way) {
                 success = ways.remove(primitive);
+                segments.removeWay((Way) primitive);
             } else if (primitive instanceof Relation) {
                 success = relations.remove(primitive);
             }
@@ -1023,7 +1109,8 @@ public final class DataSet implements Data, Cloneable, ProjectionChangeListener
         Set<Relation> result = new HashSet<>();
         beginUpdate();
         try {
-            for (Relation relation : relations) {
+            // iterate over a copy, relations are reindexed when their members change
+            for (Relation relation : relations.toList()) {
                 List<RelationMember> members = relation.getMembers();
 
                 Iterator<RelationMember> it = members.iterator();
@@ -1104,6 +1191,7 @@ public final class DataSet implements Data, Cloneable, ProjectionChangeListener
         way.updatePosition();
         if (!ways.add(way))
             throw new RuntimeException("Reindexing way failed to add");
+        segments.updateWay(way);
         if (!way.getBBox().equals(before)) {
             for (OsmPrimitive primitive: way.getReferrers()) {
                 reindexRelation((Relation) primitive);
@@ -1111,9 +1199,13 @@ public final class DataSet implements Data, Cloneable, ProjectionChangeListener
         }
     }
 
-    private static void reindexRelation(Relation relation) {
+    private void reindexRelation(Relation relation) {
         BBox before = relation.getBBox();
+        if (!relations.remove(relation))
+            throw new RuntimeException("Reindexing relation failed to remove");
         relation.updatePosition();
+        if (!relations.add(relation))
+            throw new RuntimeException("Reindexing relation failed to add");
         if (!before.equals(relation.getBBox())) {
             for (OsmPrimitive primitive: relation.getReferrers()) {
                 reindexRelation((Relation) primitive);
@@ -1318,6 +1410,7 @@ public final class DataSet implements Data, Cloneable, ProjectionChangeListener
             }
             nodes.clear();
             ways.clear();
+            segments.clear();
             relations.clear();
             allPrimitives.clear();
         } finally {
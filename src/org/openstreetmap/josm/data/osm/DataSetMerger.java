@@ -43,6 +43,8 @@ public class DataSetMerger {
      */
     private final Set<PrimitiveId> objectsWithChildrenToMerge;
     private final Set<OsmPrimitive> objectsToDelete;
+    /** new primitives to add to the target dataset, bulk added at the end of each merge phase */
+    private final List<OsmPrimitive> objectsToAdd;
 
     /**
      * constructor
@@ -61,6 +63,7 @@ public class DataSetMerger {
         mergedMap = new HashMap<>();
         objectsWithChildrenToMerge = new HashSet<>();
         objectsToDelete = new HashSet<>();
+        objectsToAdd = new ArrayList<>();
     }
 
     /**
@@ -118,11 +121,19 @@ public class DataSetMerger {
         default: throw new AssertionError();
         }
         target.mergeFrom(source);
-        targetDataSet.addPrimitive(target);
+        objectsToAdd.add(target);
         mergedMap.put(source.getPrimitiveId(), target.getPrimitiveId());
         objectsWithChildrenToMerge.add(source.getPrimitiveId());
     }
 
+    /**
+     * Adds all new primitives created by {@link #mergePrimitive} to the target dataset at once.
+     */
+    protected void addNewPrimitives() {
+        targetDataSet.addPrimitives(objectsToAdd);
+        objectsToAdd.clear();
+    }
+
     protected OsmPrimitive getMergeTarget(OsmPrimitive mergeSource) {
         PrimitiveId targetId = mergedMap.get(mergeSource.getPrimitiveId());
         if (targetId == null)
@@ -412,6 +423,7 @@ public class DataSetMerger {
                     progressMonitor.worked(1);
                 }
             }
+            addNewPrimitives();
             candidates.clear();
             candidates = new ArrayList<>(targetDataSet.getWays());
             for (Way way: sourceDataSet.getWays()) {
@@ -420,6 +432,7 @@ public class DataSetMerger {
                     progressMonitor.worked(1);
                 }
             }
+            addNewPrimitives();
             candidates.clear();
             candidates = new ArrayList<>(targetDataSet.getRelations());
             for (Relation relation: sourceDataSet.getRelations()) {
@@ -428,6 +441,7 @@ public class DataSetMerger {
                     progressMonitor.worked(1);
                 }
             }
+            addNewPrimitives();
             candidates.clear();
             fixReferences();
         } finally {
@@ -0,0 +1,112 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.openstreetmap.josm.data.DataSource;
+
+/**
+ * A consistent copy of the content of a data set, which can be written while the data set is being edited.
+ * <p>
+ * Taking a snapshot only copies the state of each primitive to a {@link PrimitiveData}, under the read lock of the
+ * data set. Writing it, which is much slower, can then be done without holding the lock, for instance on the
+ * autosave thread, so that edits are not blocked until the file is written.
+ * <p>
+ * A snapshot holds a copy of every primitive, which about doubles the memory used by the data set as long as it is
+ * referenced. It is therefore only taken for files written in the background, by autosave and session export.
+ */
+public final class DataSetSnapshot {
+
+    private final String version;
+    private final boolean uploadDiscouraged;
+    private final List<DataSource> dataSources;
+    private final List<NodeData> nodes;
+    private final List<WayData> ways;
+    private final List<RelationData> relations;
+
+    /**
+     * Takes a snapshot of the given data set.
+     * @param ds the data set
+     */
+    public DataSetSnapshot(DataSet ds) {
+        ds.getReadLock().lock();
+        try {
+            version = ds.getVersion();
+            uploadDiscouraged = ds.isUploadDiscouraged();
+            dataSources = Collections.unmodifiableList(new ArrayList<>(ds.dataSources));
+            Collection<Node> dsNodes = ds.getNodes();
+            List<NodeData> nodeData = new ArrayList<>(dsNodes.size());
+            for (Node n : dsNodes) {
+                nodeData.add(n.save());
+            }
+            nodes = Collections.unmodifiableList(nodeData);
+            Collection<Way> dsWays = ds.getWays();
+            List<WayData> wayData = new ArrayList<>(dsWays.size());
+            for (Way w : dsWays) {
+                wayData.add(w.save());
+            }
+            ways = Collections.unmodifiableList(wayData);
+            Collection<Relation> dsRelations = ds.getRelations();
+            List<RelationData> relationData = new ArrayList<>(dsRelations.size());
+            for (Relation r : dsRelations) {
+                relationData.add(r.save());
+            }
+            relations = Collections.unmodifiableList(relationData);
+        } finally {
+            ds.getReadLock().unlock();
+        }
+    }
+
+    /**
+     * Replies the API version of the data set.
+     * @return the API version of the data set
+     * @see DataSet#getVersion()
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * Determines if upload was discouraged for the data set.
+     * @return {@code true} if upload was discouraged
+     * @see DataSet#isUploadDiscouraged()
+     */
+    public boolean isUploadDiscouraged() {
+        return uploadDiscouraged;
+    }
+
+    /**
+     * Replies the data sources of the data set.
+     * @return the data sources of the data set
+     */
+    public List<DataSource> getDataSources() {
+        return dataSources;
+    }
+
+    /**
+     * Replies the state of the nodes of the data set, in no particular order.
+     * @return the state of the nodes
+     */
+    public List<NodeData> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Replies the state of the ways of the data set, in no particular order. Nodes are referred to by unique id.
+     * @return the state of the ways
+     */
+    public List<WayData> getWays() {
+        return ways;
+    }
+
+    /**
+     * Replies the state of the relations of the data set, in no particular order. Members are referred to by unique id.
+     * @return the state of the relations
+     */
+    public List<RelationData> getRelations() {
+        return relations;
+    }
+}
@@ -298,6 +298,52 @@ public class QuadBuckets<T extends OsmPrimitive> implements Collection<T> {
             findBucket(o.getBBox()).doAdd(o);
         }
 
+        /*
+         * Bulk version of add(): the objects are distributed to the children in one
+         * pass, so a level is split at most once instead of on every overflow.
+         * The resulting tree is the same as the one built by adding objects one by one.
+         */
+        void addAll(List<T> objects) {
+            if (!hasChildren()) {
+                int count = objects.size() + (content == null ? 0 : content.size());
+                if (!isLeaf() || count <= MAX_OBJECTS_PER_LEVEL || level >= QuadTiling.NR_LEVELS) {
+                    if (content == null) {
+                        content = new ArrayList<>(objects);
+                    } else {
+                        content.addAll(objects);
+                    }
+                    return;
+                }
+                if (content != null) {
+                    List<T> tmpcontent = new ArrayList<>(count);
+                    tmpcontent.addAll(content);
+                    tmpcontent.addAll(objects);
+                    objects = tmpcontent;
+                    content = null;
+                }
+                isLeaf = false;
+            }
+
+            @SuppressWarnings("unchecked")
+            List<T>[] childContent = new List[QuadTiling.TILES_PER_LEVEL];
+            for (T o : objects) {
+                int idx = o.getBBox().getIndex(level);
+                if (idx == -1) {
+                    __add_content(o);
+                } else {
+                    if (childContent[idx] == null) {
+                        childContent[idx] = new ArrayList<>();
+                    }
+                    childContent[idx].add(o);
+                }
+            }
+            for (int i = 0; i < QuadTiling.TILES_PER_LEVEL; i++) {
+                if (childContent[i] != null) {
+                    getChild(i).addAll(childContent[i]);
+                }
+            }
+        }
+
         private void search(BBox searchBbox, List<T> result) {
             if (!this.bbox().intersects(searchBbox))
                 return;
@@ -436,13 +482,18 @@ public class QuadBuckets<T extends OsmPrimitive> implements Collection<T> {
         return changed;
     }
 
+    /**
+     * Adds all given objects at once. This is much faster than adding them one by one when loading
+     * large amount of data, as the tree is built in one pass instead of being rebalanced on each insertion.
+     * Further objects can be added or removed incrementally afterwards.
+     */
     @Override
     public boolean addAll(Collection<? extends T> objects) {
-        boolean changed = false;
-        for (T o : objects) {
-            changed = changed | this.add(o);
-        }
-        return changed;
+        if (objects.isEmpty())
+            return false;
+        root.addAll(new ArrayList<T>(objects));
+        size += objects.size();
+        return true;
     }
 
     @Override
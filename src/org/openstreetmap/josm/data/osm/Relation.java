@@ -440,21 +440,15 @@ public final class Relation extends OsmPrimitive implements IRelation {
 
     @Override
     public BBox getBBox() {
-        RelationMember[] members = this.members;
-
-        if (members.length == 0)
-            return new BBox(0, 0, 0, 0);
-        if (getDataSet() == null)
-            return calculateBBox(new HashSet<PrimitiveId>());
-        else {
-            if (bbox == null) {
-                bbox = calculateBBox(new HashSet<PrimitiveId>());
-            }
-            if (bbox == null)
-                return new BBox(0, 0, 0, 0); // No real members
-            else
-                return new BBox(bbox);
-        }
+        // Once in a dataset, the cached bbox is used even if members have changed since, as it is the key
+        // of this relation in the dataset spatial index. It is refreshed when the relation is reindexed
+        if (getDataSet() == null) {
+            BBox result = calculateBBox(new HashSet<PrimitiveId>());
+            return result != null ? result : new BBox(0, 0, 0, 0);
+        } else if (bbox == null)
+            return new BBox(0, 0, 0, 0); // No real members
+        else
+            return new BBox(bbox);
     }
 
     private BBox calculateBBox(Set<PrimitiveId> visitedRelations) {
@@ -490,7 +484,9 @@ public final class Relation extends OsmPrimitive implements IRelation {
     void setDataset(DataSet dataSet) {
         super.setDataset(dataSet);
         checkMembers();
-        bbox = null; // bbox might have changed if relation was in ds, was removed, modified, added back to dataset
+        // bbox might have changed if relation was in ds, was removed, modified, added back to dataset.
+        // It is computed eagerly, as the dataset relies on it to find the relation in its spatial index
+        updatePosition();
     }
 
     private void checkMembers() throws DataIntegrityProblemException {
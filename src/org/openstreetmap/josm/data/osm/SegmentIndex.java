@@ -0,0 +1,367 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Lock;
+
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Spatial index of the way segments of a data set.
+ * <p>
+ * The world is divided in a grid of cells of {@link #CELL_SIZE} degrees. Each segment is stored in the cells
+ * it actually crosses, not in all the cells of its bounding box, so that long diagonal segments do not fill
+ * large areas of the grid. Very long segments are kept apart and returned by every search.
+ * <p>
+ * The index is built in the background after the first search, then it is kept up to date by the data set as ways
+ * are added, removed, or changed. The searches made while it is built are left to the caller. The data set is not
+ * locked while the index is built: the ways changed in the meantime are indexed again at the end, with the data set
+ * locked. The index is only softly referenced: the garbage collector releases it when it has not been used
+ * for a while and memory is needed, and it is built again after the next search.
+ */
+final class SegmentIndex {
+
+    /** The size of a cell, in degrees */
+    static final double CELL_SIZE = 0.002;
+
+    /** The maximal number of cells a segment can cross before being considered as a long segment */
+    private static final int MAX_SEGMENT_CELLS = 256;
+
+    /** The maximal number of cells a search can look at, larger searches are left to the caller */
+    private static final int MAX_SEARCH_CELLS = 4096;
+
+    /** The key of the pseudo cell containing the long segments */
+    private static final long LONG_SEGMENTS = Long.MAX_VALUE;
+
+    private static final ExecutorService BUILDER =
+            Executors.newSingleThreadExecutor(Utils.newThreadFactory("segment-index-%d", Thread.MIN_PRIORITY));
+
+    private final Collection<Way> ways;
+    private final Lock readLock;
+    private SoftReference<Grid> grid;
+    /** The ways changed while the index is built, {@code null} if it is not being built */
+    private Set<Way> changed;
+    /** Incremented when the index is cleared, to drop the index being built */
+    private int generation;
+    private Future<?> build;
+
+    /**
+     * The indexed segments.
+     */
+    private static final class Grid {
+        private final Map<Long, List<WaySegment>> cells = new HashMap<>();
+        private final Map<Way, Set<Long>> wayCells = new HashMap<>();
+    }
+
+    /**
+     * Constructs a new {@code SegmentIndex}.
+     * @param ways the ways of the data set, used to build the index after the first search
+     * @param readLock the read lock of the data set, held to check the ways changed while the index was built
+     */
+    SegmentIndex(Collection<Way> ways, Lock readLock) {
+        this.ways = ways;
+        this.readLock = readLock;
+    }
+
+    private static int cell(double coordinate) {
+        return (int) Math.floor(coordinate / CELL_SIZE);
+    }
+
+    private static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+
+    /**
+     * Adds a way, if the index has already been built.
+     * @param w the way
+     */
+    synchronized void addWay(Way w) {
+        Grid g = getGrid();
+        if (g != null) {
+            index(g, w);
+        } else if (changed != null) {
+            changed.add(w);
+        }
+    }
+
+    /**
+     * Adds several ways, if the index has already been built.
+     * @param list the ways
+     */
+    synchronized void addWays(Collection<Way> list) {
+        Grid g = getGrid();
+        if (g != null) {
+            for (Way w : list) {
+                index(g, w);
+            }
+        } else if (changed != null) {
+            changed.addAll(list);
+        }
+    }
+
+    /**
+     * Removes a way.
+     * @param w the way
+     */
+    synchronized void removeWay(Way w) {
+        Grid g = getGrid();
+        if (g != null) {
+            remove(g, w);
+        } else if (changed != null) {
+            changed.add(w);
+        }
+    }
+
+    private static void remove(Grid g, Way w) {
+        Set<Long> keys = g.wayCells.remove(w);
+        if (keys == null)
+            return;
+        for (Long key : keys) {
+            List<WaySegment> segments = g.cells.get(key);
+            for (int i = segments.size() - 1; i >= 0; i--) {
+                if (segments.get(i).way == w) {
+                    segments.remove(i);
+                }
+            }
+            if (segments.isEmpty()) {
+                g.cells.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Indexes again the segments of a way whose nodes have changed or moved.
+     * @param w the way
+     */
+    synchronized void updateWay(Way w) {
+        Grid g = getGrid();
+        if (g != null) {
+            remove(g, w);
+            index(g, w);
+        } else if (changed != null) {
+            changed.add(w);
+        }
+    }
+
+    /**
+     * Empties the index.
+     */
+    synchronized void clear() {
+        grid = null;
+        changed = null;
+        generation++;
+    }
+
+    /**
+     * Starts building the index in the background, unless it is already being built. Must be called with the read lock
+     * of the data set held.
+     */
+    private void startBuild() {
+        if (changed != null)
+            return;
+        changed = new HashSet<>();
+        final int buildGeneration = generation;
+        final List<Way> snapshot = new ArrayList<>(ways);
+        build = BUILDER.submit(new Runnable() {
+            @Override
+            public void run() {
+                Grid g = new Grid();
+                for (Way w : snapshot) {
+                    index(g, w);
+                }
+                readLock.lock();
+                try {
+                    synchronized (SegmentIndex.this) {
+                        if (buildGeneration != generation)
+                            return;
+                        for (Way w : changed) {
+                            remove(g, w);
+                            if (ways.contains(w)) {
+                                index(g, w);
+                            }
+                        }
+                        grid = new SoftReference<>(g);
+                        changed = null;
+                    }
+                } finally {
+                    readLock.unlock();
+                }
+            }
+        });
+    }
+
+    /**
+     * Waits until the index being built, if any, is ready.
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     * @throws ExecutionException if the index cannot be built
+     */
+    void waitForBuild() throws InterruptedException, ExecutionException {
+        Future<?> f;
+        synchronized (this) {
+            f = build;
+        }
+        if (f != null) {
+            f.get();
+        }
+    }
+
+    /**
+     * Returns the indexed segments.
+     * @return the indexed segments, or {@code null} if the index has not been built, or has been released
+     */
+    private Grid getGrid() {
+        return grid != null ? grid.get() : null;
+    }
+
+    private static void index(Grid g, Way w) {
+        Set<Long> keys = new LinkedHashSet<>();
+        List<Long> segmentKeys = new ArrayList<>();
+        // the index may be built while the way is changed: read its nodes once, it is indexed again in this case
+        List<Node> nodes = w.getNodes();
+        for (int i = 0; i < nodes.size() - 1; i++) {
+            LatLon c1 = nodes.get(i).getCoor();
+            LatLon c2 = nodes.get(i + 1).getCoor();
+            if (c1 == null || c2 == null) {
+                continue;
+            }
+            segmentKeys.clear();
+            getCells(c1, c2, segmentKeys);
+            WaySegment segment = new WaySegment(w, i);
+            for (Long key : segmentKeys) {
+                List<WaySegment> segments = g.cells.get(key);
+                if (segments == null) {
+                    segments = new ArrayList<>(4);
+                    g.cells.put(key, segments);
+                }
+                segments.add(segment);
+                keys.add(key);
+            }
+        }
+        if (!keys.isEmpty()) {
+            g.wayCells.put(w, keys);
+        }
+    }
+
+    /**
+     * Computes the cells crossed by a segment, column by column.
+     * @param c1 the first end of the segment
+     * @param c2 the second end of the segment
+     * @param keys the list where the keys of the cells are added
+     */
+    private static void getCells(LatLon c1, LatLon c2, List<Long> keys) {
+        LatLon west = c1.lon() <= c2.lon() ? c1 : c2;
+        LatLon east = west == c1 ? c2 : c1;
+        int x1 = cell(west.lon());
+        int x2 = cell(east.lon());
+        int width = x2 - x1 + 1;
+        int height = Math.abs(cell(east.lat()) - cell(west.lat())) + 1;
+        if (width + height > MAX_SEGMENT_CELLS) {
+            keys.add(LONG_SEGMENTS);
+            return;
+        }
+        double dLon = east.lon() - west.lon();
+        double slope = dLon == 0 ? 0 : (east.lat() - west.lat()) / dLon;
+        for (int x = x1; x <= x2; x++) {
+            double lat1 = x == x1 ? west.lat() : west.lat() + slope * (x * CELL_SIZE - west.lon());
+            double lat2 = x == x2 ? east.lat() : west.lat() + slope * ((x + 1) * CELL_SIZE - west.lon());
+            int y1 = cell(Math.min(lat1, lat2));
+            int y2 = cell(Math.max(lat1, lat2));
+            for (int y = y1; y <= y2; y++) {
+                keys.add(key(x, y));
+            }
+        }
+    }
+
+    /**
+     * Returns the segments crossing the given bounding box, as checked by {@link #intersects}. Must be called with the
+     * read lock of the data set held.
+     * @param bbox the bounding box
+     * @return the segments, or {@code null} if the bounding box is too large for the index to be useful, or if the index
+     * is not ready yet
+     */
+    synchronized List<WaySegment> search(BBox bbox) {
+        LatLon topLeft = bbox.getTopLeft();
+        LatLon bottomRight = bbox.getBottomRight();
+        int x1 = cell(topLeft.lon());
+        int x2 = cell(bottomRight.lon());
+        int y1 = cell(bottomRight.lat());
+        int y2 = cell(topLeft.lat());
+        if ((long) (x2 - x1 + 1) * (y2 - y1 + 1) > MAX_SEARCH_CELLS)
+            return null;
+        Grid g = getGrid();
+        if (g == null) {
+            startBuild();
+            return null;
+        }
+        Set<WaySegment> candidates = new LinkedHashSet<>();
+        for (int x = x1; x <= x2; x++) {
+            for (int y = y1; y <= y2; y++) {
+                List<WaySegment> segments = g.cells.get(key(x, y));
+                if (segments != null) {
+                    candidates.addAll(segments);
+                }
+            }
+        }
+        List<WaySegment> longSegments = g.cells.get(LONG_SEGMENTS);
+        if (longSegments != null) {
+            candidates.addAll(longSegments);
+        }
+        List<WaySegment> result = new ArrayList<>();
+        for (WaySegment segment : candidates) {
+            if (intersects(segment, bbox)) {
+                result.add(segment);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Determines if a segment crosses a bounding box: at least one of its points, including the ends, is in the box.
+     * @param segment the segment
+     * @param bbox the bounding box
+     * @return {@code true} if the segment crosses the bounding box
+     */
+    static boolean intersects(WaySegment segment, BBox bbox) {
+        LatLon c1 = segment.getFirstNode().getCoor();
+        LatLon c2 = segment.getSecondNode().getCoor();
+        if (c1 == null || c2 == null)
+            return false;
+        if (!new BBox(c1.lon(), c1.lat(), c2.lon(), c2.lat()).intersects(bbox))
+            return false;
+        // clip the segment by each side of the box (Liang-Barsky), t being the position along the segment
+        double dLon = c2.lon() - c1.lon();
+        double dLat = c2.lat() - c1.lat();
+        double[] t = {0, 1};
+        return clip(-dLon, c1.lon() - bbox.getTopLeftLon(), t) && clip(dLon, bbox.getBottomRightLon() - c1.lon(), t)
+            && clip(-dLat, c1.lat() - bbox.getBottomRightLat(), t) && clip(dLat, bbox.getTopLeftLat() - c1.lat(), t);
+    }
+
+    private static boolean clip(double p, double q, double[] t) {
+        if (p == 0)
+            return q >= 0;
+        double r = q / p;
+        if (p < 0) {
+            if (r > t[1])
+                return false;
+            t[0] = Math.max(t[0], r);
+        } else {
+            if (r < t[0])
+                return false;
+            t[1] = Math.min(t[1], r);
+        }
+        return true;
+    }
+}
@@ -52,6 +52,9 @@ public abstract class AbstractMapRenderer implements Rendering {
     /** Preference: minimum space (displayed way length) to display segment numbers */
     protected int segmentNumberSpace;
 
+    /** Set from another thread to stop rendering */
+    private volatile boolean canceled;
+
     /**
      * <p>Creates an abstract paint visitor</p>
      *
@@ -70,6 +73,22 @@ public abstract class AbstractMapRenderer implements Rendering {
         this.isInactiveMode = isInactiveMode;
     }
 
+    /**
+     * Asks this renderer to stop rendering as soon as possible. Can be called from any thread.
+     * The content of the graphics context is then incomplete.
+     */
+    public void cancel() {
+        canceled = true;
+    }
+
+    /**
+     * Determines if rendering has been {@linkplain #cancel() canceled}.
+     * @return {@code true} if rendering has been canceled
+     */
+    public boolean isCanceled() {
+        return canceled;
+    }
+
     /**
      * Draw the node as small square with the given color.
      *
@@ -0,0 +1,79 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spatial index of the labels already drawn on the map, used to avoid drawing overlapping labels.
+ * <p>
+ * The screen is divided in square cells of {@link #CELL_SIZE} pixels. The bounds of each label are stored
+ * in the cells they intersect, so that checking a new label only looks at the labels drawn nearby.
+ */
+final class LabelCollisionGrid {
+
+    /** The size of a cell, in pixels */
+    static final int CELL_SIZE = 64;
+
+    private final Map<Long, List<Rectangle2D>> cells = new HashMap<>();
+
+    private static int cell(double coordinate) {
+        return (int) Math.floor(coordinate / CELL_SIZE);
+    }
+
+    private static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+
+    /**
+     * Determines if a label would overlap one of the labels of the grid.
+     * @param bounds the bounds of the label, in screen coordinates
+     * @return {@code true} if the label overlaps a label of the grid
+     */
+    boolean intersects(Rectangle2D bounds) {
+        for (int x = cell(bounds.getMinX()); x <= cell(bounds.getMaxX()); x++) {
+            for (int y = cell(bounds.getMinY()); y <= cell(bounds.getMaxY()); y++) {
+                List<Rectangle2D> labels = cells.get(key(x, y));
+                if (labels != null) {
+                    for (Rectangle2D label : labels) {
+                        if (label.intersects(bounds))
+                            return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds a label to the grid.
+     * @param bounds the bounds of the label, in screen coordinates
+     */
+    void add(Rectangle2D bounds) {
+        for (int x = cell(bounds.getMinX()); x <= cell(bounds.getMaxX()); x++) {
+            for (int y = cell(bounds.getMinY()); y <= cell(bounds.getMaxY()); y++) {
+                List<Rectangle2D> labels = cells.get(key(x, y));
+                if (labels == null) {
+                    labels = new ArrayList<>(4);
+                    cells.put(key(x, y), labels);
+                }
+                labels.add(bounds);
+            }
+        }
+    }
+
+    /**
+     * Adds a label to the grid, unless it overlaps a label of the grid.
+     * @param bounds the bounds of the label, in screen coordinates
+     * @return {@code true} if the label has been added, {@code false} if it overlaps a label of the grid
+     */
+    boolean tryAdd(Rectangle2D bounds) {
+        if (intersects(bounds))
+            return false;
+        add(bounds);
+        return true;
+    }
+}
@@ -0,0 +1,702 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Area;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.Preferences.PreferenceChangeEvent;
+import org.openstreetmap.josm.data.Preferences.PreferenceChangedListener;
+import org.openstreetmap.josm.data.ProjectionBounds;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.WaySegment;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.visitor.BoundingXYVisitor;
+import org.openstreetmap.josm.data.projection.Projection;
+import org.openstreetmap.josm.gui.NavigatableComponent;
+import org.openstreetmap.josm.gui.mappaint.MapPaintStyles;
+import org.openstreetmap.josm.gui.mappaint.MapPaintStyles.MapPaintSylesUpdateListener;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Offscreen cache of the rendered content of a data set, split in tiles of {@value #TILE_SIZE} pixels.
+ * <p>
+ * The tile grid is attached to the map, so that panning only renders the tiles which were not visible before
+ * and copies the other ones. Each tile remembers the primitives found in its area when it was rendered:
+ * changes of the data set, of the selection or of the highlighting only invalidate the tiles containing the
+ * affected primitives, and the tiles covering their new position.
+ * <p>
+ * The whole cache is cleared when the scale, the projection, the map paint styles or a preference used for the rendering
+ * change, see {@link #isRenderingPreference(String)}.
+ * Like without cache, the renderer is given the clip of the whole map view, so labels along ways are placed
+ * according to the view the tile has been rendered for.
+ * <p>
+ * If the preference {@code mappaint.render.background} is set, the dirty tiles are rendered in a background thread
+ * for a snapshot of the map view, and the map view is repainted once they are ready. This rendering is canceled
+ * as soon as the view shows other dirty tiles, e.g. after a zoom or a pan. Meanwhile, a quick wireframe rendering
+ * is displayed, unless {@code mappaint.render.progressive} is {@code false}.
+ */
+public class RenderTileCache implements PreferenceChangedListener, MapPaintSylesUpdateListener {
+
+    /** Width and height of the tiles, in pixels */
+    public static final int TILE_SIZE = 256;
+
+    /** Extra area around tiles where primitives are searched, in pixels, to include symbols and labels overlapping the tile */
+    private static final int MARGIN = 128;
+
+    /** Above this number of affected primitives, the whole cache is cleared instead of looking for the affected tiles */
+    private static final int MAX_AFFECTED = 10000;
+
+    private static final int MIN_TILES = 64;
+
+    /** Renders the tiles of all data layers in background, one region at a time */
+    private static final ExecutorService RENDERER =
+            Executors.newSingleThreadExecutor(Utils.newThreadFactory("background-renderer-%d", Thread.NORM_PRIORITY));
+
+    private static final class Tile {
+        private final BufferedImage image;
+        /** The part of the tile which has been rendered, in cache coordinates */
+        private final Rectangle valid;
+        private final Set<OsmPrimitive> primitives;
+        private final Set<OsmPrimitive> highlighted;
+
+        Tile(BufferedImage image, Rectangle valid, Set<OsmPrimitive> primitives, Set<OsmPrimitive> highlighted) {
+            this.image = image;
+            this.valid = valid;
+            this.primitives = primitives;
+            this.highlighted = highlighted;
+        }
+
+        boolean isHighlightingChanged() {
+            for (OsmPrimitive p : primitives) {
+                if (p.isHighlighted() != highlighted.contains(p))
+                    return true;
+            }
+            return false;
+        }
+    }
+
+    private final DataSet data;
+    private final Runnable repaint;
+    /** Cached tiles by column and row, in access order */
+    private final Map<Long, Tile> tiles = new LinkedHashMap<>(16, 0.75f, true);
+    private int maxTiles = MIN_TILES;
+
+    // State the cached tiles have been rendered with. Cache coordinates are pixels relative to the anchor.
+    private double scale;
+    private Projection projection;
+    private boolean inactive;
+    private boolean virtual;
+    private double anchorX;
+    private double anchorY;
+    private int highlightUpdateCount;
+    private Set<WaySegment> highlightedWaySegments = Collections.emptySet();
+    private Set<WaySegment> highlightedVirtualNodes = Collections.emptySet();
+    private Set<OsmPrimitive> selected;
+
+    /** Incremented each time tiles are removed, so that the tiles rendered in background meanwhile are dropped */
+    private int generation;
+    /** The background rendering in progress, if any */
+    private RenderJob job;
+
+    /**
+     * An image of a region of the map view, in cache coordinates.
+     */
+    private static final class Preview {
+        private final BufferedImage image;
+        private final Rectangle region;
+
+        Preview(BufferedImage image, Rectangle region) {
+            this.image = image;
+            this.region = region;
+        }
+    }
+
+    /**
+     * Renders dirty tiles in background for a snapshot of the map view.
+     * <p>
+     * If progressive rendering is enabled, the region is first rendered quickly in wireframe mode, and this preview
+     * is displayed in place of the dirty tiles until the full rendering is done.
+     */
+    private final class RenderJob implements Runnable {
+        private final NavigatableComponent nc;
+        private final NavigatableComponent target;
+        private final RenderingHints hints;
+        private final Rectangle region;
+        private final Rectangle view;
+        private final List<Long> dirty;
+        private final boolean inactive;
+        private final boolean virtual;
+        private final int generation;
+        private volatile Preview preview;
+        private volatile AbstractMapRenderer renderer;
+        private volatile boolean canceled;
+
+        RenderJob(NavigatableComponent nc, RenderingHints hints, Rectangle region, Rectangle view, List<Long> dirty, Preview preview) {
+            this.nc = nc.createViewportSnapshot();
+            this.target = nc;
+            this.hints = hints;
+            this.region = region;
+            this.view = view;
+            this.dirty = dirty;
+            this.inactive = RenderTileCache.this.inactive;
+            this.virtual = RenderTileCache.this.virtual;
+            this.generation = RenderTileCache.this.generation;
+            this.preview = preview;
+        }
+
+        void cancel() {
+            canceled = true;
+            AbstractMapRenderer r = renderer;
+            if (r != null) {
+                r.cancel();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (Main.pref.getBoolean("mappaint.render.progressive", true)) {
+                    BufferedImage image = render(true);
+                    if (canceled)
+                        return;
+                    preview = new Preview(image, region);
+                    repaint();
+                }
+                BufferedImage image = render(false);
+                if (canceled)
+                    return;
+                Map<Long, Tile> rendered = createTiles(image, nc, region, view, dirty);
+                synchronized (RenderTileCache.this) {
+                    if (job == this && generation == RenderTileCache.this.generation) {
+                        tiles.putAll(rendered);
+                        job = null;
+                    }
+                }
+                repaint();
+            } catch (RuntimeException e) {
+                // do not let a rendering problem kill the rendering thread
+                Main.error(e);
+            }
+        }
+
+        private void repaint() {
+            if (repaint != null) {
+                repaint.run();
+            } else {
+                target.repaint();
+            }
+        }
+
+        private BufferedImage render(boolean wireframe) {
+            BufferedImage image = new BufferedImage(region.width, region.height, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g2 = createGraphics(image, hints, region, view);
+            data.getReadLock().lock();
+            try {
+                renderer = wireframe
+                        ? new WireframeMapRenderer(g2, nc, inactive)
+                        : MapRendererFactory.getInstance().createActiveRenderer(g2, nc, inactive);
+                if (!canceled) {
+                    renderer.render(data, virtual, nc.getLatLonBounds(toView(region, view)));
+                }
+            } finally {
+                data.getReadLock().unlock();
+                g2.dispose();
+            }
+            return image;
+        }
+    }
+
+    /**
+     * Constructs a new {@code RenderTileCache} and registers it as preference and map paint style listener.
+     * @param data the data set to render
+     * @see #destroy()
+     */
+    public RenderTileCache(DataSet data) {
+        this(data, null);
+    }
+
+    /**
+     * Constructs a new {@code RenderTileCache} and registers it as preference and map paint style listener.
+     * @param data the data set to render
+     * @param repaint called from the rendering thread when an image rendered in background is ready to be painted.
+     * If {@code null}, the map view is repainted
+     * @see #destroy()
+     */
+    public RenderTileCache(DataSet data, Runnable repaint) {
+        this.data = data;
+        this.repaint = repaint;
+        this.selected = new HashSet<>(data.getAllSelected());
+        this.highlightUpdateCount = data.getHighlightUpdateCount();
+        Main.pref.addPreferenceChangeListener(this);
+        MapPaintStyles.addMapPaintSylesUpdateListener(this);
+    }
+
+    /**
+     * Unregisters the listeners and clears the cache.
+     */
+    public void destroy() {
+        Main.pref.removePreferenceChangeListener(this);
+        MapPaintStyles.removeMapPaintSylesUpdateListener(this);
+        clear();
+    }
+
+    /**
+     * Paints the data set in the clip of the given graphics, rendering only the tiles not cached yet.
+     * @param g the graphics of the map view
+     * @param nc the map view
+     * @param inactive if the data set should be rendered with the inactive color
+     * @param virtual if virtual nodes should be rendered
+     */
+    public void paint(Graphics2D g, NavigatableComponent nc, boolean inactive, boolean virtual) {
+        if (nc.getWidth() <= 0 || nc.getHeight() <= 0)
+            return;
+        // the data set listeners invalidate the cache while holding the read lock: it must be taken before the monitor
+        data.getReadLock().lock();
+        try {
+            synchronized (this) {
+                paintTiles(g, nc, inactive, virtual);
+            }
+        } finally {
+            data.getReadLock().unlock();
+        }
+    }
+
+    private void paintTiles(Graphics2D g, NavigatableComponent nc, boolean inactive, boolean virtual) {
+        EastNorth center = nc.getCenter();
+        double originX = center.east() / nc.getScale() - nc.getWidth() / 2.0;
+        double originY = -center.north() / nc.getScale() - nc.getHeight() / 2.0;
+        if (nc.getScale() != scale || Main.getProjection() != projection || inactive != this.inactive || virtual != this.virtual
+                || !isInteger(originX - anchorX) || !isInteger(originY - anchorY)) {
+            tiles.clear();
+            generation++;
+            cancelJob();
+            scale = nc.getScale();
+            projection = Main.getProjection();
+            this.inactive = inactive;
+            this.virtual = virtual;
+            anchorX = originX;
+            anchorY = originY;
+        }
+        updateHighlighting();
+
+        // the view and the area to paint, in cache coordinates
+        int dx = (int) Math.round(originX - anchorX);
+        int dy = (int) Math.round(originY - anchorY);
+        Rectangle view = new Rectangle(dx, dy, nc.getWidth(), nc.getHeight());
+        Rectangle area = view;
+        Rectangle clip = g.getClipBounds();
+        if (clip != null) {
+            area = view.intersection(new Rectangle(clip.x + dx, clip.y + dy, clip.width, clip.height));
+        }
+        if (area.isEmpty())
+            return;
+
+        int minCol = floorDiv(area.x);
+        int maxCol = floorDiv(area.x + area.width - 1);
+        int minRow = floorDiv(area.y);
+        int maxRow = floorDiv(area.y + area.height - 1);
+        List<Long> dirty = new ArrayList<>();
+        Rectangle region = null;
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++) {
+                Long key = getKey(col, row);
+                Rectangle bounds = getBounds(key);
+                Tile tile = tiles.get(key);
+                if (tile == null || !tile.valid.contains(bounds.intersection(area))) {
+                    dirty.add(key);
+                    Rectangle r = bounds.intersection(view);
+                    region = region == null ? r : region.union(r);
+                }
+            }
+        }
+        if (region == null) {
+            cancelJob();
+        } else if (Main.pref.getBoolean("mappaint.render.background", false)) {
+            renderInBackground(g, nc, region, view, dirty);
+        } else {
+            render(g, nc, region, view, dirty);
+        }
+
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++) {
+                Tile tile = tiles.get(getKey(col, row));
+                if (tile != null) {
+                    g.drawImage(tile.image, col * TILE_SIZE - dx, row * TILE_SIZE - dy, null);
+                }
+            }
+        }
+
+        // keep the tiles of about two views, so that panning back and forth does not render them again
+        maxTiles = Math.max(MIN_TILES, 2 * (floorDiv(view.width) + 2) * (floorDiv(view.height) + 2));
+        Iterator<Long> it = tiles.keySet().iterator();
+        while (tiles.size() > maxTiles && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    /**
+     * Renders the given region in one pass, and stores the result in the dirty tiles.
+     * @param g the graphics of the map view, to copy rendering hints from
+     * @param nc the map view
+     * @param region the region to render, in cache coordinates
+     * @param view the map view, in cache coordinates
+     * @param dirty the tiles to update
+     */
+    private void render(Graphics2D g, NavigatableComponent nc, Rectangle region, Rectangle view, List<Long> dirty) {
+        BufferedImage image = new BufferedImage(region.width, region.height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2 = createGraphics(image, g.getRenderingHints(), region, view);
+        try {
+            Rendering renderer = MapRendererFactory.getInstance().createActiveRenderer(g2, nc, inactive);
+            renderer.render(data, virtual, nc.getLatLonBounds(toView(region, view)));
+        } finally {
+            g2.dispose();
+        }
+        tiles.putAll(createTiles(image, nc, region, view, dirty));
+    }
+
+    /**
+     * Starts rendering the given region in background, unless it is already being rendered, and paints the preview
+     * of the rendering in progress in place of the dirty tiles.
+     * @param g the graphics of the map view
+     * @param nc the map view
+     * @param region the region to render, in cache coordinates
+     * @param view the map view, in cache coordinates
+     * @param dirty the tiles to update
+     */
+    private void renderInBackground(Graphics2D g, NavigatableComponent nc, Rectangle region, Rectangle view, List<Long> dirty) {
+        if (job == null || job.generation != generation || !job.region.equals(region)) {
+            // the previous preview is still at the right place until the new one is ready
+            Preview preview = job != null ? job.preview : null;
+            cancelJob();
+            job = new RenderJob(nc, g.getRenderingHints(), region, view, dirty, preview);
+            RENDERER.execute(job);
+        }
+        Preview preview = job.preview;
+        if (preview != null) {
+            Area area = new Area();
+            for (Long key : dirty) {
+                area.add(new Area(getBounds(key)));
+            }
+            area.transform(AffineTransform.getTranslateInstance(-view.x, -view.y));
+            Graphics2D pg = (Graphics2D) g.create();
+            try {
+                pg.clip(area);
+                pg.drawImage(preview.image, preview.region.x - view.x, preview.region.y - view.y, null);
+            } finally {
+                pg.dispose();
+            }
+        }
+    }
+
+    private void cancelJob() {
+        if (job != null) {
+            job.cancel();
+            job = null;
+        }
+    }
+
+    /**
+     * Creates a graphics context drawing the map view onto the image of a region.
+     */
+    private static Graphics2D createGraphics(BufferedImage image, RenderingHints hints, Rectangle region, Rectangle view) {
+        Graphics2D g2 = image.createGraphics();
+        g2.setRenderingHints(hints);
+        g2.translate(view.x - region.x, view.y - region.y);
+        g2.clipRect(0, 0, view.width, view.height);
+        return g2;
+    }
+
+    /**
+     * Splits the image of a rendered region in tiles, and finds the primitives in each tile.
+     * @param image the rendered region
+     * @param nc the map view the region has been rendered for
+     * @param region the rendered region, in cache coordinates
+     * @param view the map view, in cache coordinates
+     * @param dirty the tiles to create
+     * @return the tiles by key
+     */
+    private Map<Long, Tile> createTiles(BufferedImage image, NavigatableComponent nc, Rectangle region, Rectangle view, List<Long> dirty) {
+        Map<Long, Tile> result = new LinkedHashMap<>();
+        data.getReadLock().lock();
+        try {
+            for (Long key : dirty) {
+                Rectangle bounds = getBounds(key);
+                Rectangle valid = bounds.intersection(view);
+                BufferedImage tileImage = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+                Graphics2D tg = tileImage.createGraphics();
+                try {
+                    tg.translate(-bounds.x, -bounds.y);
+                    tg.clip(valid);
+                    tg.drawImage(image, region.x, region.y, null);
+                } finally {
+                    tg.dispose();
+                }
+                BBox bbox = nc.getLatLonBounds(toView(valid, view)).toBBox();
+                Set<OsmPrimitive> primitives = new HashSet<>();
+                primitives.addAll(data.searchNodes(bbox));
+                primitives.addAll(data.searchWays(bbox));
+                primitives.addAll(data.searchRelations(bbox));
+                Set<OsmPrimitive> highlighted = new HashSet<>();
+                for (OsmPrimitive p : primitives) {
+                    if (p.isHighlighted()) {
+                        highlighted.add(p);
+                    }
+                }
+                result.put(key, new Tile(tileImage, valid, primitives, highlighted));
+            }
+        } finally {
+            data.getReadLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Converts a rectangle in cache coordinates to map view coordinates, including the margin.
+     */
+    private static Rectangle toView(Rectangle r, Rectangle view) {
+        Rectangle result = new Rectangle(r.x - view.x, r.y - view.y, r.width, r.height);
+        result.grow(MARGIN, MARGIN);
+        return result;
+    }
+
+    /**
+     * Invalidates the tiles affected by a data set change: the tiles containing the changed primitives or their referrers,
+     * and the tiles covering their new position.
+     * @param event the data set change
+     */
+    public synchronized void invalidate(AbstractDatasetChangedEvent event) {
+        generation++;
+        if (tiles.isEmpty())
+            return;
+        Set<OsmPrimitive> affected = new HashSet<>();
+        if (!addAffected(event, affected)) {
+            tiles.clear();
+            return;
+        }
+        invalidate(affected);
+
+        List<Rectangle> areas = new ArrayList<>();
+        for (OsmPrimitive p : affected) {
+            if (p.isUsable()) {
+                BoundingXYVisitor v = new BoundingXYVisitor();
+                p.accept(v);
+                ProjectionBounds b = v.getBounds();
+                if (b != null) {
+                    Rectangle r = new Rectangle();
+                    r.setFrameFromDiagonal(b.minEast / scale - anchorX, -b.maxNorth / scale - anchorY,
+                            b.maxEast / scale - anchorX, -b.minNorth / scale - anchorY);
+                    r.grow(MARGIN + 1, MARGIN + 1);
+                    areas.add(r);
+                }
+            }
+        }
+        Iterator<Map.Entry<Long, Tile>> it = tiles.entrySet().iterator();
+        while (it.hasNext()) {
+            Rectangle bounds = getBounds(it.next().getKey());
+            for (Rectangle r : areas) {
+                if (r.intersects(bounds)) {
+                    it.remove();
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects the primitives affected by an event.
+     * @return {@code false} if too many primitives are affected
+     */
+    private static boolean addAffected(AbstractDatasetChangedEvent event, Set<OsmPrimitive> affected) {
+        if (event instanceof DataChangedEvent) {
+            List<AbstractDatasetChangedEvent> events = ((DataChangedEvent) event).getEvents();
+            if (events == null)
+                return false;
+            for (AbstractDatasetChangedEvent e : events) {
+                if (!addAffected(e, affected))
+                    return false;
+            }
+            return true;
+        }
+        for (OsmPrimitive p : event.getPrimitives()) {
+            addWithReferrers(p, affected);
+            if (affected.size() > MAX_AFFECTED)
+                return false;
+        }
+        return true;
+    }
+
+    private static void addWithReferrers(OsmPrimitive p, Set<OsmPrimitive> affected) {
+        if (affected.add(p)) {
+            for (OsmPrimitive referrer : p.getReferrers()) {
+                addWithReferrers(referrer, affected);
+            }
+        }
+    }
+
+    /**
+     * Invalidates the tiles showing primitives whose selection state changed, or which are members of these primitives.
+     */
+    public synchronized void selectionChanged() {
+        Set<OsmPrimitive> newSelected = new HashSet<>(data.getAllSelected());
+        generation++;
+        if (!tiles.isEmpty()) {
+            Set<OsmPrimitive> affected = new HashSet<>();
+            addSelectionChanges(selected, newSelected, affected);
+            addSelectionChanges(newSelected, selected, affected);
+            if (affected.size() > MAX_AFFECTED) {
+                tiles.clear();
+            } else {
+                invalidate(affected);
+            }
+        }
+        selected = newSelected;
+    }
+
+    private static void addSelectionChanges(Set<OsmPrimitive> selection, Set<OsmPrimitive> other, Set<OsmPrimitive> affected) {
+        for (OsmPrimitive p : selection) {
+            if (!other.contains(p)) {
+                addWithReferrers(p, affected);
+                if (p instanceof Way) {
+                    affected.addAll(((Way) p).getNodes());
+                } else if (p instanceof Relation) {
+                    for (RelationMember m : ((Relation) p).getMembers()) {
+                        affected.add(m.getMember());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Invalidates the tiles whose highlighted primitives, way segments or virtual nodes changed since the last paint.
+     */
+    private void updateHighlighting() {
+        if (highlightUpdateCount == data.getHighlightUpdateCount())
+            return;
+        highlightUpdateCount = data.getHighlightUpdateCount();
+        generation++;
+        Set<WaySegment> waySegments = new HashSet<>(data.getHighlightedWaySegments());
+        Set<WaySegment> virtualNodes = new HashSet<>(data.getHighlightedVirtualNodes());
+        Set<OsmPrimitive> affected = new HashSet<>();
+        addSegmentChanges(highlightedWaySegments, waySegments, affected);
+        addSegmentChanges(waySegments, highlightedWaySegments, affected);
+        addSegmentChanges(highlightedVirtualNodes, virtualNodes, affected);
+        addSegmentChanges(virtualNodes, highlightedVirtualNodes, affected);
+        highlightedWaySegments = waySegments;
+        highlightedVirtualNodes = virtualNodes;
+
+        Iterator<Tile> it = tiles.values().iterator();
+        while (it.hasNext()) {
+            Tile tile = it.next();
+            if (!Collections.disjoint(tile.primitives, affected) || tile.isHighlightingChanged()) {
+                it.remove();
+            }
+        }
+    }
+
+    private static void addSegmentChanges(Collection<WaySegment> segments, Set<WaySegment> other, Set<OsmPrimitive> affected) {
+        for (WaySegment ws : segments) {
+            if (!other.contains(ws)) {
+                affected.add(ws.way);
+            }
+        }
+    }
+
+    /**
+     * Removes the tiles containing any of the given primitives.
+     */
+    private void invalidate(Set<OsmPrimitive> affected) {
+        if (affected.isEmpty())
+            return;
+        Iterator<Tile> it = tiles.values().iterator();
+        while (it.hasNext()) {
+            if (!Collections.disjoint(it.next().primitives, affected)) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Clears the whole cache.
+     */
+    public synchronized void clear() {
+        tiles.clear();
+        generation++;
+        cancelJob();
+    }
+
+    /**
+     * Returns the number of cached tiles.
+     * @return the number of cached tiles
+     */
+    synchronized int getTileCount() {
+        return tiles.size();
+    }
+
+    /**
+     * Determines if a preference may change the rendering: map paint settings, colors, and drawing options.
+     * @param key the preference key
+     * @return {@code true} if the cached tiles must be rendered again when the preference changes
+     */
+    static boolean isRenderingPreference(String key) {
+        return key != null && (key.startsWith("mappaint.") || key.startsWith("color.") || key.startsWith("draw.")
+                || key.startsWith("multipolygon."));
+    }
+
+    @Override
+    public void preferenceChanged(PreferenceChangeEvent e) {
+        if (isRenderingPreference(e.getKey())) {
+            clear();
+        }
+    }
+
+    @Override
+    public void mapPaintStylesUpdated() {
+        clear();
+    }
+
+    @Override
+    public void mapPaintStyleEntryUpdated(int idx) {
+        clear();
+    }
+
+    private static boolean isInteger(double d) {
+        return Math.abs(d - Math.rint(d)) < 1e-3;
+    }
+
+    private static int floorDiv(int x) {
+        return (int) Math.floor((double) x / TILE_SIZE);
+    }
+
+    private static Long getKey(int col, int row) {
+        return ((long) col << 32) | (row & 0xffffffffL);
+    }
+
+    private static Rectangle getBounds(long key) {
+        return new Rectangle((int) (key >> 32) * TILE_SIZE, (int) key * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+    }
+}
@@ -0,0 +1,139 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.projection.Projection;
+
+/**
+ * The geometry of a way simplified for rendering at a given zoom level.
+ * <p>
+ * Nodes which would not change the drawing by more than a given number of pixels are removed using
+ * the Douglas-Peucker algorithm, in east/north space. Zoom levels are powers of two of the scale, so
+ * that the result can be kept in the {@link SimplifiedGeometryCache} and reused while the map is panned
+ * or slightly zoomed. The cache drops it when the nodes of the way change or move.
+ */
+public final class SimplifiedGeometry {
+
+    private static final double LOG2 = Math.log(2);
+
+    private final Projection projection;
+    private final int level;
+    private final double tolerance;
+    private final List<Node> nodes;
+
+    private SimplifiedGeometry(Projection projection, int level, double tolerance, List<Node> nodes) {
+        this.projection = projection;
+        this.level = level;
+        this.tolerance = tolerance;
+        this.nodes = nodes;
+    }
+
+    /**
+     * Returns the zoom level of the given scale.
+     * @param scale the scale, in east/north units per pixel
+     * @return the zoom level, which is the same for all scales between two consecutive powers of two
+     */
+    public static int getLevel(double scale) {
+        return (int) Math.floor(Math.log(scale) / LOG2);
+    }
+
+    /**
+     * Returns the nodes needed to draw a way at the given scale.
+     * @param w the way
+     * @param scale the scale, in east/north units per pixel
+     * @param tolerance the maximal distance between the simplified and the real geometry, in pixels
+     * @return the simplified list of nodes, sharing the first and last nodes of the way. Must not be modified
+     */
+    public static List<Node> getNodes(Way w, double scale, double tolerance) {
+        if (w.getNodesCount() <= 2 || w.getDataSet() == null || !(scale > 0))
+            return w.getNodes();
+        Projection projection = Main.getProjection();
+        int level = getLevel(scale);
+        SimplifiedGeometryCache cache = SimplifiedGeometryCache.getInstance();
+        SimplifiedGeometry geometry = cache.get(w);
+        if (geometry == null || geometry.level != level || geometry.tolerance != tolerance || geometry.projection != projection) {
+            geometry = new SimplifiedGeometry(projection, level, tolerance, simplify(w.getNodes(), tolerance * Math.pow(2, level)));
+            cache.put(w, geometry);
+        }
+        return geometry.nodes;
+    }
+
+    /**
+     * Simplifies a list of nodes with the Douglas-Peucker algorithm.
+     * @param nodes the nodes
+     * @param tolerance the maximal distance between the removed nodes and the simplified line, in east/north units
+     * @return the kept nodes, in order. The original list if no node can be removed, or if some nodes have no position
+     */
+    public static List<Node> simplify(List<Node> nodes, double tolerance) {
+        int size = nodes.size();
+        if (size <= 2)
+            return nodes;
+        EastNorth[] points = new EastNorth[size];
+        for (int i = 0; i < size; i++) {
+            points[i] = nodes.get(i).getEastNorth();
+            if (points[i] == null)
+                return nodes;
+        }
+        boolean[] keep = new boolean[size];
+        keep[0] = true;
+        keep[size - 1] = true;
+        int count = 2;
+        int[] stack = new int[2 * size];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = size - 1;
+        while (top > 0) {
+            int last = stack[--top];
+            int first = stack[--top];
+            int farthest = -1;
+            double max = tolerance * tolerance;
+            for (int i = first + 1; i < last; i++) {
+                double distance = distanceSq(points[i], points[first], points[last]);
+                if (distance > max) {
+                    max = distance;
+                    farthest = i;
+                }
+            }
+            if (farthest >= 0) {
+                keep[farthest] = true;
+                count++;
+                stack[top++] = first;
+                stack[top++] = farthest;
+                stack[top++] = farthest;
+                stack[top++] = last;
+            }
+        }
+        if (count == size)
+            return nodes;
+        List<Node> result = new ArrayList<>(count);
+        for (int i = 0; i < size; i++) {
+            if (keep[i]) {
+                result.add(nodes.get(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the square of the distance between a point and a segment.
+     */
+    private static double distanceSq(EastNorth p, EastNorth a, EastNorth b) {
+        double dx = b.east() - a.east();
+        double dy = b.north() - a.north();
+        double px = p.east() - a.east();
+        double py = p.north() - a.north();
+        double lengthSq = dx * dx + dy * dy;
+        if (lengthSq > 0) {
+            double t = Math.max(0, Math.min(1, (px * dx + py * dy) / lengthSq));
+            px -= t * dx;
+            py -= t * dy;
+        }
+        return px * px + py * py;
+    }
+}
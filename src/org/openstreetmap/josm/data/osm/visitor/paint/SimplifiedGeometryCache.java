@@ -0,0 +1,163 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetListener;
+import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesAddedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesRemovedEvent;
+import org.openstreetmap.josm.data.osm.event.RelationMembersChangedEvent;
+import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
+import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerAddEvent;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerChangeListener;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerOrderChangeEvent;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerRemoveEvent;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+
+/**
+ * A memory cache for {@link SimplifiedGeometry} objects, by data set and way.
+ * <p>
+ * Only the geometries of the {@link #register registered} data sets are cached, since the cache listens to them
+ * to drop the geometries of the ways whose nodes change or move. The data set of a data layer is registered when
+ * the layer is created, and unregistered when it is removed.
+ */
+public final class SimplifiedGeometryCache implements DataSetListener, LayerChangeListener {
+
+    private static final SimplifiedGeometryCache INSTANCE = new SimplifiedGeometryCache();
+
+    private final ConcurrentMap<DataSet, Map<Way, SimplifiedGeometry>> cache = new ConcurrentHashMap<>();
+
+    private SimplifiedGeometryCache() {
+        Main.getLayerManager().addLayerChangeListener(this);
+    }
+
+    /**
+     * Replies the unique instance.
+     * @return the unique instance
+     */
+    public static SimplifiedGeometryCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Caches the simplified geometries of the ways of a data set, until it is unregistered.
+     * @param ds the data set
+     */
+    public void register(DataSet ds) {
+        if (cache.putIfAbsent(ds, new ConcurrentHashMap<Way, SimplifiedGeometry>()) == null) {
+            ds.addDataSetListener(this);
+        }
+    }
+
+    /**
+     * Clears the cache of a data set, and stops listening to it.
+     * @param ds the data set
+     */
+    public void unregister(DataSet ds) {
+        if (cache.remove(ds) != null) {
+            ds.removeDataSetListener(this);
+        }
+    }
+
+    SimplifiedGeometry get(Way w) {
+        Map<Way, SimplifiedGeometry> map = getMap(w.getDataSet());
+        return map != null ? map.get(w) : null;
+    }
+
+    void put(Way w, SimplifiedGeometry geometry) {
+        Map<Way, SimplifiedGeometry> map = getMap(w.getDataSet());
+        if (map != null) {
+            map.put(w, geometry);
+        }
+    }
+
+    private Map<Way, SimplifiedGeometry> getMap(DataSet ds) {
+        return ds != null ? cache.get(ds) : null;
+    }
+
+    private void remove(AbstractDatasetChangedEvent event) {
+        Map<Way, SimplifiedGeometry> map = getMap(event.getDataset());
+        if (map == null || map.isEmpty())
+            return;
+        for (OsmPrimitive p : event.getPrimitives()) {
+            if (p instanceof Way) {
+                map.remove(p);
+            } else {
+                for (OsmPrimitive referrer : p.getReferrers()) {
+                    map.remove(referrer);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void primitivesAdded(PrimitivesAddedEvent event) {
+        // Do nothing
+    }
+
+    @Override
+    public void primitivesRemoved(PrimitivesRemovedEvent event) {
+        remove(event);
+    }
+
+    @Override
+    public void tagsChanged(TagsChangedEvent event) {
+        // Do nothing
+    }
+
+    @Override
+    public void nodeMoved(NodeMovedEvent event) {
+        remove(event);
+    }
+
+    @Override
+    public void wayNodesChanged(WayNodesChangedEvent event) {
+        remove(event);
+    }
+
+    @Override
+    public void relationMembersChanged(RelationMembersChangedEvent event) {
+        // Do nothing
+    }
+
+    @Override
+    public void otherDatasetChange(AbstractDatasetChangedEvent event) {
+        // Do nothing
+    }
+
+    @Override
+    public void dataChanged(DataChangedEvent event) {
+        // the primitives of this event can be the whole data set
+        Map<Way, SimplifiedGeometry> map = getMap(event.getDataset());
+        if (map != null) {
+            map.clear();
+        }
+    }
+
+    @Override
+    public void layerAdded(LayerAddEvent e) {
+        // Do nothing
+    }
+
+    @Override
+    public void layerRemoving(LayerRemoveEvent e) {
+        if (e.getRemovedLayer() instanceof OsmDataLayer) {
+            unregister(((OsmDataLayer) e.getRemovedLayer()).data);
+        }
+    }
+
+    @Override
+    public void layerOrderChanged(LayerOrderChangeEvent e) {
+        // Do nothing
+    }
+}
@@ -7,7 +7,6 @@ import java.awt.Color;
 import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.Font;
-import java.awt.FontMetrics;
 import java.awt.Graphics2D;
 import java.awt.Image;
 import java.awt.Point;
@@ -25,9 +24,10 @@ import java.awt.geom.GeneralPath;
 import java.awt.geom.Path2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -35,7 +35,7 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinTask;
-import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.RecursiveAction;
 
 import javax.swing.AbstractButton;
 import javax.swing.FocusManager;
@@ -88,6 +88,15 @@ public class StyledMapRenderer extends AbstractMapRenderer {
     private static final ForkJoinPool THREAD_POOL =
             Utils.newForkJoinPool("mappaint.StyledMapRenderer.style_creation.numberOfThreads", "styled-map-renderer-%d", Thread.NORM_PRIORITY);
 
+    /** the minimal height of a strip painted in parallel with the others, in pixels */
+    private static final int MIN_STRIP_HEIGHT = 64;
+
+    /** the minimal number of style records to paint in parallel */
+    private static final int MIN_PARALLEL_PAINT_RECORDS = 1000;
+
+    /** the minimal number of style records to sort in parallel */
+    private static final int MIN_PARALLEL_SORT_RECORDS = 8192;
+
     /**
      * Iterates over a list of Way Nodes and returns screen coordinates that
      * represent a line that is shifted by a certain offset perpendicular
@@ -191,56 +200,232 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         }
     }
 
-    private static class StyleRecord implements Comparable<StyleRecord> {
-        private final StyleElement style;
-        private final OsmPrimitive osm;
-        private final int flags;
-
-        StyleRecord(StyleElement style, OsmPrimitive osm, int flags) {
+    static final class StyleRecord implements Comparable<StyleRecord> {
+        private StyleElement style;
+        private OsmPrimitive osm;
+        private int flags;
+        /** the index of the style in the style list of the primitive */
+        private int index;
+        /** disabled flag, major z-index and flags, packed so that they are compared at once */
+        private long majorKey;
+        /** z-index and simple node flag, packed so that they are compared at once */
+        private long minorKey;
+
+        void set(StyleElement style, OsmPrimitive osm, int flags, int index) {
             this.style = style;
             this.osm = osm;
             this.flags = flags;
+            this.index = index;
+            this.majorKey = ((flags & FLAG_DISABLED) != 0 ? 0L : 1L << 36) | sortableBits(style.majorZIndex) << 4 | flags;
+            this.minorKey = sortableBits(style.zIndex) << 1 | (style == NodeElement.SIMPLE_NODE_ELEMSTYLE ? 1 : 0);
+        }
+
+        void clear() {
+            style = null;
+            osm = null;
+        }
+
+        /**
+         * Returns the bits of a float, as an unsigned integer sorting like {@link Float#compare}.
+         */
+        private static long sortableBits(float f) {
+            int bits = Float.floatToIntBits(f);
+            bits ^= (bits >> 31) & 0x7fffffff;
+            return (bits & 0xffffffffL) ^ 0x80000000L;
         }
 
         @Override
         public int compareTo(StyleRecord other) {
-            if ((this.flags & FLAG_DISABLED) != 0 && (other.flags & FLAG_DISABLED) == 0)
-                return -1;
-            if ((this.flags & FLAG_DISABLED) == 0 && (other.flags & FLAG_DISABLED) != 0)
-                return 1;
-
-            int d0 = Float.compare(this.style.majorZIndex, other.style.majorZIndex);
-            if (d0 != 0)
-                return d0;
-
-            // selected on top of member of selected on top of unselected
-            // FLAG_DISABLED bit is the same at this point
-            if (this.flags > other.flags)
-                return 1;
-            if (this.flags < other.flags)
-                return -1;
-
-            int dz = Float.compare(this.style.zIndex, other.style.zIndex);
-            if (dz != 0)
-                return dz;
-
-            // simple node on top of icons and shapes
-            if (this.style == NodeElement.SIMPLE_NODE_ELEMSTYLE && other.style != NodeElement.SIMPLE_NODE_ELEMSTYLE)
-                return 1;
-            if (this.style != NodeElement.SIMPLE_NODE_ELEMSTYLE && other.style == NodeElement.SIMPLE_NODE_ELEMSTYLE)
-                return -1;
+            // disabled primitives first, then by major z-index,
+            // then selected on top of member of selected on top of unselected
+            int d = Long.compare(this.majorKey, other.majorKey);
+            if (d != 0)
+                return d;
+
+            // then by z-index, with simple nodes on top of icons and shapes
+            d = Long.compare(this.minorKey, other.minorKey);
+            if (d != 0)
+                return d;
 
             // newer primitives to the front
-            long id = this.osm.getUniqueId() - other.osm.getUniqueId();
-            if (id > 0)
-                return 1;
-            if (id < 0)
-                return -1;
+            d = Long.compare(this.osm.getUniqueId(), other.osm.getUniqueId());
+            if (d != 0)
+                return d;
 
-            return Float.compare(this.style.objectZIndex, other.style.objectZIndex);
+            d = Float.compare(this.style.objectZIndex, other.style.objectZIndex);
+            if (d != 0)
+                return d;
+
+            // keep the order of the style list, whatever the order in which the records have been computed
+            return Integer.compare(this.index, other.index);
         }
     }
 
+    /**
+     * The style records of a rendering. They are reused by the next rendering in the same thread,
+     * so that panning or zooming the map does not allocate one record per style and primitive for each frame.
+     */
+    static final class StyleRecordPool {
+        static final int CHUNK_SIZE = 1024;
+
+        /**
+         * Records filled by one worker.
+         */
+        static final class Chunk {
+            private final StyleRecord[] records = new StyleRecord[CHUNK_SIZE];
+            private int size;
+
+            Chunk() {
+                for (int i = 0; i < CHUNK_SIZE; i++) {
+                    records[i] = new StyleRecord();
+                }
+            }
+
+            /**
+             * Fills the next record of this chunk.
+             * @param style the style element
+             * @param osm the primitive
+             * @param flags the rendering flags of the primitive
+             * @param index the index of the style in the style list of the primitive
+             * @return {@code false} if this chunk is full
+             */
+            boolean add(StyleElement style, OsmPrimitive osm, int flags, int index) {
+                if (size == CHUNK_SIZE)
+                    return false;
+                records[size++].set(style, osm, flags, index);
+                return true;
+            }
+        }
+
+        private final List<Chunk> chunks = new ArrayList<>();
+        private int usedChunks;
+        private StyleRecord[] sorted = new StyleRecord[0];
+        private StyleRecord[] buffer = new StyleRecord[0];
+
+        /**
+         * Returns an empty chunk, to be filled by a single worker.
+         * @return an empty chunk
+         */
+        synchronized Chunk nextChunk() {
+            if (usedChunks == chunks.size()) {
+                chunks.add(new Chunk());
+            }
+            Chunk chunk = chunks.get(usedChunks++);
+            chunk.size = 0;
+            return chunk;
+        }
+
+        /**
+         * Sorts the records filled so far, in parallel for large maps.
+         * @return the sorted records
+         */
+        List<StyleRecord> sort() {
+            int size = 0;
+            for (int i = 0; i < usedChunks; i++) {
+                size += chunks.get(i).size;
+            }
+            if (sorted.length < size) {
+                sorted = new StyleRecord[size];
+                buffer = new StyleRecord[size];
+            }
+            int pos = 0;
+            for (int i = 0; i < usedChunks; i++) {
+                Chunk chunk = chunks.get(i);
+                System.arraycopy(chunk.records, 0, sorted, pos, chunk.size);
+                pos += chunk.size;
+            }
+            if (size <= MIN_PARALLEL_SORT_RECORDS) {
+                Arrays.sort(sorted, 0, size);
+            } else {
+                THREAD_POOL.invoke(new SortWorker(sorted, buffer, 0, size,
+                        Math.max(MIN_PARALLEL_SORT_RECORDS, size / THREAD_POOL.getParallelism())));
+            }
+            return Arrays.asList(sorted).subList(0, size);
+        }
+
+        /**
+         * Releases the primitives and styles referenced by the records, which are kept for the next rendering.
+         * The records and arrays beyond the needs of this rendering are released too, so that a large rendering
+         * does not hold memory for as long as the thread lives.
+         */
+        synchronized void clear() {
+            int size = 0;
+            for (int i = 0; i < usedChunks; i++) {
+                Chunk chunk = chunks.get(i);
+                for (int j = 0; j < chunk.size; j++) {
+                    chunk.records[j].clear();
+                }
+                size += chunk.size;
+            }
+            chunks.subList(usedChunks, chunks.size()).clear();
+            usedChunks = 0;
+            if (sorted.length > 2 * size) {
+                sorted = new StyleRecord[size];
+                buffer = new StyleRecord[size];
+            } else {
+                Arrays.fill(sorted, null);
+                Arrays.fill(buffer, null);
+            }
+        }
+
+        /**
+         * Returns the number of records kept for the next rendering.
+         * @return the number of records kept for the next rendering
+         */
+        synchronized int getCapacity() {
+            return chunks.size() * CHUNK_SIZE;
+        }
+    }
+
+    /**
+     * Sorts a part of an array of style records, by sorting both halves in parallel and merging them.
+     */
+    static final class SortWorker extends RecursiveAction {
+        private final transient StyleRecord[] records;
+        private final transient StyleRecord[] buffer;
+        private final int from;
+        private final int to;
+        private final int directExecutionTaskSize;
+
+        SortWorker(StyleRecord[] records, StyleRecord[] buffer, int from, int to, int directExecutionTaskSize) {
+            this.records = records;
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            this.directExecutionTaskSize = directExecutionTaskSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= directExecutionTaskSize) {
+                Arrays.sort(records, from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new SortWorker(records, buffer, from, middle, directExecutionTaskSize),
+                    new SortWorker(records, buffer, middle, to, directExecutionTaskSize));
+            if (records[middle - 1].compareTo(records[middle]) <= 0)
+                return;
+            System.arraycopy(records, from, buffer, from, to - from);
+            int i = from;
+            int j = middle;
+            for (int k = from; k < to; k++) {
+                if (j >= to || (i < middle && buffer[i].compareTo(buffer[j]) <= 0)) {
+                    records[k] = buffer[i++];
+                } else {
+                    records[k] = buffer[j++];
+                }
+            }
+        }
+    }
+
+    private static final ThreadLocal<StyleRecordPool> STYLE_RECORD_POOL = new ThreadLocal<StyleRecordPool>() {
+        @Override
+        protected StyleRecordPool initialValue() {
+            return new StyleRecordPool();
+        }
+    };
+
     /**
      * Saves benchmark data for tests.
      */
@@ -352,6 +537,9 @@ public class StyledMapRenderer extends AbstractMapRenderer {
 
     private Collection<WaySegment> highlightWaySegments;
 
+    /** the clip bounds of the whole map when painting a strip of it, so that labels and arrows are laid out as in the other strips */
+    private Rectangle layoutBounds;
+
     // highlight customization fields
     private int highlightLineWidth;
     private int highlightPointRadius;
@@ -371,6 +559,12 @@ public class StyledMapRenderer extends AbstractMapRenderer {
     private boolean leftHandTraffic;
     private Object antialiasing;
 
+    /** maximal error of simplified way geometries, in pixels, or 0 to draw all the nodes */
+    private double simplifyTolerance;
+
+    /** the labels drawn so far, if labels must not overlap */
+    private LabelCollisionGrid labels;
+
     /**
      * Constructs a new {@code StyledMapRenderer}.
      *
@@ -462,8 +656,7 @@ public class StyledMapRenderer extends AbstractMapRenderer {
             g.setColor(text.haloColor);
             Shape textOutline;
             if (gv == null) {
-                FontRenderContext frc = g.getFontRenderContext();
-                TextLayout tl = new TextLayout(s, text.font, frc);
+                TextLayout tl = TextLayoutCache.getTextLayout(s, text.font, g.getFontRenderContext());
                 textOutline = tl.getOutline(AffineTransform.getTranslateInstance(x, y));
             } else {
                 textOutline = gv.getOutline(x, y);
@@ -562,8 +755,7 @@ public class StyledMapRenderer extends AbstractMapRenderer {
             if (name == null) return;
 
             Rectangle pb = area.getBounds();
-            FontMetrics fontMetrics = g.getFontMetrics(orderFont); // if slow, use cache
-            Rectangle2D nb = fontMetrics.getStringBounds(name, g); // if slow, approximate by strlen()*maxcharbounds(font)
+            Rectangle2D nb = TextLayoutCache.getStringBounds(name, orderFont, g.getFontRenderContext());
 
             // Using the Centroid is Nicer for buildings like: +--------+
             // but this needs to be fast.  As most houses are  |   42   |
@@ -586,7 +778,7 @@ public class StyledMapRenderer extends AbstractMapRenderer {
                 Rectangle centeredNBounds = new Rectangle(x2, y2, nbw, nbh);
 
                 // slower check to see if label is displayed inside primitive shape
-                boolean labelOK = area.contains(centeredNBounds);
+                boolean labelOK = area.contains(centeredNBounds) && (labels == null || !labels.intersects(centeredNBounds));
                 if (!labelOK) {
                     // if center position (C) is not inside osm shape, try naively some other positions as follows:
                     final int x1 = pb.x + (int)   (w/4.0);
@@ -612,10 +804,13 @@ public class StyledMapRenderer extends AbstractMapRenderer {
                     // solve most of building issues with only few calculations (8 at most)
                     for (int i = 0; i < candidates.length && !labelOK; i++) {
                         centeredNBounds = candidates[i];
-                        labelOK = area.contains(centeredNBounds);
+                        labelOK = area.contains(centeredNBounds) && (labels == null || !labels.intersects(centeredNBounds));
                     }
                 }
                 if (labelOK) {
+                    if (labels != null) {
+                        labels.add(centeredNBounds);
+                    }
                     Font defaultFont = g.getFont();
                     int x = (int) (centeredNBounds.getMinX() - nb.getMinX());
                     int y = (int) (centeredNBounds.getMinY() - nb.getMinY());
@@ -733,11 +928,10 @@ public class StyledMapRenderer extends AbstractMapRenderer {
          *
          */
         Rectangle box = bs.getBox();
+        Rectangle2D bounds = TextLayoutCache.getStringBounds(s, text.font, g.getFontRenderContext());
         if (bs.hAlign == HorizontalTextAlignment.RIGHT) {
             x += box.x + box.width + 2;
         } else {
-            FontRenderContext frc = g.getFontRenderContext();
-            Rectangle2D bounds = text.font.getStringBounds(s, frc);
             int textWidth = (int) bounds.getWidth();
             if (bs.hAlign == HorizontalTextAlignment.CENTER) {
                 x -= textWidth / 2;
@@ -761,7 +955,10 @@ public class StyledMapRenderer extends AbstractMapRenderer {
                 y += box.y + box.height + metrics.getAscent() + 2;
             } else throw new AssertionError();
         }
-        displayText(null, s, x, y, n.isDisabled(), text);
+        bounds.setRect(x + bounds.getX(), y + bounds.getY(), bounds.getWidth(), bounds.getHeight());
+        if (labels == null || labels.tryAdd(bounds)) {
+            displayText(null, s, x, y, n.isDisabled(), text);
+        }
         g.setFont(defaultFont);
     }
 
@@ -1242,10 +1439,9 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         if (name == null || name.isEmpty())
             return;
 
-        FontMetrics fontMetrics = g.getFontMetrics(text.font);
-        Rectangle2D rec = fontMetrics.getStringBounds(name, g);
+        Rectangle2D rec = TextLayoutCache.getStringBounds(name, text.font, g.getFontRenderContext());
 
-        Rectangle bounds = g.getClipBounds();
+        Rectangle bounds = getLayoutBounds();
 
         Polygon poly = new Polygon();
         Point lastPoint = null;
@@ -1354,6 +1550,17 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         if (p1 == null || p2 == null)
             return;
 
+        if (labels != null) {
+            // approximate the label by the bounds of its ends, grown by the height of the text
+            Rectangle2D labelBounds = new Rectangle2D.Double(Math.min(p1[0], p2[0]), Math.min(p1[1], p2[1]),
+                    Math.abs(p2[0] - p1[0]), Math.abs(p2[1] - p1[1]));
+            double margin = rec.getHeight() / 2 + Math.abs(text.yOffset);
+            labelBounds.setRect(labelBounds.getX() - margin, labelBounds.getY() - margin,
+                    labelBounds.getWidth() + 2 * margin, labelBounds.getHeight() + 2 * margin);
+            if (!labels.tryAdd(labelBounds))
+                return;
+        }
+
         double angleOffset;
         double offsetSign;
         double tStart;
@@ -1420,7 +1627,7 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         GeneralPath orientationArrows = showOrientation ? new GeneralPath() : null;
         GeneralPath onewayArrows = showOneway ? new GeneralPath() : null;
         GeneralPath onewayArrowsCasing = showOneway ? new GeneralPath() : null;
-        Rectangle bounds = g.getClipBounds();
+        Rectangle bounds = getLayoutBounds();
         if (bounds != null) {
             // avoid arrow heads at the border
             bounds.grow(100, 100);
@@ -1429,7 +1636,7 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         double wayLength = 0;
         Point lastPoint = null;
         boolean initialMoveToNeeded = true;
-        List<Node> wayNodes = way.getNodes();
+        List<Node> wayNodes = getDrawnNodes(way);
         if (wayNodes.size() < 2) return;
 
         // only highlight the segment if the way itself is not highlighted
@@ -1602,12 +1809,24 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         highlightPointRadius = Main.pref.getInteger("mappaint.highlight.radius", 7);
         widerHighlight = Main.pref.getInteger("mappaint.highlight.bigger-increment", 5);
         highlightStep = Main.pref.getInteger("mappaint.highlight.step", 4);
+        // disabled by default: a simplified way does not show the exact position of its nodes, which matters for editing
+        simplifyTolerance = Main.pref.getDouble("mappaint.simplify.tolerance", 0);
+        labels = Main.pref.getBoolean("mappaint.label.allow-overlap", true) ? null : new LabelCollisionGrid();
+    }
+
+    /**
+     * Returns the nodes of a way needed to draw it at the current scale.
+     * @param w the way
+     * @return the nodes of the way, without the ones that would not change the drawing. Must not be modified
+     */
+    private List<Node> getDrawnNodes(Way w) {
+        return simplifyTolerance > 0 ? SimplifiedGeometry.getNodes(w, scale, simplifyTolerance) : w.getNodes();
     }
 
-    private static Path2D.Double getPath(Way w) {
+    private Path2D.Double getPath(Way w) {
         Path2D.Double path = new Path2D.Double();
         boolean initial = true;
-        for (Node n : w.getNodes()) {
+        for (Node n : getDrawnNodes(w)) {
             EastNorth p = n.getEastNorth();
             if (p != null) {
                 if (initial) {
@@ -1792,9 +2011,10 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         }
     }
 
-    private class ComputeStyleListWorker extends RecursiveTask<List<StyleRecord>> implements Visitor {
+    private class ComputeStyleListWorker extends RecursiveAction implements Visitor {
         private final transient List<? extends OsmPrimitive> input;
-        private final transient List<StyleRecord> output;
+        private final transient StyleRecordPool output;
+        private transient StyleRecordPool.Chunk chunk;
 
         private final transient ElemStyles styles = MapPaintStyles.getStyles();
         private final int directExecutionTaskSize;
@@ -1806,10 +2026,10 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         /**
          * Constructs a new {@code ComputeStyleListWorker}.
          * @param input the primitives to process
-         * @param output the list of styles to which styles will be added
+         * @param output the style records to which styles will be added
          * @param directExecutionTaskSize the threshold deciding whether to subdivide the tasks
          */
-        ComputeStyleListWorker(final List<? extends OsmPrimitive> input, List<StyleRecord> output, int directExecutionTaskSize) {
+        ComputeStyleListWorker(final List<? extends OsmPrimitive> input, StyleRecordPool output, int directExecutionTaskSize) {
             this.input = input;
             this.output = output;
             this.directExecutionTaskSize = directExecutionTaskSize;
@@ -1817,32 +2037,32 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         }
 
         @Override
-        protected List<StyleRecord> compute() {
+        protected void compute() {
             if (input.size() <= directExecutionTaskSize) {
-                return computeDirectly();
+                computeDirectly();
             } else {
-                final Collection<ForkJoinTask<List<StyleRecord>>> tasks = new ArrayList<>();
+                final Collection<ForkJoinTask<Void>> tasks = new ArrayList<>();
                 for (int fromIndex = 0; fromIndex < input.size(); fromIndex += directExecutionTaskSize) {
                     final int toIndex = Math.min(fromIndex + directExecutionTaskSize, input.size());
-                    final List<StyleRecord> output = new ArrayList<>(directExecutionTaskSize);
                     tasks.add(new ComputeStyleListWorker(input.subList(fromIndex, toIndex), output, directExecutionTaskSize).fork());
                 }
-                for (ForkJoinTask<List<StyleRecord>> task : tasks) {
-                    output.addAll(task.join());
+                for (ForkJoinTask<Void> task : tasks) {
+                    task.join();
                 }
-                return output;
             }
         }
 
-        public List<StyleRecord> computeDirectly() {
+        public void computeDirectly() {
             MapCSSStyleSource.STYLE_SOURCE_LOCK.readLock().lock();
             try {
                 for (final OsmPrimitive osm : input) {
+                    if (isCanceled()) {
+                        break;
+                    }
                     if (osm.isDrawable()) {
                         osm.accept(this);
                     }
                 }
-                return output;
             } finally {
                 MapCSSStyleSource.STYLE_SOURCE_LOCK.readLock().unlock();
             }
@@ -1868,35 +2088,153 @@ public class StyledMapRenderer extends AbstractMapRenderer {
             throw new UnsupportedOperationException();
         }
 
+        private void addRecord(StyleElement s, OsmPrimitive osm, int flags, int index) {
+            if (chunk == null || !chunk.add(s, osm, flags, index)) {
+                chunk = output.nextChunk();
+                chunk.add(s, osm, flags, index);
+            }
+        }
+
         public void add(Node osm, int flags) {
             StyleElementList sl = styles.get(osm, circum, nc);
+            int index = 0;
             for (StyleElement s : sl) {
-                output.add(new StyleRecord(s, osm, flags));
+                addRecord(s, osm, flags, index++);
             }
         }
 
         public void add(Relation osm, int flags) {
             StyleElementList sl = styles.get(osm, circum, nc);
+            int index = 0;
             for (StyleElement s : sl) {
                 if (drawMultipolygon && drawArea && s instanceof AreaElement && (flags & FLAG_DISABLED) == 0) {
-                    output.add(new StyleRecord(s, osm, flags));
+                    addRecord(s, osm, flags, index);
                 } else if (drawRestriction && s instanceof NodeElement) {
-                    output.add(new StyleRecord(s, osm, flags));
+                    addRecord(s, osm, flags, index);
                 }
+                index++;
             }
         }
 
         public void add(Way osm, int flags) {
             StyleElementList sl = styles.get(osm, circum, nc);
+            int index = 0;
             for (StyleElement s : sl) {
-                if (!(drawArea && (flags & FLAG_DISABLED) == 0) && s instanceof AreaElement) {
-                    continue;
+                if ((drawArea && (flags & FLAG_DISABLED) == 0) || !(s instanceof AreaElement)) {
+                    addRecord(s, osm, flags, index);
                 }
-                output.add(new StyleRecord(s, osm, flags));
+                index++;
+            }
+        }
+    }
+
+    /**
+     * Paints a part of the map into its own image, so that the map can be painted by several threads.
+     */
+    private class PaintStripWorker extends RecursiveAction {
+        private final Rectangle strip;
+        private final Rectangle bounds;
+        private final transient List<StyleRecord> records;
+        private final boolean renderVirtualNodes;
+        private final transient BufferedImage image;
+
+        /**
+         * Constructs a new {@code PaintStripWorker}.
+         * @param strip the painted part of the map, in the user space of the graphics of this renderer
+         * @param bounds the clip bounds of the whole map
+         * @param records the sorted style records to paint
+         * @param renderVirtualNodes whether virtual nodes are rendered
+         */
+        PaintStripWorker(Rectangle strip, Rectangle bounds, List<StyleRecord> records, boolean renderVirtualNodes) {
+            this.strip = strip;
+            this.bounds = bounds;
+            this.records = records;
+            this.renderVirtualNodes = renderVirtualNodes;
+            this.image = new BufferedImage(strip.width, strip.height, BufferedImage.TYPE_INT_ARGB);
+        }
+
+        @Override
+        protected void compute() {
+            Graphics2D stripGraphics = image.createGraphics();
+            try {
+                stripGraphics.setRenderingHints(g.getRenderingHints());
+                stripGraphics.translate(-strip.x, -strip.y);
+                stripGraphics.setClip(strip);
+                StyledMapRenderer renderer = new StyledMapRenderer(stripGraphics, nc, isInactiveMode);
+                renderer.getSettings(renderVirtualNodes);
+                renderer.highlightWaySegments = highlightWaySegments;
+                renderer.layoutBounds = bounds;
+                paintRecords(renderer, records);
+            } finally {
+                stripGraphics.dispose();
             }
         }
     }
 
+    /**
+     * Paints the sorted style records. If enabled, the clip bounds are split in horizontal strips painted
+     * in parallel into separate images, which are then drawn in order.
+     * @param records the sorted style records
+     * @param renderVirtualNodes whether virtual nodes are rendered
+     * @return {@code false} if the rendering has been canceled
+     */
+    private boolean paintRecords(List<StyleRecord> records, boolean renderVirtualNodes) {
+        int strips = Main.pref.getBoolean("mappaint.render.parallel-paint", false) ? THREAD_POOL.getParallelism() : 1;
+        Rectangle bounds = g.getClipBounds();
+        if (strips <= 1 || bounds == null || bounds.height < strips * MIN_STRIP_HEIGHT || records.size() < MIN_PARALLEL_PAINT_RECORDS
+                || (g.getTransform().getType() & ~AffineTransform.TYPE_TRANSLATION) != 0)
+            return paintRecords(this, records);
+        List<PaintStripWorker> workers = new ArrayList<>(strips);
+        int y = bounds.y;
+        for (int i = 0; i < strips; i++) {
+            int height = (bounds.y + bounds.height - y) / (strips - i);
+            Rectangle strip = new Rectangle(bounds.x, y, bounds.width, height);
+            PaintStripWorker worker = new PaintStripWorker(strip, bounds, records, renderVirtualNodes);
+            THREAD_POOL.execute(worker);
+            workers.add(worker);
+            y += height;
+        }
+        for (PaintStripWorker worker : workers) {
+            worker.join();
+        }
+        if (isCanceled())
+            return false;
+        for (PaintStripWorker worker : workers) {
+            g.drawImage(worker.image, worker.strip.x, worker.strip.y, null);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the bounds used to lay out labels and arrows.
+     * @return the clip bounds of the whole map, or {@code null} if there is no clip
+     */
+    private Rectangle getLayoutBounds() {
+        return layoutBounds != null ? new Rectangle(layoutBounds) : g.getClipBounds();
+    }
+
+    /**
+     * Paints the sorted style records with the given renderer.
+     * @param renderer the renderer, this one or the one of a strip
+     * @param records the sorted style records
+     * @return {@code false} if the rendering has been canceled
+     */
+    private boolean paintRecords(StyledMapRenderer renderer, List<StyleRecord> records) {
+        for (StyleRecord r : records) {
+            if (isCanceled())
+                return false;
+            r.style.paintPrimitive(
+                    r.osm,
+                    renderer.paintSettings,
+                    renderer,
+                    (r.flags & FLAG_SELECTED) != 0,
+                    (r.flags & FLAG_OUTERMEMBER_OF_SELECTED) != 0,
+                    (r.flags & FLAG_MEMBER_OF_SELECTED) != 0
+            );
+        }
+        return true;
+    }
+
     @Override
     public void render(final DataSet data, boolean renderVirtualNodes, Bounds bounds) {
         BBox bbox = bounds.toBBox();
@@ -1904,6 +2242,7 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         boolean benchmarkOutput = Main.isTraceEnabled() || Main.pref.getBoolean("mappaint.render.benchmark", false);
         boolean benchmark = benchmarkOutput || benchmarkData != null;
 
+        final StyleRecordPool pool = STYLE_RECORD_POOL.get();
         data.getReadLock().lock();
         try {
             highlightWaySegments = data.getHighlightedWaySegments();
@@ -1920,16 +2259,14 @@ public class StyledMapRenderer extends AbstractMapRenderer {
             List<Way> ways = data.searchWays(bbox);
             List<Relation> relations = data.searchRelations(bbox);
 
-            final List<StyleRecord> allStyleElems = new ArrayList<>(nodes.size()+ways.size()+relations.size());
-
             // Need to process all relations first.
             // Reason: Make sure, ElemStyles.getStyleCacheWithRange is
             // not called for the same primitive in parallel threads.
             // (Could be synchronized, but try to avoid this for
             // performance reasons.)
-            THREAD_POOL.invoke(new ComputeStyleListWorker(relations, allStyleElems,
+            THREAD_POOL.invoke(new ComputeStyleListWorker(relations, pool,
                     Math.max(20, relations.size() / THREAD_POOL.getParallelism() / 3)));
-            THREAD_POOL.invoke(new ComputeStyleListWorker(new CompositeList<>(nodes, ways), allStyleElems,
+            THREAD_POOL.invoke(new ComputeStyleListWorker(new CompositeList<>(nodes, ways), pool,
                     Math.max(100, (nodes.size() + ways.size()) / THREAD_POOL.getParallelism() / 3)));
 
             if (benchmark) {
@@ -1942,7 +2279,10 @@ public class StyledMapRenderer extends AbstractMapRenderer {
                 }
             }
 
-            Collections.sort(allStyleElems); // TODO: try parallel sort when switching to Java 8
+            if (isCanceled())
+                return;
+
+            final List<StyleRecord> allStyleElems = pool.sort();
 
             if (benchmarkData != null) {
                 timeSortingDone = System.currentTimeMillis();
@@ -1953,16 +2293,8 @@ public class StyledMapRenderer extends AbstractMapRenderer {
                 }
             }
 
-            for (StyleRecord r : allStyleElems) {
-                r.style.paintPrimitive(
-                        r.osm,
-                        paintSettings,
-                        this,
-                        (r.flags & FLAG_SELECTED) != 0,
-                        (r.flags & FLAG_OUTERMEMBER_OF_SELECTED) != 0,
-                        (r.flags & FLAG_MEMBER_OF_SELECTED) != 0
-                );
-            }
+            if (!paintRecords(allStyleElems, renderVirtualNodes))
+                return;
 
             if (benchmark) {
                 timeFinished = System.currentTimeMillis();
@@ -1979,6 +2311,7 @@ public class StyledMapRenderer extends AbstractMapRenderer {
 
             drawVirtualNodes(data, bbox);
         } finally {
+            pool.clear();
             data.getReadLock().unlock();
         }
     }
@@ -0,0 +1,106 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.awt.font.TextLayout;
+import java.awt.geom.Rectangle2D;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Cache of the layouts of the labels drawn on the map.
+ * <p>
+ * The same labels (street names, house numbers, ...) are drawn again each time the map is painted.
+ * Their layouts and bounds only depend on the text, the font and the font render context, so they are
+ * computed once and kept for the following paintings, up to {@link #MAX_SIZE} of them.
+ */
+final class TextLayoutCache {
+
+    /** The maximal number of labels kept in the cache */
+    static final int MAX_SIZE = 4096;
+
+    private static final class Key {
+        private final String text;
+        private final Font font;
+        private final FontRenderContext frc;
+
+        Key(String text, Font font, FontRenderContext frc) {
+            this.text = text;
+            this.font = font;
+            this.frc = frc;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(text, font, frc);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (obj == null || getClass() != obj.getClass())
+                return false;
+            Key other = (Key) obj;
+            return text.equals(other.text) && font.equals(other.font) && frc.equals(other.frc);
+        }
+    }
+
+    private static final class Layout {
+        private TextLayout textLayout;
+        private Rectangle2D stringBounds;
+    }
+
+    private static final Map<Key, Layout> CACHE = new LinkedHashMap<Key, Layout>(MAX_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Layout> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+
+    private TextLayoutCache() {
+        // Hide default constructor for utils classes
+    }
+
+    private static Layout getLayout(String text, Font font, FontRenderContext frc) {
+        Key key = new Key(text, font, frc);
+        Layout layout = CACHE.get(key);
+        if (layout == null) {
+            layout = new Layout();
+            CACHE.put(key, layout);
+        }
+        return layout;
+    }
+
+    /**
+     * Returns the layout of a text. Text layouts are immutable, so the result can be shared.
+     * @param text the text
+     * @param font the font
+     * @param frc the font render context of the graphics
+     * @return the layout of the text
+     */
+    static synchronized TextLayout getTextLayout(String text, Font font, FontRenderContext frc) {
+        Layout layout = getLayout(text, font, frc);
+        if (layout.textLayout == null) {
+            layout.textLayout = new TextLayout(text, font, frc);
+        }
+        return layout.textLayout;
+    }
+
+    /**
+     * Returns the logical bounds of a text, as {@link Font#getStringBounds(String, FontRenderContext)}.
+     * @param text the text
+     * @param font the font
+     * @param frc the font render context of the graphics
+     * @return a copy of the bounds of the text, relative to its baseline origin
+     */
+    static synchronized Rectangle2D getStringBounds(String text, Font font, FontRenderContext frc) {
+        Layout layout = getLayout(text, font, frc);
+        if (layout.stringBounds == null) {
+            layout.stringBounds = font.getStringBounds(text, frc);
+        }
+        return (Rectangle2D) layout.stringBounds.clone();
+    }
+}
@@ -169,6 +169,8 @@ public class WireframeMapRenderer extends AbstractMapRenderer implements Visitor
         List<Way> untaggedWays = new ArrayList<>();
 
         for (final Way way : data.searchWays(bbox)) {
+            if (isCanceled())
+                return;
             if (way.isDrawable() && !ds.isSelected(way) && !way.isDisabledAndHidden()) {
                 if (way.isHighlighted()) {
                     highlightedWays.add(way);
@@ -198,6 +200,8 @@ public class WireframeMapRenderer extends AbstractMapRenderer implements Visitor
         displaySegments();
 
         for (final OsmPrimitive osm: data.searchNodes(bbox)) {
+            if (isCanceled())
+                return;
             if (osm.isDrawable() && !ds.isSelected(osm) && !osm.isDisabledAndHidden()) {
                 osm.accept(this);
             }
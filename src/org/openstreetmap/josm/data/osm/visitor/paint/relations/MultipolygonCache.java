@@ -82,10 +82,12 @@ public final class MultipolygonCache implements DataSetListener, LayerChangeList
     public Multipolygon get(NavigatableComponent nc, Relation r, boolean forceRefresh) {
         Multipolygon multipolygon = null;
         if (nc != null && r != null) {
-            Map<DataSet, Map<Relation, Multipolygon>> map1 = cache.get(nc);
+            // the multipolygons do not depend on the viewport, share them with the snapshots of the component
+            NavigatableComponent source = nc.getViewportSource();
+            Map<DataSet, Map<Relation, Multipolygon>> map1 = cache.get(source);
             if (map1 == null) {
                 map1 = new ConcurrentHashMap<>();
-                cache.put(nc, map1);
+                cache.put(source, map1);
             }
             Map<Relation, Multipolygon> map2 = map1.get(r.getDataSet());
             if (map2 == null) {
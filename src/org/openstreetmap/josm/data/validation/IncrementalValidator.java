@@ -0,0 +1,454 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.WaySegment;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetListener;
+import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesAddedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesRemovedEvent;
+import org.openstreetmap.josm.data.osm.event.RelationMembersChangedEvent;
+import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
+import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Keeps the errors found by the tests enabled before upload up to date while a data set is edited.
+ * <p>
+ * The whole data set is validated once in background. Then, each change of the data set marks the changed
+ * primitives as dirty, and only the dirty primitives and their neighbourhood are validated again:
+ * <ul>
+ * <li>the {@link Test.TagTest}s check the dirty primitives, their referrers and their members,</li>
+ * <li>the other tests also check the primitives lying around the dirty ones.</li>
+ * </ul>
+ * The errors involving these primitives are then replaced by the new ones.
+ * The result is close to the one of a validation before upload, but may differ for tests which look far away
+ * from the validated primitives, so the upload check still runs all the tests.
+ * <p>
+ * The whole data set is validated on a copy, made under the read lock of the data set and then validated in the
+ * thread pool of {@link ValidationRunner} without holding any lock, so that the user can keep editing meanwhile.
+ * The copy temporarily doubles the memory used by the data set. The errors found in the copy are then mapped to the
+ * primitives of the data set. The dirty primitives are validated in the thread of the validator, under the read lock
+ * of the data set, which is only held for the short time needed to check their neighbourhood. When too many primitives
+ * are dirty, the whole data set is validated again instead.
+ * <p>
+ * The validators of all data sets share a single thread, with their own instances of the tests, so that the tests
+ * run from the validator dialog or before upload are not affected.
+ * @see OsmValidator#getIncrementalValidator
+ */
+public class IncrementalValidator implements DataSetListener {
+
+    private static final ExecutorService EXECUTOR =
+            Executors.newSingleThreadExecutor(Utils.newThreadFactory("incremental-validator-%d", Thread.MIN_PRIORITY));
+
+    /** The distance, in degrees, around the dirty primitives where other primitives are validated again */
+    private static final double NEIGHBOURHOOD = 0.001;
+
+    /** The number of dirty primitives above which the whole data set is validated again */
+    private static final int MAX_DIRTY = 1000;
+
+    private final DataSet ds;
+
+    // guarded by this
+    private Set<OsmPrimitive> dirty = new HashSet<>();
+    private boolean fullValidation = true;
+    private boolean scheduled;
+    private Future<?> update;
+
+    /** The instances of the tests run by the incremental validators, only accessed by the executor thread */
+    private static final Map<Class<? extends Test>, Test> TESTS = new HashMap<>();
+
+    // only accessed by the update task
+    private Collection<Class<? extends Test>> testClasses = Collections.emptyList();
+    private volatile List<TestError> errors = Collections.emptyList();
+
+    /**
+     * Constructs a new {@code IncrementalValidator} and starts validating the data set.
+     * @param ds the data set to validate
+     */
+    public IncrementalValidator(DataSet ds) {
+        this.ds = ds;
+        ds.addDataSetListener(this);
+        scheduleUpdate();
+    }
+
+    /**
+     * Stops updating the errors.
+     */
+    public synchronized void destroy() {
+        ds.removeDataSetListener(this);
+        if (update != null) {
+            update.cancel(false);
+        }
+        dirty.clear();
+    }
+
+    /**
+     * Returns the data set validated by this validator.
+     * @return the data set
+     */
+    public DataSet getDataSet() {
+        return ds;
+    }
+
+    /**
+     * Returns the current errors, once all pending changes have been validated.
+     * @return the errors found in the data set
+     * @throws InterruptedException if the current thread has been interrupted while waiting
+     */
+    public List<TestError> getErrors() throws InterruptedException {
+        Future<?> pending;
+        synchronized (this) {
+            pending = update;
+        }
+        if (pending != null) {
+            try {
+                pending.get();
+            } catch (ExecutionException | CancellationException e) {
+                Main.error(e);
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * Returns the current errors involving some primitives, once all pending changes have been validated.
+     * @param primitives the primitives
+     * @return the errors involving at least one of the given primitives
+     * @throws InterruptedException if the current thread has been interrupted while waiting
+     */
+    public List<TestError> getErrors(Collection<OsmPrimitive> primitives) throws InterruptedException {
+        Set<OsmPrimitive> set = primitives instanceof Set ? (Set<OsmPrimitive>) primitives : new HashSet<>(primitives);
+        List<TestError> result = new ArrayList<>();
+        for (TestError error : getErrors()) {
+            if (involves(error, set)) {
+                result.add(error);
+            }
+        }
+        return result;
+    }
+
+    private static boolean involves(TestError error, Set<OsmPrimitive> primitives) {
+        for (OsmPrimitive p : error.getPrimitives()) {
+            if (primitives.contains(p))
+                return true;
+        }
+        return false;
+    }
+
+    private synchronized void scheduleUpdate() {
+        if (!scheduled) {
+            scheduled = true;
+            // the executor has a single thread, once this update is done the previous ones are done too
+            update = EXECUTOR.submit(new Runnable() {
+                @Override
+                public void run() {
+                    update();
+                }
+            });
+        }
+    }
+
+    private synchronized void markDirty(Collection<? extends OsmPrimitive> primitives) {
+        dirty.addAll(primitives);
+        scheduleUpdate();
+    }
+
+    private synchronized void markAllDirty() {
+        fullValidation = true;
+        dirty.clear();
+        scheduleUpdate();
+    }
+
+    private void update() {
+        Set<OsmPrimitive> changed;
+        boolean full;
+        synchronized (this) {
+            changed = dirty;
+            full = fullValidation;
+            dirty = new HashSet<>();
+            fullValidation = false;
+            scheduled = false;
+        }
+        Collection<Test> tests = getTests();
+        Collection<Class<? extends Test>> classes = new ArrayList<>(tests.size());
+        for (Test test : tests) {
+            classes.add(test.getClass());
+        }
+        if (!classes.equals(testClasses)) {
+            // the tests have been enabled or disabled since the last update
+            full = true;
+            testClasses = classes;
+        }
+        if (full || changed.size() > MAX_DIRTY) {
+            validateCopy(tests);
+        } else if (!changed.isEmpty()) {
+            ds.getReadLock().lock();
+            try {
+                validate(tests, changed);
+            } finally {
+                ds.getReadLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns the instances of the tests enabled before upload run by the incremental validators.
+     * They are created and initialized when first used.
+     * @return the tests to run
+     */
+    private static Collection<Test> getTests() {
+        List<Test> tests = new ArrayList<>();
+        for (Test enabled : OsmValidator.getEnabledTests(true)) {
+            Test test = TESTS.get(enabled.getClass());
+            if (test == null) {
+                try {
+                    test = enabled.getClass().getConstructor().newInstance();
+                } catch (ReflectiveOperationException e) {
+                    Main.error(e);
+                    continue;
+                }
+                test.enabled = true;
+                test.testBeforeUpload = true;
+                OsmValidator.initializeTests(Collections.singleton(test));
+                TESTS.put(test.getClass(), test);
+            }
+            tests.add(test);
+        }
+        return tests;
+    }
+
+    /**
+     * Validates a copy of the whole data set, without holding its lock during the validation.
+     * The changes made meanwhile are validated by the next update.
+     * @param tests the tests to run
+     */
+    private void validateCopy(Collection<Test> tests) {
+        DataSet copy = new DataSet(ds);
+        List<TestError> found = ValidationRunner.runTests(tests, copy.allNonDeletedPrimitives(), true, true, null);
+        for (Test test : tests) {
+            // do not keep the copy until the next update
+            test.errors.clear();
+        }
+        ds.getReadLock().lock();
+        try {
+            List<TestError> result = new ArrayList<>(found.size());
+            for (TestError error : found) {
+                Collection<OsmPrimitive> primitives = map(error.getPrimitives());
+                Collection<Object> highlighted = map(error.getHighlighted());
+                // errors involving a primitive removed meanwhile are dropped, the others are updated with the changes
+                if (primitives != null) {
+                    result.add(error.copy(primitives, highlighted != null ? highlighted : primitives));
+                }
+            }
+            errors = Collections.unmodifiableList(result);
+        } finally {
+            ds.getReadLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the objects of the data set corresponding to objects of a copy of the data set.
+     * @param objects the primitives, way segments, or collections of them, of the copy
+     * @return the corresponding objects of the data set, or {@code null} if one of them is not in the data set anymore
+     */
+    @SuppressWarnings("unchecked")
+    private <T> Collection<T> map(Collection<?> objects) {
+        if (objects == null)
+            return null;
+        List<Object> result = new ArrayList<>(objects.size());
+        for (Object o : objects) {
+            Object mapped;
+            if (o instanceof OsmPrimitive) {
+                mapped = ds.getPrimitiveById((OsmPrimitive) o);
+            } else if (o instanceof WaySegment) {
+                WaySegment segment = (WaySegment) o;
+                Way w = (Way) ds.getPrimitiveById(segment.way);
+                mapped = w != null && segment.lowerIndex + 1 < w.getNodesCount() ? new WaySegment(w, segment.lowerIndex) : null;
+            } else if (o instanceof Collection) {
+                mapped = map((Collection<?>) o);
+            } else {
+                mapped = o;
+            }
+            if (mapped == null)
+                return null;
+            result.add(mapped);
+        }
+        return (Collection<T>) result;
+    }
+
+    /**
+     * Validates the dirty primitives and their neighbourhood. Must be called with the read lock of the data set held.
+     * @param tests the tests to run
+     * @param changed the dirty primitives
+     */
+    private void validate(Collection<Test> tests, Set<OsmPrimitive> changed) {
+        Set<OsmPrimitive> context = getContext(changed);
+        Set<OsmPrimitive> neighbourhood = getNeighbourhood(context);
+        List<Test> tagTests = new ArrayList<>();
+        List<Test> otherTests = new ArrayList<>();
+        for (Test test : tests) {
+            if (test instanceof Test.TagTest) {
+                tagTests.add(test);
+            } else {
+                otherTests.add(test);
+            }
+        }
+        List<TestError> result = new ArrayList<>(errors);
+        for (Iterator<TestError> it = result.iterator(); it.hasNext();) {
+            TestError error = it.next();
+            if (involves(error, error.getTester() instanceof Test.TagTest ? context : neighbourhood)) {
+                it.remove();
+            }
+        }
+        // errors only involving primitives outside of the validated ones have been kept
+        for (TestError error : runTests(tagTests, context)) {
+            if (involves(error, context)) {
+                result.add(error);
+            }
+        }
+        for (TestError error : runTests(otherTests, neighbourhood)) {
+            if (involves(error, neighbourhood)) {
+                result.add(error);
+            }
+        }
+        errors = Collections.unmodifiableList(result);
+    }
+
+    private List<TestError> runTests(Collection<? extends Test> tests, Collection<OsmPrimitive> primitives) {
+        List<OsmPrimitive> validated = new ArrayList<>(primitives.size());
+        for (OsmPrimitive p : primitives) {
+            // the removed primitives are only there to remove their errors
+            if (p.getDataSet() == ds) {
+                validated.add(p);
+            }
+        }
+        // this thread holds the read lock, which the threads of the pool could not take while an edit waits for it
+        return ValidationRunner.runTests(tests, validated, true, true, null, false);
+    }
+
+    /**
+     * Returns the changed primitives which are still in the data set, with their referrers and members.
+     * @param changed the changed primitives
+     * @return the primitives to check with the tag tests
+     */
+    private Set<OsmPrimitive> getContext(Set<OsmPrimitive> changed) {
+        Set<OsmPrimitive> context = new LinkedHashSet<>();
+        for (OsmPrimitive p : changed) {
+            context.add(p);
+            if (p.getDataSet() != ds) {
+                // removed primitive, its errors must be removed
+                continue;
+            }
+            context.addAll(p.getReferrers());
+            if (p instanceof Way) {
+                context.addAll(((Way) p).getNodes());
+            } else if (p instanceof Relation) {
+                for (RelationMember member : ((Relation) p).getMembers()) {
+                    context.add(member.getMember());
+                }
+            }
+        }
+        return context;
+    }
+
+    /**
+     * Returns the primitives lying around the given ones.
+     * @param primitives the primitives
+     * @return the given primitives and the nodes and ways around them, with the ways and relations using them
+     */
+    private Set<OsmPrimitive> getNeighbourhood(Set<OsmPrimitive> primitives) {
+        Set<OsmPrimitive> neighbourhood = new LinkedHashSet<>(primitives);
+        for (OsmPrimitive p : primitives) {
+            if (p.getDataSet() != ds || p instanceof Relation || (p instanceof Node && !((Node) p).isLatLonKnown())) {
+                continue;
+            }
+            BBox box = new BBox(p.getBBox());
+            box.addPrimitive(p, NEIGHBOURHOOD);
+            for (Node n : ds.searchNodes(box)) {
+                neighbourhood.add(n);
+                neighbourhood.addAll(n.getReferrers());
+            }
+            for (Way w : ds.searchWays(box)) {
+                neighbourhood.add(w);
+                neighbourhood.addAll(w.getReferrers());
+            }
+        }
+        return neighbourhood;
+    }
+
+    /* -------------------------------------------------------------------------- */
+    /* interface DataSetListener                                                  */
+    /* -------------------------------------------------------------------------- */
+
+    @Override
+    public void primitivesAdded(PrimitivesAddedEvent event) {
+        markDirty(event.getPrimitives());
+    }
+
+    @Override
+    public void primitivesRemoved(PrimitivesRemovedEvent event) {
+        markDirty(event.getPrimitives());
+    }
+
+    @Override
+    public void tagsChanged(TagsChangedEvent event) {
+        markDirty(event.getPrimitives());
+    }
+
+    @Override
+    public void nodeMoved(NodeMovedEvent event) {
+        markDirty(event.getPrimitives());
+    }
+
+    @Override
+    public void wayNodesChanged(WayNodesChangedEvent event) {
+        markDirty(event.getPrimitives());
+    }
+
+    @Override
+    public void relationMembersChanged(RelationMembersChangedEvent event) {
+        markDirty(event.getPrimitives());
+    }
+
+    @Override
+    public void otherDatasetChange(AbstractDatasetChangedEvent event) {
+        markDirty(event.getPrimitives());
+    }
+
+    @Override
+    public void dataChanged(DataChangedEvent event) {
+        if (event.getEvents() == null) {
+            markAllDirty();
+        } else {
+            for (AbstractDatasetChangedEvent e : event.getEvents()) {
+                markDirty(e.getPrimitives());
+            }
+        }
+    }
+}
@@ -22,11 +22,13 @@ import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.swing.JOptionPane;
 
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.actions.ValidateAction;
+import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.validation.tests.Addresses;
 import org.openstreetmap.josm.data.validation.tests.ApiCapabilitiesTest;
 import org.openstreetmap.josm.data.validation.tests.BarriersEntrances;
@@ -67,6 +69,7 @@ import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 import org.openstreetmap.josm.gui.layer.ValidatorLayer;
 import org.openstreetmap.josm.gui.preferences.projection.ProjectionPreference;
 import org.openstreetmap.josm.gui.preferences.validator.ValidatorPreference;
+import org.openstreetmap.josm.gui.util.GuiHelper;
 import org.openstreetmap.josm.tools.Utils;
 
 /**
@@ -86,6 +89,8 @@ public class OsmValidator implements LayerChangeListener {
 
     private static final Collection<String> ignoredErrors = new TreeSet<>();
 
+    private static final Map<DataSet, IncrementalValidator> incrementalValidators = new ConcurrentHashMap<>();
+
     /**
      * All registered tests
      */
@@ -279,6 +284,19 @@ public class OsmValidator implements LayerChangeListener {
         return enabledTests;
     }
 
+    /**
+     * Returns the validator keeping up to date the errors of a data set, see {@link IncrementalValidator}.
+     * <p>
+     * An incremental validator is created for each data layer if the preference {@code validator.incremental} is {@code true}.
+     * It is {@code false} by default: the upload check runs all the tests anyway, and the validation in background costs
+     * processor time and, for each full validation, a copy of the data set.
+     * @param ds the data set
+     * @return the incremental validator of the data set, or {@code null}
+     */
+    public static IncrementalValidator getIncrementalValidator(DataSet ds) {
+        return ds == null ? null : incrementalValidators.get(ds);
+    }
+
     /**
      * Gets the list of all available test classes
      *
@@ -334,13 +352,19 @@ public class OsmValidator implements LayerChangeListener {
                 if (test.enabled) {
                     test.initialize();
                 }
-            } catch (Exception e) {
+            } catch (final Exception e) {
                 Main.error(e);
-                JOptionPane.showMessageDialog(Main.parent,
-                        tr("Error initializing test {0}:\n {1}", test.getClass()
-                                .getSimpleName(), e),
+                final String testName = test.getClass().getSimpleName();
+                // do not wait for the dialog, the tests may be initialized in background, see IncrementalValidator
+                GuiHelper.runInEDT(new Runnable() {
+                    @Override
+                    public void run() {
+                        JOptionPane.showMessageDialog(Main.parent,
+                                tr("Error initializing test {0}:\n {1}", testName, e),
                                 tr("Error"),
                                 JOptionPane.ERROR_MESSAGE);
+                    }
+                });
             }
         }
     }
@@ -350,7 +374,10 @@ public class OsmValidator implements LayerChangeListener {
     /* -------------------------------------------------------------------------- */
     @Override
     public void layerAdded(LayerAddEvent e) {
-        // do nothing
+        if (e.getAddedLayer() instanceof OsmDataLayer && Main.pref.getBoolean("validator.incremental", false)) {
+            DataSet ds = ((OsmDataLayer) e.getAddedLayer()).data;
+            incrementalValidators.put(ds, new IncrementalValidator(ds));
+        }
     }
 
     @Override
@@ -360,6 +387,12 @@ public class OsmValidator implements LayerChangeListener {
 
     @Override
     public void layerRemoving(LayerRemoveEvent e) {
+        if (e.getRemovedLayer() instanceof OsmDataLayer) {
+            IncrementalValidator incremental = incrementalValidators.remove(((OsmDataLayer) e.getRemovedLayer()).data);
+            if (incremental != null) {
+                incremental.destroy();
+            }
+        }
         if (e.getRemovedLayer() == errorLayer) {
             errorLayer = null;
             return;
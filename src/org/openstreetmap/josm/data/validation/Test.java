@@ -118,6 +118,34 @@ public class Test extends AbstractVisitor {
          */
         public abstract void check(final OsmPrimitive p);
 
+        /**
+         * Checks the tags of the given primitive, adding the errors found to the given list instead of {@link #errors}.
+         * <p>
+         * The default implementation delegates to {@link #check(OsmPrimitive)} while holding the lock of this test.
+         * Tests returning {@code true} in {@link #isConcurrent()} override it without changing their state.
+         * @param p The primitive to test
+         * @param errors The list to which the errors are added
+         */
+        public void check(OsmPrimitive p, List<TestError> errors) {
+            synchronized (this) {
+                int size = this.errors.size();
+                check(p);
+                List<TestError> found = this.errors.subList(size, this.errors.size());
+                errors.addAll(found);
+                found.clear();
+            }
+        }
+
+        /**
+         * Determines if {@link #check(OsmPrimitive, List)} can be called concurrently on different primitives,
+         * after {@link #startTest} and before {@link #endTest}.
+         * @return {@code true} if the primitives can be checked concurrently
+         * @see ValidationRunner
+         */
+        public boolean isConcurrent() {
+            return false;
+        }
+
         @Override
         public void visit(Node n) {
             check(n);
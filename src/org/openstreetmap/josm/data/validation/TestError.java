@@ -340,6 +340,18 @@ public class TestError implements Comparable<TestError>, DataSetListener {
         return highlighted;
     }
 
+    /**
+     * Returns a copy of this error, involving other primitives.
+     * @param primitives the primitives of the copy
+     * @param highlighted the primitives or way segments to highlight in the copy
+     * @return a copy of this error
+     */
+    TestError copy(Collection<? extends OsmPrimitive> primitives, Collection<?> highlighted) {
+        TestError copy = new TestError(tester, severity, message, description, descriptionEn, code, primitives, highlighted);
+        copy.ignored = ignored;
+        return copy;
+    }
+
     @Override
     public int compareTo(TestError o) {
         if (equals(o)) return 0;
@@ -0,0 +1,189 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Runs validation tests on a collection of primitives.
+ * <p>
+ * The tests are run concurrently, each test by a single thread, except the {@link Test.TagTest}s which
+ * are {@linkplain Test.TagTest#isConcurrent() concurrent}: their primitives are split in chunks checked by several threads.
+ * The errors are returned in the same order as if the tests had been run one after the other.
+ * <p>
+ * Set the preference {@code validator.parallel} to {@code false} to run the tests sequentially.
+ * <p>
+ * A test instance keeps the state of its run, so the same instances must not be run by several threads at the same time.
+ */
+public final class ValidationRunner {
+
+    private static final ForkJoinPool THREAD_POOL =
+            Utils.newForkJoinPool("validator.numberOfThreads", "validator-%d", Thread.NORM_PRIORITY);
+
+    /** The minimal number of primitives checked by a thread */
+    private static final int MIN_CHUNK_SIZE = 500;
+
+    private ValidationRunner() {
+        // Hide default constructor for utils classes
+    }
+
+    /**
+     * Runs the tests on the given primitives.
+     * @param tests the tests to run, they must have been initialized
+     * @param primitives the primitives to validate
+     * @param partialSelection whether the primitives are only a part of the data set, see {@link Test#setPartialSelection}
+     * @param beforeUpload whether the tests are run just before an upload, see {@link Test#setBeforeUpload}
+     * @param progressMonitor the progress monitor, with {@code tests.size() * primitives.size()} ticks left. Can be {@code null}
+     * @return the errors found by the tests which have been run, in the order of the tests
+     */
+    public static List<TestError> runTests(Collection<? extends Test> tests, Collection<OsmPrimitive> primitives,
+            boolean partialSelection, boolean beforeUpload, ProgressMonitor progressMonitor) {
+        return runTests(tests, primitives, partialSelection, beforeUpload, progressMonitor,
+                Main.pref.getBoolean("validator.parallel", true));
+    }
+
+    /**
+     * Runs the tests on the given primitives, in the current thread or in the thread pool.
+     * @param tests the tests to run, they must have been initialized
+     * @param primitives the primitives to validate
+     * @param partialSelection whether the primitives are only a part of the data set, see {@link Test#setPartialSelection}
+     * @param beforeUpload whether the tests are run just before an upload, see {@link Test#setBeforeUpload}
+     * @param progressMonitor the progress monitor, with {@code tests.size() * primitives.size()} ticks left. Can be {@code null}
+     * @param parallel whether the tests are run in the thread pool. The tests must be run in the current thread when it holds
+     * the lock of the data set, since the tests may take it again, e.g. to search way segments.
+     * @return the errors found by the tests which have been run, in the order of the tests
+     */
+    static List<TestError> runTests(Collection<? extends Test> tests, Collection<OsmPrimitive> primitives,
+            boolean partialSelection, boolean beforeUpload, ProgressMonitor progressMonitor, final boolean parallel) {
+        final List<OsmPrimitive> selection = new ArrayList<>(primitives);
+        final List<TestTask> tasks = new ArrayList<>(tests.size());
+        int testCounter = 0;
+        for (Test test : tests) {
+            test.setPartialSelection(partialSelection);
+            test.setBeforeUpload(beforeUpload);
+            ProgressMonitor monitor = null;
+            if (progressMonitor != null) {
+                // create all monitors here, the parent monitor queues those of the tests started later
+                monitor = progressMonitor.createSubTaskMonitor(selection.size(), false);
+                monitor.setCustomText(tr("Test {0}/{1}: Starting {2}", ++testCounter, tests.size(), test.getName()));
+            }
+            tasks.add(new TestTask(test, selection, monitor, parallel));
+        }
+        if (parallel) {
+            THREAD_POOL.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+        } else {
+            for (TestTask task : tasks) {
+                task.compute();
+            }
+        }
+        List<TestError> errors = new ArrayList<>(200);
+        for (TestTask task : tasks) {
+            if (task.started) {
+                errors.addAll(task.test.getErrors());
+            }
+        }
+        return errors;
+    }
+
+    private static boolean isCanceled(ProgressMonitor monitor) {
+        return monitor != null && monitor.isCanceled();
+    }
+
+    /**
+     * Runs a single test.
+     */
+    private static final class TestTask extends RecursiveAction {
+        private final transient Test test;
+        private final transient List<OsmPrimitive> selection;
+        private final transient ProgressMonitor monitor;
+        private final boolean parallel;
+        private volatile boolean started;
+
+        TestTask(Test test, List<OsmPrimitive> selection, ProgressMonitor monitor, boolean parallel) {
+            this.test = test;
+            this.selection = selection;
+            this.monitor = monitor;
+            this.parallel = parallel;
+        }
+
+        @Override
+        protected void compute() {
+            if (isCanceled(monitor)) {
+                if (monitor != null) {
+                    monitor.invalidate();
+                }
+                return;
+            }
+            started = true;
+            test.startTest(monitor);
+            if (parallel && test instanceof Test.TagTest && ((Test.TagTest) test).isConcurrent()) {
+                checkChunks((Test.TagTest) test);
+            } else {
+                test.visit(selection);
+            }
+            test.endTest();
+        }
+
+        private void checkChunks(Test.TagTest tagTest) {
+            tagTest.progressMonitor.setTicksCount(selection.size());
+            int chunkSize = Math.max(MIN_CHUNK_SIZE, selection.size() / THREAD_POOL.getParallelism() / 3);
+            List<CheckTask> chunks = new ArrayList<>();
+            for (int fromIndex = 0; fromIndex < selection.size(); fromIndex += chunkSize) {
+                int toIndex = Math.min(fromIndex + chunkSize, selection.size());
+                chunks.add(new CheckTask(tagTest, selection.subList(fromIndex, toIndex)));
+            }
+            invokeAll(chunks);
+            for (CheckTask chunk : chunks) {
+                tagTest.errors.addAll(chunk.errors);
+            }
+        }
+    }
+
+    /**
+     * Checks a chunk of primitives with a concurrent {@link Test.TagTest}.
+     */
+    private static final class CheckTask extends RecursiveAction {
+        private final transient Test.TagTest test;
+        private final transient List<OsmPrimitive> primitives;
+        private final transient List<TestError> errors = new ArrayList<>();
+
+        CheckTask(Test.TagTest test, List<OsmPrimitive> primitives) {
+            this.test = test;
+            this.primitives = primitives;
+        }
+
+        @Override
+        protected void compute() {
+            int checked = 0;
+            for (OsmPrimitive p : primitives) {
+                if (test.isCanceled()) {
+                    break;
+                }
+                if (test.isPrimitiveUsable(p)) {
+                    test.check(p, errors);
+                }
+                checked++;
+            }
+            ProgressMonitor monitor = test.progressMonitor;
+            synchronized (monitor) {
+                // worked() reads and updates the ticks without holding the lock
+                monitor.worked(checked);
+            }
+        }
+    }
+}
@@ -3,7 +3,6 @@ package org.openstreetmap.josm.data.validation.tests;
 
 import static org.openstreetmap.josm.tools.I18n.tr;
 
-import java.awt.geom.Point2D;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -14,16 +13,15 @@ import java.util.Objects;
 import java.util.Set;
 
 import org.openstreetmap.josm.Main;
-import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.BBox;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.data.osm.WaySegment;
-import org.openstreetmap.josm.data.validation.OsmValidator;
 import org.openstreetmap.josm.data.validation.Severity;
 import org.openstreetmap.josm.data.validation.Test;
 import org.openstreetmap.josm.data.validation.TestError;
-import org.openstreetmap.josm.data.validation.util.ValUtil;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 
 /**
@@ -38,8 +36,8 @@ public abstract class CrossingWays extends Test {
     private static final String RAILWAY = "railway";
     private static final String WATERWAY = "waterway";
 
-    /** All way segments, grouped by cells */
-    private final Map<Point2D, List<WaySegment>> cellSegments = new HashMap<>(1000);
+    /** The ways already visited, whose segments are checked against the next ones */
+    private final Set<Way> visitedWays = new HashSet<>();
     /** The already detected errors */
     private final Set<WaySegment> errorSegments = new HashSet<>();
     /** The already detected ways in error */
@@ -187,7 +185,7 @@ public abstract class CrossingWays extends Test {
     @Override
     public void startTest(ProgressMonitor monitor) {
         super.startTest(monitor);
-        cellSegments.clear();
+        visitedWays.clear();
         errorSegments.clear();
         seenWays.clear();
     }
@@ -195,7 +193,7 @@ public abstract class CrossingWays extends Test {
     @Override
     public void endTest() {
         super.endTest();
-        cellSegments.clear();
+        visitedWays.clear();
         errorSegments.clear();
         seenWays.clear();
     }
@@ -226,69 +224,56 @@ public abstract class CrossingWays extends Test {
 
     @Override
     public void visit(Way w) {
+        if (w.getDataSet() == null) {
+            Main.warn("Crossing ways test skipped "+w);
+            return;
+        }
+        if (!visitedWays.add(w)) {
+            // already visited as a member of a relation
+            return;
+        }
 
         int nodesSize = w.getNodesCount();
         for (int i = 0; i < nodesSize - 1; i++) {
             final WaySegment es1 = new WaySegment(w, i);
-            final EastNorth en1 = es1.getFirstNode().getEastNorth();
-            final EastNorth en2 = es1.getSecondNode().getEastNorth();
-            if (en1 == null || en2 == null) {
+            final LatLon c1 = es1.getFirstNode().getCoor();
+            final LatLon c2 = es1.getSecondNode().getCoor();
+            if (c1 == null || c2 == null) {
                 Main.warn("Crossing ways test skipped "+es1);
                 continue;
             }
-            for (List<WaySegment> segments : getSegments(en1, en2)) {
-                for (WaySegment es2 : segments) {
-                    List<Way> prims;
-                    List<WaySegment> highlight;
-
-                    if (errorSegments.contains(es1) && errorSegments.contains(es2)
-                            || !es1.intersects(es2)
-                            || ignoreWaySegmentCombination(es1.way, es2.way)) {
-                        continue;
-                    }
-
-                    prims = Arrays.asList(es1.way, es2.way);
-                    if ((highlight = seenWays.get(prims)) == null) {
-                        highlight = new ArrayList<>();
-                        highlight.add(es1);
-                        highlight.add(es2);
-
-                        final String message = createMessage(es1.way, es2.way);
-                        errors.add(new TestError(this, Severity.WARNING,
-                                message,
-                                CROSSING_WAYS,
-                                prims,
-                                highlight));
-                        seenWays.put(prims, highlight);
-                    } else {
-                        highlight.add(es1);
-                        highlight.add(es2);
-                    }
+            for (WaySegment es2 : w.getDataSet().searchWaySegments(new BBox(c1, c2))) {
+                // only check against the segments visited before this one
+                if (!visitedWays.contains(es2.way) || (es2.way == w && es2.lowerIndex >= i)) {
+                    continue;
                 }
-                segments.add(es1);
-            }
-        }
-    }
+                List<Way> prims;
+                List<WaySegment> highlight;
 
-    /**
-     * Returns all the cells this segment crosses.  Each cell contains the list
-     * of segments already processed
-     *
-     * @param n1 The first EastNorth
-     * @param n2 The second EastNorth
-     * @return A list with all the cells the segment crosses
-     */
-    public List<List<WaySegment>> getSegments(EastNorth n1, EastNorth n2) {
-
-        List<List<WaySegment>> cells = new ArrayList<>();
-        for (Point2D cell : ValUtil.getSegmentCells(n1, n2, OsmValidator.griddetail)) {
-            List<WaySegment> segments = cellSegments.get(cell);
-            if (segments == null) {
-                segments = new ArrayList<>();
-                cellSegments.put(cell, segments);
+                if (errorSegments.contains(es1) && errorSegments.contains(es2)
+                        || !es1.intersects(es2)
+                        || ignoreWaySegmentCombination(es1.way, es2.way)) {
+                    continue;
+                }
+
+                prims = Arrays.asList(es1.way, es2.way);
+                if ((highlight = seenWays.get(prims)) == null) {
+                    highlight = new ArrayList<>();
+                    highlight.add(es1);
+                    highlight.add(es2);
+
+                    final String message = createMessage(es1.way, es2.way);
+                    errors.add(new TestError(this, Severity.WARNING,
+                            message,
+                            CROSSING_WAYS,
+                            prims,
+                            highlight));
+                    seenWays.put(prims, highlight);
+                } else {
+                    highlight.add(es1);
+                    highlight.add(es2);
+                }
             }
-            cells.add(segments);
         }
-        return cells;
     }
 }
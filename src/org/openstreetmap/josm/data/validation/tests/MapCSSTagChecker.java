@@ -230,6 +230,67 @@ public class MapCSSTagChecker extends Test.TagTest {
 
     final MultiMap<String, TagCheck> checks = new MultiMap<>();
 
+    /** The index of {@link #checks}, built on first use and reset when the checks are changed */
+    private volatile TagCheckIndex index;
+
+    /**
+     * The tag checks, indexed by the keys and values of the tags they require.
+     * <p>
+     * Each selector of a check is added as a rule to a {@link MapCSSStyleSource.MapCSSRuleIndex}, so that
+     * only the checks which might match a primitive are evaluated. The index is immutable once built.
+     */
+    static final class TagCheckIndex {
+        private final List<TagCheck> indexedChecks = new ArrayList<>();
+        private final MapCSSStyleSource.MapCSSRuleIndex ruleIndex = new MapCSSStyleSource.MapCSSRuleIndex();
+
+        TagCheckIndex(Collection<Set<TagCheck>> checksCol) {
+            for (Set<TagCheck> schecks : checksCol) {
+                for (TagCheck check : schecks) {
+                    // the rules are sorted by the index of their declaration, number them as the checks to keep their order
+                    final Declaration declaration = new Declaration(check.rule.declaration.instructions, indexedChecks.size());
+                    for (Selector selector : check.rule.selectors) {
+                        ruleIndex.add(new MapCSSRule(selector, declaration));
+                    }
+                    indexedChecks.add(check);
+                }
+            }
+            ruleIndex.initIndex();
+        }
+
+        Collection<TestError> getErrorsForPrimitive(OsmPrimitive p, boolean includeOtherSeverity) {
+            final List<TestError> r = new ArrayList<>();
+            final Environment env = new Environment(p, new MultiCascade(), Environment.DEFAULT_LAYER, null);
+            TagCheck matched = null;
+            for (Iterator<MapCSSRule> it = ruleIndex.getRuleCandidates(p); it.hasNext();) {
+                final MapCSSRule rule = it.next();
+                final TagCheck check = indexedChecks.get(rule.declaration.idx);
+                // as in TagCheck#whichSelectorMatchesEnvironment, only the first matching selector of a check is used
+                if (check == matched || (Severity.OTHER.equals(check.getSeverity()) && !includeOtherSeverity)) {
+                    continue;
+                }
+                env.clearSelectorMatchingInformation();
+                if (rule.selector.matches(env)) {
+                    matched = check;
+                    addErrorForPrimitive(p, check, rule.selector, env, r);
+                }
+            }
+            return r;
+        }
+    }
+
+    private TagCheckIndex getIndex() {
+        TagCheckIndex result = index;
+        if (result == null) {
+            synchronized (this) {
+                if (index == null) {
+                    index = new TagCheckIndex(checks.values());
+                }
+                result = index;
+            }
+        }
+        return result;
+    }
+
     /**
      * Result of {@link TagCheck#readMapCSS}
      * @since 8936
@@ -658,11 +719,18 @@ public class MapCSSTagChecker extends Test.TagTest {
      * @param includeOtherSeverity if {@code true}, errors of severity {@link Severity#OTHER} (info) will also be returned
      * @return all errors for the given primitive, with or without those of "info" severity
      */
-    public synchronized Collection<TestError> getErrorsForPrimitive(OsmPrimitive p, boolean includeOtherSeverity) {
-        return getErrorsForPrimitive(p, includeOtherSeverity, checks.values());
+    public Collection<TestError> getErrorsForPrimitive(OsmPrimitive p, boolean includeOtherSeverity) {
+        return getIndex().getErrorsForPrimitive(p, includeOtherSeverity);
     }
 
-    private static Collection<TestError> getErrorsForPrimitive(OsmPrimitive p, boolean includeOtherSeverity,
+    /**
+     * Obtains the {@link TestError}s for the {@link OsmPrimitive} {@code p}, evaluating all the given checks.
+     * @param p The OSM primitive
+     * @param includeOtherSeverity if {@code true}, errors of severity {@link Severity#OTHER} (info) will also be returned
+     * @param checksCol the checks to evaluate, in order
+     * @return all errors for the given primitive, with or without those of "info" severity
+     */
+    static Collection<TestError> getErrorsForPrimitive(OsmPrimitive p, boolean includeOtherSeverity,
             Collection<Set<TagCheck>> checksCol) {
         final List<TestError> r = new ArrayList<>();
         final Environment env = new Environment(p, new MultiCascade(), Environment.DEFAULT_LAYER, null);
@@ -673,18 +741,22 @@ public class MapCSSTagChecker extends Test.TagTest {
                 }
                 final Selector selector = check.whichSelectorMatchesEnvironment(env);
                 if (selector != null) {
-                    check.rule.declaration.execute(env);
-                    final TestError error = check.getErrorForPrimitive(p, selector, env);
-                    if (error != null) {
-                        error.setTester(new MapCSSTagCheckerAndRule(check.rule));
-                        r.add(error);
-                    }
+                    addErrorForPrimitive(p, check, selector, env, r);
                 }
             }
         }
         return r;
     }
 
+    private static void addErrorForPrimitive(OsmPrimitive p, TagCheck check, Selector selector, Environment env, List<TestError> r) {
+        check.rule.declaration.execute(env);
+        final TestError error = check.getErrorForPrimitive(p, selector, env);
+        if (error != null) {
+            error.setTester(new MapCSSTagCheckerAndRule(check.rule));
+            r.add(error);
+        }
+    }
+
     /**
      * Visiting call for primitives.
      *
@@ -695,6 +767,20 @@ public class MapCSSTagChecker extends Test.TagTest {
         errors.addAll(getErrorsForPrimitive(p, ValidatorPreference.PREF_OTHER.get()));
     }
 
+    @Override
+    public void check(OsmPrimitive p, List<TestError> errors) {
+        errors.addAll(getErrorsForPrimitive(p, ValidatorPreference.PREF_OTHER.get()));
+    }
+
+    /**
+     * Primitives are checked concurrently, the checks must not be changed while the test is running.
+     * @return {@code true}
+     */
+    @Override
+    public boolean isConcurrent() {
+        return true;
+    }
+
     /**
      * Adds a new MapCSS config file from the given URL.
      * @param url The unique URL of the MapCSS config file
@@ -712,6 +798,7 @@ public class MapCSSTagChecker extends Test.TagTest {
             result = TagCheck.readMapCSS(new BufferedReader(UTFInputStreamReader.create(s)));
             checks.remove(url);
             checks.putAll(url, result.parseChecks);
+            index = null;
             // Check assertions, useful for development of local files
             if (Main.pref.getBoolean("validator.check_assert_local_rules", false) && Utils.isLocalUrl(url)) {
                 for (String msg : checkAsserts(result.parseChecks)) {
@@ -727,6 +814,7 @@ public class MapCSSTagChecker extends Test.TagTest {
     @Override
     public synchronized void initialize() throws Exception {
         checks.clear();
+        index = null;
         for (SourceEntry source : new ValidatorTagCheckerRulesPreference.RulePrefHelper().get()) {
             if (!source.active) {
                 continue;
@@ -36,7 +36,8 @@ import org.openstreetmap.josm.tools.LanguageInfo;
 public class OpeningHourTest extends Test.TagTest {
 
     /**
-     * Javascript engine
+     * Javascript engine. It is not thread-safe: the validator runs tests concurrently, so every use must be
+     * synchronized on the engine.
      */
     public static final ScriptEngine ENGINE = new ScriptEngineManager().getEngineByName("JavaScript");
 
@@ -54,23 +55,25 @@ public class OpeningHourTest extends Test.TagTest {
         if (ENGINE != null) {
             try (CachedFile cf = new CachedFile("resource://data/validator/opening_hours.js");
                  Reader reader = new InputStreamReader(cf.getInputStream(), StandardCharsets.UTF_8)) {
-                ENGINE.eval(reader);
-                ENGINE.eval("var opening_hours = require('opening_hours');");
-                // fake country/state to not get errors on holidays
-                ENGINE.eval("var nominatimJSON = {address: {state: 'Bayern', country_code: 'de'}};");
-                ENGINE.eval(
-                        "var oh = function (value, mode, locale) {" +
-                        " try {" +
-                        "    var r = new opening_hours(value, nominatimJSON, {mode: mode, locale: locale});" +
-                        "    r.getErrors = function() {return [];};" +
-                        "    return r;" +
-                        "  } catch (err) {" +
-                        "    return {" +
-                        "      getWarnings: function() {return [];}," +
-                        "      getErrors: function() {return [err.toString()]}" +
-                        "    };" +
-                        "  }" +
-                        "};");
+                synchronized (ENGINE) {
+                    ENGINE.eval(reader);
+                    ENGINE.eval("var opening_hours = require('opening_hours');");
+                    // fake country/state to not get errors on holidays
+                    ENGINE.eval("var nominatimJSON = {address: {state: 'Bayern', country_code: 'de'}};");
+                    ENGINE.eval(
+                            "var oh = function (value, mode, locale) {" +
+                            " try {" +
+                            "    var r = new opening_hours(value, nominatimJSON, {mode: mode, locale: locale});" +
+                            "    r.getErrors = function() {return [];};" +
+                            "    return r;" +
+                            "  } catch (err) {" +
+                            "    return {" +
+                            "      getWarnings: function() {return [];}," +
+                            "      getErrors: function() {return [err.toString()]}" +
+                            "    };" +
+                            "  }" +
+                            "};");
+                }
             }
         } else {
             Main.warn("Unable to initialize OpeningHourTest because no JavaScript engine has been found");
@@ -201,25 +204,27 @@ public class OpeningHourTest extends Test.TagTest {
             return Collections.emptyList();
         }
         final List<OpeningHoursTestError> errors = new ArrayList<>();
-        try {
-            final Object r = parse(value, mode, locale);
-            String prettifiedValue = null;
+        synchronized (ENGINE) {
             try {
-                prettifiedValue = (String) ((Invocable) ENGINE).invokeMethod(r, "prettifyValue");
-            } catch (ScriptException | NoSuchMethodException e) {
-                Main.warn(e);
+                final Object r = parse(value, mode, locale);
+                String prettifiedValue = null;
+                try {
+                    prettifiedValue = (String) ((Invocable) ENGINE).invokeMethod(r, "prettifyValue");
+                } catch (ScriptException | NoSuchMethodException e) {
+                    Main.warn(e);
+                }
+                for (final Object i : getList(((Invocable) ENGINE).invokeMethod(r, "getErrors"))) {
+                    errors.add(new OpeningHoursTestError(getErrorMessage(key, i), Severity.ERROR, prettifiedValue));
+                }
+                for (final Object i : getList(((Invocable) ENGINE).invokeMethod(r, "getWarnings"))) {
+                    errors.add(new OpeningHoursTestError(getErrorMessage(key, i), Severity.WARNING, prettifiedValue));
+                }
+                if (!ignoreOtherSeverity && errors.isEmpty() && prettifiedValue != null && !value.equals(prettifiedValue)) {
+                    errors.add(new OpeningHoursTestError(tr("opening_hours value can be prettified"), Severity.OTHER, prettifiedValue));
+                }
+            } catch (ScriptException | NoSuchMethodException ex) {
+                Main.error(ex);
             }
-            for (final Object i : getList(((Invocable) ENGINE).invokeMethod(r, "getErrors"))) {
-                errors.add(new OpeningHoursTestError(getErrorMessage(key, i), Severity.ERROR, prettifiedValue));
-            }
-            for (final Object i : getList(((Invocable) ENGINE).invokeMethod(r, "getWarnings"))) {
-                errors.add(new OpeningHoursTestError(getErrorMessage(key, i), Severity.WARNING, prettifiedValue));
-            }
-            if (!ignoreOtherSeverity && errors.isEmpty() && prettifiedValue != null && !value.equals(prettifiedValue)) {
-                errors.add(new OpeningHoursTestError(tr("opening_hours value can be prettified"), Severity.OTHER, prettifiedValue));
-            }
-        } catch (ScriptException | NoSuchMethodException ex) {
-            Main.error(ex);
         }
         return errors;
     }
@@ -385,6 +385,11 @@ public class TagChecker extends TagTest {
      */
     @Override
     public void check(OsmPrimitive p) {
+        check(p, errors);
+    }
+
+    @Override
+    public void check(OsmPrimitive p, List<TestError> errors) {
         // Just a collection to know if a primitive has been already marked with error
         MultiMap<OsmPrimitive, String> withErrors = new MultiMap<>();
 
@@ -558,6 +563,11 @@ public class TagChecker extends TagTest {
         }
     }
 
+    @Override
+    public boolean isConcurrent() {
+        return true;
+    }
+
     @Override
     public void visit(Collection<OsmPrimitive> selection) {
         if (checkKeys || checkValues || checkComplex || checkFixmes) {
@@ -144,6 +144,11 @@ public class NavigatableComponent extends JComponent implements Helpful {
 
     protected final transient CursorManager cursorManager = new CursorManager(this);
 
+    /**
+     * The component this one is a snapshot of, see {@link #createViewportSnapshot()}.
+     */
+    private NavigatableComponent viewportSource = this;
+
     /**
      * Constructs a new {@code NavigatableComponent}.
      */
@@ -151,6 +156,29 @@ public class NavigatableComponent extends JComponent implements Helpful {
         setLayout(null);
     }
 
+    /**
+     * Creates a copy of the current viewport of this component, which does not change when this component is
+     * zoomed or panned. It can be used to render the map in a background thread.
+     * @return a new component with the same size, center and scale as this one
+     * @see #getViewportSource()
+     */
+    public NavigatableComponent createViewportSnapshot() {
+        NavigatableComponent snapshot = new NavigatableComponent();
+        snapshot.viewportSource = viewportSource;
+        snapshot.setSize(getWidth(), getHeight());
+        snapshot.center = center;
+        snapshot.scale = scale;
+        return snapshot;
+    }
+
+    /**
+     * Returns the component this one is a {@linkplain #createViewportSnapshot() snapshot} of.
+     * @return the component this one has been copied from, or this component
+     */
+    public NavigatableComponent getViewportSource() {
+        return viewportSource;
+    }
+
     /**
      * Choose a layer that scale will be snap to its native scales.
      * @param nativeScaleLayer layer to which scale will be snapped
@@ -964,49 +992,41 @@ public class NavigatableComponent extends JComponent implements Helpful {
             double snapDistanceSq = Main.pref.getInteger("mappaint.segment.snap-distance", 10);
             snapDistanceSq *= snapDistanceSq;
 
-            for (Way w : ds.searchWays(getBBox(p, Main.pref.getInteger("mappaint.segment.snap-distance", 10)))) {
-                if (!predicate.evaluate(w)) {
+            for (WaySegment ws : ds.searchWaySegments(getBBox(p, Main.pref.getInteger("mappaint.segment.snap-distance", 10)))) {
+                if (!predicate.evaluate(ws.way)) {
+                    continue;
+                }
+                Node nA = ws.getFirstNode();
+                Node nB = ws.getSecondNode();
+                //FIXME: This shouldn't happen, raise exception?
+                if (nA.isDeleted() || nA.isIncomplete() || nB.isDeleted() || nB.isIncomplete()) {
                     continue;
                 }
-                Node lastN = null;
-                int i = -2;
-                for (Node n : w.getNodes()) {
-                    i++;
-                    if (n.isDeleted() || n.isIncomplete()) { //FIXME: This shouldn't happen, raise exception?
-                        continue;
-                    }
-                    if (lastN == null) {
-                        lastN = n;
-                        continue;
-                    }
 
-                    Point2D pA = getPoint2D(lastN);
-                    Point2D pB = getPoint2D(n);
-                    double c = pA.distanceSq(pB);
-                    double a = p.distanceSq(pB);
-                    double b = p.distanceSq(pA);
-
-                    /* perpendicular distance squared
-                     * loose some precision to account for possible deviations in the calculation above
-                     * e.g. if identical (A and B) come about reversed in another way, values may differ
-                     * -- zero out least significant 32 dual digits of mantissa..
-                     */
-                    double perDistSq = Double.longBitsToDouble(
-                            Double.doubleToLongBits(a - (a - b + c) * (a - b + c) / 4 / c)
-                            >> 32 << 32); // resolution in numbers with large exponent not needed here..
-
-                    if (perDistSq < snapDistanceSq && a < c + snapDistanceSq && b < c + snapDistanceSq) {
-                        List<WaySegment> wslist;
-                        if (nearestMap.containsKey(perDistSq)) {
-                            wslist = nearestMap.get(perDistSq);
-                        } else {
-                            wslist = new LinkedList<>();
-                            nearestMap.put(perDistSq, wslist);
-                        }
-                        wslist.add(new WaySegment(w, i));
+                Point2D pA = getPoint2D(nA);
+                Point2D pB = getPoint2D(nB);
+                double c = pA.distanceSq(pB);
+                double a = p.distanceSq(pB);
+                double b = p.distanceSq(pA);
+
+                /* perpendicular distance squared
+                 * loose some precision to account for possible deviations in the calculation above
+                 * e.g. if identical (A and B) come about reversed in another way, values may differ
+                 * -- zero out least significant 32 dual digits of mantissa..
+                 */
+                double perDistSq = Double.longBitsToDouble(
+                        Double.doubleToLongBits(a - (a - b + c) * (a - b + c) / 4 / c)
+                        >> 32 << 32); // resolution in numbers with large exponent not needed here..
+
+                if (perDistSq < snapDistanceSq && a < c + snapDistanceSq && b < c + snapDistanceSq) {
+                    List<WaySegment> wslist;
+                    if (nearestMap.containsKey(perDistSq)) {
+                        wslist = nearestMap.get(perDistSq);
+                    } else {
+                        wslist = new LinkedList<>();
+                        nearestMap.put(perDistSq, wslist);
                     }
-
-                    lastN = n;
+                    wslist.add(ws);
                 }
             }
         }
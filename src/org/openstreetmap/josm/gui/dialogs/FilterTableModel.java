@@ -29,6 +29,7 @@ import org.openstreetmap.josm.data.osm.FilterMatcher;
 import org.openstreetmap.josm.data.osm.FilterWorker;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 import org.openstreetmap.josm.tools.Utils;
 
 /**
@@ -117,11 +118,23 @@ public class FilterTableModel extends AbstractTableModel {
         }
 
         if (Main.isDisplayingMapView() && changed) {
+            invalidateEditLayer();
             Main.map.mapView.repaint();
             Main.map.filterDialog.updateDialogHeader();
         }
     }
 
+    /**
+     * The filters change the disabled state of primitives without firing data set events,
+     * so the rendered tiles of the edit layer have to be invalidated explicitly.
+     */
+    private static void invalidateEditLayer() {
+        OsmDataLayer editLayer = Main.main.getEditLayer();
+        if (editLayer != null) {
+            editLayer.invalidate();
+        }
+    }
+
     public void executeFilters(Collection<? extends OsmPrimitive> primitives) {
         DataSet ds = Main.main.getCurrentDataSet();
         if (ds == null)
@@ -168,6 +181,7 @@ public class FilterTableModel extends AbstractTableModel {
         }
 
         if (changed) {
+            invalidateEditLayer();
             Main.map.mapView.repaint();
             Main.map.filterDialog.updateDialogHeader();
             ds.clearSelection(deselect);
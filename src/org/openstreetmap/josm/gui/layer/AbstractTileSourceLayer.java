@@ -71,6 +71,7 @@ import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.imagery.ImageryInfo;
 import org.openstreetmap.josm.data.imagery.TMSCachedTileLoader;
 import org.openstreetmap.josm.data.imagery.TileLoaderFactory;
+import org.openstreetmap.josm.data.imagery.TileViewport;
 import org.openstreetmap.josm.data.osm.visitor.BoundingXYVisitor;
 import org.openstreetmap.josm.data.preferences.BooleanProperty;
 import org.openstreetmap.josm.data.preferences.IntegerProperty;
@@ -780,11 +781,24 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener {
             Main.debug("zoomChanged(): " + currentZoomLevel);
         }
         if (tileLoader instanceof TMSCachedTileLoader) {
-            ((TMSCachedTileLoader) tileLoader).cancelOutstandingTasks();
+            // cancels the tiles which are no longer visible, and loads the others from the center of the map view
+            ((TMSCachedTileLoader) tileLoader).setViewport(getTileViewport());
         }
         needRedraw = true;
     }
 
+    /**
+     * @return the visible tiles at the current zoom level, or {@code null} if unknown
+     */
+    private TileViewport getTileViewport() {
+        if (tileSource == null || !Main.isDisplayingMapView())
+            return null;
+        TileSet ts = getVisibleTileSet();
+        if (ts.zoom == 0)
+            return null;
+        return new TileViewport(ts.zoom, ts.x0, ts.y0, ts.x1, ts.y1);
+    }
+
     protected int getMaxZoomLvl() {
         if (info.getMaxZoom() != 0)
             return checkMaxZoomLvl(info.getMaxZoom(), tileSource);
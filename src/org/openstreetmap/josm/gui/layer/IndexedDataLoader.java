@@ -0,0 +1,284 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.command.Command;
+import org.openstreetmap.josm.command.PurgeCommand;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.PrimitiveData;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
+import org.openstreetmap.josm.gui.NavigatableComponent;
+import org.openstreetmap.josm.gui.NavigatableComponent.ZoomChangeListener;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerAddEvent;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerChangeListener;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerOrderChangeEvent;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerRemoveEvent;
+import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.io.IndexedOsmFile;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Loads the data of an {@link IndexedOsmFile} into a data layer, for the area displayed in the map view.
+ * <p>
+ * Each time the map view is moved, the cells of the visible area which have not been loaded yet are read on the
+ * worker thread, then added to the data set of the layer in the event dispatch thread. The data set holds the
+ * modifications: loaded primitives are never loaded again. Nothing is loaded while the map view shows more than
+ * {@link #PROP_MAX_CELLS} cells. The file is closed when the layer is removed.
+ * <p>
+ * When more than {@link #PROP_MAX_LOADED_CELLS} cells are loaded, the cells farthest from the map view are unloaded:
+ * their primitives are purged, unless they are modified, new, selected, in conflict, or still needed by the other
+ * loaded cells. The members of relations are made incomplete, and relations are kept. An unloaded cell is read again
+ * when it becomes visible. Nothing is unloaded while the undo/redo commands involve the layer, since undoing or redoing
+ * them could bring back primitives which are not known, e.g. a node removed from a modified way but still used by an
+ * unmodified one.
+ * <p>
+ * The layer is {@linkplain OsmDataLayer#isPartiallyLoaded() partially loaded}, so that it is not saved to a file
+ * lacking the data which is not loaded.
+ */
+public class IndexedDataLoader implements ZoomChangeListener, LayerChangeListener {
+
+    /** Maximum number of cells loaded at once. Nothing is loaded when the map view is zoomed out further */
+    public static final IntegerProperty PROP_MAX_CELLS = new IntegerProperty("osm.indexed.max-cells", 64);
+    /** Maximum number of cells kept in memory. The cells farthest from the map view are unloaded above this number */
+    public static final IntegerProperty PROP_MAX_LOADED_CELLS = new IntegerProperty("osm.indexed.max-loaded-cells", 256);
+
+    private final OsmDataLayer layer;
+    private final IndexedOsmFile file;
+    private final String origin;
+    private final Set<Integer> loadedCells = new HashSet<>();
+    private boolean loading;
+    private boolean pending;
+    private boolean stopped;
+
+    /**
+     * Constructs a new {@code IndexedDataLoader}.
+     * @param layer the layer receiving the data
+     * @param file the indexed file. It is closed when the layer is removed
+     * @param origin the origin of the data sources added for the loaded areas
+     */
+    public IndexedDataLoader(OsmDataLayer layer, IndexedOsmFile file, String origin) {
+        this.layer = layer;
+        layer.setPartiallyLoaded(true);
+        this.file = file;
+        this.origin = origin;
+    }
+
+    /**
+     * Starts loading the data of the visible area, and listens to the map view. Must be called in the EDT, once the
+     * layer has been added.
+     */
+    public void start() {
+        NavigatableComponent.addZoomChangeListener(this);
+        Main.getLayerManager().addLayerChangeListener(this);
+        zoomChanged();
+    }
+
+    /**
+     * Stops loading data, and closes the file.
+     */
+    public void stop() {
+        if (stopped)
+            return;
+        stopped = true;
+        NavigatableComponent.removeZoomChangeListener(this);
+        Main.getLayerManager().removeLayerChangeListener(this);
+        if (!loading) {
+            Utils.close(file);
+        }
+    }
+
+    /**
+     * Determines if the data of an area is being loaded.
+     * @return {@code true} if the data of an area is being loaded
+     */
+    public boolean isLoading() {
+        return loading;
+    }
+
+    @Override
+    public void zoomChanged() {
+        if (stopped || !layer.isVisible() || !Main.isDisplayingMapView())
+            return;
+        if (loading) {
+            pending = true;
+            return;
+        }
+        Bounds view = Main.map.mapView.getRealBounds();
+        final List<Integer> cells = new ArrayList<>();
+        for (int cell : file.getCells(view)) {
+            if (!loadedCells.contains(cell)) {
+                cells.add(cell);
+            }
+        }
+        if (cells.isEmpty() || cells.size() > PROP_MAX_CELLS.get())
+            return;
+        if (loadedCells.isEmpty()) {
+            cells.add(IndexedOsmFile.GLOBAL_CELL);
+        }
+        loading = true;
+        Main.worker.submit(new Runnable() {
+            @Override
+            public void run() {
+                List<PrimitiveData> data = null;
+                try {
+                    data = file.read(cells);
+                } catch (IOException e) {
+                    Main.error(e);
+                }
+                final List<PrimitiveData> result = data;
+                GuiHelper.runInEDT(new Runnable() {
+                    @Override
+                    public void run() {
+                        loaded(cells, result);
+                    }
+                });
+            }
+        });
+    }
+
+    void loaded(List<Integer> cells, List<PrimitiveData> data) {
+        loading = false;
+        if (stopped) {
+            Utils.close(file);
+            return;
+        }
+        // a cell which cannot be read is not retried
+        loadedCells.addAll(cells);
+        if (data != null) {
+            file.load(layer.data, data);
+            for (int cell : cells) {
+                if (cell != IndexedOsmFile.GLOBAL_CELL) {
+                    layer.data.dataSources.add(new DataSource(file.getCellBounds(cell), origin));
+                }
+            }
+            unloadDistantCells();
+            layer.invalidate();
+        }
+        if (pending) {
+            pending = false;
+            zoomChanged();
+        }
+    }
+
+    private void unloadDistantCells() {
+        // the global cell is never unloaded
+        int excess = loadedCells.size() - 1 - Math.max(PROP_MAX_LOADED_CELLS.get(), PROP_MAX_CELLS.get());
+        if (excess <= 0 || !Main.isDisplayingMapView())
+            return;
+        Bounds view = Main.map.mapView.getRealBounds();
+        final LatLon center = view.getCenter();
+        List<Integer> cells = new ArrayList<>(loadedCells);
+        cells.remove(Integer.valueOf(IndexedOsmFile.GLOBAL_CELL));
+        cells.removeAll(file.getCells(view));
+        Collections.sort(cells, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer c1, Integer c2) {
+                return Double.compare(center.distanceSq(file.getCellBounds(c2).getCenter()),
+                        center.distanceSq(file.getCellBounds(c1).getCenter()));
+            }
+        });
+        unload(cells.subList(0, Math.min(excess, cells.size())));
+    }
+
+    /**
+     * Unloads cells: removes their data sources and purges their primitives which can be read again from the file.
+     * The unloaded cells are loaded again when they become visible.
+     * @param cells the cells to unload
+     */
+    void unload(Collection<Integer> cells) {
+        if (hasUndoRedoCommands())
+            return;
+        loadedCells.removeAll(cells);
+        Set<OsmPrimitive> toPurge = new HashSet<>();
+        List<Node> nodes = new ArrayList<>();
+        for (int cell : cells) {
+            Bounds bounds = file.getCellBounds(cell);
+            layer.data.dataSources.remove(new DataSource(bounds, origin));
+            BBox bbox = new BBox(bounds.getMinLon(), bounds.getMinLat(), bounds.getMaxLon(), bounds.getMaxLat());
+            for (Way w : layer.data.searchWays(bbox)) {
+                if (!toPurge.contains(w) && canUnload(w) && canUnloadNodes(w)) {
+                    toPurge.add(w);
+                    nodes.addAll(w.getNodes());
+                }
+            }
+            nodes.addAll(layer.data.searchNodes(bbox));
+        }
+        for (Node n : nodes) {
+            if (!toPurge.contains(n) && canUnload(n) && !loadedCells.contains(file.getCell(n.getCoor()))
+                    && toPurge.containsAll(OsmPrimitive.getFilteredList(n.getReferrers(), Way.class))) {
+                toPurge.add(n);
+            }
+        }
+        if (toPurge.isEmpty())
+            return;
+        List<OsmPrimitive> makeIncomplete = new ArrayList<>();
+        for (OsmPrimitive p : toPurge) {
+            if (!OsmPrimitive.getFilteredList(p.getReferrers(), Relation.class).isEmpty()) {
+                makeIncomplete.add(p);
+            }
+        }
+        // not added to the undo/redo commands: the primitives can be loaded again
+        new PurgeCommand(layer, toPurge, makeIncomplete).executeCommand();
+    }
+
+    private boolean canUnloadNodes(Way w) {
+        for (Node n : w.getNodes()) {
+            if (!canUnload(n) || loadedCells.contains(file.getCell(n.getCoor())))
+                return false;
+        }
+        return true;
+    }
+
+    private boolean canUnload(OsmPrimitive p) {
+        return !p.isModified() && !p.isNew() && !p.isIncomplete() && !p.isSelected() && !layer.getConflicts().hasConflictForMy(p);
+    }
+
+    /**
+     * Determines if the undo/redo commands involve the layer.
+     * @return {@code true} if undoing or redoing a command would change the data set of the layer
+     */
+    private boolean hasUndoRedoCommands() {
+        if (Main.main == null)
+            return false;
+        List<Command> commands = new ArrayList<>(Main.main.undoRedo.commands);
+        commands.addAll(Main.main.undoRedo.redoCommands);
+        for (Command c : commands) {
+            if (c.invalidBecauselayerRemoved(layer))
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void layerAdded(LayerAddEvent e) {
+        // Do nothing
+    }
+
+    @Override
+    public void layerRemoving(LayerRemoveEvent e) {
+        if (e.getRemovedLayer() == layer) {
+            stop();
+        }
+    }
+
+    @Override
+    public void layerOrderChanged(LayerOrderChangeEvent e) {
+        // Do nothing
+    }
+}
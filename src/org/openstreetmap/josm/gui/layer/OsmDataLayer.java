@@ -73,7 +73,9 @@ import org.openstreetmap.josm.data.osm.event.DataSetListenerAdapter.Listener;
 import org.openstreetmap.josm.data.osm.visitor.AbstractVisitor;
 import org.openstreetmap.josm.data.osm.visitor.BoundingXYVisitor;
 import org.openstreetmap.josm.data.osm.visitor.paint.MapRendererFactory;
+import org.openstreetmap.josm.data.osm.visitor.paint.RenderTileCache;
 import org.openstreetmap.josm.data.osm.visitor.paint.Rendering;
+import org.openstreetmap.josm.data.osm.visitor.paint.SimplifiedGeometryCache;
 import org.openstreetmap.josm.data.osm.visitor.paint.relations.MultipolygonCache;
 import org.openstreetmap.josm.data.preferences.IntegerProperty;
 import org.openstreetmap.josm.data.preferences.StringProperty;
@@ -117,8 +119,11 @@ public class OsmDataLayer extends AbstractModifiableLayer implements Listener, S
 
     private boolean requiresSaveToFile;
     private boolean requiresUploadToServer;
+    private boolean partiallyLoaded;
     private boolean isChanged = true;
     private int highlightUpdateCount;
+    /** Rendered tiles, created on first paint if enabled */
+    private RenderTileCache tileCache;
 
     /**
      * List of validation errors in this layer.
@@ -355,6 +360,7 @@ public class OsmDataLayer extends AbstractModifiableLayer implements Listener, S
         conflicts = new ConflictCollection();
         data.addDataSetListener(new DataSetListenerAdapter(this));
         data.addDataSetListener(MultipolygonCache.getInstance());
+        SimplifiedGeometryCache.getInstance().register(data);
         DataSet.addSelectionListener(this);
     }
 
@@ -415,8 +421,29 @@ public class OsmDataLayer extends AbstractModifiableLayer implements Listener, S
             g.fill(a);
         }
 
-        Rendering painter = MapRendererFactory.getInstance().createActiveRenderer(g, mv, inactive);
-        painter.render(data, virtual, box);
+        if (Main.pref.getBoolean("mappaint.render.tile-cache", false)) {
+            if (tileCache == null) {
+                tileCache = new RenderTileCache(data, new Runnable() {
+                    @Override
+                    public void run() {
+                        GuiHelper.runInEDT(new Runnable() {
+                            @Override
+                            public void run() {
+                                invalidateLayer();
+                            }
+                        });
+                    }
+                });
+            }
+            tileCache.paint(g, mv, inactive, virtual);
+        } else {
+            if (tileCache != null) {
+                tileCache.destroy();
+                tileCache = null;
+            }
+            Rendering painter = MapRendererFactory.getInstance().createActiveRenderer(g, mv, inactive);
+            painter.render(data, virtual, box);
+        }
         Main.map.conflictDialog.paintConflicts(g, mv);
     }
 
@@ -930,22 +957,45 @@ public class OsmDataLayer extends AbstractModifiableLayer implements Listener, S
     @Override
     public void destroy() {
         DataSet.removeSelectionListener(this);
+        if (tileCache != null) {
+            tileCache.destroy();
+            tileCache = null;
+        }
     }
 
     @Override
     public void processDatasetEvent(AbstractDatasetChangedEvent event) {
-        invalidate();
+        if (tileCache != null) {
+            tileCache.invalidate(event);
+        }
+        invalidateLayer();
         setRequiresSaveToFile(true);
         setRequiresUploadToServer(true);
     }
 
     @Override
     public void selectionChanged(Collection<? extends OsmPrimitive> newSelection) {
-        invalidate();
+        if (tileCache != null) {
+            tileCache.selectionChanged();
+        }
+        invalidateLayer();
     }
 
+    /**
+     * Invalidates this layer and all the rendered tiles.
+     */
     @Override
     public void invalidate() {
+        if (tileCache != null) {
+            tileCache.clear();
+        }
+        invalidateLayer();
+    }
+
+    /**
+     * Requests a repaint, keeping the rendered tiles not invalidated by the tile cache itself.
+     */
+    private void invalidateLayer() {
         isChanged = true;
         super.invalidate();
     }
@@ -980,9 +1030,22 @@ public class OsmDataLayer extends AbstractModifiableLayer implements Listener, S
         return data.isModified();
     }
 
+    /**
+     * Determines if only a part of the data of the source of this layer is loaded, e.g. by an {@link IndexedDataLoader}.
+     * Such a layer cannot be saved, since the file would lack the data which is not loaded.
+     * @return {@code true} if only a part of the data is loaded
+     */
+    public boolean isPartiallyLoaded() {
+        return partiallyLoaded;
+    }
+
+    void setPartiallyLoaded(boolean partiallyLoaded) {
+        this.partiallyLoaded = partiallyLoaded;
+    }
+
     @Override
     public boolean isSavable() {
-        return true; // With OsmExporter
+        return !partiallyLoaded; // With OsmExporter
     }
 
     @Override
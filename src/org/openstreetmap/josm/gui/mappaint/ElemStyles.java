@@ -9,6 +9,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.data.Preferences.PreferenceChangeEvent;
@@ -45,11 +46,17 @@ public class ElemStyles implements PreferenceChangedListener {
 
     private final Map<String, String> preferenceCache = new HashMap<>();
 
+    /**
+     * Styles shared between primitives with the same tags, or {@code null} if disabled.
+     */
+    private final SharedStyleCache sharedStyles;
+
     /**
      * Constructs a new {@code ElemStyles}.
      */
     public ElemStyles() {
         styleSources = new ArrayList<>();
+        sharedStyles = Main.pref.getBoolean("mappaint.style.shared-cache", true) ? new SharedStyleCache() : null;
         Main.pref.addPreferenceChangeListener(this);
     }
 
@@ -63,10 +70,39 @@ public class ElemStyles implements PreferenceChangedListener {
             public void run() {
                 cacheIdx++;
                 preferenceCache.clear();
+                if (sharedStyles != null) {
+                    sharedStyles.clear();
+                }
+            }
+        });
+    }
+
+    /**
+     * Clear the styles depending on a preference.
+     * @param key the preference key
+     */
+    private void clearCached(final String key) {
+        GuiHelper.runInEDT(new Runnable() {
+            @Override
+            public void run() {
+                cacheIdx++;
+                // keep the other preferences, shared styles are not computed again and would not read them
+                preferenceCache.remove(key);
+                if (sharedStyles != null) {
+                    sharedStyles.invalidatePreference(key);
+                }
             }
         });
     }
 
+    /**
+     * Returns the number of style entries shared between primitives.
+     * @return the number of shared style entries
+     */
+    int getSharedStyleCount() {
+        return sharedStyles != null ? sharedStyles.size() : 0;
+    }
+
     public List<StyleSource> getStyleSources() {
         return Collections.<StyleSource>unmodifiableList(styleSources);
     }
@@ -88,6 +124,7 @@ public class ElemStyles implements PreferenceChangedListener {
      *
      * Automatically adds default styles in case no proper style was found.
      * Uses the cache, if possible, and saves the results to the cache.
+     * The styles of primitives with the same tags and style context are shared, see {@link StyleSource#getStyleContext}.
      * @param osm OSM primitive
      * @param scale scale
      * @param nc navigatable component
@@ -101,6 +138,32 @@ public class ElemStyles implements PreferenceChangedListener {
             if (lst.a != null)
                 return lst;
         }
+        SharedStyleCache.Key key = sharedStyles != null && scale > 0 ? sharedStyles.createKey(osm, styleSources) : null;
+        if (key == null) {
+            return computeStyleCacheWithRange(osm, scale, nc);
+        }
+        StyleCache shared = sharedStyles.get(key);
+        if (shared != null) {
+            Pair<StyleElementList, Range> lst = shared.getWithRange(scale, osm.isSelected());
+            if (lst.a != null) {
+                osm.mappaintStyle = shared;
+                osm.mappaintCacheIdx = cacheIdx;
+                return lst;
+            }
+        }
+        Set<String> previous = SharedStyleCache.startRecording();
+        Pair<StyleElementList, Range> p;
+        Set<String> preferences;
+        try {
+            p = computeStyleCacheWithRange(osm, scale, nc);
+        } finally {
+            preferences = SharedStyleCache.stopRecording(previous);
+        }
+        sharedStyles.put(key, p.a, p.b, osm.isSelected(), preferences);
+        return p;
+    }
+
+    private Pair<StyleElementList, Range> computeStyleCacheWithRange(OsmPrimitive osm, double scale, NavigatableComponent nc) {
         Pair<StyleElementList, Range> p = getImpl(osm, scale, nc);
         if (osm instanceof Node && isDefaultNodes()) {
             if (p.a.isEmpty()) {
@@ -414,9 +477,16 @@ public class ElemStyles implements PreferenceChangedListener {
         Relation r = new Relation();
         r.put("#canvas", "query");
 
-        for (StyleSource s : styleSources) {
-            if (s.active) {
-                s.apply(mc, r, 1, false);
+        Set<String> previous = sharedStyles != null ? SharedStyleCache.startRecording() : null;
+        try {
+            for (StyleSource s : styleSources) {
+                if (s.active) {
+                    s.apply(mc, r, 1, false);
+                }
+            }
+        } finally {
+            if (sharedStyles != null) {
+                sharedStyles.addGlobalPreferences(SharedStyleCache.stopRecording(previous));
             }
         }
         return mc.getCascade("default").get(key, def, c);
@@ -536,13 +606,14 @@ public class ElemStyles implements PreferenceChangedListener {
             res = Main.pref.get(key, null);
             preferenceCache.put(key, res);
         }
+        SharedStyleCache.recordPreference(key);
         return res != null ? res : def;
     }
 
     @Override
     public void preferenceChanged(PreferenceChangeEvent e) {
-        if (preferenceCache.containsKey(e.getKey())) {
-            clearCached();
+        if (preferenceCache.containsKey(e.getKey()) || (sharedStyles != null && sharedStyles.dependsOn(e.getKey()))) {
+            clearCached(e.getKey());
         }
     }
 }
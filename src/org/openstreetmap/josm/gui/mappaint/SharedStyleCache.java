@@ -0,0 +1,237 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.mappaint;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.mappaint.DividedScale.RangeViolatedError;
+
+/**
+ * Styles shared between all primitives having the same tags, type, closed state and style context.
+ * <p>
+ * Most primitives of a data set have the same styles as many others, e.g. the untagged nodes of ways
+ * or the residential roads. Looking them up here avoids to apply the style sources to each of them.
+ * Primitives depending on their context in ways that cannot be described by {@link StyleSource#getStyleContext},
+ * as well as relations and members of multipolygons, are not shared.
+ * <p>
+ * Each entry remembers the preferences read while computing it, so that a preference change only invalidates
+ * the styles depending on it.
+ * <p>
+ * This class is thread safe.
+ * @see ElemStyles#getStyleCacheWithRange
+ */
+final class SharedStyleCache {
+
+    /**
+     * Key of the shared styles.
+     */
+    static final class Key {
+        private final Map<String, String> tags;
+        private final OsmPrimitiveType type;
+        private final boolean closed;
+        private final List<Object> contexts;
+        private final int hash;
+
+        private Key(Map<String, String> tags, OsmPrimitiveType type, boolean closed, List<Object> contexts) {
+            this.tags = tags;
+            this.type = type;
+            this.closed = closed;
+            this.contexts = contexts;
+            this.hash = Objects.hash(tags, type, closed, contexts);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (obj == null || getClass() != obj.getClass()) return false;
+            Key other = (Key) obj;
+            return hash == other.hash && type == other.type && closed == other.closed
+                    && tags.equals(other.tags) && contexts.equals(other.contexts);
+        }
+    }
+
+    private static final class Entry {
+        private volatile StyleCache styles = StyleCache.EMPTY_STYLECACHE;
+        private final Set<String> preferences = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    }
+
+    private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final Set<String> preferences = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final Set<String> globalPreferences = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private static final ThreadLocal<Set<String>> recordedPreferences = new ThreadLocal<>();
+
+    /**
+     * Creates the key of the shared styles of a primitive.
+     * <p>
+     * You must have a read lock of STYLE_SOURCE_LOCK when calling this method.
+     * @param osm the primitive
+     * @param styleSources the style sources
+     * @return the key, or {@code null} if the styles of this primitive cannot be shared
+     */
+    Key createKey(OsmPrimitive osm, List<StyleSource> styleSources) {
+        boolean closed = false;
+        if (osm instanceof Way) {
+            // the styles of multipolygon members also depend on the multipolygon
+            for (OsmPrimitive referrer : osm.getReferrers()) {
+                if (((Relation) referrer).isMultipolygon())
+                    return null;
+            }
+            closed = ((Way) osm).isClosed();
+        } else if (!(osm instanceof Node)) {
+            return null;
+        }
+        List<Object> contexts = new ArrayList<>(styleSources.size());
+        for (StyleSource s : styleSources) {
+            if (s.active) {
+                Object context = s.getStyleContext(osm);
+                if (context == null)
+                    return null;
+                contexts.add(context);
+            }
+        }
+        return new Key(osm.getKeys(), osm.getType(), closed, contexts);
+    }
+
+    /**
+     * Returns the shared styles.
+     * @param key the key created by {@link #createKey}
+     * @return the styles shared with other primitives, or {@code null}
+     */
+    StyleCache get(Key key) {
+        Entry entry = entries.get(key);
+        return entry != null ? entry.styles : null;
+    }
+
+    /**
+     * Adds styles to the shared styles.
+     * @param key the key created by {@link #createKey}
+     * @param list the styles
+     * @param range the range the styles are for
+     * @param selected whether the styles are for selected primitives
+     * @param preferences the preferences read while computing the styles
+     */
+    void put(Key key, StyleElementList list, Range range, boolean selected, Collection<String> preferences) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry();
+            Entry previous = entries.putIfAbsent(key, entry);
+            if (previous != null) {
+                entry = previous;
+            }
+        }
+        entry.preferences.addAll(preferences);
+        this.preferences.addAll(preferences);
+        synchronized (entry) {
+            try {
+                entry.styles = entry.styles.put(list, range, selected);
+            } catch (RangeViolatedError e) {
+                // the styles for this range have been computed concurrently by another thread
+                Main.trace(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Starts recording the preferences read by the current thread.
+     * @return the preferences recorded so far, to be passed to {@link #stopRecording}
+     */
+    static Set<String> startRecording() {
+        Set<String> previous = recordedPreferences.get();
+        recordedPreferences.set(new HashSet<String>());
+        return previous;
+    }
+
+    /**
+     * Stops recording the preferences read by the current thread.
+     * @param previous the value returned by {@link #startRecording}
+     * @return the preferences read since {@link #startRecording} was called
+     */
+    static Set<String> stopRecording(Set<String> previous) {
+        Set<String> recorded = recordedPreferences.get();
+        recordedPreferences.set(previous);
+        if (previous != null) {
+            previous.addAll(recorded);
+        }
+        return recorded;
+    }
+
+    /**
+     * Records that a preference has been read by the current thread.
+     * @param key the preference key
+     */
+    static void recordPreference(String key) {
+        Set<String> recorded = recordedPreferences.get();
+        if (recorded != null) {
+            recorded.add(key);
+        }
+    }
+
+    /**
+     * Marks preferences as affecting all styles, e.g. because they have been read by the canvas properties.
+     * @param preferences the preference keys
+     */
+    void addGlobalPreferences(Collection<String> preferences) {
+        globalPreferences.addAll(preferences);
+    }
+
+    /**
+     * Determines if some shared styles depend on a preference.
+     * @param key the preference key
+     * @return {@code true} if the preference has been read while computing the shared styles
+     */
+    boolean dependsOn(String key) {
+        return preferences.contains(key) || globalPreferences.contains(key);
+    }
+
+    /**
+     * Removes the styles depending on a preference.
+     * @param key the preference key
+     */
+    void invalidatePreference(String key) {
+        if (globalPreferences.contains(key)) {
+            clear();
+            return;
+        }
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext();) {
+            if (it.next().preferences.contains(key)) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all shared styles.
+     */
+    void clear() {
+        entries.clear();
+        preferences.clear();
+        globalPreferences.clear();
+    }
+
+    /**
+     * Returns the number of shared style entries.
+     * @return the number of shared style entries
+     */
+    int size() {
+        return entries.size();
+    }
+}
@@ -92,6 +92,17 @@ public abstract class StyleSource extends SourceEntry {
      */
     public abstract void apply(MultiCascade mc, OsmPrimitive osm, double scale, boolean pretendWayIsClosed);
 
+    /**
+     * Computes the context of a primitive which, with its tags, its type and whether it is closed or selected,
+     * determines the properties added by {@link #apply}. Primitives with equal contexts can share their styles.
+     * @param osm the primitive
+     * @return an object identifying the context of the primitive, comparable with {@code equals}, or {@code null}
+     * if the properties of this primitive cannot be shared. {@code null} by default
+     */
+    public Object getStyleContext(OsmPrimitive osm) {
+        return null;
+    }
+
     /**
      * Loads the style source.
      */
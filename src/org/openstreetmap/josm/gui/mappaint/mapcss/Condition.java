@@ -7,6 +7,7 @@ import java.text.MessageFormat;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -33,6 +34,26 @@ public abstract class Condition {
 
     public abstract boolean applies(Environment e);
 
+    /**
+     * Determines if this condition only depends on the tags of the primitive, on its type, and on whether it is closed or selected.
+     * It does not depend for instance on the parents of the primitive, its position or its modification state.
+     * <p>
+     * The styles of primitives only matched by such conditions can be shared between primitives with the same tags.
+     * @return {@code true} if this condition only depends on the tags of the primitive
+     * @see MapCSSRule#isContextFree()
+     */
+    public boolean isContextFree() {
+        return false;
+    }
+
+    /**
+     * Determines if this condition depends on the classes or properties set by previous rules for the same primitive.
+     * @return {@code true} if this condition reads the cascade of the environment
+     */
+    public boolean readsCascade() {
+        return false;
+    }
+
     public static Condition createKeyValueCondition(String k, String v, Op op, Context context, boolean considerValAsKey) {
         switch (context) {
         case PRIMITIVE:
@@ -120,6 +141,8 @@ public abstract class Condition {
 
         static final Set<Op> NEGATED_OPS = EnumSet.of(NEQ, NREGEX);
 
+        private static final Pattern ONE_OF_SEPARATOR = Pattern.compile("\\s*;\\s*");
+
         /**
          * Evaluates a value against a reference string.
          * @param testString The value. May be <code>null</code>
@@ -139,7 +162,7 @@ public abstract class Condition {
                 final boolean contains = Pattern.compile(prototypeString).matcher(testString).find();
                 return REGEX.equals(this) ? contains : !contains;
             case ONE_OF:
-                return testString != null && Arrays.asList(testString.split("\\s*;\\s*")).contains(prototypeString);
+                return testString != null && Arrays.asList(ONE_OF_SEPARATOR.split(testString)).contains(prototypeString);
             case BEGINS_WITH:
                 return testString != null && testString.startsWith(prototypeString);
             case ENDS_WITH:
@@ -216,6 +239,11 @@ public abstract class Condition {
             return v.equals(e.osm.get(k));
         }
 
+        @Override
+        public boolean isContextFree() {
+            return true;
+        }
+
         public Tag asTag() {
             return new Tag(k, v);
         }
@@ -269,6 +297,11 @@ public abstract class Condition {
             return op.eval(env.osm.get(k), considerValAsKey ? env.osm.get(v) : v);
         }
 
+        @Override
+        public boolean isContextFree() {
+            return true;
+        }
+
         public Tag asTag() {
             return new Tag(k, v);
         }
@@ -282,6 +315,7 @@ public abstract class Condition {
     public static class KeyValueRegexpCondition extends KeyValueCondition {
 
         public final Pattern pattern;
+        protected final Predicate<String> containsPattern;
         protected static final Set<Op> SUPPORTED_OPS = EnumSet.of(Op.REGEX, Op.NREGEX);
 
         public KeyValueRegexpCondition(String k, String v, Op op, boolean considerValAsKey) {
@@ -289,11 +323,12 @@ public abstract class Condition {
             CheckParameterUtil.ensureThat(!considerValAsKey, "considerValAsKey is not supported");
             CheckParameterUtil.ensureThat(SUPPORTED_OPS.contains(op), "Op must be REGEX or NREGEX");
             this.pattern = Pattern.compile(v);
+            this.containsPattern = Predicates.stringContainsPattern(v);
         }
 
         protected boolean matches(Environment env) {
             final String value = env.osm.get(k);
-            return value != null && pattern.matcher(value).find();
+            return value != null && containsPattern.evaluate(value);
         }
 
         @Override
@@ -311,16 +346,18 @@ public abstract class Condition {
     public static class RegexpKeyValueRegexpCondition extends KeyValueRegexpCondition {
 
         public final Pattern keyPattern;
+        private final Predicate<String> keyContainsPattern;
 
         public RegexpKeyValueRegexpCondition(String k, String v, Op op) {
             super(k, v, op, false);
             this.keyPattern = Pattern.compile(k);
+            this.keyContainsPattern = Predicates.stringContainsPattern(k);
         }
 
         @Override
         protected boolean matches(Environment env) {
             for (Map.Entry<String, String> kv: env.osm.getKeys().entrySet()) {
-                if (keyPattern.matcher(kv.getKey()).find() && pattern.matcher(kv.getValue()).find()) {
+                if (keyContainsPattern.evaluate(kv.getKey()) && containsPattern.evaluate(kv.getValue())) {
                     return true;
                 }
             }
@@ -439,7 +476,7 @@ public abstract class Condition {
             this.negateResult = negateResult;
             this.matchType = matchType == null ? KeyMatchType.EQ : matchType;
             this.containsPattern = KeyMatchType.REGEX.equals(matchType)
-                    ? Predicates.stringContainsPattern(Pattern.compile(label))
+                    ? Predicates.stringContainsPattern(label)
                     : null;
         }
 
@@ -464,6 +501,11 @@ public abstract class Condition {
             }
         }
 
+        @Override
+        public boolean isContextFree() {
+            return true;
+        }
+
         /**
          * Get the matched key and the corresponding value.
          * <p>
@@ -505,6 +547,17 @@ public abstract class Condition {
             return env != null && env.getCascade(env.layer) != null && not ^ env.getCascade(env.layer).containsKey(id);
         }
 
+        @Override
+        public boolean isContextFree() {
+            // classes are set by previous rules for the same primitive
+            return true;
+        }
+
+        @Override
+        public boolean readsCascade() {
+            return true;
+        }
+
         @Override
         public String toString() {
             return (not ? "!" : "") + '.' + id;
@@ -680,6 +733,9 @@ public abstract class Condition {
 
     public static class PseudoClassCondition extends Condition {
 
+        /** Pseudo classes only depending on the tags of the primitive, or on properties part of the shared style cache key */
+        private static final Set<String> CONTEXT_FREE_PSEUDO_CLASSES = new HashSet<>(Arrays.asList("closed", "tagged", "selected"));
+
         public final Method method;
         public final boolean not;
 
@@ -721,6 +777,11 @@ public abstract class Condition {
             }
         }
 
+        @Override
+        public boolean isContextFree() {
+            return method != null && CONTEXT_FREE_PSEUDO_CLASSES.contains(method.getName());
+        }
+
         @Override
         public String toString() {
             return (not ? "!" : "") + ':' + method.getName();
@@ -756,6 +817,16 @@ public abstract class Condition {
             return b != null && b;
         }
 
+        @Override
+        public boolean isContextFree() {
+            return ExpressionFactory.isContextFree(e);
+        }
+
+        @Override
+        public boolean readsCascade() {
+            return ExpressionFactory.readsProperties(e);
+        }
+
         @Override
         public String toString() {
             return '[' + e.toString() + ']';
@@ -14,7 +14,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.TreeSet;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -35,6 +37,7 @@ import org.openstreetmap.josm.io.XmlWriter;
 import org.openstreetmap.josm.tools.AlphanumComparator;
 import org.openstreetmap.josm.tools.ColorHelper;
 import org.openstreetmap.josm.tools.Geometry;
+import org.openstreetmap.josm.tools.Predicate;
 import org.openstreetmap.josm.tools.Predicates;
 import org.openstreetmap.josm.tools.RightAndLefthandTraffic;
 import org.openstreetmap.josm.tools.Utils;
@@ -57,6 +60,23 @@ public final class ExpressionFactory {
     private static final List<Method> parameterFunctions = new ArrayList<>();
     private static final List<Method> parameterFunctionsEnv = new ArrayList<>();
 
+    /**
+     * Functions using the environment which only depend on the tags of the primitive, its properties,
+     * or global settings whose changes invalidate the style caches.
+     */
+    private static final Set<String> CONTEXT_FREE_ENV_FUNCTIONS = new HashSet<>(Arrays.asList(
+            "prop", "is_prop_set", "tag", "has_tag_key", "number_of_tags", "JOSM_pref", "setting"));
+
+    /**
+     * Functions with side effects, which are evaluated each time even if their arguments are constant.
+     */
+    private static final Set<String> IMPURE_FUNCTIONS = new HashSet<>(Arrays.asList("print", "println"));
+
+    /**
+     * Marks a constant function result which has not been computed yet.
+     */
+    private static final Object NOT_EVALUATED = new Object();
+
     static {
         for (Method m : Functions.class.getDeclaredMethods()) {
             Class<?>[] paramTypes = m.getParameterTypes();
@@ -960,6 +980,10 @@ public final class ExpressionFactory {
             return new MinMaxFunction(args, true);
         else if ("min".equals(name) && !args.isEmpty())
             return new MinMaxFunction(args, false);
+        else if ("tag".equals(name) && args.size() == 1)
+            return new TagFunction(args.get(0));
+        else if ("prop".equals(name) && args.size() == 1)
+            return new PropFunction(args.get(0));
 
         for (Method m : arrayFunctions) {
             if (m.getName().equals(name))
@@ -976,6 +1000,113 @@ public final class ExpressionFactory {
         return NullExpression.INSTANCE;
     }
 
+    /**
+     * Determines if the value of an expression only depends on the tags of the primitive.
+     * @param e the expression
+     * @return {@code true} if the expression does not depend on the context of the primitive
+     * @see Condition#isContextFree()
+     */
+    static boolean isContextFree(Expression e) {
+        return allFunctionsMatch(e, new Predicate<String>() {
+            @Override
+            public boolean evaluate(String function) {
+                return CONTEXT_FREE_ENV_FUNCTIONS.contains(function);
+            }
+        });
+    }
+
+    /**
+     * Determines if the value of an expression depends on the properties set by previous rules.
+     * @param e the expression
+     * @return {@code true} if the expression may read a property, i.e. if it uses {@code prop} or {@code is_prop_set}
+     */
+    static boolean readsProperties(Expression e) {
+        return !allFunctionsMatch(e, new Predicate<String>() {
+            @Override
+            public boolean evaluate(String function) {
+                return !"prop".equals(function) && !"is_prop_set".equals(function);
+            }
+        });
+    }
+
+    /**
+     * Checks all functions using the environment in an expression. Unknown kinds of expressions never match.
+     * @param e the expression
+     * @param predicate the predicate the names of all functions using the environment must fulfill
+     * @return {@code true} if all functions of the expression and of its arguments match the predicate
+     */
+    private static boolean allFunctionsMatch(Expression e, Predicate<String> predicate) {
+        if (e instanceof LiteralExpression || e instanceof NullExpression) {
+            return true;
+        } else if (e instanceof CondOperator) {
+            CondOperator c = (CondOperator) e;
+            return allFunctionsMatch(c.condition, predicate) && allFunctionsMatch(c.firstOption, predicate)
+                    && allFunctionsMatch(c.secondOption, predicate);
+        } else if (e instanceof AndOperator) {
+            return allFunctionsMatch(((AndOperator) e).args, predicate);
+        } else if (e instanceof OrOperator) {
+            return allFunctionsMatch(((OrOperator) e).args, predicate);
+        } else if (e instanceof LengthFunction) {
+            return allFunctionsMatch(((LengthFunction) e).arg, predicate);
+        } else if (e instanceof MinMaxFunction) {
+            return allFunctionsMatch(((MinMaxFunction) e).args, predicate);
+        } else if (e instanceof TagFunction) {
+            return predicate.evaluate("tag") && allFunctionsMatch(((TagFunction) e).key, predicate);
+        } else if (e instanceof PropFunction) {
+            return predicate.evaluate("prop") && allFunctionsMatch(((PropFunction) e).key, predicate);
+        } else if (e instanceof ParameterFunction) {
+            ParameterFunction f = (ParameterFunction) e;
+            return (!f.needsEnvironment || predicate.evaluate(f.m.getName())) && allFunctionsMatch(f.args, predicate);
+        } else if (e instanceof ArrayFunction) {
+            return allFunctionsMatch(((ArrayFunction) e).args, predicate);
+        }
+        return false;
+    }
+
+    private static boolean allFunctionsMatch(List<Expression> expressions, Predicate<String> predicate) {
+        for (Expression e : expressions) {
+            if (!allFunctionsMatch(e, predicate))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Converts the literal arguments of a function once, instead of each time the function is evaluated.
+     * @param args the arguments
+     * @param types the parameter types of the function
+     * @param offset the index of the first argument in {@code types}
+     * @return the converted literal arguments, {@code null} for other arguments
+     */
+    private static Object[] convertLiterals(List<Expression> args, Class<?>[] types, int offset) {
+        Object[] result = new Object[args.size()];
+        for (int i = 0; i < result.length; i++) {
+            if (args.get(i) instanceof LiteralExpression) {
+                result[i] = Cascade.convertTo(args.get(i).evaluate(null), types[i + offset]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Determines if the result of a function not using the environment can be computed once.
+     * @param m the function
+     * @param args the arguments of the function
+     * @return {@code true} if the function has no side effects, returns an immutable value and all arguments are constant
+     */
+    private static boolean isConstant(Method m, List<Expression> args) {
+        // a shared list could be modified by its users
+        if (IMPURE_FUNCTIONS.contains(m.getName()) || List.class.isAssignableFrom(m.getReturnType()))
+            return false;
+        for (Expression arg : args) {
+            if (!(arg instanceof LiteralExpression)
+                    && !(arg instanceof ParameterFunction && ((ParameterFunction) arg).constant)
+                    && !(arg instanceof ArrayFunction && ((ArrayFunction) arg).constant))
+                return false;
+        }
+        return true;
+    }
+
     /**
      * Expression that always evaluates to null.
      */
@@ -1150,6 +1281,64 @@ public final class ExpressionFactory {
         }
     }
 
+    /**
+     * Function returning the value of a tag of the primitive, see {@link Functions#tag(Environment, String)}.
+     *
+     * Separate implementation to avoid reflection for one of the most used functions.
+     */
+    public static class TagFunction implements Expression {
+
+        private final Expression key;
+
+        /**
+         * Constructs a new {@code TagFunction}.
+         * @param key the OSM key
+         */
+        public TagFunction(Expression key) {
+            this.key = key;
+        }
+
+        @Override
+        public Object evaluate(Environment env) {
+            String k = Cascade.convertTo(key.evaluate(env), String.class);
+            return k == null ? null : Functions.tag(env, k);
+        }
+
+        @Override
+        public String toString() {
+            return "TagFunction~tag(" + key + ')';
+        }
+    }
+
+    /**
+     * Function returning a property of the current layer, see {@link Functions#prop(Environment, String)}.
+     *
+     * Separate implementation to avoid reflection for one of the most used functions.
+     */
+    public static class PropFunction implements Expression {
+
+        private final Expression key;
+
+        /**
+         * Constructs a new {@code PropFunction}.
+         * @param key the property key
+         */
+        public PropFunction(Expression key) {
+            this.key = key;
+        }
+
+        @Override
+        public Object evaluate(Environment env) {
+            String k = Cascade.convertTo(key.evaluate(env), String.class);
+            return k == null ? null : Functions.prop(env, k);
+        }
+
+        @Override
+        public String toString() {
+            return "PropFunction~prop(" + key + ')';
+        }
+    }
+
     /**
      * Function that takes a certain number of argument with specific type.
      *
@@ -1163,6 +1352,9 @@ public final class ExpressionFactory {
         private final List<Expression> args;
         private final Class<?>[] expectedParameterTypes;
         private final boolean needsEnvironment;
+        private final Object[] literalArgs;
+        private final boolean constant;
+        private volatile Object constantValue = NOT_EVALUATED;
 
         /**
          * Constructs a new {@code ParameterFunction}.
@@ -1176,29 +1368,37 @@ public final class ExpressionFactory {
             this.args = args;
             this.expectedParameterTypes = m.getParameterTypes();
             this.needsEnvironment = needsEnvironment;
+            this.literalArgs = convertLiterals(args, expectedParameterTypes, needsEnvironment ? 1 : 0);
+            this.constant = !needsEnvironment && isConstant(m, args);
         }
 
         @Override
         public Object evaluate(Environment env) {
-            Object[] convertedArgs;
+            if (constant) {
+                Object value = constantValue;
+                if (value == NOT_EVALUATED) {
+                    value = evaluateImpl(null);
+                    constantValue = value;
+                }
+                return value;
+            }
+            return evaluateImpl(env);
+        }
 
+        private Object evaluateImpl(Environment env) {
+            int offset = needsEnvironment ? 1 : 0;
+            Object[] convertedArgs = new Object[args.size() + offset];
             if (needsEnvironment) {
-                convertedArgs = new Object[args.size()+1];
                 convertedArgs[0] = env;
-                for (int i = 1; i < convertedArgs.length; ++i) {
-                    convertedArgs[i] = Cascade.convertTo(args.get(i-1).evaluate(env), expectedParameterTypes[i]);
-                    if (convertedArgs[i] == null && !nullable) {
-                        return null;
-                    }
-                }
-            } else {
-                convertedArgs = new Object[args.size()];
-                for (int i = 0; i < convertedArgs.length; ++i) {
-                    convertedArgs[i] = Cascade.convertTo(args.get(i).evaluate(env), expectedParameterTypes[i]);
-                    if (convertedArgs[i] == null && !nullable) {
-                        return null;
-                    }
+            }
+            for (int i = 0; i < args.size(); ++i) {
+                Object arg = literalArgs[i] != null
+                        ? literalArgs[i]
+                        : Cascade.convertTo(args.get(i).evaluate(env), expectedParameterTypes[i + offset]);
+                if (arg == null && !nullable) {
+                    return null;
                 }
+                convertedArgs[i + offset] = arg;
             }
             Object result = null;
             try {
@@ -1239,6 +1439,9 @@ public final class ExpressionFactory {
         private final List<Expression> args;
         private final Class<?>[] expectedParameterTypes;
         private final Class<?> arrayComponentType;
+        private final Object[] literalArgs;
+        private final boolean constant;
+        private volatile Object constantValue = NOT_EVALUATED;
 
         /**
          * Constructs a new {@code ArrayFunction}.
@@ -1251,14 +1454,30 @@ public final class ExpressionFactory {
             this.args = args;
             this.expectedParameterTypes = m.getParameterTypes();
             this.arrayComponentType = expectedParameterTypes[0].getComponentType();
+            Class<?>[] componentTypes = new Class<?>[args.size()];
+            Arrays.fill(componentTypes, arrayComponentType);
+            this.literalArgs = convertLiterals(args, componentTypes, 0);
+            this.constant = isConstant(m, args);
         }
 
         @Override
         public Object evaluate(Environment env) {
+            if (constant) {
+                Object value = constantValue;
+                if (value == NOT_EVALUATED) {
+                    value = evaluateImpl(null);
+                    constantValue = value;
+                }
+                return value;
+            }
+            return evaluateImpl(env);
+        }
+
+        private Object evaluateImpl(Environment env) {
             Object[] convertedArgs = new Object[expectedParameterTypes.length];
             Object arrayArg = Array.newInstance(arrayComponentType, args.size());
             for (int i = 0; i < args.size(); ++i) {
-                Object o = Cascade.convertTo(args.get(i).evaluate(env), arrayComponentType);
+                Object o = literalArgs[i] != null ? literalArgs[i] : Cascade.convertTo(args.get(i).evaluate(env), arrayComponentType);
                 if (o == null && !nullable) {
                     return null;
                 }
@@ -5,6 +5,9 @@ import java.util.List;
 import java.util.Objects;
 
 import org.openstreetmap.josm.gui.mappaint.Environment;
+import org.openstreetmap.josm.gui.mappaint.mapcss.Selector.AbstractSelector;
+import org.openstreetmap.josm.gui.mappaint.mapcss.Selector.ChildOrParentSelector;
+import org.openstreetmap.josm.gui.mappaint.mapcss.Selector.OptimizedGeneralSelector;
 import org.openstreetmap.josm.tools.Utils;
 
 /**
@@ -79,6 +82,62 @@ public class MapCSSRule implements Comparable<MapCSSRule> {
         declaration.execute(env);
     }
 
+    /**
+     * Determines if the selector of this rule only depends on the tags of the primitive, on its type,
+     * and on whether it is closed or selected.
+     * @return {@code true} if the selector does not depend on the context of the primitive, such as its parents
+     * @see Condition#isContextFree()
+     */
+    public boolean isSelectorContextFree() {
+        if (!(selector instanceof OptimizedGeneralSelector))
+            return false;
+        for (Condition c : ((OptimizedGeneralSelector) selector).getConditions()) {
+            if (!c.isContextFree())
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Determines if the selector of this rule can be evaluated without applying the previous rules first.
+     * @return {@code true} if no condition of the selector reads the classes or properties set by previous rules
+     * @see Condition#readsCascade()
+     */
+    public boolean isSelectorIndependentOfCascade() {
+        return isIndependentOfCascade(selector);
+    }
+
+    private static boolean isIndependentOfCascade(Selector s) {
+        if (s instanceof ChildOrParentSelector) {
+            ChildOrParentSelector cps = (ChildOrParentSelector) s;
+            return isIndependentOfCascade(cps.left) && isIndependentOfCascade(cps.link) && isIndependentOfCascade(cps.right);
+        }
+        for (Condition c : ((AbstractSelector) s).getConditions()) {
+            if (c.readsCascade())
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Determines if the properties set by this rule only depend on the tags of the primitive, on its type,
+     * and on whether it is closed or selected.
+     * @return {@code true} if the subpart and the declaration of this rule do not depend on the context of the primitive
+     * @see Condition#isContextFree()
+     */
+    public boolean isDeclarationContextFree() {
+        if (!(selector.getSubpart() instanceof Subpart.StringSubpart))
+            return false;
+        for (Instruction i : declaration.instructions) {
+            if (i instanceof Instruction.AssignmentInstruction) {
+                Object val = ((Instruction.AssignmentInstruction) i).val;
+                if (val instanceof Expression && !ExpressionFactory.isContextFree((Expression) val))
+                    return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public int compareTo(MapCSSRule o) {
         return declaration.idx - o.declaration.idx;
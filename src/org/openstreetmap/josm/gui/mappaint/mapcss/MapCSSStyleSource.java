@@ -243,6 +243,18 @@ public class MapCSSStyleSource extends StyleSource {
          * Rules that do not require any key to be present. Only the index in the {@link #rules} array is stored.
          */
         private final BitSet remaining = new BitSet();
+        /**
+         * Rules whose selector depends on the context of the primitive, see {@link MapCSSRule#isSelectorContextFree()}.
+         */
+        private final BitSet contextRules = new BitSet();
+        /**
+         * Rules of {@link #contextRules} whose declaration also depends on the context of the primitive.
+         */
+        private final BitSet contextDeclarations = new BitSet();
+        /**
+         * Rules preventing to share the styles of the primitives they might match.
+         */
+        private final BitSet unshareableRules = new BitSet();
 
         /**
          * Add a rule to this index. This needs to be called before {@link #initIndex()} is called.
@@ -261,6 +273,7 @@ public class MapCSSStyleSource extends StyleSource {
             Collections.sort(rules);
             for (int ruleIndex = 0; ruleIndex < rules.size(); ruleIndex++) {
                 MapCSSRule r = rules.get(ruleIndex);
+                initContext(r, ruleIndex);
                 // find the rightmost selector, this must be a GeneralSelector
                 Selector selRightmost = r.selector;
                 while (selRightmost instanceof ChildOrParentSelector) {
@@ -287,6 +300,20 @@ public class MapCSSStyleSource extends StyleSource {
             }
         }
 
+        private void initContext(MapCSSRule r, int ruleIndex) {
+            boolean declarationContextFree = r.isDeclarationContextFree();
+            if (!r.isSelectorContextFree()) {
+                if (r.isSelectorIndependentOfCascade()) {
+                    contextRules.set(ruleIndex);
+                    contextDeclarations.set(ruleIndex, !declarationContextFree);
+                } else {
+                    unshareableRules.set(ruleIndex);
+                }
+            } else if (!declarationContextFree) {
+                unshareableRules.set(ruleIndex);
+            }
+        }
+
         /**
          * Search for any key that condition might depend on.
          *
@@ -334,13 +361,50 @@ public class MapCSSStyleSource extends StyleSource {
          * @return An iterator over possible rules in the right order.
          */
         public Iterator<MapCSSRule> getRuleCandidates(OsmPrimitive osm) {
+            final RuleCandidatesIterator candidatesIterator = new RuleCandidatesIterator(getRuleCandidateIndexes(osm));
+            candidatesIterator.prepare();
+            return candidatesIterator;
+        }
+
+        private BitSet getRuleCandidateIndexes(OsmPrimitive osm) {
             final BitSet ruleCandidates = new BitSet(rules.size());
             ruleCandidates.or(remaining);
+            osm.visitKeys(new RuleCandidatesIterator(ruleCandidates));
+            return ruleCandidates;
+        }
 
-            final RuleCandidatesIterator candidatesIterator = new RuleCandidatesIterator(ruleCandidates);
-            osm.visitKeys(candidatesIterator);
-            candidatesIterator.prepare();
-            return candidatesIterator;
+        /**
+         * Determines which of the rules depending on the context of the primitive match it.
+         * <p>
+         * Together with the tags of the primitive, its type and whether it is closed or selected, they determine
+         * the properties set by this index. The result can thus be used to share styles between primitives.
+         * <p>
+         * You must have a read lock of STYLE_SOURCE_LOCK when calling this method.
+         *
+         * @param osm the primitive to match
+         * @param source the style source owning this index
+         * @return the indexes of the matching context dependent rules, or {@code null} if the properties of this
+         * primitive cannot be shared with other primitives
+         */
+        public BitSet getMatchingContextRules(OsmPrimitive osm, StyleSource source) {
+            BitSet candidates = getRuleCandidateIndexes(osm);
+            if (candidates.intersects(unshareableRules))
+                return null;
+            candidates.and(contextRules);
+            if (candidates.isEmpty())
+                return candidates;
+            Environment env = new Environment(osm, new MultiCascade(), null, source);
+            for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+                MapCSSRule r = rules.get(i);
+                env.clearSelectorMatchingInformation();
+                env.layer = r.selector.getSubpart().getId(env);
+                if (!r.selector.matches(env)) {
+                    candidates.clear(i);
+                } else if (contextDeclarations.get(i)) {
+                    return null;
+                }
+            }
+            return candidates;
         }
 
         /**
@@ -352,6 +416,9 @@ public class MapCSSStyleSource extends StyleSource {
             rules.clear();
             index.clear();
             remaining.clear();
+            contextRules.clear();
+            contextDeclarations.clear();
+            unshareableRules.clear();
         }
     }
 
@@ -667,6 +734,17 @@ public class MapCSSStyleSource extends StyleSource {
         }
     }
 
+    @Override
+    public Object getStyleContext(OsmPrimitive osm) {
+        if (osm instanceof Node) {
+            return nodeRules.getMatchingContextRules(osm, this);
+        } else if (osm instanceof Way) {
+            return (osm.isKeyFalse("area") ? wayNoAreaRules : wayRules).getMatchingContextRules(osm, this);
+        }
+        // relation styles depend on the members of multipolygons
+        return null;
+    }
+
     public boolean evalSupportsDeclCondition(String feature, Object val) {
         if (feature == null) return false;
         if (SUPPORTED_KEYS.contains(feature)) return true;
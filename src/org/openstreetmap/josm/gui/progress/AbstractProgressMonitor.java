@@ -344,8 +344,11 @@ public abstract class AbstractProgressMonitor implements ProgressMonitor {
         } else {
             Iterator<Request> it = requests.iterator();
             while (it.hasNext()) {
-                if (it.next().originator == child) {
+                Request request = it.next();
+                if (request.originator == child) {
                     it.remove();
+                    // the child has run concurrently with the current child, count its ticks as done
+                    setTicks(ticks + request.childTicks);
                     return;
                 }
             }
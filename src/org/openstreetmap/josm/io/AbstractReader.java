@@ -11,6 +11,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 
 import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.osm.AbstractPrimitive;
 import org.openstreetmap.josm.data.osm.Changeset;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
@@ -21,6 +22,7 @@ import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.RelationMember;
 import org.openstreetmap.josm.data.osm.RelationMemberData;
 import org.openstreetmap.josm.data.osm.SimplePrimitiveId;
+import org.openstreetmap.josm.data.osm.Storage;
 import org.openstreetmap.josm.data.osm.Way;
 
 /**
@@ -43,6 +45,11 @@ public abstract class AbstractReader {
      */
     protected final Map<PrimitiveId, OsmPrimitive> externalIdMap = new HashMap<>();
 
+    /**
+     * Pool of key/value arrays, to share identical tag sets between parsed primitives
+     */
+    protected final Storage<String[]> keysPool = AbstractPrimitive.createKeysPool();
+
     /**
      * Data structure for the remaining way objects
      */
@@ -64,24 +71,27 @@ public abstract class AbstractReader {
 
     /**
      * Processes the parsed nodes after parsing. Just adds them to
-     * the dataset
+     * the dataset, all at once
      *
      */
     protected void processNodesAfterParsing() {
+        List<Node> nodes = new ArrayList<>();
         for (OsmPrimitive primitive: externalIdMap.values()) {
             if (primitive instanceof Node) {
-                this.ds.addPrimitive(primitive);
+                nodes.add((Node) primitive);
             }
         }
+        this.ds.addPrimitives(nodes);
     }
 
     /**
      * Processes the ways after parsing. Rebuilds the list of nodes of each way and
-     * adds the way to the dataset
+     * adds the ways to the dataset, all at once
      *
      * @throws IllegalDataException if a data integrity problem is detected
      */
     protected void processWaysAfterParsing() throws IllegalDataException {
+        List<Way> parsedWays = new ArrayList<>(ways.size());
         for (Entry<Long, Collection<Long>> entry : ways.entrySet()) {
             Long externalWayId = entry.getKey();
             Way w = (Way) externalIdMap.get(new SimplePrimitiveId(externalWayId, OsmPrimitiveType.WAY));
@@ -112,8 +122,9 @@ public abstract class AbstractReader {
                 Main.info(tr("Way {0} with {1} nodes has incomplete nodes because at least one node was missing in the loaded data.",
                           externalWayId, w.getNodesCount()));
             }
-            ds.addPrimitive(w);
+            parsedWays.add(w);
         }
+        ds.addPrimitives(parsedWays);
     }
 
     /**
@@ -12,6 +12,7 @@ import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipOutputStream;
 
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.tools.Utils;
 
 /**
@@ -98,7 +99,12 @@ public enum Compression {
     public static InputStream getUncompressedFileInputStream(File file) throws IOException {
         FileInputStream in = new FileInputStream(file);
         try {
-            return byExtension(file.getName()).getUncompressedInputStream(in);
+            Compression compression = byExtension(file.getName());
+            if (compression == BZIP2 && Main.pref.getBoolean("compression.bzip2.parallel", true)
+                    && Runtime.getRuntime().availableProcessors() > 1) {
+                return new ParallelBZip2InputStream(in);
+            }
+            return compression.getUncompressedInputStream(in);
         } catch (IOException e) {
             Utils.close(in);
             throw e;
@@ -128,6 +134,7 @@ public enum Compression {
 
     /**
      * Returns a compressing {@link OutputStream} for the {@link File} {@code file}.
+     * On multi-core machines, gzip and bzip2 files are compressed with several threads.
      * @param file file
      * @return compressing output stream
      *
@@ -136,7 +143,12 @@ public enum Compression {
     public static OutputStream getCompressedFileOutputStream(File file) throws IOException {
         FileOutputStream out = new FileOutputStream(file);
         try {
-            return byExtension(file.getName()).getCompressedOutputStream(out);
+            Compression compression = byExtension(file.getName());
+            if ((compression == GZIP || compression == BZIP2) && Main.pref.getBoolean("compression.parallel", true)
+                    && Runtime.getRuntime().availableProcessors() > 1) {
+                return new ParallelCompressorOutputStream(out, compression);
+            }
+            return compression.getCompressedOutputStream(out);
         } catch (IOException e) {
             Utils.close(out);
             throw e;
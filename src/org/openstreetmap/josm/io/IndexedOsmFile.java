@@ -0,0 +1,502 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.NodeData;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.PrimitiveData;
+import org.openstreetmap.josm.data.osm.PrimitiveId;
+import org.openstreetmap.josm.data.osm.RelationData;
+import org.openstreetmap.josm.data.osm.RelationMemberData;
+import org.openstreetmap.josm.data.osm.SimplePrimitiveId;
+import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.data.osm.WayData;
+
+/**
+ * An OSM file converted by {@link IndexedOsmFileWriter} into a binary file indexed by area, from which the data of
+ * an area can be loaded without reading the whole file.
+ * <p>
+ * The world is divided into a grid of square cells. The file contains a block for each cell, with the nodes located in
+ * the cell, the ways having a node in the cell, together with all their nodes, and the relations having a node or way
+ * member in the cell. Relations without such members, and nodes without coordinates, are in a global block.
+ * The blocks are memory-mapped when they are read.
+ * <p>
+ * Data loaded into a data set never replaces primitives which are already in the data set: the data set holds the
+ * modifications, and loading more cells only adds the primitives which have not been loaded yet, or completes them.
+ * <p>
+ * File layout, in big-endian order:
+ * <pre>
+ * header: int magic, int version, long table offset
+ * blocks: int node count, int way count, int relation count, records
+ * table:  double cell size, string API version, boolean upload discouraged,
+ *         int data source count, (double minlat, minlon, maxlat, maxlon, string origin)*,
+ *         double minlat, minlon, maxlat, maxlon of the nodes,
+ *         long global block offset, int global block length,
+ *         int cell count, (int cell, long offset, int length)* sorted by cell
+ * </pre>
+ * Each record is made of its length, then id, version, changeset, timestamp, flags, user, tags, and coordinates,
+ * node ids or members.
+ */
+public class IndexedOsmFile implements Closeable {
+
+    /** Pseudo cell of the global block */
+    public static final int GLOBAL_CELL = -1;
+
+    static final int MAGIC = 0x4a4f4958;
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = 16;
+
+    static final int FLAG_MODIFIED = 1;
+    static final int FLAG_DELETED = 2;
+    static final int FLAG_INVISIBLE = 4;
+
+    static final int USER_NONE = 0;
+    static final int USER_OSM = 1;
+    static final int USER_LOCAL = 2;
+
+    private final FileChannel channel;
+    private final double cellSize;
+    private final int columns;
+    private final String version;
+    private final boolean uploadDiscouraged;
+    private final List<DataSource> dataSources;
+    private final Bounds bounds;
+    private final long globalOffset;
+    private final int globalLength;
+    private final int[] cells;
+    private final long[] offsets;
+    private final int[] lengths;
+
+    /** The primitives created for the new primitives of the file, which have a negative id */
+    private final Map<PrimitiveId, OsmPrimitive> newPrimitives = new HashMap<>();
+
+    private IndexedOsmFile(FileChannel channel) throws IOException {
+        this.channel = channel;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(header, 0);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != FORMAT_VERSION)
+            throw new IOException("Not an indexed OSM file");
+        long tableOffset = header.getLong(8);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(tableOffset))));
+        cellSize = in.readDouble();
+        columns = getColumns(cellSize);
+        version = readString(in);
+        uploadDiscouraged = in.readBoolean();
+        int dataSourceCount = in.readInt();
+        List<DataSource> sources = new ArrayList<>(dataSourceCount);
+        for (int i = 0; i < dataSourceCount; i++) {
+            Bounds b = new Bounds(in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble());
+            sources.add(new DataSource(b, readString(in)));
+        }
+        dataSources = Collections.unmodifiableList(sources);
+        double minLat = in.readDouble();
+        double minLon = in.readDouble();
+        double maxLat = in.readDouble();
+        double maxLon = in.readDouble();
+        bounds = Double.isNaN(minLat) ? null : new Bounds(minLat, minLon, maxLat, maxLon);
+        globalOffset = in.readLong();
+        globalLength = in.readInt();
+        int count = in.readInt();
+        cells = new int[count];
+        offsets = new long[count];
+        lengths = new int[count];
+        for (int i = 0; i < count; i++) {
+            cells[i] = in.readInt();
+            offsets[i] = in.readLong();
+            lengths[i] = in.readInt();
+        }
+    }
+
+    /**
+     * Opens an indexed OSM file.
+     * @param file the file written by {@link IndexedOsmFileWriter}
+     * @return the indexed file, to be closed when not used anymore
+     * @throws IOException if the file cannot be read or is not an indexed OSM file
+     */
+    public static IndexedOsmFile open(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            return new IndexedOsmFile(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    static int getColumns(double cellSize) {
+        return (int) Math.ceil(360 / cellSize);
+    }
+
+    static int getCell(double lat, double lon, double cellSize, int columns) {
+        int x = Math.min(columns - 1, Math.max(0, (int) Math.floor((lon + 180) / cellSize)));
+        int y = Math.min((int) Math.ceil(180 / cellSize) - 1, Math.max(0, (int) Math.floor((lat + 90) / cellSize)));
+        return y * columns + x;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        long pos = position;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, pos);
+            if (read < 0)
+                throw new IOException("Unexpected end of indexed OSM file");
+            pos += read;
+        }
+    }
+
+    /**
+     * Replies the API version of the original file.
+     * @return the API version of the original file
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * Determines if upload was discouraged for the original file.
+     * @return {@code true} if upload was discouraged
+     */
+    public boolean isUploadDiscouraged() {
+        return uploadDiscouraged;
+    }
+
+    /**
+     * Replies the data sources of the original file.
+     * @return the data sources of the original file
+     */
+    public List<DataSource> getDataSources() {
+        return dataSources;
+    }
+
+    /**
+     * Replies the bounding box of the nodes of the file.
+     * @return the bounding box of the nodes, or {@code null} if the file has no node
+     */
+    public Bounds getBounds() {
+        return bounds == null ? null : new Bounds(bounds);
+    }
+
+    /**
+     * Replies the area covered by a cell.
+     * @param cell the cell
+     * @return the area of the cell
+     */
+    public Bounds getCellBounds(int cell) {
+        double minLat = (cell / columns) * cellSize - 90;
+        double minLon = (cell % columns) * cellSize - 180;
+        return new Bounds(minLat, minLon, Math.min(90, minLat + cellSize), Math.min(180, minLon + cellSize));
+    }
+
+    /**
+     * Replies the cell containing a position.
+     * @param coor the position
+     * @return the cell containing the position
+     */
+    public int getCell(LatLon coor) {
+        return getCell(coor.lat(), coor.lon(), cellSize, columns);
+    }
+
+    /**
+     * Replies the non-empty cells intersecting an area.
+     * @param area the area
+     * @return the cells intersecting the area, which contain data
+     */
+    public List<Integer> getCells(Bounds area) {
+        int first = getCell(area.getMinLat(), area.getMinLon(), cellSize, columns);
+        int last = getCell(area.getMaxLat(), area.crosses180thMeridian() ? 180 : area.getMaxLon(), cellSize, columns);
+        int minX = first % columns;
+        int maxX = last % columns;
+        int minY = first / columns;
+        int maxY = last / columns;
+        List<Integer> result = new ArrayList<>();
+        if ((long) (maxX - minX + 1) * (maxY - minY + 1) > cells.length) {
+            for (int cell : cells) {
+                int x = cell % columns;
+                int y = cell / columns;
+                if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                    result.add(cell);
+                }
+            }
+        } else {
+            for (int y = minY; y <= maxY; y++) {
+                for (int x = minX; x <= maxX; x++) {
+                    if (Arrays.binarySearch(cells, y * columns + x) >= 0) {
+                        result.add(y * columns + x);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads the primitives of some cells. The result can be {@link #load loaded} into a data set.
+     * @param cellsToRead the cells to read, possibly including {@link #GLOBAL_CELL}
+     * @return the primitives of the cells: nodes, then ways, then relations
+     * @throws IOException if the file cannot be read
+     */
+    public List<PrimitiveData> read(Collection<Integer> cellsToRead) throws IOException {
+        List<PrimitiveData> nodes = new ArrayList<>();
+        List<PrimitiveData> ways = new ArrayList<>();
+        List<PrimitiveData> relations = new ArrayList<>();
+        for (int cell : cellsToRead) {
+            if (cell == GLOBAL_CELL) {
+                readBlock(globalOffset, globalLength, nodes, ways, relations);
+            } else {
+                int index = Arrays.binarySearch(cells, cell);
+                if (index >= 0) {
+                    readBlock(offsets[index], lengths[index], nodes, ways, relations);
+                }
+            }
+        }
+        List<PrimitiveData> result = new ArrayList<>(nodes.size() + ways.size() + relations.size());
+        result.addAll(nodes);
+        result.addAll(ways);
+        result.addAll(relations);
+        return result;
+    }
+
+    private void readBlock(long offset, int length, List<PrimitiveData> nodes, List<PrimitiveData> ways,
+            List<PrimitiveData> relations) throws IOException {
+        if (length == 0)
+            return;
+        MappedByteBuffer block = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        int nodeCount = block.getInt();
+        int wayCount = block.getInt();
+        int relationCount = block.getInt();
+        for (int i = 0; i < nodeCount; i++) {
+            nodes.add(readRecord(block, OsmPrimitiveType.NODE));
+        }
+        for (int i = 0; i < wayCount; i++) {
+            ways.add(readRecord(block, OsmPrimitiveType.WAY));
+        }
+        for (int i = 0; i < relationCount; i++) {
+            relations.add(readRecord(block, OsmPrimitiveType.RELATION));
+        }
+    }
+
+    private static PrimitiveData readRecord(ByteBuffer in, OsmPrimitiveType type) {
+        in.getInt(); // record length
+        PrimitiveData data;
+        switch (type) {
+        case NODE:
+            data = new NodeData();
+            break;
+        case WAY:
+            data = new WayData();
+            break;
+        default:
+            data = new RelationData();
+        }
+        data.setId(in.getLong());
+        data.setVersion(in.getInt());
+        int changeset = in.getInt();
+        if (changeset > 0) {
+            data.setChangesetId(changeset);
+        }
+        data.setRawTimestamp(in.getInt());
+        int flags = in.get();
+        data.setModified((flags & FLAG_MODIFIED) != 0);
+        data.setDeleted((flags & FLAG_DELETED) != 0);
+        data.setVisible((flags & FLAG_INVISIBLE) == 0);
+        switch (in.get()) {
+        case USER_OSM:
+            long uid = in.getLong();
+            data.setUser(User.createOsmUser(uid, readString(in)));
+            break;
+        case USER_LOCAL:
+            data.setUser(User.createLocalUser(readString(in)));
+            break;
+        default:
+            data.setUser(null);
+        }
+        int tags = in.getInt();
+        if (tags > 0) {
+            Map<String, String> keys = new HashMap<>(2 * tags);
+            for (int i = 0; i < tags; i++) {
+                keys.put(readString(in), readString(in));
+            }
+            data.setKeys(keys);
+        }
+        switch (type) {
+        case NODE:
+            if (in.get() != 0) {
+                ((NodeData) data).setCoor(new LatLon(in.getDouble(), in.getDouble()));
+            }
+            break;
+        case WAY:
+            int nodeCount = in.getInt();
+            List<Long> nodes = new ArrayList<>(nodeCount);
+            for (int i = 0; i < nodeCount; i++) {
+                nodes.add(in.getLong());
+            }
+            ((WayData) data).setNodes(nodes);
+            break;
+        default:
+            int memberCount = in.getInt();
+            List<RelationMemberData> members = new ArrayList<>(memberCount);
+            for (int i = 0; i < memberCount; i++) {
+                OsmPrimitiveType memberType = OsmPrimitiveType.values()[in.get()];
+                long id = in.getLong();
+                members.add(new RelationMemberData(readString(in), memberType, id));
+            }
+            ((RelationData) data).setMembers(members);
+        }
+        return data;
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0)
+            return null;
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0)
+            return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Loads primitives {@link #read read} from this file into a data set. The primitives already in the data set, which
+     * may have been modified, are kept. Incomplete primitives are completed.
+     * @param ds the data set
+     * @param data the primitives read from this file
+     * @return the number of primitives created or completed
+     */
+    public int load(DataSet ds, List<PrimitiveData> data) {
+        int count = 0;
+        ds.beginUpdate();
+        try {
+            // a relation may refer to a new relation read after it. New primitives cannot be incomplete, so they are
+            // created first, and loaded with the other primitives
+            Set<OsmPrimitive> created = new HashSet<>();
+            for (PrimitiveData d : data) {
+                if (d.getType() == OsmPrimitiveType.RELATION && d.getUniqueId() <= 0 && getPrimitive(ds, d) == null) {
+                    OsmPrimitive p = newInstance(d);
+                    ds.addPrimitive(p);
+                    created.add(p);
+                }
+            }
+            for (PrimitiveData d : data) {
+                OsmPrimitive existing = getPrimitive(ds, d);
+                if (existing != null && !existing.isIncomplete() && !created.remove(existing))
+                    continue;
+                OsmPrimitive p = existing != null ? existing : newInstance(d);
+                if (p instanceof Node) {
+                    // nodes need their coordinates before being added
+                    p.load(d);
+                    if (existing == null) {
+                        ds.addPrimitive(p);
+                    }
+                } else {
+                    if (existing == null) {
+                        ds.addPrimitive(p);
+                    }
+                    p.load(resolveReferences(ds, d));
+                }
+                count++;
+            }
+        } finally {
+            ds.endUpdate();
+        }
+        return count;
+    }
+
+    private OsmPrimitive newInstance(PrimitiveData d) {
+        OsmPrimitive p = d.getType().newInstance(d.getId(), false);
+        if (d.getUniqueId() <= 0) {
+            newPrimitives.put(new SimplePrimitiveId(d.getUniqueId(), d.getType()), p);
+        }
+        return p;
+    }
+
+    private OsmPrimitive getPrimitive(DataSet ds, PrimitiveId id) {
+        if (id.getUniqueId() > 0)
+            return ds.getPrimitiveById(id);
+        OsmPrimitive p = newPrimitives.get(new SimplePrimitiveId(id.getUniqueId(), id.getType()));
+        return p != null && p.getDataSet() == ds ? p : null;
+    }
+
+    /**
+     * Replaces the ids of the file by the unique ids of the primitives of the data set, creating incomplete primitives
+     * for the members which have not been loaded yet.
+     * @param ds the data set
+     * @param data the way or relation read from the file
+     * @return the way or relation referring to primitives of the data set
+     */
+    private PrimitiveData resolveReferences(DataSet ds, PrimitiveData data) {
+        if (data instanceof WayData) {
+            List<Long> nodes = new ArrayList<>();
+            for (long id : ((WayData) data).getNodes()) {
+                OsmPrimitive n = getReference(ds, new SimplePrimitiveId(id, OsmPrimitiveType.NODE), data);
+                if (n != null) {
+                    nodes.add(n.getUniqueId());
+                }
+            }
+            ((WayData) data).setNodes(nodes);
+        } else {
+            List<RelationMemberData> members = new ArrayList<>();
+            for (RelationMemberData m : ((RelationData) data).getMembers()) {
+                OsmPrimitive p = getReference(ds, new SimplePrimitiveId(m.getUniqueId(), m.getType()), data);
+                if (p != null) {
+                    members.add(new RelationMemberData(m.getRole(), m.getType(), p.getUniqueId()));
+                }
+            }
+            ((RelationData) data).setMembers(members);
+        }
+        return data;
+    }
+
+    private OsmPrimitive getReference(DataSet ds, PrimitiveId id, PrimitiveData referrer) {
+        OsmPrimitive p = getPrimitive(ds, id);
+        if (p == null) {
+            if (id.getUniqueId() <= 0) {
+                // a new primitive cannot be incomplete, and its cell has not been loaded yet
+                Main.warn("Indexed OSM file: {0} {1} refers to {2} {3}, which is not loaded", referrer.getType().getAPIName(),
+                        Long.toString(referrer.getUniqueId()), id.getType().getAPIName(), Long.toString(id.getUniqueId()));
+                return null;
+            }
+            p = id.getType().newInstance(id.getUniqueId(), false);
+            ds.addPrimitive(p);
+        }
+        return p;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,685 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.PrimitiveId;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMemberData;
+import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.preferences.DoubleProperty;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+
+/**
+ * Converts an OSM file into an {@link IndexedOsmFile}.
+ * <p>
+ * The OSM file is parsed as a stream: each primitive is written to a temporary file as soon as it is parsed, and only
+ * the position and cell of each node are kept in memory, to find the cells of the ways and relations. The blocks of
+ * the indexed file are then assembled from the temporary file.
+ */
+public class IndexedOsmFileWriter {
+
+    /** Size of the cells of the index, in degrees */
+    public static final DoubleProperty PROP_CELL_SIZE = new DoubleProperty("osm.indexed.cell-size", 0.05);
+
+    /** Number of distinct tag sets kept by the reader before it is reset */
+    private static final int MAX_POOLED_KEYS = 100000;
+
+    /**
+     * A growable array of longs.
+     */
+    private static final class LongList {
+        private long[] values = new long[16];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, 2 * size);
+            }
+            values[size++] = value;
+        }
+    }
+
+    /**
+     * Reads the primitives one by one, and writes them to the temporary file instead of keeping them in the data set.
+     */
+    private final class StreamingReader extends OsmReader {
+
+        DataSet parse(InputStream in, ProgressMonitor progressMonitor) throws IllegalDataException {
+            return doParseDataSet(in, progressMonitor);
+        }
+
+        /**
+         * Replies the id of the primitive which has just been parsed, as it appears in the file, and forgets it.
+         * @return the id of the primitive in the file
+         */
+        private long takeParsedId() {
+            PrimitiveId id = externalIdMap.keySet().iterator().next();
+            externalIdMap.clear();
+            if (keysPool.size() > MAX_POOLED_KEYS) {
+                keysPool.clear();
+            }
+            return id.getUniqueId();
+        }
+
+        @Override
+        protected Node parseNode() throws XMLStreamException {
+            Node n = super.parseNode();
+            try {
+                addNode(takeParsedId(), n);
+            } catch (IOException e) {
+                throw new XMLStreamException(e);
+            }
+            return n;
+        }
+
+        @Override
+        protected Way parseWay() throws XMLStreamException {
+            Way w = super.parseWay();
+            long id = takeParsedId();
+            try {
+                addWay(id, w, ways.remove(id));
+            } catch (IOException e) {
+                throw new XMLStreamException(e);
+            }
+            return w;
+        }
+
+        @Override
+        protected Relation parseRelation() throws XMLStreamException {
+            Relation r = super.parseRelation();
+            long id = takeParsedId();
+            try {
+                addRelation(id, r, relations.remove(id));
+            } catch (IOException e) {
+                throw new XMLStreamException(e);
+            }
+            return r;
+        }
+    }
+
+    private final double cellSize;
+    private final int columns;
+
+    private File tempFile;
+    private DataOutputStream temp;
+    private long tempSize;
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+    private final DataOutputStream recordOut = new DataOutputStream(record);
+
+    // position and cell of each node in the temporary file, sorted by id before use
+    private long[] nodeIds = new long[1024];
+    private long[] nodeOffsets = new long[1024];
+    private int[] nodeCells = new int[1024];
+    private int nodeCount;
+
+    private final LongList wayOffsets = new LongList();
+    private final LongList relationOffsets = new LongList();
+
+    private final Map<Integer, LongList> cellNodes = new HashMap<>();
+    private final Map<Integer, LongList> cellWays = new HashMap<>();
+    private final Map<Integer, LongList> cellRelations = new HashMap<>();
+
+    private double minLat = Double.NaN;
+    private double minLon = Double.NaN;
+    private double maxLat = Double.NaN;
+    private double maxLon = Double.NaN;
+
+    /**
+     * Constructs a new {@code IndexedOsmFileWriter}.
+     * @param cellSize the size of the cells of the index, in degrees
+     */
+    public IndexedOsmFileWriter(double cellSize) {
+        if (!(cellSize > 0 && cellSize <= 90))
+            throw new IllegalArgumentException("Illegal cell size: " + cellSize);
+        this.cellSize = cellSize;
+        this.columns = IndexedOsmFile.getColumns(cellSize);
+    }
+
+    /**
+     * Converts an OSM file into an indexed file, with the cell size of the preferences.
+     * @param in the OSM data
+     * @param target the indexed file to write
+     * @param progressMonitor the progress monitor
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalDataException if the OSM data cannot be parsed
+     */
+    public static void convert(InputStream in, File target, ProgressMonitor progressMonitor) throws IOException, IllegalDataException {
+        new IndexedOsmFileWriter(PROP_CELL_SIZE.get()).write(in, target, progressMonitor);
+    }
+
+    /**
+     * Converts an OSM file into an indexed file.
+     * @param in the OSM data
+     * @param target the indexed file to write
+     * @param progressMonitor the progress monitor. If {@code null}, {@link NullProgressMonitor#INSTANCE} is assumed
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalDataException if the OSM data cannot be parsed
+     */
+    public void write(InputStream in, File target, ProgressMonitor progressMonitor) throws IOException, IllegalDataException {
+        ProgressMonitor monitor = progressMonitor == null ? NullProgressMonitor.INSTANCE : progressMonitor;
+        tempFile = File.createTempFile("josm-index", ".tmp", target.getAbsoluteFile().getParentFile());
+        try {
+            monitor.beginTask(tr("Indexing OSM data..."), 3);
+            DataSet header;
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), 65536))) {
+                temp = out;
+                header = new StreamingReader().parse(in, monitor.createSubTaskMonitor(1, false));
+            }
+            try (FileChannel tempChannel = FileChannel.open(tempFile.toPath(), StandardOpenOption.READ)) {
+                monitor.indeterminateSubTask(tr("Indexing ways and relations..."));
+                sortNodes();
+                locateWaysAndRelations(tempChannel);
+                monitor.worked(1);
+                monitor.indeterminateSubTask(tr("Writing index..."));
+                writeIndex(tempChannel, header, target);
+                monitor.worked(1);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile.toPath());
+            monitor.finishTask();
+        }
+    }
+
+    private int getCell(double lat, double lon) {
+        return IndexedOsmFile.getCell(lat, lon, cellSize, columns);
+    }
+
+    private static void addTo(Map<Integer, LongList> map, int cell, long offset) {
+        LongList list = map.get(cell);
+        if (list == null) {
+            list = new LongList();
+            map.put(cell, list);
+        }
+        list.add(offset);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Starts a record in the record buffer with the attributes common to all primitives.
+     */
+    private void writeCommon(long id, OsmPrimitive p) throws IOException {
+        record.reset();
+        recordOut.writeLong(id);
+        recordOut.writeInt(p.getVersion());
+        recordOut.writeInt(p.getChangesetId());
+        recordOut.writeInt(p.getRawTimestamp());
+        int flags = 0;
+        if (p.isModified()) {
+            flags |= IndexedOsmFile.FLAG_MODIFIED;
+        }
+        if (p.isDeleted()) {
+            flags |= IndexedOsmFile.FLAG_DELETED;
+        }
+        if (!p.isVisible()) {
+            flags |= IndexedOsmFile.FLAG_INVISIBLE;
+        }
+        recordOut.writeByte(flags);
+        User user = p.getUser();
+        if (user == null) {
+            recordOut.writeByte(IndexedOsmFile.USER_NONE);
+        } else if (user.isOsmUser()) {
+            recordOut.writeByte(IndexedOsmFile.USER_OSM);
+            recordOut.writeLong(user.getId());
+            writeString(recordOut, user.getName());
+        } else {
+            recordOut.writeByte(IndexedOsmFile.USER_LOCAL);
+            writeString(recordOut, user.getName());
+        }
+        Map<String, String> keys = p.getKeys();
+        recordOut.writeInt(keys.size());
+        for (Entry<String, String> e : keys.entrySet()) {
+            writeString(recordOut, e.getKey());
+            writeString(recordOut, e.getValue());
+        }
+    }
+
+    /**
+     * Appends the record buffer to the temporary file.
+     * @return the position of the record in the temporary file
+     */
+    private long writeRecord() throws IOException {
+        long offset = tempSize;
+        temp.writeInt(record.size());
+        record.writeTo(temp);
+        tempSize += 4 + record.size();
+        return offset;
+    }
+
+    private void addNode(long id, Node n) throws IOException {
+        writeCommon(id, n);
+        LatLon coor = n.getCoor();
+        int cell = IndexedOsmFile.GLOBAL_CELL;
+        if (coor == null) {
+            recordOut.writeByte(0);
+        } else {
+            recordOut.writeByte(1);
+            recordOut.writeDouble(coor.lat());
+            recordOut.writeDouble(coor.lon());
+            cell = getCell(coor.lat(), coor.lon());
+            if (Double.isNaN(minLat)) {
+                minLat = maxLat = coor.lat();
+                minLon = maxLon = coor.lon();
+            } else {
+                minLat = Math.min(minLat, coor.lat());
+                maxLat = Math.max(maxLat, coor.lat());
+                minLon = Math.min(minLon, coor.lon());
+                maxLon = Math.max(maxLon, coor.lon());
+            }
+        }
+        long offset = writeRecord();
+        if (nodeCount == nodeIds.length) {
+            nodeIds = Arrays.copyOf(nodeIds, 2 * nodeCount);
+            nodeOffsets = Arrays.copyOf(nodeOffsets, 2 * nodeCount);
+            nodeCells = Arrays.copyOf(nodeCells, 2 * nodeCount);
+        }
+        nodeIds[nodeCount] = id;
+        nodeOffsets[nodeCount] = offset;
+        nodeCells[nodeCount] = cell;
+        nodeCount++;
+        addTo(cellNodes, cell, offset);
+    }
+
+    private void addWay(long id, Way w, Collection<Long> nodes) throws IOException {
+        writeCommon(id, w);
+        recordOut.writeInt(nodes.size());
+        for (long node : nodes) {
+            recordOut.writeLong(node);
+        }
+        wayOffsets.add(writeRecord());
+    }
+
+    private void addRelation(long id, Relation r, Collection<RelationMemberData> members) throws IOException {
+        writeCommon(id, r);
+        recordOut.writeInt(members.size());
+        for (RelationMemberData m : members) {
+            recordOut.writeByte(m.getMemberType().ordinal());
+            recordOut.writeLong(m.getMemberId());
+            writeString(recordOut, m.getRole());
+        }
+        relationOffsets.add(writeRecord());
+    }
+
+    /**
+     * Sorts parallel arrays by key.
+     */
+    private static void sort(long[] keys, long[] values, int[] values2, int from, int to) {
+        int lo = from;
+        int hi = to;
+        while (hi - lo > 1) {
+            long pivot = keys[(lo + hi) >>> 1];
+            int i = lo;
+            int j = hi - 1;
+            while (i <= j) {
+                while (keys[i] < pivot) {
+                    i++;
+                }
+                while (keys[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    long k = keys[i];
+                    keys[i] = keys[j];
+                    keys[j] = k;
+                    long v = values[i];
+                    values[i] = values[j];
+                    values[j] = v;
+                    int v2 = values2[i];
+                    values2[i] = values2[j];
+                    values2[j] = v2;
+                    i++;
+                    j--;
+                }
+            }
+            // recurse into the smaller part, loop on the larger one
+            if (j + 1 - lo < hi - i) {
+                sort(keys, values, values2, lo, j + 1);
+                lo = i;
+            } else {
+                sort(keys, values, values2, i, hi);
+                hi = j + 1;
+            }
+        }
+    }
+
+    private static boolean isSorted(long[] keys, int size) {
+        for (int i = 1; i < size; i++) {
+            if (keys[i - 1] > keys[i])
+                return false;
+        }
+        return true;
+    }
+
+    private void sortNodes() {
+        if (!isSorted(nodeIds, nodeCount)) {
+            sort(nodeIds, nodeOffsets, nodeCells, 0, nodeCount);
+        }
+    }
+
+    private int findNode(long id) {
+        return Arrays.binarySearch(nodeIds, 0, nodeCount, id);
+    }
+
+    private static ByteBuffer readRecord(FileChannel channel, long offset) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(4);
+        readFully(channel, length, offset);
+        byte[] data = new byte[4 + length.getInt(0)];
+        readFully(channel, ByteBuffer.wrap(data), offset);
+        return ByteBuffer.wrap(data, 4, data.length - 4);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long pos = position;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, pos);
+            if (read < 0)
+                throw new IOException("Unexpected end of file");
+            pos += read;
+        }
+    }
+
+    /**
+     * Skips the attributes common to all primitives in a record.
+     */
+    private static void skipCommon(ByteBuffer in) {
+        skip(in, 8 + 4 + 4 + 4 + 1);
+        int user = in.get();
+        if (user == IndexedOsmFile.USER_OSM) {
+            in.getLong();
+        }
+        if (user != IndexedOsmFile.USER_NONE) {
+            skipString(in);
+        }
+        int tags = in.getInt();
+        for (int i = 0; i < 2 * tags; i++) {
+            skipString(in);
+        }
+    }
+
+    private static void skipString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length > 0) {
+            skip(in, length);
+        }
+    }
+
+    private static void skip(ByteBuffer in, int length) {
+        // through Buffer, as ByteBuffer.position(int) only exists since Java 9
+        ((Buffer) in).position(in.position() + length);
+    }
+
+    /**
+     * Adds the ways to the cells of their nodes, with their nodes located in other cells, and the relations to the
+     * cells of their members.
+     * <p>
+     * The relations with new members are also added to the global block, with their new members. New primitives cannot
+     * be incomplete, so such a relation could not be loaded before the cells of all its new members.
+     */
+    private void locateWaysAndRelations(FileChannel channel) throws IOException {
+        // offsets of the new ways and relations, for the relations referring to them
+        Map<Long, Long> newWays = new HashMap<>();
+        Map<Long, Long> newRelations = new HashMap<>();
+        for (int r = 0; r < relationOffsets.size; r++) {
+            long id = readRecord(channel, relationOffsets.values[r]).getLong(4);
+            if (id <= 0) {
+                newRelations.put(id, relationOffsets.values[r]);
+            }
+        }
+        // cells of each way, for the relations
+        long[] wayIds = new long[wayOffsets.size];
+        long[] wayCellStart = new long[wayOffsets.size];
+        int[] wayCellCount = new int[wayOffsets.size];
+        int[] wayCells = new int[Math.max(16, wayOffsets.size)];
+        int wayCellSize = 0;
+        List<Integer> cells = new ArrayList<>();
+        for (int w = 0; w < wayOffsets.size; w++) {
+            long offset = wayOffsets.values[w];
+            ByteBuffer in = readRecord(channel, offset);
+            wayIds[w] = in.getLong(4);
+            if (wayIds[w] <= 0) {
+                newWays.put(wayIds[w], offset);
+            }
+            skipCommon(in);
+            int count = in.getInt();
+            int[] nodes = new int[count];
+            cells.clear();
+            for (int i = 0; i < count; i++) {
+                nodes[i] = findNode(in.getLong());
+                if (nodes[i] >= 0 && !cells.contains(nodeCells[nodes[i]])) {
+                    cells.add(nodeCells[nodes[i]]);
+                }
+            }
+            if (cells.isEmpty()) {
+                cells.add(IndexedOsmFile.GLOBAL_CELL);
+            }
+            for (int cell : cells) {
+                addTo(cellWays, cell, offset);
+                if (cells.size() > 1) {
+                    // the nodes located in other cells are needed to load the way
+                    for (int i = 0; i < count; i++) {
+                        if (nodes[i] >= 0 && nodeCells[nodes[i]] != cell) {
+                            addTo(cellNodes, cell, nodeOffsets[nodes[i]]);
+                        }
+                    }
+                }
+            }
+            if (wayCellSize + cells.size() > wayCells.length) {
+                wayCells = Arrays.copyOf(wayCells, Math.max(2 * wayCells.length, wayCellSize + cells.size()));
+            }
+            wayCellStart[w] = wayCellSize;
+            wayCellCount[w] = cells.size();
+            for (int cell : cells) {
+                wayCells[wayCellSize++] = cell;
+            }
+        }
+        if (!isSorted(wayIds, wayIds.length)) {
+            sort(wayIds, wayCellStart, wayCellCount, 0, wayIds.length);
+        }
+
+        for (int r = 0; r < relationOffsets.size; r++) {
+            long offset = relationOffsets.values[r];
+            ByteBuffer in = readRecord(channel, offset);
+            skipCommon(in);
+            int count = in.getInt();
+            cells.clear();
+            boolean hasNewMembers = false;
+            for (int i = 0; i < count; i++) {
+                OsmPrimitiveType type = OsmPrimitiveType.values()[in.get()];
+                long id = in.getLong();
+                skipString(in);
+                if (id <= 0) {
+                    hasNewMembers = true;
+                    addNewMemberToGlobalBlock(channel, type, id, newWays, newRelations);
+                }
+                if (type == OsmPrimitiveType.NODE) {
+                    int node = findNode(id);
+                    if (node >= 0 && !cells.contains(nodeCells[node])) {
+                        cells.add(nodeCells[node]);
+                    }
+                } else if (type == OsmPrimitiveType.WAY) {
+                    int way = Arrays.binarySearch(wayIds, id);
+                    for (int j = 0; way >= 0 && j < wayCellCount[way]; j++) {
+                        int cell = wayCells[(int) wayCellStart[way] + j];
+                        if (!cells.contains(cell)) {
+                            cells.add(cell);
+                        }
+                    }
+                }
+            }
+            if (cells.isEmpty() || (hasNewMembers && !cells.contains(IndexedOsmFile.GLOBAL_CELL))) {
+                cells.add(IndexedOsmFile.GLOBAL_CELL);
+            }
+            for (int cell : cells) {
+                addTo(cellRelations, cell, offset);
+            }
+        }
+    }
+
+    /**
+     * Adds a new member of a relation to the global block. A way is added with its nodes. The new members of a relation
+     * are added when this relation is located.
+     */
+    private void addNewMemberToGlobalBlock(FileChannel channel, OsmPrimitiveType type, long id, Map<Long, Long> newWays,
+            Map<Long, Long> newRelations) throws IOException {
+        if (type == OsmPrimitiveType.NODE) {
+            int node = findNode(id);
+            if (node >= 0) {
+                addTo(cellNodes, IndexedOsmFile.GLOBAL_CELL, nodeOffsets[node]);
+            }
+        } else if (type == OsmPrimitiveType.WAY) {
+            Long offset = newWays.get(id);
+            if (offset != null) {
+                addTo(cellWays, IndexedOsmFile.GLOBAL_CELL, offset);
+                ByteBuffer in = readRecord(channel, offset);
+                skipCommon(in);
+                int count = in.getInt();
+                for (int i = 0; i < count; i++) {
+                    int node = findNode(in.getLong());
+                    if (node >= 0) {
+                        addTo(cellNodes, IndexedOsmFile.GLOBAL_CELL, nodeOffsets[node]);
+                    }
+                }
+            }
+        } else {
+            Long offset = newRelations.get(id);
+            if (offset != null) {
+                addTo(cellRelations, IndexedOsmFile.GLOBAL_CELL, offset);
+            }
+        }
+    }
+
+    private void writeIndex(FileChannel tempChannel, DataSet header, File target) throws IOException {
+        List<Integer> cells = new ArrayList<>(cellNodes.keySet());
+        for (Integer cell : cellWays.keySet()) {
+            if (!cellNodes.containsKey(cell)) {
+                cells.add(cell);
+            }
+        }
+        for (Integer cell : cellRelations.keySet()) {
+            if (!cellNodes.containsKey(cell) && !cellWays.containsKey(cell)) {
+                cells.add(cell);
+            }
+        }
+        cells.remove((Integer) IndexedOsmFile.GLOBAL_CELL);
+        int[] sortedCells = new int[cells.size()];
+        for (int i = 0; i < sortedCells.length; i++) {
+            sortedCells[i] = cells.get(i);
+        }
+        Arrays.sort(sortedCells);
+        long[] offsets = new long[sortedCells.length];
+        int[] lengths = new int[sortedCells.length];
+
+        long position = IndexedOsmFile.HEADER_SIZE;
+        long globalOffset;
+        int globalLength;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(target), 65536))) {
+            out.writeInt(IndexedOsmFile.MAGIC);
+            out.writeInt(IndexedOsmFile.FORMAT_VERSION);
+            out.writeLong(0); // table offset, written at the end
+            for (int i = 0; i < sortedCells.length; i++) {
+                offsets[i] = position;
+                lengths[i] = writeBlock(tempChannel, out, sortedCells[i]);
+                position += lengths[i];
+            }
+            globalOffset = position;
+            globalLength = writeBlock(tempChannel, out, IndexedOsmFile.GLOBAL_CELL);
+            position += globalLength;
+
+            out.writeDouble(cellSize);
+            writeString(out, header.getVersion());
+            out.writeBoolean(header.isUploadDiscouraged());
+            out.writeInt(header.dataSources.size());
+            for (DataSource source : header.dataSources) {
+                out.writeDouble(source.bounds.getMinLat());
+                out.writeDouble(source.bounds.getMinLon());
+                out.writeDouble(source.bounds.getMaxLat());
+                out.writeDouble(source.bounds.getMaxLon());
+                writeString(out, source.origin);
+            }
+            out.writeDouble(minLat);
+            out.writeDouble(minLon);
+            out.writeDouble(maxLat);
+            out.writeDouble(maxLon);
+            out.writeLong(globalOffset);
+            out.writeInt(globalLength);
+            out.writeInt(sortedCells.length);
+            for (int i = 0; i < sortedCells.length; i++) {
+                out.writeInt(sortedCells[i]);
+                out.writeLong(offsets[i]);
+                out.writeInt(lengths[i]);
+            }
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(target, "rw")) {
+            raf.seek(8);
+            raf.writeLong(position);
+        }
+    }
+
+    /**
+     * Writes the block of a cell.
+     * @return the length of the block, or 0 if the cell is empty
+     */
+    private int writeBlock(FileChannel tempChannel, DataOutputStream out, int cell) throws IOException {
+        LongList nodes = cellNodes.get(cell);
+        LongList ways = cellWays.get(cell);
+        LongList relations = cellRelations.get(cell);
+        if (nodes == null && ways == null && relations == null)
+            return 0;
+        long length = 12;
+        out.writeInt(nodes == null ? 0 : nodes.size);
+        out.writeInt(ways == null ? 0 : ways.size);
+        out.writeInt(relations == null ? 0 : relations.size);
+        for (LongList list : Arrays.asList(nodes, ways, relations)) {
+            for (int i = 0; list != null && i < list.size; i++) {
+                ByteBuffer buffer = readRecord(tempChannel, list.values[i]);
+                out.write(buffer.array());
+                length += buffer.array().length;
+            }
+        }
+        if (length > Integer.MAX_VALUE)
+            throw new IOException(tr("Too much data in an area of {0} degrees. Please use a smaller cell size.", cellSize));
+        return (int) length;
+    }
+
+}
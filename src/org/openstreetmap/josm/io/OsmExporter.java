@@ -17,6 +17,7 @@ import javax.swing.JOptionPane;
 
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.actions.ExtensionFileFilter;
+import org.openstreetmap.josm.data.osm.DataSetSnapshot;
 import org.openstreetmap.josm.gui.layer.Layer;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 import org.openstreetmap.josm.tools.Utils;
@@ -65,7 +66,23 @@ public class OsmExporter extends FileExporter {
      */
     public void exportData(File file, Layer layer, boolean noBackup) {
         checkOsmDataLayer(layer);
-        save(file, (OsmDataLayer) layer, noBackup);
+        save(file, (OsmDataLayer) layer, noBackup, false);
+    }
+
+    /**
+     * Exports OSM data to the given file from a {@link DataSetSnapshot snapshot} of the data set, so that the data set
+     * can be edited while the file is written. The snapshot holds a copy of every primitive until the file is written,
+     * which about doubles the memory used by the data set meanwhile: it is only worth it for writes run in the background,
+     * like autosave. The Save action writes the data set directly, the editor being blocked until it is done anyway.
+     * @param file Output file
+     * @param layer Data layer. Must be an instance of {@link OsmDataLayer}.
+     * @param noBackup if {@code true}, the potential backup file created if the output file already exists will be deleted
+     *                 after a successful export
+     * @throws IllegalArgumentException if {@code layer} is not an instance of {@code OsmDataLayer}
+     */
+    public void exportSnapshot(File file, Layer layer, boolean noBackup) {
+        checkOsmDataLayer(layer);
+        save(file, (OsmDataLayer) layer, noBackup, true);
     }
 
     protected static void checkOsmDataLayer(Layer layer) {
@@ -79,7 +96,7 @@ public class OsmExporter extends FileExporter {
         return Compression.getCompressedFileOutputStream(file);
     }
 
-    private void save(File file, OsmDataLayer layer, boolean noBackup) {
+    private void save(File file, OsmDataLayer layer, boolean noBackup, boolean snapshot) {
         File tmpFile = null;
         try {
             // use a tmp file because if something errors out in the
@@ -90,7 +107,11 @@ public class OsmExporter extends FileExporter {
                 Utils.copyFile(file, tmpFile);
             }
 
-            doSave(file, layer);
+            if (snapshot) {
+                doSaveSnapshot(file, layer);
+            } else {
+                doSave(file, layer);
+            }
             if (noBackup || !Main.pref.getBoolean("save.keepbackup", false)) {
                 if (tmpFile != null) {
                     Utils.deleteFile(tmpFile);
@@ -139,4 +160,17 @@ public class OsmExporter extends FileExporter {
             }
         }
     }
+
+    protected void doSaveSnapshot(File file, OsmDataLayer layer) throws IOException, FileNotFoundException {
+        // the data set is only locked while the snapshot is taken, not while the file is written
+        DataSetSnapshot snapshot = new DataSetSnapshot(layer.data);
+        // create outputstream and wrap it with gzip or bzip, if necessary
+        try (
+            OutputStream out = getOutputStream(file);
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            OsmWriter w = OsmWriterFactory.createOsmWriter(new PrintWriter(writer), false, snapshot.getVersion());
+        ) {
+            w.writeSnapshot(snapshot);
+        }
+    }
 }
@@ -7,17 +7,24 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Arrays;
 
 import javax.swing.JOptionPane;
 
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.actions.ExtensionFileFilter;
+import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.visitor.BoundingXYVisitor;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
+import org.openstreetmap.josm.gui.Notification;
+import org.openstreetmap.josm.gui.layer.IndexedDataLoader;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.tools.Utils;
 
 public class OsmImporter extends FileImporter {
 
@@ -28,6 +35,17 @@ public class OsmImporter extends FileImporter {
             "osm,xml", "osm", tr("OSM Server Files") + " (*.osm, *.osm.gz, *.osm.bz2, *.osm.zip, *.xml)",
             ExtensionFileFilter.AddArchiveExtension.NONE, Arrays.asList("gz", "bz", "bz2", "zip"));
 
+    /**
+     * Files larger than this size, in MB, are converted to an {@link IndexedOsmFile}, and only the data of the
+     * visible area is loaded. 0 to always load the whole file.
+     */
+    public static final IntegerProperty PROP_INDEXED_MIN_FILE_SIZE = new IntegerProperty("osm.indexed.min-file-size", 1024);
+
+    /**
+     * Indexed files which have not been opened for this number of days are removed from the cache directory.
+     */
+    public static final IntegerProperty PROP_INDEXED_MAX_AGE = new IntegerProperty("osm.indexed.max-age", 30);
+
     /**
      * Utility class containing imported OSM layer, and a task to run after it is added to MapView.
      */
@@ -72,6 +90,10 @@ public class OsmImporter extends FileImporter {
      */
     @Override
     public void importData(File file, ProgressMonitor progressMonitor) throws IOException, IllegalDataException {
+        if (useIndexedMode(file)) {
+            importIndexedData(file, progressMonitor);
+            return;
+        }
         try (InputStream in = Compression.getUncompressedFileInputStream(file)) {
             importData(in, file, progressMonitor);
         } catch (FileNotFoundException e) {
@@ -80,6 +102,103 @@ public class OsmImporter extends FileImporter {
         }
     }
 
+    /**
+     * Determines if a file is too large to be loaded at once, and must be opened as an {@link IndexedOsmFile}.
+     * @param file the file to import
+     * @return {@code true} if only the data of the visible area of the file is to be loaded
+     */
+    protected boolean useIndexedMode(File file) {
+        int minSize = PROP_INDEXED_MIN_FILE_SIZE.get();
+        return minSize > 0 && file.length() >= minSize * 1024L * 1024L;
+    }
+
+    /**
+     * Replies the indexed file of an OSM file, in the cache directory. Its name depends on the path, the size and the
+     * modification time of the OSM file, so that a modified file is indexed again.
+     * @param file the OSM file
+     * @return the indexed file, which may not exist
+     */
+    static File getIndexFile(File file) {
+        return new File(getIndexDirectory(), getIndexPrefix(file)
+                + Utils.md5Hex(file.length() + ":" + file.lastModified()).substring(0, 8) + ".idx");
+    }
+
+    private static File getIndexDirectory() {
+        return new File(Main.pref.getCacheDirectory(), "indexed");
+    }
+
+    private static String getIndexPrefix(File file) {
+        return file.getName() + '.' + Utils.md5Hex(file.getAbsolutePath()).substring(0, 8) + '.';
+    }
+
+    /**
+     * Removes the indexed files of previous versions of an OSM file, and the indexed files which have not been opened
+     * for {@link #PROP_INDEXED_MAX_AGE} days.
+     * @param file the OSM file
+     */
+    static void cleanIndexFiles(File file) {
+        File[] files = getIndexDirectory().listFiles();
+        if (files == null)
+            return;
+        String prefix = getIndexPrefix(file);
+        long minTime = System.currentTimeMillis() - PROP_INDEXED_MAX_AGE.get() * 24L * 3600 * 1000;
+        for (File f : files) {
+            if (f.getName().endsWith(".idx") && (f.getName().startsWith(prefix) || f.lastModified() < minTime)) {
+                Utils.deleteFile(f);
+            }
+        }
+    }
+
+    /**
+     * Converts an OSM file to an {@link IndexedOsmFile}, if not already done, and opens a layer into which the data
+     * of the visible area is loaded.
+     * @param file the OSM file
+     * @param progressMonitor handler for progress monitoring and canceling
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalDataException if an error was found while parsing the OSM data
+     */
+    protected void importIndexedData(final File file, ProgressMonitor progressMonitor) throws IOException, IllegalDataException {
+        File index = getIndexFile(file);
+        if (index.isFile()) {
+            // the modification time of the indexed file is the last time it has been opened
+            index.setLastModified(System.currentTimeMillis());
+        } else {
+            cleanIndexFiles(file);
+            Utils.mkDirs(index.getParentFile());
+            File tmp = new File(index.getPath() + ".tmp");
+            try (InputStream in = Compression.getUncompressedFileInputStream(file)) {
+                IndexedOsmFileWriter.convert(in, tmp, progressMonitor);
+                Files.move(tmp.toPath(), index.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tmp.toPath());
+            }
+        }
+        final IndexedOsmFile indexed = IndexedOsmFile.open(index);
+        DataSet dataSet = new DataSet();
+        dataSet.setVersion(indexed.getVersion());
+        dataSet.setUploadDiscouraged(indexed.isUploadDiscouraged());
+        // not associated with the file, which must not be overwritten by the loaded part of its data
+        final OsmDataLayer layer = new OsmDataLayer(dataSet, file.getName(), null);
+        final IndexedDataLoader loader = new IndexedDataLoader(layer, indexed, file.getName());
+        GuiHelper.runInEDT(new Runnable() {
+            @Override
+            public void run() {
+                BoundingXYVisitor v = new BoundingXYVisitor();
+                Bounds bounds = indexed.getBounds();
+                if (bounds != null) {
+                    v.visit(bounds);
+                }
+                Main.main.addLayer(layer, v.getBounds());
+                loader.start();
+                new Notification(tr("<b>{0}</b> is too large to be loaded at once.<br>"
+                        + "The data is loaded when zooming in on an area.<br>"
+                        + "The changes can be uploaded, but the layer cannot be saved.", file.getName()))
+                        .setIcon(JOptionPane.INFORMATION_MESSAGE)
+                        .show();
+            }
+        });
+    }
+
     /**
      * Imports OSM data from stream
      * @param in input stream
@@ -225,8 +225,10 @@ public class OsmReader extends AbstractReader {
                 } else {
                     parseUnknown();
                 }
-            } else if (event == XMLStreamConstants.END_ELEMENT)
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                n.internKeys(keysPool);
                 return n;
+            }
         }
     }
 
@@ -261,6 +263,7 @@ public class OsmReader extends AbstractReader {
             nodeIds = new ArrayList<>();
         }
         ways.put(wd.getUniqueId(), nodeIds);
+        w.internKeys(keysPool);
         return w;
     }
 
@@ -311,6 +314,7 @@ public class OsmReader extends AbstractReader {
             members = new ArrayList<>();
         }
         relations.put(rd.getUniqueId(), members);
+        r.internKeys(keysPool);
         return r;
     }
 
@@ -586,7 +590,9 @@ public class OsmReader extends AbstractReader {
             progressMonitor.beginTask(tr("Prepare OSM data...", 2));
             progressMonitor.indeterminateSubTask(tr("Parsing OSM data..."));
 
-            try (InputStreamReader ir = UTFInputStreamReader.create(source)) {
+            // Read the source ahead on another thread, so that decompression/download overlaps with parsing
+            InputStream in = Main.pref.getBoolean("osm.reader.read-ahead", true) ? new ReadAheadInputStream(source) : source;
+            try (InputStreamReader ir = UTFInputStreamReader.create(in)) {
                 XMLStreamReader parser = XMLInputFactory.newInstance().createXMLStreamReader(ir);
                 setParser(parser);
                 parse();
@@ -4,6 +4,7 @@ package org.openstreetmap.josm.io;
 import static org.openstreetmap.josm.tools.I18n.tr;
 
 import java.io.PrintWriter;
+import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -17,15 +18,19 @@ import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.AbstractPrimitive;
 import org.openstreetmap.josm.data.osm.Changeset;
 import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.DataSetSnapshot;
 import org.openstreetmap.josm.data.osm.INode;
 import org.openstreetmap.josm.data.osm.IPrimitive;
 import org.openstreetmap.josm.data.osm.IRelation;
 import org.openstreetmap.josm.data.osm.IWay;
 import org.openstreetmap.josm.data.osm.Node;
-import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.NodeData;
 import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationData;
 import org.openstreetmap.josm.data.osm.Tagged;
+import org.openstreetmap.josm.data.osm.User;
 import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.WayData;
 import org.openstreetmap.josm.data.osm.visitor.PrimitiveVisitor;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 import org.openstreetmap.josm.tools.date.DateUtils;
@@ -45,6 +50,13 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
     private String version;
     private Changeset changeset;
 
+    /** Coordinates up to this absolute value are written without the decimal formatter */
+    private static final double MAX_FAST_COORDINATE = 1e6;
+
+    /** Reusable buffer to write numbers and dates without creating strings */
+    private final char[] buffer = new char[32];
+    private DecimalFormat coordinateFormat;
+
     /**
      * Constructs a new {@code OsmWriter}.
      * Do not call this directly. Use {@link OsmWriterFactory} instead.
@@ -108,7 +120,7 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
         }
     };
 
-    protected <T extends OsmPrimitive> Collection<T> sortById(Collection<T> primitives) {
+    protected <T extends AbstractPrimitive> Collection<T> sortById(Collection<T> primitives) {
         List<T> result = new ArrayList<>(primitives.size());
         result.addAll(primitives);
         Collections.sort(result, byIdComparator);
@@ -122,6 +134,32 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
         footer();
     }
 
+    /**
+     * Writes a snapshot of a data set, like {@link #writeLayer} writes the data set of a layer.
+     * The data set can be edited meanwhile.
+     * @param snapshot the snapshot to write
+     */
+    public void writeSnapshot(DataSetSnapshot snapshot) {
+        header(!snapshot.isUploadDiscouraged());
+        writeDataSources(snapshot.getDataSources());
+        for (NodeData n : sortById(snapshot.getNodes())) {
+            if (shouldWrite(n)) {
+                visit(n);
+            }
+        }
+        for (WayData w : sortById(snapshot.getWays())) {
+            if (shouldWrite(w)) {
+                visit(w);
+            }
+        }
+        for (RelationData r : sortById(snapshot.getRelations())) {
+            if (shouldWrite(r)) {
+                visit(r);
+            }
+        }
+        footer();
+    }
+
     /**
      * Writes the contents of the given dataset (nodes, then ways, then relations)
      * @param ds The dataset to write
@@ -171,12 +209,20 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
         }
     }
 
-    protected boolean shouldWrite(OsmPrimitive osm) {
+    protected boolean shouldWrite(IPrimitive osm) {
         return !osm.isNewOrUndeleted() || !osm.isDeleted();
     }
 
     public void writeDataSources(DataSet ds) {
-        for (DataSource s : ds.dataSources) {
+        writeDataSources(ds.dataSources);
+    }
+
+    /**
+     * Writes the given data sources as bounds
+     * @param dataSources The data sources to write
+     */
+    public void writeDataSources(Collection<DataSource> dataSources) {
+        for (DataSource s : dataSources) {
             out.println("  <bounds minlat='"
                     + s.bounds.getMin().latToString(CoordinateFormat.DECIMAL_DEGREES)
                     +"' minlon='"
@@ -196,9 +242,13 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
         if (!withBody) {
             out.println("/>");
         } else {
-            if (n.getCoor() != null) {
-                out.print(" lat='"+LatLon.cDdHighPecisionFormatter.format(n.getCoor().lat())+
-                          "' lon='"+LatLon.cDdHighPecisionFormatter.format(n.getCoor().lon())+'\'');
+            LatLon coor = n.getCoor();
+            if (coor != null) {
+                out.write(" lat='");
+                writeCoordinate(coor.lat());
+                out.write("' lon='");
+                writeCoordinate(coor.lon());
+                out.write('\'');
             }
             addTags(n, "node", true);
         }
@@ -213,7 +263,9 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
         } else {
             out.println(">");
             for (int i = 0; i < w.getNodesCount(); ++i) {
-                out.println("    <nd ref='"+w.getNodeId(i) +"' />");
+                out.write("    <nd ref='");
+                writeLong(w.getNodeId(i));
+                out.println("' />");
             }
             addTags(w, "way", false);
         }
@@ -228,15 +280,123 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
         } else {
             out.println(">");
             for (int i = 0; i < e.getMembersCount(); ++i) {
-                out.print("    <member type='");
-                out.print(e.getMemberType(i).getAPIName());
-                out.println("' ref='"+e.getMemberId(i)+"' role='" +
-                        XmlWriter.encode(e.getRole(i)) + "' />");
+                out.write("    <member type='");
+                out.write(e.getMemberType(i).getAPIName());
+                out.write("' ref='");
+                writeLong(e.getMemberId(i));
+                out.write("' role='");
+                writeEncoded(e.getRole(i));
+                out.println("' />");
             }
             addTags(e, "relation", false);
         }
     }
 
+    /**
+     * Writes a number without creating a string.
+     * @param value the number
+     */
+    protected void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            out.write(Long.toString(value));
+            return;
+        }
+        long v = Math.abs(value);
+        int pos = buffer.length;
+        do {
+            buffer[--pos] = (char) ('0' + v % 10);
+            v /= 10;
+        } while (v != 0);
+        if (value < 0) {
+            buffer[--pos] = '-';
+        }
+        out.write(buffer, pos, buffer.length - pos);
+    }
+
+    /**
+     * Writes a coordinate like {@link LatLon#cDdHighPecisionFormatter}, without creating a string.
+     * <p>
+     * Coordinates read from OSM data have at most 7 decimals: they are written from their integer number of 1e-7 degrees.
+     * Other values are formatted by a copy of the formatter, as the formatter itself cannot be shared between threads.
+     * @param value the coordinate
+     */
+    protected void writeCoordinate(double value) {
+        long e7 = Math.round(value * 1e7);
+        if (value == 0 || Math.abs(value) > MAX_FAST_COORDINATE || e7 / 1e7 != value) {
+            if (coordinateFormat == null) {
+                coordinateFormat = (DecimalFormat) LatLon.cDdHighPecisionFormatter.clone();
+            }
+            out.write(coordinateFormat.format(value));
+            return;
+        }
+        long v = Math.abs(e7);
+        int pos = buffer.length;
+        int decimals = 7;
+        // trailing zeros are not written, but there is at least one decimal
+        while (decimals > 1 && v % 10 == 0) {
+            v /= 10;
+            decimals--;
+        }
+        for (int i = 0; i < decimals; i++) {
+            buffer[--pos] = (char) ('0' + v % 10);
+            v /= 10;
+        }
+        buffer[--pos] = '.';
+        do {
+            buffer[--pos] = (char) ('0' + v % 10);
+            v /= 10;
+        } while (v != 0);
+        if (e7 < 0) {
+            buffer[--pos] = '-';
+        }
+        out.write(buffer, pos, buffer.length - pos);
+    }
+
+    /**
+     * Writes a timestamp like {@link DateUtils#fromTimestamp(int)}, without creating a string.
+     * @param timestamp number of seconds since the epoch
+     */
+    protected void writeTimestamp(int timestamp) {
+        if (timestamp < 0) {
+            out.write(DateUtils.fromTimestamp(timestamp));
+            return;
+        }
+        int seconds = timestamp % 86400;
+        // civil date from the number of days since 1970-01-01, in the proleptic Gregorian calendar
+        int z = timestamp / 86400 + 719468;
+        int era = z / 146097;
+        int doe = z - era * 146097;
+        int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        int mp = (5 * doy + 2) / 153;
+        int day = doy - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        int year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+        int pos = 0;
+        pos = writeDigits(year, 4, pos);
+        buffer[pos++] = '-';
+        pos = writeDigits(month, 2, pos);
+        buffer[pos++] = '-';
+        pos = writeDigits(day, 2, pos);
+        buffer[pos++] = 'T';
+        pos = writeDigits(seconds / 3600, 2, pos);
+        buffer[pos++] = ':';
+        pos = writeDigits(seconds / 60 % 60, 2, pos);
+        buffer[pos++] = ':';
+        pos = writeDigits(seconds % 60, 2, pos);
+        buffer[pos++] = 'Z';
+        out.write(buffer, 0, pos);
+    }
+
+    private int writeDigits(int value, int digits, int pos) {
+        int v = value;
+        for (int i = pos + digits - 1; i >= pos; i--) {
+            buffer[i] = (char) ('0' + v % 10);
+            v /= 10;
+        }
+        return pos + digits;
+    }
+
     public void visit(Changeset cs) {
         out.print("  <changeset id='"+cs.getId()+'\'');
         if (cs.getUser() != null) {
@@ -274,17 +434,28 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
             if (tagOpen) {
                 out.println(">");
             }
-            List<Entry<String, String>> entries = new ArrayList<>(osm.getKeys().entrySet());
-            Collections.sort(entries, byKeyComparator);
+            Collection<Entry<String, String>> entries = osm.getKeys().entrySet();
+            if (entries.size() > 1) {
+                List<Entry<String, String>> sorted = new ArrayList<>(entries);
+                Collections.sort(sorted, byKeyComparator);
+                entries = sorted;
+            }
             for (Entry<String, String> e : entries) {
-                out.println("    <tag k='"+ XmlWriter.encode(e.getKey()) +
-                        "' v='"+XmlWriter.encode(e.getValue())+ "' />");
+                out.write("    <tag k='");
+                writeEncoded(e.getKey());
+                out.write("' v='");
+                writeEncoded(e.getValue());
+                out.println("' />");
             }
-            out.println("  </" + tagname + '>');
+            out.write("  </");
+            out.write(tagname);
+            out.println('>');
         } else if (tagOpen) {
             out.println(" />");
         } else {
-            out.println("  </" + tagname + '>');
+            out.write("  </");
+            out.write(tagname);
+            out.println('>');
         }
     }
 
@@ -295,45 +466,58 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
      * @param tagname XML tag matching osm primitive (node, way, relation)
      */
     protected void addCommon(IPrimitive osm, String tagname) {
-        out.print("  <"+tagname);
+        out.write("  <");
+        out.write(tagname);
         if (osm.getUniqueId() != 0) {
-            out.print(" id='"+ osm.getUniqueId()+'\'');
+            out.write(" id='");
+            writeLong(osm.getUniqueId());
+            out.write('\'');
         } else
             throw new IllegalStateException(tr("Unexpected id 0 for osm primitive found"));
         if (!isOsmChange) {
             if (!osmConform) {
-                String action = null;
                 if (osm.isDeleted()) {
-                    action = "delete";
+                    out.write(" action='delete'");
                 } else if (osm.isModified()) {
-                    action = "modify";
-                }
-                if (action != null) {
-                    out.print(" action='"+action+'\'');
+                    out.write(" action='modify'");
                 }
             }
             if (!osm.isTimestampEmpty()) {
-                out.print(" timestamp='"+DateUtils.fromTimestamp(osm.getRawTimestamp())+'\'');
+                out.write(" timestamp='");
+                writeTimestamp(osm.getRawTimestamp());
+                out.write('\'');
             }
             // user and visible added with 0.4 API
-            if (osm.getUser() != null) {
-                if (osm.getUser().isLocalUser()) {
-                    out.print(" user='"+XmlWriter.encode(osm.getUser().getName())+'\'');
-                } else if (osm.getUser().isOsmUser()) {
+            User user = osm.getUser();
+            if (user != null) {
+                if (user.isLocalUser()) {
+                    out.write(" user='");
+                    writeEncoded(user.getName());
+                    out.write('\'');
+                } else if (user.isOsmUser()) {
                     // uid added with 0.6
-                    out.print(" uid='"+ osm.getUser().getId()+'\'');
-                    out.print(" user='"+XmlWriter.encode(osm.getUser().getName())+'\'');
+                    out.write(" uid='");
+                    writeLong(user.getId());
+                    out.write("' user='");
+                    writeEncoded(user.getName());
+                    out.write('\'');
                 }
             }
-            out.print(" visible='"+osm.isVisible()+'\'');
+            out.write(osm.isVisible() ? " visible='true'" : " visible='false'");
         }
         if (osm.getVersion() != 0) {
-            out.print(" version='"+osm.getVersion()+'\'');
+            out.write(" version='");
+            writeLong(osm.getVersion());
+            out.write('\'');
         }
         if (this.changeset != null && this.changeset.getId() != 0) {
-            out.print(" changeset='"+this.changeset.getId()+'\'');
+            out.write(" changeset='");
+            writeLong(this.changeset.getId());
+            out.write('\'');
         } else if (osm.getChangesetId() > 0 && !osm.isNew()) {
-            out.print(" changeset='"+osm.getChangesetId()+'\'');
+            out.write(" changeset='");
+            writeLong(osm.getChangesetId());
+            out.write('\'');
         }
     }
 }
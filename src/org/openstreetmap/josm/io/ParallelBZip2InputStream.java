@@ -0,0 +1,515 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.openstreetmap.josm.tools.CheckParameterUtil;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * An input stream decompressing bzip2 data with several threads.
+ * <p>
+ * bzip2 compresses its input in independent blocks of at most 900 kB, each one starting with a 48-bit magic number
+ * that is not aligned on a byte boundary. A background thread scans the compressed data for these magic numbers,
+ * and each block is wrapped into a standalone bzip2 stream decompressed on a thread pool. The decompressed blocks
+ * are then returned in order.
+ * <p>
+ * As the magic number may also appear by chance inside compressed data, a block that cannot be decompressed is
+ * merged with the next one and decompressed again. The end of stream marker may also appear by chance: it is only
+ * accepted when it is followed by the end of the input or by the header of another stream, and the stream CRC that
+ * follows it is checked against the CRCs of the decompressed blocks. Concatenated bzip2 streams are supported.
+ * <p>
+ * The stream must be closed, to stop the background thread.
+ */
+public class ParallelBZip2InputStream extends InputStream {
+
+    private static final ForkJoinPool THREAD_POOL =
+            Utils.newForkJoinPool("bzip2.decompression.numberOfThreads", "bzip2-decompressor-%d", Thread.NORM_PRIORITY);
+
+    private static final long BLOCK_MAGIC = 0x314159265359L;
+    private static final long END_OF_STREAM_MAGIC = 0x177245385090L;
+    private static final long MAGIC_MASK = 0xffffffffffffL;
+    private static final int HEADER_BITS = 32;
+    /** Bytes needed after the start of an end of stream marker to check it: marker, CRC, padding, next header and magic */
+    private static final int LOOKAHEAD = (48 + 32 + 7) / 8 + 4 + 6;
+    private static final int CHUNK_SIZE = 64 * 1024;
+    /** Maximum number of blocks merged to recover from a false block boundary */
+    private static final int MAX_MERGED_SEGMENTS = 3;
+    /** Maximum time to wait for the scanner thread when closing, in milliseconds. The thread is a daemon */
+    private static final long CLOSE_TIMEOUT = 1000;
+
+    /**
+     * Byte values that may appear at bits 8-15 of a 64-bit window ending with a magic number, for any bit alignment.
+     * Used to skip quickly the positions where no magic number can end.
+     */
+    private static final boolean[] CANDIDATES = new boolean[256];
+
+    static {
+        for (int shift = 0; shift < 8; shift++) {
+            CANDIDATES[(int) (BLOCK_MAGIC >>> (8 - shift)) & 0xff] = true;
+            CANDIDATES[(int) (END_OF_STREAM_MAGIC >>> (8 - shift)) & 0xff] = true;
+        }
+    }
+
+    /**
+     * The compressed bits of a bzip2 block, from its magic number to the start of the next block or end of stream marker,
+     * or an end of stream marker, followed by the stream CRC.
+     */
+    private static final class Segment implements Callable<byte[]> {
+        private final byte[] data;
+        private final int bitOffset;
+        private final long bitLength;
+        private final boolean endOfStream;
+        private Future<byte[]> result;
+
+        Segment(byte[] data, int bitOffset, long bitLength, boolean endOfStream) {
+            this.data = data;
+            this.bitOffset = bitOffset;
+            this.bitLength = bitLength;
+            this.endOfStream = endOfStream;
+        }
+
+        /**
+         * Returns the CRC following the magic number: the block CRC, or the stream CRC for an end of stream marker.
+         * @return the CRC, or 0 if the segment is too short
+         */
+        int getCrc() {
+            return bitLength < 48 + 32 ? 0 : (int) getBits(data, bitOffset + 48, 32);
+        }
+
+        @Override
+        public byte[] call() throws IOException {
+            return decompress(Collections.singletonList(this));
+        }
+    }
+
+    private static final Segment END = new Segment(new byte[0], 0, 0, false);
+
+    private final InputStream source;
+    private final BlockingQueue<Segment> segments = new ArrayBlockingQueue<>(2 * THREAD_POOL.getParallelism() + 1);
+    private final Thread scanner;
+    private volatile boolean closed;
+    private volatile IOException error;
+
+    /** A segment taken from the queue, but not used yet */
+    private Segment pushedBack;
+    /** The combined CRC of the blocks of the current stream decompressed so far */
+    private int streamCrc;
+
+    private byte[] current;
+    private int position;
+    private boolean eof;
+
+    /**
+     * Constructs a new {@code ParallelBZip2InputStream} and starts reading {@code source} in the background.
+     * @param source the bzip2 compressed stream. It will be closed when this stream is closed
+     * @throws IOException if the source is not in the bzip2 format
+     */
+    public ParallelBZip2InputStream(InputStream source) throws IOException {
+        CheckParameterUtil.ensureParameterNotNull(source, "source");
+        this.source = source;
+        byte[] header = new byte[4];
+        int length = 0;
+        int read = 0;
+        while (length < header.length && (read = source.read(header, length, header.length - length)) != -1) {
+            length += read;
+        }
+        if (length < header.length || header[0] != 'B' || header[1] != 'Z' || header[2] != 'h' || header[3] < '1' || header[3] > '9') {
+            throw new IOException("Stream is not in the BZip2 format");
+        }
+        scanner = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                scan();
+            }
+        }, "bzip2-scanner");
+        scanner.setDaemon(true);
+        scanner.start();
+    }
+
+    /**
+     * Reads the source, splits it into segments and submits them for decompression.
+     */
+    private void scan() {
+        try {
+            byte[] buffer = new byte[4 * CHUNK_SIZE];
+            long bufferStart = HEADER_BITS / 8; // absolute byte index of buffer[0]
+            int bufferLength = 0;
+            int scanned = 0; // the bytes after the scanned ones are kept to check end of stream markers
+            boolean endOfInput = false;
+            long window = 0;
+            long segmentStart = -1; // absolute bit index of the current block magic
+            while (!closed && !endOfInput) {
+                // keep the current segment, and the last bytes that may contain the beginning of a magic number
+                long keep = segmentStart >= 0 ? segmentStart / 8 : bufferStart + scanned - 8;
+                int discard = (int) Math.max(0, keep - bufferStart);
+                if (buffer.length - bufferLength < CHUNK_SIZE) {
+                    if (discard > 0) {
+                        System.arraycopy(buffer, discard, buffer, 0, bufferLength - discard);
+                        bufferLength -= discard;
+                        scanned -= discard;
+                        bufferStart += discard;
+                    }
+                    if (buffer.length - bufferLength < CHUNK_SIZE) {
+                        buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+                    }
+                }
+                int read = source.read(buffer, bufferLength, CHUNK_SIZE);
+                if (read == -1) {
+                    endOfInput = true;
+                } else {
+                    bufferLength += read;
+                }
+                int limit = endOfInput ? bufferLength : bufferLength - LOOKAHEAD;
+                for (; scanned < limit; scanned++) {
+                    window = (window << 8) | (buffer[scanned] & 0xff);
+                    if (!CANDIDATES[(int) (window >>> 8) & 0xff]) {
+                        continue;
+                    }
+                    long end = 8 * (bufferStart + scanned + 1); // absolute bit index after the current byte
+                    for (int shift = 7; shift >= 0; shift--) {
+                        long magic = (window >>> shift) & MAGIC_MASK;
+                        long start = end - shift - 48;
+                        if (start < 8 * bufferStart || (magic != BLOCK_MAGIC && magic != END_OF_STREAM_MAGIC)
+                                || (magic == END_OF_STREAM_MAGIC
+                                    && !isEndOfStream(buffer, bufferLength, start - 8 * bufferStart, endOfInput))) {
+                            continue;
+                        }
+                        if (segmentStart >= 0 && !submit(createSegment(buffer, bufferStart, segmentStart, start, false))) {
+                            return;
+                        }
+                        if (magic == END_OF_STREAM_MAGIC && !offer(createSegment(buffer, bufferStart, start, start + 48 + 32, true))) {
+                            return;
+                        }
+                        segmentStart = magic == BLOCK_MAGIC ? start : -1;
+                    }
+                }
+            }
+            if (segmentStart >= 0 && !closed) {
+                // truncated stream. Let the decompression report the error
+                submit(createSegment(buffer, bufferStart, segmentStart, 8 * (bufferStart + bufferLength), false));
+            }
+        } catch (IOException e) {
+            error = e;
+        } catch (RuntimeException e) {
+            error = new IOException(e);
+        } finally {
+            offer(END);
+        }
+    }
+
+    /**
+     * Determines if an end of stream magic number is a real end of stream marker, and not some compressed data.
+     * The marker must be followed by the stream CRC and the padding to a byte boundary, and then by the end of the input,
+     * or by the header and the first magic number of another stream.
+     * @param buffer the compressed data
+     * @param length the number of bytes of {@code buffer} that have been read
+     * @param start the index of the first bit of the magic number in {@code buffer}
+     * @param endOfInput whether the input ends after {@code length} bytes
+     * @return {@code true} if the magic number is an end of stream marker
+     */
+    static boolean isEndOfStream(byte[] buffer, int length, long start, boolean endOfInput) {
+        int next = (int) ((start + 48 + 32 + 7) / 8);
+        if (next >= length) {
+            return endOfInput && next == length;
+        }
+        if (next + 10 > length || buffer[next] != 'B' || buffer[next + 1] != 'Z' || buffer[next + 2] != 'h'
+                || buffer[next + 3] < '1' || buffer[next + 3] > '9') {
+            return false;
+        }
+        long magic = getBits(buffer, 8 * (next + 4), 48);
+        return magic == BLOCK_MAGIC || magic == END_OF_STREAM_MAGIC;
+    }
+
+    /**
+     * Reads bits, most significant first.
+     * @param data the bits
+     * @param offset the index of the first bit to read
+     * @param count the number of bits to read, at most 63
+     * @return the bits
+     */
+    private static long getBits(byte[] data, long offset, int count) {
+        long result = 0;
+        for (long bit = offset; bit < offset + count; bit++) {
+            result = (result << 1) | ((data[(int) (bit / 8)] >>> (7 - bit % 8)) & 1);
+        }
+        return result;
+    }
+
+    private static Segment createSegment(byte[] buffer, long bufferStart, long start, long end, boolean endOfStream) {
+        int from = (int) (start / 8 - bufferStart);
+        int to = (int) ((end + 7) / 8 - bufferStart);
+        return new Segment(Arrays.copyOfRange(buffer, from, to), (int) (start % 8), end - start, endOfStream);
+    }
+
+    private boolean submit(Segment segment) {
+        segment.result = THREAD_POOL.submit(segment);
+        return offer(segment);
+    }
+
+    /**
+     * Waits until there is some room for the given segment, or until this stream is closed.
+     * @param segment the segment to queue
+     * @return {@code true} if the segment has been queued
+     */
+    private boolean offer(Segment segment) {
+        try {
+            while (!closed) {
+                if (segments.offer(segment, 100, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    private Segment take() throws IOException {
+        if (pushedBack != null) {
+            Segment segment = pushedBack;
+            pushedBack = null;
+            return segment;
+        }
+        try {
+            return segments.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Builds a standalone bzip2 stream from consecutive segments of a block, and decompresses it.
+     * @param parts the segments, the first one starting with the block magic
+     * @return the decompressed data
+     * @throws IOException if the data cannot be decompressed
+     */
+    static byte[] decompress(List<Segment> parts) throws IOException {
+        BitWriter out = new BitWriter();
+        out.write('B', 8);
+        out.write('Z', 8);
+        out.write('h', 8);
+        out.write('9', 8);
+        for (Segment s : parts) {
+            out.write(s.data, s.bitOffset, s.bitLength);
+        }
+        // the combined CRC of a stream made of a single block is the CRC of this block
+        out.write(END_OF_STREAM_MAGIC >>> 24, 24);
+        out.write(END_OF_STREAM_MAGIC, 24);
+        out.write(parts.get(0).getCrc() & 0xffffffffL, 32);
+        out.flush();
+        ByteArrayOutputStream result = new ByteArrayOutputStream(1024 * 1024);
+        try (InputStream in = new BZip2CompressorInputStream(out.toInputStream(), false)) {
+            byte[] buffer = new byte[CHUNK_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                result.write(buffer, 0, read);
+            }
+        }
+        return result.toByteArray();
+    }
+
+    /**
+     * Gets the decompressed data of the next block, merging it with the following segments if needed.
+     * @return the decompressed data, or {@code null} at the end of the stream
+     * @throws IOException if the data cannot be decompressed
+     */
+    private byte[] nextBlock() throws IOException {
+        Segment segment = take();
+        while (segment.endOfStream) {
+            if (segment.getCrc() != streamCrc) {
+                throw new IOException("BZip2 stream CRC error");
+            }
+            streamCrc = 0;
+            segment = take();
+        }
+        if (segment == END) {
+            if (error != null)
+                throw error;
+            return null;
+        }
+        byte[] result;
+        try {
+            result = segment.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            result = merge(segment, e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause()));
+        }
+        streamCrc = ((streamCrc << 1) | (streamCrc >>> 31)) ^ segment.getCrc();
+        return result;
+    }
+
+    /**
+     * Decompresses a segment that cannot be decompressed alone, merged with the following segments of the same stream.
+     * @param segment the segment
+     * @param exception the error raised when decompressing the segment alone
+     * @return the decompressed data
+     * @throws IOException if the data cannot be decompressed
+     */
+    private byte[] merge(Segment segment, IOException exception) throws IOException {
+        // the block magic number may appear by chance in the compressed data: try to merge with the next segments
+        List<Segment> parts = new ArrayList<>();
+        parts.add(segment);
+        while (parts.size() < MAX_MERGED_SEGMENTS) {
+            Segment next = take();
+            if (next == END || next.endOfStream) {
+                pushedBack = next;
+                break;
+            }
+            next.result.cancel(false);
+            parts.add(next);
+            try {
+                return decompress(parts);
+            } catch (IOException ex) {
+                exception.addSuppressed(ex);
+            }
+        }
+        throw exception;
+    }
+
+    private boolean nextChunk() throws IOException {
+        while (!eof && (current == null || position >= current.length)) {
+            current = nextBlock();
+            position = 0;
+            if (current == null) {
+                eof = true;
+            }
+        }
+        return !eof;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (closed)
+            throw new IOException("Stream closed");
+        return nextChunk() ? current[position++] & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (closed)
+            throw new IOException("Stream closed");
+        if (len == 0)
+            return 0;
+        if (!nextChunk())
+            return -1;
+        int count = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return current == null || eof ? 0 : current.length - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        for (Segment s : segments) {
+            if (s.result != null) {
+                s.result.cancel(false);
+            }
+        }
+        segments.clear();
+        // close the source first, the scanner thread may be blocked reading it
+        try {
+            source.close();
+        } finally {
+            scanner.interrupt();
+            try {
+                scanner.join(CLOSE_TIMEOUT);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Writes bits, most significant first, to a byte array.
+     */
+    private static final class BitWriter extends ByteArrayOutputStream {
+        private long bits;
+        private int bitCount;
+
+        BitWriter() {
+            super(1024 * 1024);
+        }
+
+        /**
+         * Writes the lowest {@code count} bits of {@code value}.
+         * @param value the bits to write
+         * @param count the number of bits, at most 32
+         */
+        void write(long value, int count) {
+            bits = (bits << count) | (value & ((1L << count) - 1));
+            bitCount += count;
+            while (bitCount >= 8) {
+                bitCount -= 8;
+                write((int) (bits >>> bitCount));
+            }
+        }
+
+        /**
+         * Writes {@code length} bits of {@code data}, starting at bit {@code offset}.
+         * @param data the source array
+         * @param offset the first bit to write, less than 8
+         * @param length the number of bits to write
+         */
+        void write(byte[] data, int offset, long length) {
+            int full = (int) (length / 8);
+            byte[] aligned = new byte[full + 1];
+            for (int i = 0; i < aligned.length && i < data.length; i++) {
+                int next = i + 1 < data.length ? data[i + 1] & 0xff : 0;
+                aligned[i] = (byte) (((data[i] & 0xff) << offset) | (next >>> (8 - offset)));
+            }
+            if (bitCount == 0) {
+                write(aligned, 0, full);
+            } else {
+                for (int i = 0; i < full; i++) {
+                    write(aligned[i] & 0xff, 8);
+                }
+            }
+            int remaining = (int) (length % 8);
+            if (remaining > 0) {
+                write((aligned[full] & 0xff) >>> (8 - remaining), remaining);
+            }
+        }
+
+        /**
+         * Returns an input stream reading the bytes written so far, without copying them.
+         * @return an input stream reading the bytes written so far
+         */
+        InputStream toInputStream() {
+            return new ByteArrayInputStream(buf, 0, count);
+        }
+
+        @Override
+        public void flush() {
+            if (bitCount > 0) {
+                write(0, 8 - bitCount);
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.openstreetmap.josm.tools.CheckParameterUtil;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * An output stream compressing data in gzip or bzip2 format with several threads.
+ * <p>
+ * The data is split into chunks, and each chunk is compressed independently on a thread pool into a gzip member or a
+ * bzip2 stream. The compressed chunks are written in order, so the result is a valid multi-member gzip file or a
+ * concatenation of bzip2 streams, which are both read by JOSM and by the usual tools. The compression ratio is very
+ * slightly worse than with a single stream.
+ */
+public class ParallelCompressorOutputStream extends OutputStream {
+
+    private static final ForkJoinPool THREAD_POOL =
+            Utils.newForkJoinPool("compression.numberOfThreads", "compressor-%d", Thread.NORM_PRIORITY);
+
+    private static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    private final OutputStream out;
+    private final Compression compression;
+    private final int maxPending;
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+    private byte[] chunk;
+    private int length;
+    private boolean written;
+    private boolean closed;
+
+    /**
+     * Constructs a new {@code ParallelCompressorOutputStream}.
+     * @param out the stream receiving the compressed data. It will be closed when this stream is closed
+     * @param compression the compression, {@link Compression#GZIP} or {@link Compression#BZIP2}
+     */
+    public ParallelCompressorOutputStream(OutputStream out, Compression compression) {
+        this(out, compression, DEFAULT_CHUNK_SIZE);
+    }
+
+    ParallelCompressorOutputStream(OutputStream out, Compression compression, int chunkSize) {
+        CheckParameterUtil.ensureParameterNotNull(out, "out");
+        if (compression != Compression.GZIP && compression != Compression.BZIP2)
+            throw new IllegalArgumentException("Unsupported compression: " + compression);
+        this.out = out;
+        this.compression = compression;
+        this.chunk = new byte[chunkSize];
+        this.maxPending = 2 * THREAD_POOL.getParallelism();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed)
+            throw new IOException("Stream closed");
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        chunk[length++] = (byte) b;
+        if (length == chunk.length) {
+            submit();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        int offset = off;
+        int remaining = len;
+        while (remaining > 0) {
+            int count = Math.min(remaining, chunk.length - length);
+            System.arraycopy(b, offset, chunk, length, count);
+            length += count;
+            offset += count;
+            remaining -= count;
+            if (length == chunk.length) {
+                submit();
+            }
+        }
+    }
+
+    /**
+     * Submits the current chunk for compression, after writing the oldest compressed chunks if too many are pending.
+     * @throws IOException if a chunk cannot be compressed or written
+     */
+    private void submit() throws IOException {
+        final byte[] data = length == chunk.length ? chunk : Arrays.copyOf(chunk, length);
+        final int size = length;
+        while (pending.size() >= maxPending) {
+            writeNext();
+        }
+        pending.add(THREAD_POOL.submit(new Callable<byte[]>() {
+            @Override
+            public byte[] call() throws IOException {
+                return compress(data, size);
+            }
+        }));
+        if (data == chunk) {
+            chunk = new byte[chunk.length];
+        }
+        length = 0;
+        written = true;
+    }
+
+    private byte[] compress(byte[] data, int size) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream(size / 4 + 64);
+        try (OutputStream compressor = compression.getCompressedOutputStream(result)) {
+            compressor.write(data, 0, size);
+        }
+        return result.toByteArray();
+    }
+
+    private void writeNext() throws IOException {
+        Future<byte[]> next = pending.poll();
+        try {
+            out.write(next.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Compresses and writes all the data written so far. Calling this method often degrades the compression ratio.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        if (length > 0) {
+            submit();
+        }
+        while (!pending.isEmpty()) {
+            writeNext();
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        try {
+            // an empty stream is still a valid compressed stream
+            if (length > 0 || !written) {
+                submit();
+            }
+            while (!pending.isEmpty()) {
+                writeNext();
+            }
+        } finally {
+            closed = true;
+            for (Future<byte[]> f : pending) {
+                f.cancel(false);
+            }
+            pending.clear();
+            out.close();
+        }
+    }
+}
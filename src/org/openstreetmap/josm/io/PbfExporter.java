@@ -0,0 +1,52 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.openstreetmap.josm.gui.layer.Layer;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+
+/**
+ * Exports OSM data to an .osm.pbf file.
+ * <p>
+ * The PBF format cannot store the modification state of primitives: deleted primitives are skipped,
+ * and modified primitives are saved as if they were unmodified. The layer is therefore not saved to the file:
+ * it keeps its modifications and its associated file.
+ * @see PbfWriter
+ */
+public class PbfExporter extends FileExporter {
+
+    /**
+     * Constructs a new {@code PbfExporter}.
+     */
+    public PbfExporter() {
+        super(PbfImporter.FILE_FILTER);
+    }
+
+    @Override
+    public boolean acceptFile(File pathname, Layer layer) {
+        return layer instanceof OsmDataLayer && super.acceptFile(pathname, layer);
+    }
+
+    @Override
+    public void exportData(File file, Layer layer) throws IOException {
+        if (layer instanceof OsmDataLayer) {
+            OsmDataLayer dataLayer = (OsmDataLayer) layer;
+            try (PbfWriter w = new PbfWriter(new BufferedOutputStream(new FileOutputStream(file)))) {
+                dataLayer.data.getReadLock().lock();
+                try {
+                    w.writeData(dataLayer.data);
+                } finally {
+                    dataLayer.data.getReadLock().unlock();
+                }
+            }
+        } else {
+            throw new IllegalArgumentException(tr("Layer ''{0}'' not supported", layer.getClass().toString()));
+        }
+    }
+}
@@ -0,0 +1,817 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.NodeData;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.PrimitiveData;
+import org.openstreetmap.josm.data.osm.PrimitiveId;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationData;
+import org.openstreetmap.josm.data.osm.RelationMemberData;
+import org.openstreetmap.josm.data.osm.TagMap;
+import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.WayData;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.tools.CheckParameterUtil;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Parser for the <a href="https://wiki.openstreetmap.org/wiki/PBF_Format">OSM PBF format</a>.
+ * <p>
+ * The file is read sequentially, and its data blocks are decompressed and decoded in parallel into primitives.
+ * The primitives are then added to the data set in file order, on the calling thread.
+ * @see PbfWriter
+ */
+public class PbfReader extends AbstractReader {
+
+    private static final ForkJoinPool THREAD_POOL =
+            Utils.newForkJoinPool("pbf.reader.numberOfThreads", "pbf-reader-%d", Thread.NORM_PRIORITY);
+
+    /** Maximum size of a blob header, as defined by the format */
+    static final int MAX_HEADER_SIZE = 64 * 1024;
+    /** Maximum size of a blob, as defined by the format */
+    static final int MAX_BLOB_SIZE = 32 * 1024 * 1024;
+
+    private static final List<String> SUPPORTED_FEATURES = Arrays.asList("OsmSchema-V0.6", "DenseNodes");
+
+    protected volatile boolean cancel;
+
+    /**
+     * constructor (for private and subclasses use only)
+     *
+     * @see #parseDataSet(InputStream, ProgressMonitor)
+     */
+    protected PbfReader() {
+        ds.setVersion("0.6");
+    }
+
+    /**
+     * Exception thrown after user cancelation.
+     */
+    private static final class PbfParsingCanceledException extends IOException implements ImportCancelException {
+        /**
+         * Constructs a new {@code PbfParsingCanceledException}.
+         * @param msg The error message
+         */
+        PbfParsingCanceledException(String msg) {
+            super(msg);
+        }
+    }
+
+    protected void parse(InputStream source) throws IOException, IllegalDataException {
+        DataInputStream in = new DataInputStream(source);
+        Deque<Future<Block>> pending = new ArrayDeque<>();
+        int maxPending = 2 * THREAD_POOL.getParallelism();
+        boolean headerRead = false;
+        try {
+            int headerSize;
+            while ((headerSize = readBlobHeaderSize(in)) != -1) {
+                if (cancel) {
+                    throw new PbfParsingCanceledException(tr("Reading was canceled"));
+                }
+                if (headerSize < 0 || headerSize > MAX_HEADER_SIZE) {
+                    throw new IllegalDataException(tr("Invalid PBF blob header size: {0}", headerSize));
+                }
+                byte[] header = new byte[headerSize];
+                in.readFully(header);
+                String type = null;
+                int dataSize = -1;
+                ProtobufInput blobHeader = new ProtobufInput(header);
+                while (blobHeader.hasMore()) {
+                    int key = blobHeader.readKey();
+                    switch (ProtobufInput.fieldNumber(key)) {
+                    case 1:
+                        type = blobHeader.readString();
+                        break;
+                    case 3:
+                        dataSize = blobHeader.readInt();
+                        break;
+                    default:
+                        blobHeader.skip(key);
+                    }
+                }
+                if (dataSize < 0 || dataSize > MAX_BLOB_SIZE) {
+                    throw new IllegalDataException(tr("Invalid PBF blob size: {0}", dataSize));
+                }
+                byte[] blob = new byte[dataSize];
+                in.readFully(blob);
+                if ("OSMHeader".equals(type)) {
+                    parseHeaderBlock(new ProtobufInput(uncompress(blob)));
+                    headerRead = true;
+                } else if ("OSMData".equals(type)) {
+                    if (!headerRead) {
+                        throw new IllegalDataException(tr("Missing PBF header block"));
+                    }
+                    pending.add(THREAD_POOL.submit(new Block(blob)));
+                    if (pending.size() >= maxPending) {
+                        addBlock(pending.poll());
+                    }
+                } else {
+                    Main.info(tr("Skipping unknown PBF blob type {0}", type));
+                }
+            }
+            while (!pending.isEmpty()) {
+                addBlock(pending.poll());
+            }
+        } finally {
+            for (Future<Block> future : pending) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    private static int readBlobHeaderSize(DataInputStream in) throws IOException {
+        int b = in.read();
+        if (b == -1)
+            return -1;
+        return (b << 24) | (in.readUnsignedByte() << 16) | (in.readUnsignedByte() << 8) | in.readUnsignedByte();
+    }
+
+    private void addBlock(Future<Block> future) throws IOException, IllegalDataException {
+        Block block;
+        try {
+            block = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PbfParsingCanceledException(tr("Reading was canceled"));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IllegalDataException)
+                throw (IllegalDataException) cause;
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            throw new IllegalDataException(cause);
+        }
+        for (int i = 0; i < block.primitives.size(); i++) {
+            OsmPrimitive p = block.primitives.get(i);
+            p.internKeys(keysPool);
+            PrimitiveId id = block.ids.get(i);
+            if (externalIdMap.put(id, p) != null)
+                throw new IllegalDataException(tr("Duplicate PBF primitive: {0} {1}", id.getType().getAPIName(), id.getUniqueId()));
+        }
+        ways.putAll(block.ways);
+        relations.putAll(block.relations);
+    }
+
+    private void parseHeaderBlock(ProtobufInput in) throws IOException, IllegalDataException {
+        Bounds bounds = null;
+        String writingProgram = null;
+        String source = null;
+        while (in.hasMore()) {
+            int key = in.readKey();
+            switch (ProtobufInput.fieldNumber(key)) {
+            case 1:
+                bounds = parseBounds(in.readMessage());
+                break;
+            case 4:
+                String feature = in.readString();
+                if (!SUPPORTED_FEATURES.contains(feature)) {
+                    throw new IllegalDataException(tr("Unsupported PBF feature: {0}", feature));
+                }
+                break;
+            case 16:
+                writingProgram = in.readString();
+                break;
+            case 17:
+                source = in.readString();
+                break;
+            default:
+                in.skip(key);
+            }
+        }
+        if (bounds != null) {
+            if (bounds.isOutOfTheWorld()) {
+                Bounds copy = new Bounds(bounds);
+                bounds.normalize();
+                Main.info("Bbox " + copy + " is out of the world, normalized to " + bounds);
+            }
+            ds.dataSources.add(new DataSource(bounds, source != null ? source : writingProgram));
+        }
+    }
+
+    private static Bounds parseBounds(ProtobufInput in) throws IOException {
+        long left = 0;
+        long right = 0;
+        long top = 0;
+        long bottom = 0;
+        while (in.hasMore()) {
+            int key = in.readKey();
+            switch (ProtobufInput.fieldNumber(key)) {
+            case 1:
+                left = in.readSignedLong();
+                break;
+            case 2:
+                right = in.readSignedLong();
+                break;
+            case 3:
+                top = in.readSignedLong();
+                break;
+            case 4:
+                bottom = in.readSignedLong();
+                break;
+            default:
+                in.skip(key);
+            }
+        }
+        return new Bounds(bottom / 1e9, left / 1e9, top / 1e9, right / 1e9);
+    }
+
+    /**
+     * Returns the uncompressed content of a blob.
+     * @param blob the encoded blob
+     * @return the uncompressed content
+     * @throws IOException if the blob is malformed or uses an unsupported compression
+     */
+    static byte[] uncompress(byte[] blob) throws IOException {
+        ProtobufInput in = new ProtobufInput(blob);
+        byte[] raw = null;
+        byte[] zlib = null;
+        int rawSize = -1;
+        while (in.hasMore()) {
+            int key = in.readKey();
+            switch (ProtobufInput.fieldNumber(key)) {
+            case 1:
+                raw = in.readBytes();
+                break;
+            case 2:
+                rawSize = in.readInt();
+                break;
+            case 3:
+                zlib = in.readBytes();
+                break;
+            case 4:
+            case 5:
+            case 6:
+            case 7:
+                throw new IOException(tr("Unsupported PBF blob compression"));
+            default:
+                in.skip(key);
+            }
+        }
+        if (raw != null)
+            return raw;
+        if (zlib == null || rawSize < 0 || rawSize > MAX_BLOB_SIZE)
+            throw new IOException(tr("Invalid PBF blob"));
+        byte[] result = new byte[rawSize];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(zlib);
+            int length = 0;
+            while (length < rawSize && !inflater.finished()) {
+                int read = inflater.inflate(result, length, rawSize - length);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    break;
+                length += read;
+            }
+            if (length != rawSize)
+                throw new IOException(tr("Invalid PBF blob"));
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        } finally {
+            inflater.end();
+        }
+        return result;
+    }
+
+    /**
+     * A data block, decompressed and decoded into primitives on a worker thread.
+     */
+    private static final class Block implements Callable<Block> {
+
+        private final byte[] blob;
+
+        final List<PrimitiveId> ids = new ArrayList<>();
+        final List<OsmPrimitive> primitives = new ArrayList<>();
+        final Map<Long, Collection<Long>> ways = new HashMap<>();
+        final Map<Long, Collection<RelationMemberData>> relations = new HashMap<>();
+
+        private String[] strings;
+        private int granularity = 100;
+        private long latOffset;
+        private long lonOffset;
+        private long dateGranularity = 1000;
+        private final Map<Long, User> users = new HashMap<>();
+        private String[] tags = new String[16];
+
+        // metadata of the current primitive
+        private int version;
+        private long timestamp;
+        private long changeset;
+        private int uid;
+        private int userSid;
+        private boolean visible;
+
+        Block(byte[] blob) {
+            this.blob = blob;
+        }
+
+        @Override
+        public Block call() throws IOException, IllegalDataException {
+            ProtobufInput in = new ProtobufInput(uncompress(blob));
+            List<ProtobufInput> groups = new ArrayList<>();
+            while (in.hasMore()) {
+                int key = in.readKey();
+                switch (ProtobufInput.fieldNumber(key)) {
+                case 1:
+                    parseStringTable(in.readMessage());
+                    break;
+                case 2:
+                    groups.add(in.readMessage());
+                    break;
+                case 17:
+                    granularity = in.readInt();
+                    break;
+                case 18:
+                    dateGranularity = in.readInt();
+                    break;
+                case 19:
+                    latOffset = in.readLong();
+                    break;
+                case 20:
+                    lonOffset = in.readLong();
+                    break;
+                default:
+                    in.skip(key);
+                }
+            }
+            if (strings == null) {
+                strings = new String[] {""};
+            }
+            // the string table and the granularity may come after the groups, so decode them afterwards
+            for (ProtobufInput group : groups) {
+                parseGroup(group);
+            }
+            return this;
+        }
+
+        private void parseStringTable(ProtobufInput in) throws IOException {
+            List<String> list = new ArrayList<>();
+            while (in.hasMore()) {
+                int key = in.readKey();
+                if (ProtobufInput.fieldNumber(key) == 1) {
+                    // keys and values are interned like in OsmReader, the string tables of the blocks repeat them
+                    list.add(in.readString().intern());
+                } else {
+                    in.skip(key);
+                }
+            }
+            strings = list.toArray(new String[list.size()]);
+        }
+
+        private String getString(int index) throws IllegalDataException {
+            if (index < 0 || index >= strings.length)
+                throw new IllegalDataException(tr("Invalid PBF string index: {0}", index));
+            return strings[index];
+        }
+
+        private void parseGroup(ProtobufInput in) throws IOException, IllegalDataException {
+            while (in.hasMore()) {
+                int key = in.readKey();
+                switch (ProtobufInput.fieldNumber(key)) {
+                case 1:
+                    parseNode(in.readMessage());
+                    break;
+                case 2:
+                    parseDenseNodes(in.readMessage());
+                    break;
+                case 3:
+                    parseWay(in.readMessage());
+                    break;
+                case 4:
+                    parseRelation(in.readMessage());
+                    break;
+                default:
+                    in.skip(key);
+                }
+            }
+        }
+
+        private void resetInfo() {
+            version = -1;
+            timestamp = 0;
+            changeset = 0;
+            uid = -1;
+            userSid = 0;
+            visible = true;
+        }
+
+        private void parseInfo(ProtobufInput in) throws IOException {
+            while (in.hasMore()) {
+                int key = in.readKey();
+                switch (ProtobufInput.fieldNumber(key)) {
+                case 1:
+                    version = in.readInt();
+                    break;
+                case 2:
+                    timestamp = in.readLong();
+                    break;
+                case 3:
+                    changeset = in.readLong();
+                    break;
+                case 4:
+                    uid = in.readInt();
+                    break;
+                case 5:
+                    userSid = in.readInt();
+                    break;
+                case 6:
+                    visible = in.readBoolean();
+                    break;
+                default:
+                    in.skip(key);
+                }
+            }
+        }
+
+        private void applyInfo(PrimitiveData data, long id) throws IllegalDataException {
+            if (id == 0)
+                throw new IllegalDataException(tr("Illegal object with ID=0."));
+            data.setId(id);
+            data.setVersion(data.isNew() ? 0 : Math.max(version, 0));
+            data.setRawTimestamp((int) (timestamp * dateGranularity / 1000));
+            data.setUser(getUser());
+            if (!data.isNew()) {
+                if (changeset > 0 && changeset <= Integer.MAX_VALUE) {
+                    data.setChangesetId((int) changeset);
+                }
+                data.setVisible(visible);
+            }
+        }
+
+        private User getUser() throws IllegalDataException {
+            String name = getString(userSid);
+            if (uid > 0) {
+                User user = users.get((long) uid);
+                if (user == null || !user.hasName(name)) {
+                    user = User.createOsmUser(uid, name);
+                    users.put((long) uid, user);
+                }
+                return user;
+            }
+            return name.isEmpty() ? null : User.createLocalUser(name);
+        }
+
+        private TagMap parseTags(ProtobufInput keys, ProtobufInput values) throws IOException, IllegalDataException {
+            if (keys == null || values == null)
+                return null;
+            int count = 0;
+            while (keys.hasMore() && values.hasMore()) {
+                count = addTag(count, keys.readInt(), values.readInt());
+            }
+            return count == 0 ? null : new TagMap(Arrays.copyOf(tags, count));
+        }
+
+        private int addTag(int count, int key, int value) throws IllegalDataException {
+            if (count + 2 > tags.length) {
+                tags = Arrays.copyOf(tags, tags.length * 2);
+            }
+            tags[count] = getString(key);
+            tags[count + 1] = getString(value);
+            return count + 2;
+        }
+
+        private LatLon getLatLon(long lat, long lon) {
+            return new LatLon((latOffset + granularity * lat) / 1e9, (lonOffset + granularity * lon) / 1e9);
+        }
+
+        private void addNode(NodeData nd) {
+            Node n = new Node(nd.getId(), nd.getVersion());
+            n.setVisible(nd.isVisible());
+            n.load(nd);
+            ids.add(nd.getPrimitiveId());
+            primitives.add(n);
+        }
+
+        private void parseNode(ProtobufInput in) throws IOException, IllegalDataException {
+            long id = 0;
+            long lat = 0;
+            long lon = 0;
+            ProtobufInput keys = null;
+            ProtobufInput values = null;
+            resetInfo();
+            while (in.hasMore()) {
+                int key = in.readKey();
+                switch (ProtobufInput.fieldNumber(key)) {
+                case 1:
+                    id = in.readSignedLong();
+                    break;
+                case 2:
+                    keys = in.readMessage();
+                    break;
+                case 3:
+                    values = in.readMessage();
+                    break;
+                case 4:
+                    parseInfo(in.readMessage());
+                    break;
+                case 8:
+                    lat = in.readSignedLong();
+                    break;
+                case 9:
+                    lon = in.readSignedLong();
+                    break;
+                default:
+                    in.skip(key);
+                }
+            }
+            NodeData nd = new NodeData();
+            applyInfo(nd, id);
+            nd.setCoor(getLatLon(lat, lon));
+            nd.setKeys(parseTags(keys, values));
+            addNode(nd);
+        }
+
+        private void parseDenseNodes(ProtobufInput in) throws IOException, IllegalDataException {
+            ProtobufInput denseIds = null;
+            ProtobufInput lats = null;
+            ProtobufInput lons = null;
+            ProtobufInput keysValues = null;
+            ProtobufInput info = null;
+            while (in.hasMore()) {
+                int key = in.readKey();
+                switch (ProtobufInput.fieldNumber(key)) {
+                case 1:
+                    denseIds = in.readMessage();
+                    break;
+                case 5:
+                    info = in.readMessage();
+                    break;
+                case 8:
+                    lats = in.readMessage();
+                    break;
+                case 9:
+                    lons = in.readMessage();
+                    break;
+                case 10:
+                    keysValues = in.readMessage();
+                    break;
+                default:
+                    in.skip(key);
+                }
+            }
+            if (denseIds == null)
+                return;
+            if (lats == null || lons == null)
+                throw new IllegalDataException(tr("Missing coordinates in PBF dense nodes"));
+            ProtobufInput versions = null;
+            ProtobufInput timestamps = null;
+            ProtobufInput changesets = null;
+            ProtobufInput uids = null;
+            ProtobufInput userSids = null;
+            ProtobufInput visibles = null;
+            while (info != null && info.hasMore()) {
+                int key = info.readKey();
+                switch (ProtobufInput.fieldNumber(key)) {
+                case 1:
+                    versions = info.readMessage();
+                    break;
+                case 2:
+                    timestamps = info.readMessage();
+                    break;
+                case 3:
+                    changesets = info.readMessage();
+                    break;
+                case 4:
+                    uids = info.readMessage();
+                    break;
+                case 5:
+                    userSids = info.readMessage();
+                    break;
+                case 6:
+                    visibles = info.readMessage();
+                    break;
+                default:
+                    info.skip(key);
+                }
+            }
+            long id = 0;
+            long lat = 0;
+            long lon = 0;
+            resetInfo();
+            uid = 0;
+            while (denseIds.hasMore()) {
+                id += denseIds.readSignedLong();
+                lat += lats.readSignedLong();
+                lon += lons.readSignedLong();
+                if (info != null) {
+                    // all metadata except version and visibility is delta coded
+                    version = versions != null && versions.hasMore() ? versions.readInt() : -1;
+                    timestamp += nextSignedLong(timestamps);
+                    changeset += nextSignedLong(changesets);
+                    uid += (int) nextSignedLong(uids);
+                    userSid += (int) nextSignedLong(userSids);
+                    visible = visibles == null || !visibles.hasMore() || visibles.readBoolean();
+                }
+                NodeData nd = new NodeData();
+                applyInfo(nd, id);
+                nd.setCoor(getLatLon(lat, lon));
+                if (keysValues != null) {
+                    int count = 0;
+                    int k;
+                    while (keysValues.hasMore() && (k = keysValues.readInt()) != 0) {
+                        count = addTag(count, k, keysValues.readInt());
+                    }
+                    if (count > 0) {
+                        nd.setKeys(new TagMap(Arrays.copyOf(tags, count)));
+                    }
+                }
+                addNode(nd);
+            }
+        }
+
+        private static long nextSignedLong(ProtobufInput in) throws IOException {
+            return in != null && in.hasMore() ? in.readSignedLong() : 0;
+        }
+
+        private void parseWay(ProtobufInput in) throws IOException, IllegalDataException {
+            long id = 0;
+            ProtobufInput keys = null;
+            ProtobufInput values = null;
+            ProtobufInput refs = null;
+            resetInfo();
+            while (in.hasMore()) {
+                int key = in.readKey();
+                switch (ProtobufInput.fieldNumber(key)) {
+                case 1:
+                    id = in.readLong();
+                    break;
+                case 2:
+                    keys = in.readMessage();
+                    break;
+                case 3:
+                    values = in.readMessage();
+                    break;
+                case 4:
+                    parseInfo(in.readMessage());
+                    break;
+                case 8:
+                    refs = in.readMessage();
+                    break;
+                default:
+                    in.skip(key);
+                }
+            }
+            WayData wd = new WayData();
+            applyInfo(wd, id);
+            wd.setKeys(parseTags(keys, values));
+            Way w = new Way(wd.getId(), wd.getVersion());
+            w.setVisible(wd.isVisible());
+            w.load(wd);
+            Collection<Long> nodeIds = new ArrayList<>();
+            long ref = 0;
+            while (refs != null && refs.hasMore()) {
+                ref += refs.readSignedLong();
+                if (ref == 0)
+                    throw new IllegalDataException(tr("Illegal node reference 0 in way {0}.", id));
+                nodeIds.add(ref);
+            }
+            ids.add(wd.getPrimitiveId());
+            primitives.add(w);
+            ways.put(id, nodeIds);
+        }
+
+        private void parseRelation(ProtobufInput in) throws IOException, IllegalDataException {
+            long id = 0;
+            ProtobufInput keys = null;
+            ProtobufInput values = null;
+            ProtobufInput roles = null;
+            ProtobufInput memberIds = null;
+            ProtobufInput types = null;
+            resetInfo();
+            while (in.hasMore()) {
+                int key = in.readKey();
+                switch (ProtobufInput.fieldNumber(key)) {
+                case 1:
+                    id = in.readLong();
+                    break;
+                case 2:
+                    keys = in.readMessage();
+                    break;
+                case 3:
+                    values = in.readMessage();
+                    break;
+                case 4:
+                    parseInfo(in.readMessage());
+                    break;
+                case 8:
+                    roles = in.readMessage();
+                    break;
+                case 9:
+                    memberIds = in.readMessage();
+                    break;
+                case 10:
+                    types = in.readMessage();
+                    break;
+                default:
+                    in.skip(key);
+                }
+            }
+            RelationData rd = new RelationData();
+            applyInfo(rd, id);
+            rd.setKeys(parseTags(keys, values));
+            Relation r = new Relation(rd.getId(), rd.getVersion());
+            r.setVisible(rd.isVisible());
+            r.load(rd);
+            Collection<RelationMemberData> members = new ArrayList<>();
+            long memberId = 0;
+            while (memberIds != null && memberIds.hasMore()) {
+                memberId += memberIds.readSignedLong();
+                if (memberId == 0)
+                    throw new IllegalDataException(tr("Incomplete <member> specification with ref=0"));
+                if (roles == null || !roles.hasMore() || types == null || !types.hasMore())
+                    throw new IllegalDataException(tr("Invalid members of PBF relation {0}", id));
+                String role = getString(roles.readInt());
+                OsmPrimitiveType type;
+                switch (types.readInt()) {
+                case 0:
+                    type = OsmPrimitiveType.NODE;
+                    break;
+                case 1:
+                    type = OsmPrimitiveType.WAY;
+                    break;
+                case 2:
+                    type = OsmPrimitiveType.RELATION;
+                    break;
+                default:
+                    throw new IllegalDataException(tr("Invalid members of PBF relation {0}", id));
+                }
+                members.add(new RelationMemberData(role, type, memberId));
+            }
+            ids.add(rd.getPrimitiveId());
+            primitives.add(r);
+            relations.put(id, members);
+        }
+    }
+
+    protected DataSet doParseDataSet(InputStream source, ProgressMonitor progressMonitor) throws IllegalDataException {
+        if (progressMonitor == null) {
+            progressMonitor = NullProgressMonitor.INSTANCE;
+        }
+        ProgressMonitor.CancelListener cancelListener = new ProgressMonitor.CancelListener() {
+            @Override public void operationCanceled() {
+                cancel = true;
+            }
+        };
+        progressMonitor.addCancelListener(cancelListener);
+        CheckParameterUtil.ensureParameterNotNull(source, "source");
+        try {
+            progressMonitor.beginTask(tr("Prepare OSM data...", 2));
+            progressMonitor.indeterminateSubTask(tr("Parsing OSM data..."));
+            parse(source);
+            progressMonitor.worked(1);
+
+            progressMonitor.indeterminateSubTask(tr("Preparing data set..."));
+            prepareDataSet();
+            progressMonitor.worked(1);
+            return getDataSet();
+        } catch (IOException e) {
+            throw new IllegalDataException(e);
+        } finally {
+            progressMonitor.finishTask();
+            progressMonitor.removeCancelListener(cancelListener);
+        }
+    }
+
+    /**
+     * Parse the given PBF input source and return the dataset.
+     *
+     * @param source the source input stream. Must not be null.
+     * @param progressMonitor  the progress monitor. If null, {@link NullProgressMonitor#INSTANCE} is assumed
+     *
+     * @return the dataset with the parsed data
+     * @throws IllegalDataException if an error was found while parsing the data from the source
+     * @throws IllegalArgumentException if source is null
+     */
+    public static DataSet parseDataSet(InputStream source, ProgressMonitor progressMonitor) throws IllegalDataException {
+        return new PbfReader().doParseDataSet(source, progressMonitor);
+    }
+}
@@ -0,0 +1,346 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.DataSetSnapshot;
+import org.openstreetmap.josm.data.osm.INode;
+import org.openstreetmap.josm.data.osm.IPrimitive;
+import org.openstreetmap.josm.data.osm.IRelation;
+import org.openstreetmap.josm.data.osm.IWay;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.User;
+
+/**
+ * Writes OSM data in the <a href="https://wiki.openstreetmap.org/wiki/PBF_Format">OSM PBF format</a>.
+ * <p>
+ * Nodes are written as dense nodes, by blocks of 8000 primitives compressed with zlib.
+ * Like with {@link OsmWriter} in OSM conform mode, the modification state of primitives is not saved,
+ * and deleted or incomplete primitives are skipped.
+ * @see PbfReader
+ */
+public class PbfWriter implements Closeable {
+
+    private static final int BLOCK_SIZE = 8000;
+
+    private static final Comparator<IPrimitive> byIdComparator = new Comparator<IPrimitive>() {
+        @Override
+        public int compare(IPrimitive o1, IPrimitive o2) {
+            return Long.compare(o1.getUniqueId(), o2.getUniqueId());
+        }
+    };
+
+    private final DataOutputStream out;
+    private final Deflater deflater = new Deflater();
+
+    /**
+     * Constructs a new {@code PbfWriter}.
+     * @param out the output stream
+     */
+    public PbfWriter(OutputStream out) {
+        this.out = new DataOutputStream(out);
+    }
+
+    /**
+     * Writes the given data set: a header with its data source bounds, then nodes, ways and relations sorted by id.
+     * @param ds the data set to write
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeData(DataSet ds) throws IOException {
+        writeHeader(ds.dataSources);
+        writeNodes(filter(ds.getNodes()));
+        writeWays(filter(ds.getWays()));
+        writeRelations(filter(ds.getRelations()));
+        out.flush();
+    }
+
+    /**
+     * Writes the given snapshot of a data set, like {@link #writeData(DataSet)}. The data set can be edited meanwhile.
+     * @param snapshot the snapshot to write
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeData(DataSetSnapshot snapshot) throws IOException {
+        writeHeader(snapshot.getDataSources());
+        writeNodes(filter(snapshot.getNodes()));
+        writeWays(filter(snapshot.getWays()));
+        writeRelations(filter(snapshot.getRelations()));
+        out.flush();
+    }
+
+    private static <T extends IPrimitive> List<T> filter(Collection<T> primitives) {
+        List<T> result = new ArrayList<>(primitives.size());
+        for (T p : primitives) {
+            if (!p.isDeleted() && !p.isIncomplete()) {
+                result.add(p);
+            }
+        }
+        Collections.sort(result, byIdComparator);
+        return result;
+    }
+
+    private void writeHeader(Collection<DataSource> dataSources) throws IOException {
+        ProtobufOutput header = new ProtobufOutput();
+        // the format only supports a single bounding box
+        if (dataSources.size() == 1) {
+            DataSource source = dataSources.iterator().next();
+            Bounds b = source.bounds;
+            ProtobufOutput bbox = new ProtobufOutput();
+            bbox.writeSignedLong(1, Math.round(b.getMinLon() * 1e9));
+            bbox.writeSignedLong(2, Math.round(b.getMaxLon() * 1e9));
+            bbox.writeSignedLong(3, Math.round(b.getMaxLat() * 1e9));
+            bbox.writeSignedLong(4, Math.round(b.getMinLat() * 1e9));
+            header.writeMessage(1, bbox);
+            if (source.origin != null) {
+                header.writeString(17, source.origin);
+            }
+        }
+        header.writeString(4, "OsmSchema-V0.6");
+        header.writeString(4, "DenseNodes");
+        header.writeString(16, "JOSM");
+        writeBlob("OSMHeader", header);
+    }
+
+    private void writeNodes(List<? extends INode> nodes) throws IOException {
+        for (int start = 0; start < nodes.size(); start += BLOCK_SIZE) {
+            StringTable strings = new StringTable();
+            ProtobufOutput ids = new ProtobufOutput();
+            ProtobufOutput lats = new ProtobufOutput();
+            ProtobufOutput lons = new ProtobufOutput();
+            ProtobufOutput keysValues = new ProtobufOutput();
+            ProtobufOutput versions = new ProtobufOutput();
+            ProtobufOutput timestamps = new ProtobufOutput();
+            ProtobufOutput changesets = new ProtobufOutput();
+            ProtobufOutput uids = new ProtobufOutput();
+            ProtobufOutput userSids = new ProtobufOutput();
+            boolean hasTags = false;
+            long lastId = 0;
+            long lastLat = 0;
+            long lastLon = 0;
+            long lastTimestamp = 0;
+            long lastChangeset = 0;
+            long lastUid = 0;
+            long lastUserSid = 0;
+            for (INode n : nodes.subList(start, Math.min(nodes.size(), start + BLOCK_SIZE))) {
+                LatLon coor = n.getCoor();
+                if (coor == null) {
+                    continue;
+                }
+                long lat = Math.round(coor.lat() * 1e7);
+                long lon = Math.round(coor.lon() * 1e7);
+                ids.writeSignedLong(n.getUniqueId() - lastId);
+                lats.writeSignedLong(lat - lastLat);
+                lons.writeSignedLong(lon - lastLon);
+                lastId = n.getUniqueId();
+                lastLat = lat;
+                lastLon = lon;
+                for (Entry<String, String> tag : n.getKeys().entrySet()) {
+                    keysValues.writeLong(strings.get(tag.getKey()));
+                    keysValues.writeLong(strings.get(tag.getValue()));
+                    hasTags = true;
+                }
+                keysValues.writeLong(0);
+                User user = n.getUser();
+                long uid = getUid(user);
+                long userSid = strings.get(user != null ? user.getName() : "");
+                versions.writeLong(n.getVersion());
+                timestamps.writeSignedLong(n.getRawTimestamp() - lastTimestamp);
+                changesets.writeSignedLong(n.getChangesetId() - lastChangeset);
+                uids.writeSignedLong(uid - lastUid);
+                userSids.writeSignedLong(userSid - lastUserSid);
+                lastTimestamp = n.getRawTimestamp();
+                lastChangeset = n.getChangesetId();
+                lastUid = uid;
+                lastUserSid = userSid;
+            }
+            ProtobufOutput info = new ProtobufOutput();
+            info.writeMessage(1, versions);
+            info.writeMessage(2, timestamps);
+            info.writeMessage(3, changesets);
+            info.writeMessage(4, uids);
+            info.writeMessage(5, userSids);
+            ProtobufOutput dense = new ProtobufOutput();
+            dense.writeMessage(1, ids);
+            dense.writeMessage(5, info);
+            dense.writeMessage(8, lats);
+            dense.writeMessage(9, lons);
+            if (hasTags) {
+                dense.writeMessage(10, keysValues);
+            }
+            ProtobufOutput group = new ProtobufOutput();
+            group.writeMessage(2, dense);
+            writeBlock(strings, group);
+        }
+    }
+
+    private void writeWays(List<? extends IWay> ways) throws IOException {
+        for (int start = 0; start < ways.size(); start += BLOCK_SIZE) {
+            StringTable strings = new StringTable();
+            ProtobufOutput group = new ProtobufOutput();
+            for (IWay w : ways.subList(start, Math.min(ways.size(), start + BLOCK_SIZE))) {
+                ProtobufOutput way = new ProtobufOutput();
+                way.writeLong(1, w.getUniqueId());
+                writeCommon(way, w, strings);
+                ProtobufOutput refs = new ProtobufOutput();
+                long lastRef = 0;
+                for (int i = 0; i < w.getNodesCount(); i++) {
+                    long ref = w.getNodeId(i);
+                    refs.writeSignedLong(ref - lastRef);
+                    lastRef = ref;
+                }
+                way.writeMessage(8, refs);
+                group.writeMessage(3, way);
+            }
+            writeBlock(strings, group);
+        }
+    }
+
+    private void writeRelations(List<? extends IRelation> relations) throws IOException {
+        for (int start = 0; start < relations.size(); start += BLOCK_SIZE) {
+            StringTable strings = new StringTable();
+            ProtobufOutput group = new ProtobufOutput();
+            for (IRelation r : relations.subList(start, Math.min(relations.size(), start + BLOCK_SIZE))) {
+                ProtobufOutput relation = new ProtobufOutput();
+                relation.writeLong(1, r.getUniqueId());
+                writeCommon(relation, r, strings);
+                ProtobufOutput roles = new ProtobufOutput();
+                ProtobufOutput memberIds = new ProtobufOutput();
+                ProtobufOutput types = new ProtobufOutput();
+                long lastMemberId = 0;
+                for (int i = 0; i < r.getMembersCount(); i++) {
+                    long memberId = r.getMemberId(i);
+                    roles.writeLong(strings.get(r.getRole(i)));
+                    memberIds.writeSignedLong(memberId - lastMemberId);
+                    types.writeLong(getMemberType(r.getMemberType(i)));
+                    lastMemberId = memberId;
+                }
+                relation.writeMessage(8, roles);
+                relation.writeMessage(9, memberIds);
+                relation.writeMessage(10, types);
+                group.writeMessage(4, relation);
+            }
+            writeBlock(strings, group);
+        }
+    }
+
+    private static int getMemberType(OsmPrimitiveType type) {
+        switch (type) {
+        case NODE:
+            return 0;
+        case WAY:
+            return 1;
+        case RELATION:
+            return 2;
+        default:
+            throw new AssertionError(type);
+        }
+    }
+
+    private static long getUid(User user) {
+        return user != null && user.isOsmUser() ? user.getId() : 0;
+    }
+
+    /**
+     * Writes the tags and metadata of a way or relation.
+     * @param message the way or relation message
+     * @param p the primitive
+     * @param strings the string table of the current block
+     */
+    private static void writeCommon(ProtobufOutput message, IPrimitive p, StringTable strings) {
+        if (p.hasKeys()) {
+            ProtobufOutput keys = new ProtobufOutput();
+            ProtobufOutput values = new ProtobufOutput();
+            for (Entry<String, String> tag : p.getKeys().entrySet()) {
+                keys.writeLong(strings.get(tag.getKey()));
+                values.writeLong(strings.get(tag.getValue()));
+            }
+            message.writeMessage(2, keys);
+            message.writeMessage(3, values);
+        }
+        User user = p.getUser();
+        ProtobufOutput info = new ProtobufOutput();
+        info.writeLong(1, p.getVersion());
+        info.writeLong(2, p.getRawTimestamp());
+        info.writeLong(3, p.getChangesetId());
+        info.writeLong(4, getUid(user));
+        info.writeLong(5, strings.get(user != null ? user.getName() : ""));
+        message.writeMessage(4, info);
+    }
+
+    private void writeBlock(StringTable strings, ProtobufOutput group) throws IOException {
+        ProtobufOutput block = new ProtobufOutput();
+        block.writeMessage(1, strings.encode());
+        block.writeMessage(2, group);
+        writeBlob("OSMData", block);
+    }
+
+    private void writeBlob(String type, ProtobufOutput data) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.size() / 2);
+        deflater.reset();
+        try (DeflaterOutputStream dos = new DeflaterOutputStream(compressed, deflater)) {
+            data.writeTo(dos);
+        }
+        ProtobufOutput blob = new ProtobufOutput();
+        blob.writeLong(2, data.size());
+        blob.writeBytes(3, compressed.toByteArray());
+        ProtobufOutput header = new ProtobufOutput();
+        header.writeString(1, type);
+        header.writeLong(3, blob.size());
+        out.writeInt(header.size());
+        header.writeTo(out);
+        blob.writeTo(out);
+    }
+
+    @Override
+    public void close() throws IOException {
+        deflater.end();
+        out.close();
+    }
+
+    /**
+     * The string table of a block. Index 0 is reserved for the empty string, used as delimiter in dense nodes.
+     */
+    private static final class StringTable {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+
+        StringTable() {
+            get("");
+        }
+
+        int get(String s) {
+            Integer index = indexes.get(s);
+            if (index == null) {
+                index = strings.size();
+                indexes.put(s, index);
+                strings.add(s);
+            }
+            return index;
+        }
+
+        ProtobufOutput encode() {
+            ProtobufOutput table = new ProtobufOutput();
+            for (String s : strings) {
+                table.writeString(1, s);
+            }
+            return table;
+        }
+    }
+}
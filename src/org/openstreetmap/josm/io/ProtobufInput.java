@@ -0,0 +1,199 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal decoder of <a href="https://developers.google.com/protocol-buffers/docs/encoding">Protocol Buffers</a> messages,
+ * reading a message directly from a byte array without intermediate objects.
+ * <p>
+ * Only the features needed by {@link PbfReader} are supported.
+ * @see ProtobufOutput
+ */
+final class ProtobufInput {
+
+    /** Wire type of varint fields (int32, int64, uint32, sint64, bool, enum) */
+    static final int VARINT = 0;
+    /** Wire type of 64-bit fields (fixed64, double) */
+    static final int FIXED64 = 1;
+    /** Wire type of length-delimited fields (string, bytes, embedded messages, packed repeated fields) */
+    static final int LENGTH_DELIMITED = 2;
+    /** Wire type of 32-bit fields (fixed32, float) */
+    static final int FIXED32 = 5;
+
+    private final byte[] buffer;
+    private int position;
+    private final int limit;
+
+    /**
+     * Constructs a new {@code ProtobufInput} reading the whole given array.
+     * @param buffer the encoded message
+     */
+    ProtobufInput(byte[] buffer) {
+        this(buffer, 0, buffer.length);
+    }
+
+    private ProtobufInput(byte[] buffer, int offset, int limit) {
+        this.buffer = buffer;
+        this.position = offset;
+        this.limit = limit;
+    }
+
+    /**
+     * Determines if there is still some data to read.
+     * @return {@code true} if the end of the message has not been reached
+     */
+    boolean hasMore() {
+        return position < limit;
+    }
+
+    /**
+     * Reads the key of the next field.
+     * @return the key of the next field, combining the field number and the wire type
+     * @throws IOException if the message is malformed
+     * @see #fieldNumber(int)
+     * @see #wireType(int)
+     */
+    int readKey() throws IOException {
+        return readInt();
+    }
+
+    /**
+     * Returns the field number of a key.
+     * @param key a key read by {@link #readKey()}
+     * @return the field number
+     */
+    static int fieldNumber(int key) {
+        return key >>> 3;
+    }
+
+    /**
+     * Returns the wire type of a key.
+     * @param key a key read by {@link #readKey()}
+     * @return the wire type
+     */
+    static int wireType(int key) {
+        return key & 7;
+    }
+
+    /**
+     * Reads a varint.
+     * @return the decoded value
+     * @throws IOException if the message is malformed
+     */
+    long readLong() throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position >= limit)
+                throw new IOException("Truncated varint");
+            byte b = buffer[position++];
+            result |= (long) (b & 0x7f) << shift;
+            if (b >= 0)
+                return result;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /**
+     * Reads a varint encoding a 32-bit value.
+     * @return the decoded value
+     * @throws IOException if the message is malformed
+     */
+    int readInt() throws IOException {
+        return (int) readLong();
+    }
+
+    /**
+     * Reads a ZigZag encoded varint (sint32/sint64).
+     * @return the decoded value
+     * @throws IOException if the message is malformed
+     */
+    long readSignedLong() throws IOException {
+        long value = readLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Reads a boolean.
+     * @return the decoded value
+     * @throws IOException if the message is malformed
+     */
+    boolean readBoolean() throws IOException {
+        return readLong() != 0;
+    }
+
+    private int readLength() throws IOException {
+        int length = readInt();
+        if (length < 0 || length > limit - position)
+            throw new IOException("Invalid length: " + length);
+        return length;
+    }
+
+    /**
+     * Reads a length-delimited field as a nested message, or as a packed repeated field.
+     * @return a new input reading the content of the field
+     * @throws IOException if the message is malformed
+     */
+    ProtobufInput readMessage() throws IOException {
+        int length = readLength();
+        ProtobufInput result = new ProtobufInput(buffer, position, position + length);
+        position += length;
+        return result;
+    }
+
+    /**
+     * Reads a length-delimited field as raw bytes.
+     * @return the content of the field
+     * @throws IOException if the message is malformed
+     */
+    byte[] readBytes() throws IOException {
+        int length = readLength();
+        byte[] result = new byte[length];
+        System.arraycopy(buffer, position, result, 0, length);
+        position += length;
+        return result;
+    }
+
+    /**
+     * Reads a length-delimited field as an UTF-8 string.
+     * @return the content of the field
+     * @throws IOException if the message is malformed
+     */
+    String readString() throws IOException {
+        int length = readLength();
+        String result = new String(buffer, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return result;
+    }
+
+    /**
+     * Skips the value of a field.
+     * @param key the key of the field, as read by {@link #readKey()}
+     * @throws IOException if the message is malformed, or uses an unsupported wire type
+     */
+    void skip(int key) throws IOException {
+        switch (wireType(key)) {
+        case VARINT:
+            readLong();
+            break;
+        case FIXED64:
+            skipBytes(8);
+            break;
+        case LENGTH_DELIMITED:
+            skipBytes(readLength());
+            break;
+        case FIXED32:
+            skipBytes(4);
+            break;
+        default:
+            throw new IOException("Unsupported wire type: " + wireType(key));
+        }
+    }
+
+    private void skipBytes(int count) throws IOException {
+        if (count > limit - position)
+            throw new IOException("Truncated field");
+        position += count;
+    }
+}
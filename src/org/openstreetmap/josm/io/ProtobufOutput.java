@@ -0,0 +1,108 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal encoder of <a href="https://developers.google.com/protocol-buffers/docs/encoding">Protocol Buffers</a> messages.
+ * <p>
+ * Fields are appended in the order they are written. Nested messages and packed repeated fields are built
+ * in a separate {@code ProtobufOutput} and then written with {@link #writeMessage(int, ProtobufOutput)}.
+ * <p>
+ * Only the features needed by {@link PbfWriter} are supported.
+ * @see ProtobufInput
+ */
+final class ProtobufOutput extends ByteArrayOutputStream {
+
+    /**
+     * Constructs a new {@code ProtobufOutput}.
+     */
+    ProtobufOutput() {
+        super(256);
+    }
+
+    private void writeKey(int field, int wireType) {
+        writeLong((long) field << 3 | wireType);
+    }
+
+    /**
+     * Writes a value without key, as varint. Used for elements of packed repeated fields.
+     * @param value the value to write
+     */
+    void writeLong(long value) {
+        while ((value & ~0x7fL) != 0) {
+            write((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        write((int) value);
+    }
+
+    /**
+     * Writes a value without key, as ZigZag encoded varint. Used for elements of packed repeated fields.
+     * @param value the value to write
+     */
+    void writeSignedLong(long value) {
+        writeLong((value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Writes a varint field (int32, int64, uint32, bool, enum).
+     * @param field the field number
+     * @param value the value to write
+     */
+    void writeLong(int field, long value) {
+        writeKey(field, ProtobufInput.VARINT);
+        writeLong(value);
+    }
+
+    /**
+     * Writes a ZigZag encoded varint field (sint32, sint64).
+     * @param field the field number
+     * @param value the value to write
+     */
+    void writeSignedLong(int field, long value) {
+        writeKey(field, ProtobufInput.VARINT);
+        writeSignedLong(value);
+    }
+
+    /**
+     * Writes a bytes field.
+     * @param field the field number
+     * @param value the value to write
+     */
+    void writeBytes(int field, byte[] value) {
+        writeBytes(field, value, 0, value.length);
+    }
+
+    /**
+     * Writes a bytes field.
+     * @param field the field number
+     * @param value the array containing the value to write
+     * @param offset the start of the value in the array
+     * @param length the length of the value
+     */
+    void writeBytes(int field, byte[] value, int offset, int length) {
+        writeKey(field, ProtobufInput.LENGTH_DELIMITED);
+        writeLong(length);
+        write(value, offset, length);
+    }
+
+    /**
+     * Writes a string field, encoded in UTF-8.
+     * @param field the field number
+     * @param value the value to write
+     */
+    void writeString(int field, String value) {
+        writeBytes(field, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes a nested message, or a packed repeated field.
+     * @param field the field number
+     * @param message the encoded message or packed values
+     */
+    void writeMessage(int field, ProtobufOutput message) {
+        writeBytes(field, message.buf, 0, message.count);
+    }
+}
@@ -0,0 +1,162 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openstreetmap.josm.tools.CheckParameterUtil;
+
+/**
+ * An input stream that reads its source ahead, on a background thread.
+ * <p>
+ * This allows to pipeline the work done by the source stream (i.e. decompressing bzip2/gzip data, or waiting for the network)
+ * with the work done by the consumer of this stream (i.e. parsing XML), so that both run on different cores.
+ * <p>
+ * The stream must be closed, to stop the background thread.
+ */
+public class ReadAheadInputStream extends InputStream {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int MAX_CHUNKS = 16;
+    /** Maximum time to wait for the reader thread when closing, in milliseconds. The thread is a daemon */
+    private static final long CLOSE_TIMEOUT = 1000;
+    private static final byte[] END = new byte[0];
+
+    private final InputStream source;
+    private final BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<>(MAX_CHUNKS);
+    private final Thread reader;
+    private volatile boolean closed;
+    private volatile IOException error;
+
+    private byte[] current;
+    private int position;
+    private boolean eof;
+
+    /**
+     * Constructs a new {@code ReadAheadInputStream} and starts reading {@code source} in the background.
+     * @param source the stream to read ahead. It will be closed when this stream is closed
+     */
+    public ReadAheadInputStream(InputStream source) {
+        CheckParameterUtil.ensureParameterNotNull(source, "source");
+        this.source = source;
+        reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                readSource();
+            }
+        }, "Read ahead");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    private void readSource() {
+        try {
+            while (!closed) {
+                byte[] buffer = new byte[CHUNK_SIZE];
+                int length = 0;
+                int read = 0;
+                while (length < CHUNK_SIZE && (read = source.read(buffer, length, CHUNK_SIZE - length)) != -1) {
+                    length += read;
+                }
+                if (length > 0 && !offer(length < CHUNK_SIZE ? Arrays.copyOf(buffer, length) : buffer)) {
+                    return;
+                }
+                if (read == -1) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            error = e;
+        } catch (RuntimeException e) {
+            error = new IOException(e);
+        } finally {
+            offer(END);
+        }
+    }
+
+    /**
+     * Waits until there is some room for the given chunk, or until this stream is closed.
+     * @param chunk the chunk to queue
+     * @return {@code true} if the chunk has been queued
+     */
+    private boolean offer(byte[] chunk) {
+        try {
+            while (!closed) {
+                if (chunks.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    private boolean nextChunk() throws IOException {
+        while (!eof && (current == null || position >= current.length)) {
+            try {
+                current = chunks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            position = 0;
+            if (current == END) {
+                eof = true;
+                if (error != null) {
+                    throw error;
+                }
+            }
+        }
+        return !eof;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (closed)
+            throw new IOException("Stream closed");
+        return nextChunk() ? current[position++] & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (closed)
+            throw new IOException("Stream closed");
+        if (len == 0)
+            return 0;
+        if (!nextChunk())
+            return -1;
+        int count = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return current == null || eof ? 0 : current.length - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        chunks.clear();
+        // close the source first, the reader thread may be blocked reading it
+        try {
+            source.close();
+        } finally {
+            reader.interrupt();
+            try {
+                reader.join(CLOSE_TIMEOUT);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
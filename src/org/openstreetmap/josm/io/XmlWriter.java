@@ -4,8 +4,6 @@ package org.openstreetmap.josm.io;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * Helper class to use for xml outputting classes.
@@ -59,17 +57,15 @@ public class XmlWriter implements Closeable {
         StringBuilder buffer = null;
         if (unencoded != null) {
             for (int i = 0; i < unencoded.length(); ++i) {
-                String encS = null;
-                if (!keepApos || unencoded.charAt(i) != '\'') {
-                    encS = XmlWriter.encoding.get(unencoded.charAt(i));
-                }
+                char c = unencoded.charAt(i);
+                String encS = keepApos && c == '\'' ? null : getEntity(c);
                 if (encS != null) {
                     if (buffer == null) {
                         buffer = new StringBuilder(unencoded.substring(0, i));
                     }
                     buffer.append(encS);
                 } else if (buffer != null) {
-                    buffer.append(unencoded.charAt(i));
+                    buffer.append(c);
                 }
             }
         }
@@ -77,18 +73,45 @@ public class XmlWriter implements Closeable {
     }
 
     /**
-     * The output writer to save the values to.
+     * Writes the given string encoded in XML1.0 format, without building the encoded string.
+     * @param unencoded the unencoded input string
+     * @see #encode(String)
+     */
+    protected void writeEncoded(String unencoded) {
+        if (unencoded == null) {
+            out.print(unencoded);
+            return;
+        }
+        int start = 0;
+        int length = unencoded.length();
+        for (int i = 0; i < length; ++i) {
+            String encS = getEntity(unencoded.charAt(i));
+            if (encS != null) {
+                out.write(unencoded, start, i - start);
+                out.write(encS);
+                start = i + 1;
+            }
+        }
+        out.write(unencoded, start, length - start);
+    }
+
+    /**
+     * Replies the entity replacing a character in XML1.0 format.
+     * @param c the character
+     * @return the entity, or {@code null} if the character does not need to be encoded
      */
-    private static final Map<Character, String> encoding = new HashMap<>();
-    static {
-        encoding.put('<', "&lt;");
-        encoding.put('>', "&gt;");
-        encoding.put('"', "&quot;");
-        encoding.put('\'', "&apos;");
-        encoding.put('&', "&amp;");
-        encoding.put('\n', "&#xA;");
-        encoding.put('\r', "&#xD;");
-        encoding.put('\t', "&#x9;");
+    private static String getEntity(char c) {
+        switch (c) {
+        case '<': return "&lt;";
+        case '>': return "&gt;";
+        case '"': return "&quot;";
+        case '\'': return "&apos;";
+        case '&': return "&amp;";
+        case '\n': return "&#xA;";
+        case '\r': return "&#xD;";
+        case '\t': return "&#x9;";
+        default: return null;
+        }
     }
 
     @Override
@@ -138,6 +138,68 @@ public final class Predicates {
         };
     }
 
+    /**
+     * Returns a {@link Predicate} equivalent to {@link #stringContainsPattern(Pattern)} for the given regular expression.
+     * <p>
+     * Regular expressions only made of literal characters, optionally anchored or surrounded by {@code .*},
+     * are evaluated with plain string operations instead of a {@link java.util.regex.Matcher}.
+     * @param regex the regular expression
+     * @return a {@link Predicate} executing {@link java.util.regex.Matcher#find} or an equivalent string operation
+     * @throws java.util.regex.PatternSyntaxException if the expression's syntax is invalid
+     */
+    public static Predicate<String> stringContainsPattern(final String regex) {
+        final Pattern pattern = Pattern.compile(regex);
+        int start = 0;
+        int end = regex.length();
+        final boolean anchorStart = regex.startsWith("^");
+        if (anchorStart) {
+            start = 1;
+        } else if (regex.startsWith(".*")) {
+            start = 2;
+        }
+        final boolean anchorEnd = end > start && regex.endsWith("$");
+        if (anchorEnd) {
+            end--;
+        } else if (end - 2 >= start && regex.endsWith(".*")) {
+            end -= 2;
+        }
+        final StringBuilder sb = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                // escaped punctuation is literal, escaped letters and digits are character classes or back references
+                if (i + 1 >= end || Character.isLetterOrDigit(regex.charAt(i + 1)))
+                    return stringContainsPattern(pattern);
+                sb.append(regex.charAt(++i));
+            } else if ("^$.|?*+()[]{}".indexOf(c) >= 0) {
+                return stringContainsPattern(pattern);
+            } else {
+                sb.append(c);
+            }
+        }
+        final String literal = sb.toString();
+        return new Predicate<String>() {
+            @Override
+            public boolean evaluate(String string) {
+                if (anchorEnd && !string.isEmpty() && isLineTerminator(string.charAt(string.length() - 1))) {
+                    // $ also matches before a final line terminator
+                    return pattern.matcher(string).find();
+                } else if (anchorStart && anchorEnd) {
+                    return string.equals(literal);
+                } else if (anchorStart) {
+                    return string.startsWith(literal);
+                } else if (anchorEnd) {
+                    return string.endsWith(literal);
+                }
+                return string.contains(literal);
+            }
+        };
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
     /**
      * Returns a {@link Predicate} executing {@link String#contains(CharSequence)}.
      * @param pattern the pattern
@@ -0,0 +1,50 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmDataGenerator;
+import org.openstreetmap.josm.data.osm.OsmDataGenerator.CityDataGenerator;
+
+/**
+ * Superclass of the JMH benchmarks working on a synthetic city.
+ * <p>
+ * The city is generated by {@link OsmDataGenerator#getCity(int)} with a fixed seed, so that the results of
+ * two runs, or of two releases, can be compared. Each benchmark is run for each size of the {@link #blocks} parameter.
+ */
+@State(Scope.Benchmark)
+public abstract class AbstractCityBenchmark {
+
+    /**
+     * The number of blocks along each side of the city.
+     */
+    @Param({"10", "30", "60"})
+    public int blocks;
+
+    protected CityDataGenerator generator;
+    protected DataSet ds;
+
+    /**
+     * Initializes JOSM and generates the city.
+     * @throws Exception if an error occurs
+     */
+    @Setup(Level.Trial)
+    public void setUpCity() throws Exception {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+        generator = OsmDataGenerator.getCity(blocks);
+        ds = generator.generateDataSet();
+        setUp();
+    }
+
+    /**
+     * Prepares the benchmark, once the city has been generated.
+     * @throws Exception if an error occurs
+     */
+    protected void setUp() throws Exception {
+        // Do nothing by default
+    }
+}
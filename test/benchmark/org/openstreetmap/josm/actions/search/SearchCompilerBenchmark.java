@@ -0,0 +1,59 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.actions.search;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openstreetmap.josm.AbstractCityBenchmark;
+import org.openstreetmap.josm.actions.search.SearchCompiler.Match;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+
+/**
+ * Benchmark of {@link SearchCompiler}, matching all the primitives of the city against a search expression.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SearchCompilerBenchmark extends AbstractCityBenchmark {
+
+    /**
+     * The search expression.
+     */
+    @Param({"building=house", "highway=* \"Street 1\"", "\"addr:street\"=\"Street 1\" OR building=school",
+        "building -\"addr:housenumber\"=1 nodes:3-"})
+    public String search;
+
+    private Match match;
+
+    @Override
+    protected void setUp() throws Exception {
+        match = SearchCompiler.compile(search);
+    }
+
+    /**
+     * Searches the city.
+     * @return the number of matching primitives
+     */
+    @Benchmark
+    public int search() {
+        int count = 0;
+        for (OsmPrimitive osm : ds.allPrimitives()) {
+            if (match.match(osm)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,69 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openstreetmap.josm.AbstractCityBenchmark;
+import org.openstreetmap.josm.data.Bounds;
+
+/**
+ * Benchmark of the spatial searches of {@link DataSet}, backed by {@link QuadBuckets}.
+ * Each invocation searches the same series of random boxes, each covering about one block of the city.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class QuadBucketsBenchmark extends AbstractCityBenchmark {
+
+    private static final int SEARCHES = 100;
+    private static final double SEARCH_SIZE = 0.002;
+
+    private final BBox[] boxes = new BBox[SEARCHES];
+
+    @Override
+    protected void setUp() {
+        Bounds bounds = generator.getBounds();
+        Random random = new Random(42);
+        for (int i = 0; i < SEARCHES; i++) {
+            double lat = bounds.getMinLat() + random.nextDouble() * (bounds.getMaxLat() - bounds.getMinLat() - SEARCH_SIZE);
+            double lon = bounds.getMinLon() + random.nextDouble() * (bounds.getMaxLon() - bounds.getMinLon() - SEARCH_SIZE);
+            boxes[i] = new BBox(lon, lat, lon + SEARCH_SIZE, lat + SEARCH_SIZE);
+        }
+    }
+
+    /**
+     * Searches nodes.
+     * @param blackhole the blackhole consuming the results
+     */
+    @Benchmark
+    public void searchNodes(Blackhole blackhole) {
+        for (BBox box : boxes) {
+            blackhole.consume(ds.searchNodes(box));
+        }
+    }
+
+    /**
+     * Searches ways.
+     * @param blackhole the blackhole consuming the results
+     */
+    @Benchmark
+    public void searchWays(Blackhole blackhole) {
+        for (BBox box : boxes) {
+            blackhole.consume(ds.searchWays(box));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openstreetmap.josm.AbstractCityBenchmark;
+import org.openstreetmap.josm.data.validation.tests.CrossingWays;
+import org.openstreetmap.josm.data.validation.tests.DuplicateNode;
+import org.openstreetmap.josm.data.validation.tests.DuplicateWay;
+import org.openstreetmap.josm.data.validation.tests.MapCSSTagChecker;
+import org.openstreetmap.josm.data.validation.tests.OverlappingWays;
+import org.openstreetmap.josm.data.validation.tests.TagChecker;
+import org.openstreetmap.josm.data.validation.tests.UnclosedWays;
+import org.openstreetmap.josm.data.validation.tests.UnconnectedWays;
+
+/**
+ * Benchmark of the validator tests: the geometric tests, which dominate the validation time of large data sets,
+ * and the tag checks, which are run on every upload.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ValidatorBenchmark extends AbstractCityBenchmark {
+
+    private List<Test> tests;
+    private List<Test> tagTests;
+
+    @Override
+    protected void setUp() throws Exception {
+        tests = Arrays.asList(new CrossingWays.Ways(), new CrossingWays.Boundaries(), new DuplicateNode(), new DuplicateWay(),
+                new OverlappingWays(), new UnclosedWays(), new UnconnectedWays.UnconnectedHighways());
+        tagTests = Arrays.<Test>asList(new TagChecker(), new MapCSSTagChecker());
+        for (Test test : tests) {
+            test.initialize();
+        }
+        for (Test test : tagTests) {
+            test.initialize();
+        }
+    }
+
+    /**
+     * Validates the geometry of the city.
+     * @param blackhole the blackhole consuming the results
+     */
+    @Benchmark
+    public void validate(Blackhole blackhole) {
+        run(tests, blackhole);
+    }
+
+    /**
+     * Validates the tags of the city, with the default tag checker rules.
+     * @param blackhole the blackhole consuming the results
+     */
+    @Benchmark
+    public void validateTags(Blackhole blackhole) {
+        run(tagTests, blackhole);
+    }
+
+    private void run(List<Test> toRun, Blackhole blackhole) {
+        for (Test test : toRun) {
+            test.startTest(null);
+            test.visit(ds.allPrimitives());
+            test.endTest();
+            blackhole.consume(test.getErrors());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.mappaint;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openstreetmap.josm.AbstractCityBenchmark;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.gui.NavigatableComponent;
+
+/**
+ * Benchmark of the style computation of {@link ElemStyles}, with the default map paint style.
+ * The style cache of the primitives is cleared before each computation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ElemStylesBenchmark extends AbstractCityBenchmark {
+
+    private ElemStyles styles;
+    private NavigatableComponent nc;
+    private double scale;
+
+    @Override
+    protected void setUp() {
+        MapPaintStyles.readFromPreferences();
+        styles = MapPaintStyles.getStyles();
+        nc = Main.map.mapView;
+        nc.setBounds(0, 0, 1400, 1050);
+        nc.zoomTo(generator.getBounds());
+        scale = nc.getDist100Pixel();
+    }
+
+    /**
+     * Computes the styles of all the primitives.
+     * @param blackhole the blackhole consuming the results
+     */
+    @Benchmark
+    public void computeStyles(Blackhole blackhole) {
+        for (OsmPrimitive osm : ds.allPrimitives()) {
+            osm.clearCachedStyle();
+            blackhole.consume(styles.get(osm, scale, nc));
+        }
+    }
+}
@@ -0,0 +1,58 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openstreetmap.josm.AbstractCityBenchmark;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+
+/**
+ * Benchmark of {@link OsmReader}, parsing the synthetic city from memory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OsmReaderBenchmark extends AbstractCityBenchmark {
+
+    private byte[] data;
+
+    @Override
+    protected void setUp() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+             OsmWriter w = OsmWriterFactory.createOsmWriter(writer, false, OsmWriter.DEFAULT_API_VERSION)) {
+            w.header();
+            w.writeContent(ds);
+            w.footer();
+        }
+        data = out.toByteArray();
+    }
+
+    /**
+     * Parses the city.
+     * @return the parsed data set
+     * @throws IllegalDataException if the data cannot be parsed
+     */
+    @Benchmark
+    public DataSet parse() throws IllegalDataException {
+        return OsmReader.parseDataSet(new ByteArrayInputStream(data), NullProgressMonitor.INSTANCE);
+    }
+}
@@ -0,0 +1,102 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openstreetmap.josm.AbstractCityBenchmark;
+import org.openstreetmap.josm.data.osm.DataSetSnapshot;
+
+/**
+ * Benchmark of {@link OsmWriter}, writing a snapshot of the synthetic city without and with compression.
+ * <p>
+ * Use {@code -p blocks=180} for a city of about two million nodes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OsmWriterBenchmark extends AbstractCityBenchmark {
+
+    /**
+     * An output stream discarding the data, and counting the bytes so that writing is not optimized away.
+     */
+    private static final class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    private DataSetSnapshot snapshot;
+
+    @Override
+    protected void setUp() throws Exception {
+        snapshot = new DataSetSnapshot(ds);
+    }
+
+    private long write(OutputStream compressed, CountingOutputStream counter) throws IOException {
+        try (OsmWriter w = OsmWriterFactory.createOsmWriter(
+                new PrintWriter(new BufferedWriter(new OutputStreamWriter(compressed, StandardCharsets.UTF_8))), false,
+                snapshot.getVersion())) {
+            w.writeSnapshot(snapshot);
+        }
+        return counter.count;
+    }
+
+    /**
+     * Writes the city as uncompressed XML.
+     * @return the number of bytes written
+     * @throws IOException never
+     */
+    @Benchmark
+    public long write() throws IOException {
+        CountingOutputStream counter = new CountingOutputStream();
+        return write(counter, counter);
+    }
+
+    /**
+     * Writes the city in a single gzip stream.
+     * @return the number of compressed bytes
+     * @throws IOException never
+     */
+    @Benchmark
+    public long writeGzip() throws IOException {
+        CountingOutputStream counter = new CountingOutputStream();
+        return write(Compression.GZIP.getCompressedOutputStream(counter), counter);
+    }
+
+    /**
+     * Writes the city in gzip chunks compressed in parallel.
+     * @return the number of compressed bytes
+     * @throws IOException never
+     */
+    @Benchmark
+    public long writeParallelGzip() throws IOException {
+        CountingOutputStream counter = new CountingOutputStream();
+        return write(new ParallelCompressorOutputStream(counter, Compression.GZIP), counter);
+    }
+}
@@ -0,0 +1,4 @@
+package org.openstreetmap.josm.actions.search.generated;
+public class SearchCompilerBenchmark_jmhType extends SearchCompilerBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package org.openstreetmap.josm.data.osm.generated;
+public class QuadBucketsBenchmark_jmhType extends QuadBucketsBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package org.openstreetmap.josm.data.osm.visitor.paint.generated;
+public class StyledMapRendererBenchmark_jmhType extends StyledMapRendererBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package org.openstreetmap.josm.data.validation.generated;
+public class ValidatorBenchmark_jmhType extends ValidatorBenchmark_jmhType_B3 {
+}
+
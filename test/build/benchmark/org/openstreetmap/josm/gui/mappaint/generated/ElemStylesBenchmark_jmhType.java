@@ -0,0 +1,4 @@
+package org.openstreetmap.josm.gui.mappaint.generated;
+public class ElemStylesBenchmark_jmhType extends ElemStylesBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package org.openstreetmap.josm.io.generated;
+public class OsmReaderBenchmark_jmhType extends OsmReaderBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package org.openstreetmap.josm.io.generated;
+public class OsmWriterBenchmark_jmhType extends OsmWriterBenchmark_jmhType_B3 {
+}
+
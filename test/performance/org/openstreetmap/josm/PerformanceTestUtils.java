@@ -60,6 +60,20 @@ public final class PerformanceTestUtils {
         return new PerformanceTestTimer(name);
     }
 
+    /**
+     * Measures the heap currently in use, after running the garbage collector.
+     * @return The used heap size, in bytes.
+     */
+    @SuppressFBWarnings(value = "DM_GC", justification = "Performance test code")
+    public static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            System.runFinalization();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
     /**
      * Emit one data value for the Jenkins Measurement Plots Plugin.
      *
@@ -152,6 +152,39 @@ public class KeyValuePerformanceTest {
         }
     }
 
+    /**
+     * Measure the memory saved by {@link OsmPrimitive#internKeys(Storage)} when many primitives share the same tags.
+     */
+    @Test
+    public void testKeyValueInternKeys() {
+        String[][] tagSets = new String[][] {
+            {"building", "yes"},
+            {"building", "house", "building:levels", "2"},
+            {"highway", "residential", "surface", "asphalt", "oneway", "yes"},
+        };
+        KeyValueDataGenerator generator = OsmDataGenerator.getKeyValue(PUT_RUNS * 10, 0);
+        DataSet ds = generator.generateDataSet();
+        for (Node n : ds.getNodes()) {
+            String[] tags = tagSets[random.nextInt(tagSets.length)];
+            for (int i = 0; i < tags.length; i += 2) {
+                n.put(tags[i], tags[i + 1]);
+            }
+        }
+
+        long before = PerformanceTestUtils.usedMemory();
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer("OsmPrimitive#internKeys(Storage) for " + ds.getNodes().size() + " nodes");
+        Storage<String[]> pool = OsmPrimitive.createKeysPool();
+        for (Node n : ds.getNodes()) {
+            n.internKeys(pool);
+        }
+        timer.done();
+        pool = null;
+        long after = PerformanceTestUtils.usedMemory();
+
+        PerformanceTestUtils.measurementPlotsPluginOutput("heap saved per node by OsmPrimitive#internKeys(Storage) (bytes)",
+                (double) (before - after) / ds.getNodes().size());
+    }
+
     /**
      * Measure the speed of {@link OsmPrimitive#get(String)}
      */
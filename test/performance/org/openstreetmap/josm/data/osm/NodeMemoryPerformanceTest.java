@@ -0,0 +1,49 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+
+/**
+ * This test measures the heap used by the nodes of a {@link DataSet}, including their spatial index.
+ */
+public class NodeMemoryPerformanceTest {
+    private static final int[] NODE_COUNTS = new int[] {100000, 1000000};
+
+    /**
+     * Prepare the test.
+     */
+    @BeforeClass
+    public static void createJOSMFixture() {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+    }
+
+    /**
+     * Measure the heap used per node.
+     */
+    @Test
+    public void testNodeMemory() {
+        for (int nodeCount : NODE_COUNTS) {
+            PerformanceTestUtils.measurementPlotsPluginOutput("heap per node, " + nodeCount + " nodes (bytes)",
+                    measureNodeMemory(nodeCount));
+        }
+    }
+
+    /**
+     * Measures the heap used per node of a new data set. The data set is only referenced by this method, so that it
+     * can be collected before the next measurement.
+     * @param nodeCount the number of nodes
+     * @return the heap used per node, in bytes
+     */
+    private static double measureNodeMemory(int nodeCount) {
+        long before = PerformanceTestUtils.usedMemory();
+        DataSet ds = OsmDataGenerator.getNodes(nodeCount).generateDataSet();
+        long after = PerformanceTestUtils.usedMemory();
+        assertEquals(nodeCount, ds.getNodes().size());
+        return (double) (after - before) / nodeCount;
+    }
+}
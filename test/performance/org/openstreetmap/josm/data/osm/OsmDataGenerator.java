@@ -3,10 +3,14 @@ package org.openstreetmap.josm.data.osm;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
 
 import org.apache.commons.lang.RandomStringUtils;
+import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 
 /**
@@ -238,6 +242,85 @@ public final class OsmDataGenerator {
         }
     }
 
+    /**
+     * A data generator that generates a city: a grid of named streets, with tagged buildings in each block.
+     */
+    public static final class CityDataGenerator extends DataGenerator {
+        private static final double BLOCK_SIZE = 0.002;
+        private static final double BUILDING_SIZE = 0.0003;
+        private static final int BUILDINGS_PER_SIDE = 4;
+        private static final String[] BUILDING_TYPES = {"yes", "house", "apartments", "retail", "school"};
+        private static final LatLon ORIGIN = new LatLon(53.5, 13.2);
+        private final int blocks;
+
+        private CityDataGenerator(String datasetName, int blocks) {
+            super(datasetName);
+            this.blocks = blocks;
+        }
+
+        private static Node createNode(DataSet ds, double lat, double lon) {
+            // like downloaded data, coordinates have the precision of the OSM server
+            Node node = new Node(new LatLon(lat, lon).getRoundedToOsmPrecision());
+            ds.addPrimitive(node);
+            return node;
+        }
+
+        private static Way createWay(DataSet ds, List<Node> nodes, String... tags) {
+            Way way = new Way();
+            way.setNodes(nodes);
+            for (int i = 0; i < tags.length; i += 2) {
+                way.put(tags[i], tags[i + 1]);
+            }
+            ds.addPrimitive(way);
+            return way;
+        }
+
+        @Override
+        protected void fillData(DataSet ds) {
+            Node[][] crossings = new Node[blocks + 1][blocks + 1];
+            for (int i = 0; i <= blocks; i++) {
+                for (int j = 0; j <= blocks; j++) {
+                    crossings[i][j] = createNode(ds, ORIGIN.lat() + i * BLOCK_SIZE, ORIGIN.lon() + j * BLOCK_SIZE);
+                }
+            }
+            for (int i = 0; i <= blocks; i++) {
+                List<Node> street = new ArrayList<>();
+                List<Node> avenue = new ArrayList<>();
+                for (int j = 0; j <= blocks; j++) {
+                    street.add(crossings[i][j]);
+                    avenue.add(crossings[j][i]);
+                }
+                createWay(ds, street, "highway", "residential", "name", "Street " + i);
+                createWay(ds, avenue, "highway", i % 5 == 0 ? "secondary" : "tertiary", "name", "Avenue " + i);
+            }
+            double spacing = BLOCK_SIZE / (BUILDINGS_PER_SIDE + 1);
+            for (int i = 0; i < blocks; i++) {
+                for (int j = 0; j < blocks; j++) {
+                    for (int k = 0; k < BUILDINGS_PER_SIDE * BUILDINGS_PER_SIDE; k++) {
+                        double lat = ORIGIN.lat() + i * BLOCK_SIZE + (k / BUILDINGS_PER_SIDE + 0.7) * spacing;
+                        double lon = ORIGIN.lon() + j * BLOCK_SIZE + (k % BUILDINGS_PER_SIDE + 0.7) * spacing;
+                        double size = BUILDING_SIZE * (0.5 + random.nextDouble() / 2);
+                        Node n1 = createNode(ds, lat, lon);
+                        List<Node> nodes = Arrays.asList(n1, createNode(ds, lat, lon + size),
+                                createNode(ds, lat + size, lon + size), createNode(ds, lat + size, lon), n1);
+                        createWay(ds, nodes,
+                                "building", BUILDING_TYPES[random.nextInt(BUILDING_TYPES.length)],
+                                "addr:street", "Street " + i,
+                                "addr:housenumber", Integer.toString(j * BUILDINGS_PER_SIDE * BUILDINGS_PER_SIDE + k + 1));
+                    }
+                }
+            }
+        }
+
+        /**
+         * Gets the bounds of the city.
+         * @return The bounds containing all the generated primitives.
+         */
+        public Bounds getBounds() {
+            return new Bounds(ORIGIN.lat(), ORIGIN.lon(), ORIGIN.lat() + blocks * BLOCK_SIZE, ORIGIN.lon() + blocks * BLOCK_SIZE);
+        }
+    }
+
     /**
      * Generate a generator that creates some nodes and adds random keys and values to it.
      * @return The generator
@@ -265,11 +348,29 @@ public final class OsmDataGenerator {
         return new KeyValueDataGenerator("key-value", nodeCount, tagNodeRation);
     }
 
+    /**
+     * Create a generator that generates a city with streets and buildings.
+     * @param blocks The number of blocks along each side of the city, the data set has about 65 nodes per block.
+     * @return The generator
+     */
+    public static CityDataGenerator getCity(int blocks) {
+        return new CityDataGenerator("city-" + blocks, blocks);
+    }
+
     /**
      * Create a generator that generates a bunch of nodes.
      * @return The generator
      */
     public static DataGenerator getNodes() {
-        return new NodeDataGenerator("nodes", DEFAULT_NODE_COUNT);
+        return getNodes(DEFAULT_NODE_COUNT);
+    }
+
+    /**
+     * Create a generator that generates a bunch of nodes.
+     * @param nodeCount The number of nodes the dataset should contain.
+     * @return The generator
+     */
+    public static DataGenerator getNodes(int nodeCount) {
+        return new NodeDataGenerator("nodes", nodeCount);
     }
 }
@@ -0,0 +1,120 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+import org.openstreetmap.josm.data.coor.LatLon;
+
+/**
+ * This test measures the performance of {@link DataSet#searchRelations(BBox)} compared to a linear scan.
+ */
+public class SearchRelationsPerformanceTest {
+    private static final int RELATION_COUNT = 100000;
+    private static final int MEMBERS_PER_RELATION = 4;
+    private static final int SEARCH_RUNS = 100;
+    private static final int MOVE_RUNS = 10000;
+
+    /**
+     * Prepare the test.
+     */
+    @BeforeClass
+    public static void createJOSMFixture() {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+    }
+
+    private static LatLon randomLatLon(Random random, LatLon center, double span) {
+        return new LatLon(center.lat() + (random.nextDouble() - .5) * span, center.lon() + (random.nextDouble() - .5) * span);
+    }
+
+    private static DataSet generateDataSet(Random random) {
+        DataSet ds = new DataSet();
+        for (int i = 0; i < RELATION_COUNT; i++) {
+            LatLon center = randomLatLon(random, LatLon.ZERO, 20);
+            Relation r = new Relation();
+            ds.addPrimitive(r);
+            List<RelationMember> members = new ArrayList<>();
+            for (int j = 0; j < MEMBERS_PER_RELATION; j++) {
+                Node n = new Node(randomLatLon(random, center, .01));
+                ds.addPrimitive(n);
+                members.add(new RelationMember("", n));
+            }
+            r.setMembers(members);
+        }
+        return ds;
+    }
+
+    private static List<BBox> generateSearchBoxes(Random random) {
+        List<BBox> boxes = new ArrayList<>();
+        for (int i = 0; i < SEARCH_RUNS; i++) {
+            LatLon corner = randomLatLon(random, LatLon.ZERO, 20);
+            boxes.add(new BBox(corner, new LatLon(corner.lat() + .5, corner.lon() + .5)));
+        }
+        return boxes;
+    }
+
+    private static List<Relation> linearSearch(DataSet ds, BBox bbox) {
+        List<Relation> result = new ArrayList<>();
+        for (Relation r : ds.getRelations()) {
+            if (r.getBBox().intersects(bbox)) {
+                result.add(r);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Measure the speed of {@link DataSet#searchRelations(BBox)} compared to a linear scan over all relations.
+     */
+    @Test
+    public void testSearchRelations() {
+        Random random = new Random(1234);
+        DataSet ds = generateDataSet(random);
+        List<BBox> boxes = generateSearchBoxes(random);
+
+        int linearCount = 0;
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer("linear scan over " + RELATION_COUNT + " relations");
+        for (BBox bbox : boxes) {
+            linearCount += linearSearch(ds, bbox).size();
+        }
+        timer.done();
+
+        int indexedCount = 0;
+        timer = PerformanceTestUtils.startTimer("DataSet#searchRelations(BBox) over " + RELATION_COUNT + " relations");
+        for (BBox bbox : boxes) {
+            indexedCount += ds.searchRelations(bbox).size();
+        }
+        timer.done();
+
+        assertEquals(linearCount, indexedCount);
+    }
+
+    /**
+     * Measure the cost of keeping the relation index up to date when member nodes are moved.
+     */
+    @Test
+    public void testMoveMemberNodes() {
+        Random random = new Random(1234);
+        DataSet ds = generateDataSet(random);
+        List<Node> nodes = new ArrayList<>(ds.getNodes());
+
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer("move " + MOVE_RUNS + " relation member nodes");
+        for (int i = 0; i < MOVE_RUNS; i++) {
+            Node n = nodes.get(random.nextInt(nodes.size()));
+            n.setCoor(randomLatLon(random, n.getCoor(), .1));
+        }
+        timer.done();
+
+        for (BBox bbox : generateSearchBoxes(random)) {
+            assertEquals(linearSearch(ds, bbox).size(), ds.searchRelations(bbox).size());
+        }
+    }
+}
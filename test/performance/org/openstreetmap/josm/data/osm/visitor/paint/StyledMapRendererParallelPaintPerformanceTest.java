@@ -0,0 +1,22 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.openstreetmap.josm.Main;
+
+/**
+ * Performance test of {@code StyledMapRenderer}, painting the map in parallel strips.
+ */
+public class StyledMapRendererParallelPaintPerformanceTest extends StyledMapRendererPerformanceTest {
+
+    @BeforeClass
+    public static void enableParallelPaint() {
+        Main.pref.put("mappaint.render.parallel-paint", true);
+    }
+
+    @AfterClass
+    public static void disableParallelPaint() {
+        Main.pref.put("mappaint.render.parallel-paint", false);
+    }
+}
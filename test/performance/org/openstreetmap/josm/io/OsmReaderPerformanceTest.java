@@ -15,6 +15,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.Timeout;
 import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.PerformanceTestUtils;
 import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
 import org.openstreetmap.josm.data.osm.DataSet;
@@ -56,6 +57,37 @@ public class OsmReaderPerformanceTest {
         runTest("compressed (.osm.bz2)", false);
     }
 
+    /**
+     * Simulates a plain read of a .osm.bz2 file (from memory), decompressing and parsing on the same thread
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testCompressedWithoutReadAhead() throws Exception {
+        Main.pref.put("osm.reader.read-ahead", false);
+        try {
+            runTest("compressed (.osm.bz2) without read ahead", false);
+        } finally {
+            Main.pref.put("osm.reader.read-ahead", null);
+        }
+    }
+
+    /**
+     * Simulates a plain read of a .osm.bz2 file (from memory), decompressing the bzip2 blocks in parallel
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testCompressedParallel() throws Exception {
+        InputStream is = loadFile(false);
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer("load compressed (.osm.bz2) with parallel bzip2 " + TIMES + " times");
+        DataSet ds = null;
+        for (int i = 0; i < TIMES; i++) {
+            is.reset();
+            ds = OsmReader.parseDataSet(new ParallelBZip2InputStream(is), null);
+        }
+        timer.done();
+        assertNotNull(ds);
+    }
+
     /**
      * Simulates a plain read of a .osm file (from memory)
      * @throws Exception if an error occurs
@@ -65,6 +97,27 @@ public class OsmReaderPerformanceTest {
         runTest(".osm-file", true);
     }
 
+    /**
+     * Simulates a plain read of the same data converted to a .osm.pbf file (from memory)
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testPbf() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PbfWriter writer = new PbfWriter(out)) {
+            writer.writeData(OsmReader.parseDataSet(loadFile(true), null));
+        }
+        InputStream is = new ByteArrayInputStream(out.toByteArray());
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer("load .osm.pbf-file " + TIMES + " times");
+        DataSet ds = null;
+        for (int i = 0; i < TIMES; i++) {
+            is.reset();
+            ds = PbfReader.parseDataSet(is, null);
+        }
+        timer.done();
+        assertNotNull(ds);
+    }
+
     private void runTest(String what, boolean decompressBeforeRead) throws IllegalDataException, IOException {
         InputStream is = loadFile(decompressBeforeRead);
         PerformanceTestTimer timer = PerformanceTestUtils.startTimer("load " + what + " " + TIMES + " times");
@@ -0,0 +1,153 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.PrimitiveId;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.SimplePrimitiveId;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.io.IllegalDataException;
+import org.openstreetmap.josm.io.OsmReader;
+import org.openstreetmap.josm.io.OsmWriter;
+import org.openstreetmap.josm.io.OsmWriterFactory;
+
+/**
+ * Unit tests for class {@link AutosaveJournal}.
+ */
+public class AutosaveJournalTest {
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    private static Node node(DataSet ds, String name, double lat, double lon) {
+        Node n = new Node(new LatLon(lat, lon));
+        n.put("name", name);
+        ds.addPrimitive(n);
+        return n;
+    }
+
+    private static OsmPrimitive find(DataSet ds, String name) {
+        for (OsmPrimitive p : ds.allPrimitives()) {
+            if (name.equals(p.get("name")))
+                return p;
+        }
+        return null;
+    }
+
+    private static void write(DataSet ds, File file) throws IOException {
+        try (OsmWriter w = OsmWriterFactory.createOsmWriter(
+                new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)), false, "0.6")) {
+            w.header();
+            w.writeContent(ds);
+            w.footer();
+        }
+    }
+
+    private static DataSet read(File file) throws IOException, IllegalDataException {
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            return OsmReader.parseDataSet(in, null);
+        }
+    }
+
+    /**
+     * The changes appended to the journal are applied to the primitives read from the autosaved file.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testReplay() throws Exception {
+        DataSet ds = new DataSet();
+        Node n1 = node(ds, "n1", 1, 1);
+        Node n2 = new Node(new LatLon(1, 2));
+        n2.setOsmId(1234, 3);
+        ds.addPrimitive(n2);
+        Way w = new Way();
+        w.setNodes(Arrays.asList(n1, n2));
+        w.put("name", "w");
+        ds.addPrimitive(w);
+        Relation r = new Relation();
+        r.addMember(new RelationMember("outer", w));
+        r.put("name", "r");
+        ds.addPrimitive(r);
+
+        File checkpoint = File.createTempFile("autosave", ".osm");
+        File journalFile = File.createTempFile("autosave", ".journal");
+        try {
+            write(ds, checkpoint);
+            Files.delete(journalFile.toPath());
+            AutosaveJournal journal = new AutosaveJournal(journalFile);
+
+            // first entry: move a node, add a node to the way, tag the relation, add a node
+            n1.setCoor(new LatLon(2, 2));
+            Node n3 = node(ds, "n3", 3, 3);
+            w.addNode(n3);
+            r.put("type", "multipolygon");
+            Node n4 = node(ds, "n4", 4, 4);
+            journal.append(ds, Arrays.<OsmPrimitive>asList(n1, n3, w, r, n4), Collections.<PrimitiveId>emptyList());
+
+            // second entry: delete the downloaded node, remove the last new node
+            w.removeNode(n2);
+            n2.setDeleted(true);
+            ds.removePrimitive(n4);
+            journal.append(ds, Arrays.<OsmPrimitive>asList(n2, w, n4),
+                    Collections.singleton(new SimplePrimitiveId(n4.getUniqueId(), OsmPrimitiveType.NODE)));
+            assertEquals(2, journal.getEntryCount());
+
+            // an entry not completely written is ignored
+            try (DataOutputStream out = new DataOutputStream(new FileOutputStream(journalFile, true))) {
+                out.writeInt(1000);
+                out.writeInt(1);
+            }
+
+            assertEquals(2, AutosaveJournal.replay(checkpoint, journalFile));
+            DataSet recovered = read(checkpoint);
+            assertEquals(3, recovered.getNodes().size());
+            Node rn1 = (Node) find(recovered, "n1");
+            Node rn3 = (Node) find(recovered, "n3");
+            assertEquals(new LatLon(2, 2), rn1.getCoor());
+            assertTrue(rn1.isNew());
+            assertNull(find(recovered, "n4"));
+            Node rn2 = (Node) recovered.getPrimitiveById(1234, OsmPrimitiveType.NODE);
+            assertTrue(rn2.isDeleted());
+            assertEquals(3, rn2.getVersion());
+            Way rw = (Way) find(recovered, "w");
+            assertEquals(Arrays.asList(rn1, rn3), rw.getNodes());
+            Relation rr = (Relation) find(recovered, "r");
+            assertEquals("multipolygon", rr.get("type"));
+            assertEquals(rw, rr.getMember(0).getMember());
+            assertFalse(rr.isDeleted());
+        } finally {
+            Files.deleteIfExists(checkpoint.toPath());
+            Files.deleteIfExists(journalFile.toPath());
+        }
+    }
+}
@@ -0,0 +1,155 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.jcs.access.behavior.ICacheAccess;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+
+/**
+ * Unit tests of {@link HostLimitQueue} class.
+ */
+public class HostLimitQueueTest {
+
+    private static class Job extends JCSCachedTileLoaderJob<String, CacheEntry> {
+        private final String url;
+        private double priority;
+
+        Job(String url, double priority) throws IOException {
+            super(getCache(), 30000, 30000, null);
+            this.url = url;
+            this.priority = priority;
+        }
+
+        private static ICacheAccess<String, CacheEntry> getCache() throws IOException {
+            return JCSCacheManager.getCache("test");
+        }
+
+        @Override
+        public String getCacheKey() {
+            return url;
+        }
+
+        @Override
+        public URL getUrl() {
+            try {
+                return new URL(url);
+            } catch (MalformedURLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public double getPriority() {
+            return priority;
+        }
+
+        @Override
+        protected CacheEntry createCacheEntry(byte[] content) {
+            return new CacheEntry(content);
+        }
+    }
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void setUp() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    /**
+     * Jobs are taken by priority, evaluated when the job is queued or when the queue is reprioritized, then in the order
+     * of submission.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testPriority() throws Exception {
+        HostLimitQueue queue = new HostLimitQueue(10);
+        Job a = new Job("http://a.example/1", 3);
+        Job b = new Job("http://a.example/2", 1);
+        Job c = new Job("http://b.example/3", 2);
+        Job d = new Job("http://b.example/4", 2);
+        queue.offer(a);
+        queue.offer(b);
+        queue.offer(c);
+        queue.offer(d);
+        assertSame(b, queue.take());
+        a.priority = 0;
+        queue.reprioritize();
+        assertSame(a, queue.take());
+        assertSame(c, queue.take());
+        assertSame(d, queue.poll(0, TimeUnit.SECONDS));
+        assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * A job of a lower priority is taken when the host limit is reached for the other jobs. Jobs are not taken while
+     * the limit is reached for all of them, and become available when a job of the same host finishes.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testHostLimit() throws Exception {
+        HostLimitQueue queue = new HostLimitQueue(1);
+        Job a1 = new Job("http://a.example/1", 1);
+        Job a2 = new Job("http://a.example/2", 2);
+        Job b = new Job("http://b.example/3", 3);
+        queue.offer(a1);
+        queue.offer(a2);
+        queue.offer(b);
+        assertSame(a1, queue.take());
+        assertSame(b, queue.take());
+        assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+        assertEquals(1, queue.size());
+        a1.executionFinished();
+        assertSame(a2, queue.poll(1, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Removed jobs, directly or through the iterator, are not taken.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testRemove() throws Exception {
+        HostLimitQueue queue = new HostLimitQueue(10);
+        Job a = new Job("http://a.example/1", 1);
+        Job b = new Job("http://a.example/2", 2);
+        Job c = new Job("http://b.example/3", 3);
+        Runnable r = new Runnable() {
+            @Override
+            public void run() {
+                // Do nothing
+            }
+        };
+        queue.offer(a);
+        queue.offer(b);
+        queue.offer(c);
+        queue.offer(r);
+        assertEquals(4, queue.size());
+        assertTrue(queue.remove(a));
+        assertFalse(queue.remove(a));
+        for (Iterator<Runnable> it = queue.iterator(); it.hasNext();) {
+            if (it.next() == c) {
+                it.remove();
+            }
+        }
+        assertEquals(2, queue.size());
+        assertFalse(queue.contains(c));
+        assertSame(r, queue.take());
+        assertSame(b, queue.take());
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,55 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.imagery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.openstreetmap.gui.jmapviewer.Tile;
+import org.openstreetmap.gui.jmapviewer.tilesources.OsmTileSource;
+
+/**
+ * Unit tests of {@link TileViewport} class.
+ */
+public class TileViewportTest {
+
+    private static final OsmTileSource.Mapnik SOURCE = new OsmTileSource.Mapnik();
+
+    private static Tile tile(int x, int y, int zoom) {
+        return new Tile(SOURCE, x, y, zoom);
+    }
+
+    /**
+     * Test of {@link TileViewport#isVisible}, for tiles of all zoom levels.
+     */
+    @Test
+    public void testIsVisible() {
+        TileViewport viewport = new TileViewport(10, 100, 200, 103, 202);
+        assertTrue(viewport.isVisible(tile(100, 200, 10)));
+        assertTrue(viewport.isVisible(tile(103, 202, 10)));
+        assertFalse(viewport.isVisible(tile(99, 201, 10)));
+        assertFalse(viewport.isVisible(tile(104, 201, 10)));
+        assertFalse(viewport.isVisible(tile(101, 203, 10)));
+        // the tile of zoom level 9 covering tiles 100-101 x 200-201
+        assertTrue(viewport.isVisible(tile(50, 100, 9)));
+        assertFalse(viewport.isVisible(tile(49, 100, 9)));
+        // tiles of zoom level 11, within tile 100 x 200 and next to it
+        assertTrue(viewport.isVisible(tile(201, 401, 11)));
+        assertFalse(viewport.isVisible(tile(199, 401, 11)));
+    }
+
+    /**
+     * Test of {@link TileViewport#getPriority}: tiles are loaded from the center, starting with the viewport zoom level.
+     */
+    @Test
+    public void testGetPriority() {
+        TileViewport viewport = new TileViewport(10, 100, 200, 104, 204);
+        assertEquals(0, viewport.getPriority(tile(102, 202, 10)), 1e-9);
+        assertEquals(1, viewport.getPriority(tile(102, 203, 10)), 1e-9);
+        assertEquals(Math.sqrt(8), viewport.getPriority(tile(100, 200, 10)), 1e-9);
+        assertTrue(viewport.getPriority(tile(102, 202, 10)) < viewport.getPriority(tile(51, 101, 9)));
+        assertTrue(viewport.getPriority(tile(51, 101, 9)) < viewport.getPriority(tile(100, 200, 10)));
+        assertEquals(2 + Math.sqrt(0.125), viewport.getPriority(tile(204, 404, 11)), 1e-9);
+    }
+}
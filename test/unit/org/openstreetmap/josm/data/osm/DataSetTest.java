@@ -0,0 +1,153 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.data.coor.LatLon;
+
+/**
+ * Unit tests for class {@link DataSet}.
+ */
+public class DataSetTest {
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void setUp() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    /**
+     * Unit test of {@link DataSet#searchRelations}, checks that relations are reindexed when their members change.
+     */
+    @Test
+    public void testSearchRelations() {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(new LatLon(10, 10));
+        Node n2 = new Node(new LatLon(20, 20));
+        Node n3 = new Node(new LatLon(-30, -30));
+        Way w1 = new Way();
+        w1.setNodes(Arrays.asList(n1, n2));
+        Relation r1 = new Relation();
+        Relation r2 = new Relation();
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        ds.addPrimitive(n3);
+        ds.addPrimitive(w1);
+        ds.addPrimitive(r1);
+        ds.addPrimitive(r2);
+        r1.addMember(new RelationMember("", w1));
+        r2.addMember(new RelationMember("", r1));
+
+        BBox north = new BBox(5, 5, 25, 25);
+        BBox south = new BBox(-35, -35, -25, -25);
+        assertEquals(2, ds.searchRelations(north).size());
+        assertTrue(ds.searchRelations(south).isEmpty());
+
+        // NodeMovedEvent
+        n1.setCoor(new LatLon(-31, -31));
+        assertEquals(2, ds.searchRelations(south).size());
+
+        // WayNodesChangedEvent
+        w1.setNodes(Arrays.asList(n2));
+        assertTrue(ds.searchRelations(south).isEmpty());
+        assertEquals(2, ds.searchRelations(north).size());
+
+        // RelationMembersChangedEvent
+        r1.setMembers(Collections.singletonList(new RelationMember("", n3)));
+        assertTrue(ds.searchRelations(north).isEmpty());
+        assertEquals(2, ds.searchRelations(south).size());
+
+        r1.setMembers(null);
+        assertTrue(ds.searchRelations(south).isEmpty());
+
+        ds.removePrimitive(r2);
+        ds.removePrimitive(r1);
+        assertTrue(ds.getRelations().isEmpty());
+    }
+
+    /**
+     * Unit test of {@link DataSet#searchWaySegments}, checks that segments are reindexed when their ways change.
+     * @throws Exception if the index cannot be built
+     */
+    @Test
+    public void testSearchWaySegments() throws Exception {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(new LatLon(10, 10));
+        Node n2 = new Node(new LatLon(10.01, 10.01));
+        Node n3 = new Node(new LatLon(10.01, 9.99));
+        Way w1 = new Way();
+        w1.setNodes(Arrays.asList(n1, n2, n3));
+        ds.addPrimitives(Arrays.<OsmPrimitive>asList(n1, n2, n3, w1));
+
+        BBox east = new BBox(10.004, 10.004, 10.006, 10.006);
+        BBox west = new BBox(9.994, 10.009, 9.996, 10.011);
+        BBox origin = new BBox(9.999, 9.999, 10.001, 10.001);
+        BBox south = new BBox(10.019, 9.899, 10.021, 9.901);
+        // the first search builds the index in the background
+        ds.searchWaySegments(origin);
+        ds.segments.waitForBuild();
+        assertEquals(Collections.singletonList(new WaySegment(w1, 0)), ds.searchWaySegments(origin));
+        assertEquals(Collections.singletonList(new WaySegment(w1, 0)), ds.searchWaySegments(east));
+        assertEquals(Collections.singletonList(new WaySegment(w1, 1)), ds.searchWaySegments(west));
+        assertTrue(ds.searchWaySegments(south).isEmpty());
+        assertEquals(2, ds.searchWaySegments(new BBox(-180, -90, 180, 90)).size());
+
+        // NodeMovedEvent
+        n1.setCoor(new LatLon(9.9, 10.02));
+        assertTrue(ds.searchWaySegments(origin).isEmpty());
+        assertEquals(Collections.singletonList(new WaySegment(w1, 0)), ds.searchWaySegments(south));
+
+        // WayNodesChangedEvent
+        w1.setNodes(Arrays.asList(n3, n2, n1));
+        assertEquals(Collections.singletonList(new WaySegment(w1, 1)), ds.searchWaySegments(south));
+        assertEquals(Collections.singletonList(new WaySegment(w1, 0)), ds.searchWaySegments(west));
+
+        Way w2 = new Way();
+        w2.setNodes(Arrays.asList(n1, n3));
+        ds.addPrimitive(w2);
+        assertEquals(2, ds.searchWaySegments(south).size());
+
+        ds.removePrimitive(w1);
+        assertEquals(Collections.singletonList(new WaySegment(w2, 0)), ds.searchWaySegments(south));
+        assertTrue(ds.searchWaySegments(west).isEmpty());
+    }
+
+    /**
+     * Unit test of {@link DataSet#searchWaySegments}, checks that only the segments crossing the bounding box are
+     * returned, whether the index is used or not.
+     * @throws Exception if the index cannot be built
+     */
+    @Test
+    public void testSearchWaySegmentsCrossing() throws Exception {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(new LatLon(0, 0));
+        Node n2 = new Node(new LatLon(0.01, 0.01));
+        Node n3 = new Node(new LatLon(1, 1));
+        Way w = new Way();
+        w.setNodes(Arrays.asList(n1, n2, n3));
+        ds.addPrimitives(Arrays.<OsmPrimitive>asList(n1, n2, n3, w));
+
+        // the index is built in the background after the first search, check the searches before and after
+        for (int i = 0; i < 2; i++) {
+            // in the bounding box of the short and of the long segment, but not crossed by them
+            assertTrue(ds.searchWaySegments(new BBox(0.001, 0.008, 0.002, 0.009)).isEmpty());
+            assertTrue(ds.searchWaySegments(new BBox(0.1, 0.9, 0.101, 0.901)).isEmpty());
+            // too large for the index
+            assertTrue(ds.searchWaySegments(new BBox(0.01, 0.8, 0.2, 0.99)).isEmpty());
+            // crossed by the segments, without containing their nodes
+            assertEquals(Collections.singletonList(new WaySegment(w, 0)), ds.searchWaySegments(new BBox(0.004, 0.0055, 0.0055, 0.004)));
+            assertEquals(Collections.singletonList(new WaySegment(w, 1)), ds.searchWaySegments(new BBox(0.49, 0.51, 0.51, 0.49)));
+            assertEquals(Collections.singletonList(new WaySegment(w, 1)), ds.searchWaySegments(new BBox(0.3, 0.6, 0.6, 0.3)));
+            ds.segments.waitForBuild();
+        }
+    }
+}
@@ -153,6 +153,32 @@ public class OsmPrimitiveKeyHandlingTest {
         assertFalse(n1.hasEqualSemanticAttributes(n2));
     }
 
+    /**
+     * Primitives with the same tags share their key/value array after {@link OsmPrimitive#internKeys}, and remain independent.
+     */
+    @Test
+    public void internKeys() {
+        Node n1 = new Node();
+        n1.put("building", "yes");
+        Node n2 = new Node();
+        n2.put("building", "yes");
+        Node n3 = new Node();
+        Storage<String[]> pool = OsmPrimitive.createKeysPool();
+        n1.internKeys(pool);
+        n2.internKeys(pool);
+        n3.internKeys(pool);
+        assertTrue(n1.keys == n2.keys);
+        assertEquals(1, pool.size());
+        testKeysSize(n3, 0);
+
+        n2.put("building", "house");
+        testGetKey(n1, "building", "yes");
+        testGetKey(n2, "building", "house");
+        n1.remove("building");
+        testKeysSize(n1, 0);
+        testGetKey(n2, "building", "house");
+    }
+
     /**
      * Tests if the size of the keys map is right.
      * @author Michael Zangl
@@ -5,8 +5,10 @@ import java.io.FileInputStream;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
 
 import org.fest.reflect.core.Reflection;
 import org.fest.reflect.reference.TypeRef;
@@ -37,7 +39,7 @@ public class QuadBucketsTest {
 
         QuadBuckets<Node> nodes = Reflection.field("nodes").ofType(new TypeRef<QuadBuckets<Node>>() {}).in(ds).get();
         QuadBuckets<Way> ways = Reflection.field("ways").ofType(new TypeRef<QuadBuckets<Way>>() {}).in(ds).get();
-        Collection<Relation> relations = Reflection.field("relations").ofType(new TypeRef<Collection<Relation>>() {}).in(ds).get();
+        QuadBuckets<Relation> relations = Reflection.field("relations").ofType(new TypeRef<QuadBuckets<Relation>>() {}).in(ds).get();
 
         int expectedCount = allNodes.size();
         for (OsmPrimitive o: allNodes) {
@@ -49,8 +51,10 @@ public class QuadBucketsTest {
             ds.removePrimitive(o);
             checkIterator(ways, --expectedCount);
         }
+        expectedCount = allRelations.size();
         for (OsmPrimitive o: allRelations) {
             ds.removePrimitive(o);
+            checkIterator(relations, --expectedCount);
         }
         Assert.assertTrue(nodes.isEmpty());
         Assert.assertTrue(ways.isEmpty());
@@ -89,4 +93,47 @@ public class QuadBucketsTest {
             removeAllTest(ds);
         }
     }
+
+    /**
+     * Checks that bulk loading with {@link QuadBuckets#addAll} gives the same results as adding objects one by one.
+     */
+    @Test
+    public void testAddAll() {
+        Random random = new Random(31);
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            Node n = new Node(new LatLon(random.nextDouble() * 10, random.nextDouble() * 10));
+            nodes.add(n);
+        }
+        QuadBuckets<Node> incremental = new QuadBuckets<>();
+        for (Node n : nodes.subList(0, 5000)) {
+            incremental.add(n);
+        }
+        QuadBuckets<Node> bulk = new QuadBuckets<>();
+        bulk.addAll(nodes.subList(0, 5000));
+        Assert.assertEquals(5000, bulk.size());
+        checkIterator(bulk, 5000);
+
+        // bulk load into a non empty tree, then switch back to incremental updates
+        for (Node n : nodes.subList(5000, 10000)) {
+            incremental.add(n);
+        }
+        bulk.addAll(nodes.subList(5000, 9000));
+        for (Node n : nodes.subList(9000, 10000)) {
+            bulk.add(n);
+        }
+        Assert.assertEquals(10000, bulk.size());
+        checkIterator(bulk, 10000);
+
+        for (int i = 0; i < 100; i++) {
+            LatLon corner = new LatLon(random.nextDouble() * 10, random.nextDouble() * 10);
+            BBox bbox = new BBox(corner, new LatLon(corner.lat() + 1, corner.lon() + 1));
+            Assert.assertEquals(new HashSet<>(incremental.search(bbox)), new HashSet<>(bulk.search(bbox)));
+        }
+        for (Node n : nodes) {
+            Assert.assertTrue(bulk.contains(n));
+            Assert.assertTrue(bulk.remove(n));
+        }
+        Assert.assertTrue(bulk.isEmpty());
+    }
 }
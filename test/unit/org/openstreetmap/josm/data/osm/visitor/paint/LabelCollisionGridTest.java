@@ -0,0 +1,30 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.geom.Rectangle2D;
+
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link LabelCollisionGrid} class.
+ */
+public class LabelCollisionGridTest {
+
+    /**
+     * Labels overlapping a label of the grid are rejected, in the same cell or across cells.
+     */
+    @Test
+    public void testTryAdd() {
+        LabelCollisionGrid grid = new LabelCollisionGrid();
+        assertTrue(grid.tryAdd(new Rectangle2D.Double(10, 10, 100, 12)));
+        assertFalse(grid.tryAdd(new Rectangle2D.Double(50, 15, 20, 12)));
+        assertFalse(grid.tryAdd(new Rectangle2D.Double(105, 0, 200, 11)));
+        assertTrue(grid.tryAdd(new Rectangle2D.Double(10, 30, 100, 12)));
+        assertTrue(grid.tryAdd(new Rectangle2D.Double(-100, -50, 50, 12)));
+        assertFalse(grid.intersects(new Rectangle2D.Double(200, 200, 10, 10)));
+        assertTrue(grid.intersects(new Rectangle2D.Double(-60, -45, 10, 10)));
+    }
+}
@@ -0,0 +1,223 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetListenerAdapter;
+import org.openstreetmap.josm.gui.NavigatableComponent;
+import org.openstreetmap.josm.gui.mappaint.MapPaintStyles;
+
+/**
+ * Unit tests of {@link RenderTileCache} class.
+ */
+public class RenderTileCacheTest {
+
+    private static final int WIDTH = 4 * RenderTileCache.TILE_SIZE;
+    private static final int HEIGHT = 3 * RenderTileCache.TILE_SIZE;
+
+    private NavigatableComponent nc;
+    private DataSet ds;
+    private RenderTileCache cache;
+    private Node corner;
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() {
+        JOSMFixture.createUnitTestFixture().init(true);
+        MapPaintStyles.readFromPreferences();
+    }
+
+    /**
+     * Creates a view of 4x3 tiles, with a way along the top row of tiles and a node in the top left corner.
+     */
+    @Before
+    public void setUp() {
+        nc = new NavigatableComponent();
+        nc.setBounds(0, 0, WIDTH, HEIGHT);
+        nc.zoomTo(new EastNorth(0, 0), 10);
+        ds = new DataSet();
+        Node n1 = new Node(nc.getEastNorth(0, 20));
+        Node n2 = new Node(nc.getEastNorth(WIDTH, 20));
+        corner = new Node(nc.getEastNorth(10, 10));
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        ds.addPrimitive(corner);
+        Way w = new Way();
+        w.addNode(n1);
+        w.addNode(n2);
+        w.put("highway", "residential");
+        ds.addPrimitive(w);
+        cache = new RenderTileCache(ds);
+        ds.addDataSetListener(new DataSetListenerAdapter(new DataSetListenerAdapter.Listener() {
+            @Override
+            public void processDatasetEvent(AbstractDatasetChangedEvent event) {
+                cache.invalidate(event);
+            }
+        }));
+        paint();
+    }
+
+    /**
+     * Unregisters the cache.
+     */
+    @After
+    public void tearDown() {
+        cache.destroy();
+    }
+
+    private BufferedImage paint() {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setClip(0, 0, WIDTH, HEIGHT);
+        cache.paint(g, nc, false, false);
+        g.dispose();
+        return image;
+    }
+
+    private BufferedImage paintWithoutCache() {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setClip(0, 0, WIDTH, HEIGHT);
+        MapRendererFactory.getInstance().createActiveRenderer(g, nc, false).render(ds, false, nc.getRealBounds());
+        g.dispose();
+        return image;
+    }
+
+    /**
+     * Compares the cached rendering with the rendering without cache. The antialiasing of the tiles, which are rendered
+     * with another translation, may differ slightly.
+     */
+    private void assertSameAsWithoutCache() {
+        BufferedImage cached = paint();
+        BufferedImage expected = paintWithoutCache();
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                if (!isClose(cached.getRGB(x, y), expected.getRGB(x, y))) {
+                    fail("Pixel " + x + ", " + y + ": " + Integer.toHexString(cached.getRGB(x, y))
+                            + " instead of " + Integer.toHexString(expected.getRGB(x, y)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Moving a node only invalidates the tiles around it.
+     */
+    @Test
+    public void testNodeMoved() {
+        assertEquals(12, cache.getTileCount());
+        corner.setEastNorth(nc.getEastNorth(20, 20));
+        assertEquals(11, cache.getTileCount());
+        paint();
+        assertEquals(12, cache.getTileCount());
+    }
+
+    /**
+     * Selecting a primitive only invalidates the tiles containing it.
+     */
+    @Test
+    public void testSelectionChanged() {
+        ds.setSelected(corner);
+        cache.selectionChanged();
+        assertEquals(11, cache.getTileCount());
+        ds.setSelected(ds.getWays());
+        cache.selectionChanged();
+        assertEquals(8, cache.getTileCount());
+        cache.selectionChanged();
+        assertEquals(8, cache.getTileCount());
+    }
+
+    /**
+     * Panning by a whole tile only renders the new column, zooming renders again the whole view.
+     */
+    @Test
+    public void testPanAndZoom() {
+        nc.zoomTo(nc.getCenter().add(RenderTileCache.TILE_SIZE * nc.getScale(), 0), nc.getScale());
+        paint();
+        assertEquals(15, cache.getTileCount());
+        nc.zoomTo(nc.getCenter(), nc.getScale() / 2);
+        paint();
+        assertEquals(12, cache.getTileCount());
+    }
+
+    private static boolean isClose(int argb1, int argb2) {
+        for (int shift = 0; shift < 32; shift += 8) {
+            if (Math.abs(((argb1 >> shift) & 0xff) - ((argb2 >> shift) & 0xff)) > 4)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * The cached rendering is the same as the rendering without cache, after partial invalidations and a pan.
+     */
+    @Test
+    public void testSameAsWithoutCache() {
+        assertSameAsWithoutCache();
+        corner.setEastNorth(nc.getEastNorth(20, 20));
+        assertSameAsWithoutCache();
+        ds.setSelected(ds.getWays());
+        cache.selectionChanged();
+        assertSameAsWithoutCache();
+        nc.zoomTo(nc.getCenter().add(RenderTileCache.TILE_SIZE * nc.getScale(), 0), nc.getScale());
+        assertSameAsWithoutCache();
+    }
+
+    /**
+     * Changing a preference used for the rendering clears the cache, other preferences keep it.
+     */
+    @Test
+    public void testPreferenceChanged() {
+        assertEquals(12, cache.getTileCount());
+        Main.pref.put("download.tile-cache.test", !Main.pref.getBoolean("download.tile-cache.test"));
+        assertEquals(12, cache.getTileCount());
+        Main.pref.put("mappaint.render.tile-cache.test", !Main.pref.getBoolean("mappaint.render.tile-cache.test"));
+        assertEquals(0, cache.getTileCount());
+    }
+
+    private void waitForTiles(int count) throws InterruptedException {
+        for (int i = 0; i < 200 && cache.getTileCount() < count; i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(count, cache.getTileCount());
+    }
+
+    /**
+     * In background mode, painting starts rendering the dirty tiles in another thread, and a zoom cancels it.
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    public void testBackgroundRendering() throws InterruptedException {
+        Main.pref.put("mappaint.render.background", true);
+        try {
+            assertEquals(0, cache.getTileCount());
+            paint();
+            nc.zoomTo(nc.getCenter(), nc.getScale() / 2);
+            paint();
+            waitForTiles(12);
+            corner.setEastNorth(nc.getEastNorth(20, 20));
+            assertEquals(11, cache.getTileCount());
+            paint();
+            waitForTiles(12);
+        } finally {
+            Main.pref.put("mappaint.render.background", null);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+
+/**
+ * Unit tests of {@link SimplifiedGeometry} class.
+ */
+public class SimplifiedGeometryTest {
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void setUp() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    private static Node node(DataSet ds, double east, double north) {
+        Node n = new Node(new EastNorth(east, north));
+        ds.addPrimitive(n);
+        return n;
+    }
+
+    /**
+     * Nodes closer to the simplified line than the tolerance are removed.
+     */
+    @Test
+    public void testSimplify() {
+        DataSet ds = new DataSet();
+        Node n1 = node(ds, 0, 0);
+        Node n2 = node(ds, 10, 0.1);
+        Node n3 = node(ds, 20, 0);
+        Node n4 = node(ds, 30, 10);
+        Node n5 = node(ds, 40, 10.2);
+        Node n6 = node(ds, 50, 10);
+        List<Node> nodes = Arrays.asList(n1, n2, n3, n4, n5, n6);
+        assertEquals(Arrays.asList(n1, n3, n4, n6), SimplifiedGeometry.simplify(nodes, 0.5));
+        assertSame(nodes, SimplifiedGeometry.simplify(nodes, 0.01));
+        assertEquals(Arrays.asList(n1, n6), SimplifiedGeometry.simplify(nodes, 100));
+
+        // closed way
+        List<Node> closed = Arrays.asList(n1, n2, n3, n4, n1);
+        assertEquals(Arrays.asList(n1, n3, n4, n1), SimplifiedGeometry.simplify(closed, 0.5));
+    }
+
+    /**
+     * The simplified geometry is kept for a zoom level, and dropped when the way changes.
+     */
+    @Test
+    public void testCache() {
+        DataSet ds = new DataSet();
+        SimplifiedGeometryCache cache = SimplifiedGeometryCache.getInstance();
+        cache.register(ds);
+        Node n1 = node(ds, 0, 0);
+        Node n2 = node(ds, 10, 0.1);
+        Node n3 = node(ds, 20, 0);
+        Way w = new Way();
+        w.setNodes(Arrays.asList(n1, n2, n3));
+        ds.addPrimitive(w);
+
+        List<Node> simplified = SimplifiedGeometry.getNodes(w, 1, 0.5);
+        assertEquals(Arrays.asList(n1, n3), simplified);
+        assertSame(simplified, SimplifiedGeometry.getNodes(w, 1.5, 0.5));
+        assertEquals(Arrays.asList(n1, n2, n3), SimplifiedGeometry.getNodes(w, 0.1, 0.5));
+
+        n2.setEastNorth(new EastNorth(10, 5));
+        assertNull(cache.get(w));
+        assertEquals(Arrays.asList(n1, n2, n3), SimplifiedGeometry.getNodes(w, 1, 0.5));
+
+        w.setNodes(Arrays.asList(n1, n3));
+        assertNull(cache.get(w));
+        assertEquals(Arrays.asList(n1, n3), SimplifiedGeometry.getNodes(w, 1, 0.5));
+
+        w.setNodes(Arrays.asList(n1, n2, n3));
+        SimplifiedGeometry.getNodes(w, 1, 0.5);
+        assertNotNull(cache.get(w));
+
+        cache.unregister(ds);
+        assertNull(cache.get(w));
+    }
+}
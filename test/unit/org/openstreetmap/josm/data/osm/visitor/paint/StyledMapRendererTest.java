@@ -0,0 +1,191 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.visitor.paint.StyledMapRenderer.SortWorker;
+import org.openstreetmap.josm.data.osm.visitor.paint.StyledMapRenderer.StyleRecord;
+import org.openstreetmap.josm.data.osm.visitor.paint.StyledMapRenderer.StyleRecordPool;
+import org.openstreetmap.josm.gui.mappaint.styleelement.LineElement;
+import org.openstreetmap.josm.gui.mappaint.styleelement.NodeElement;
+import org.openstreetmap.josm.gui.mappaint.styleelement.StyleElement;
+
+/**
+ * Unit tests of {@link StyledMapRenderer} class.
+ */
+public class StyledMapRendererTest {
+
+    private static final float[] Z_INDICES = {
+        Float.NEGATIVE_INFINITY, -1000f, -1.5f, -1f, -0.5f, -Float.MIN_VALUE, -0f, 0f, Float.MIN_VALUE, 0.5f, 1f, 1.5f,
+        2.1f, 4.1f, 4.95f, 1000f, Float.MAX_VALUE, Float.POSITIVE_INFINITY, Float.NaN
+    };
+
+    /**
+     * A style record, with the values it has been filled with.
+     */
+    private static final class Record {
+        private final StyleElement style;
+        private final OsmPrimitive osm;
+        private final int flags;
+        private final int index;
+        private final StyleRecord record = new StyleRecord();
+
+        Record(StyleElement style, OsmPrimitive osm, int flags, int index) {
+            this.style = style;
+            this.osm = osm;
+            this.flags = flags;
+            this.index = index;
+            record.set(style, osm, flags, index);
+        }
+    }
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void setUp() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    /**
+     * The comparison of style records before the sort keys were packed.
+     */
+    private static int compareUnpacked(Record a, Record b) {
+        if ((a.flags & 1) != 0 && (b.flags & 1) == 0)
+            return -1;
+        if ((a.flags & 1) == 0 && (b.flags & 1) != 0)
+            return 1;
+
+        int d0 = Float.compare(a.style.majorZIndex, b.style.majorZIndex);
+        if (d0 != 0)
+            return d0;
+
+        if (a.flags > b.flags)
+            return 1;
+        if (a.flags < b.flags)
+            return -1;
+
+        int dz = Float.compare(a.style.zIndex, b.style.zIndex);
+        if (dz != 0)
+            return dz;
+
+        if (a.style == NodeElement.SIMPLE_NODE_ELEMSTYLE && b.style != NodeElement.SIMPLE_NODE_ELEMSTYLE)
+            return 1;
+        if (a.style != NodeElement.SIMPLE_NODE_ELEMSTYLE && b.style == NodeElement.SIMPLE_NODE_ELEMSTYLE)
+            return -1;
+        long id = a.osm.getUniqueId() - b.osm.getUniqueId();
+        if (id > 0)
+            return 1;
+        if (id < 0)
+            return -1;
+        return Float.compare(a.style.objectZIndex, b.style.objectZIndex);
+    }
+
+    private static List<Record> createRecords(Random random, int count) {
+        List<StyleElement> styles = new ArrayList<>();
+        styles.add(NodeElement.SIMPLE_NODE_ELEMSTYLE);
+        for (int i = 0; i < 40; i++) {
+            StyleElement style = LineElement.createSimpleLineStyle(Color.RED, false);
+            style.majorZIndex = Z_INDICES[random.nextInt(Z_INDICES.length)];
+            style.zIndex = Z_INDICES[random.nextInt(Z_INDICES.length)];
+            style.objectZIndex = Z_INDICES[random.nextInt(Z_INDICES.length)];
+            styles.add(style);
+        }
+        List<OsmPrimitive> primitives = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            primitives.add(new Node());
+            primitives.add(new Node(1 + random.nextInt(1000), 1));
+        }
+        List<Record> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            records.add(new Record(styles.get(random.nextInt(styles.size())), primitives.get(random.nextInt(primitives.size())),
+                    random.nextInt(16), random.nextInt(3)));
+        }
+        return records;
+    }
+
+    /**
+     * The packed sort keys order the records like the previous comparison, then by index in the style list.
+     */
+    @Test
+    public void testSortKeys() {
+        Random random = new Random(42);
+        List<Record> records = createRecords(random, 2000);
+        for (Record a : records) {
+            for (int i = 0; i < 50; i++) {
+                Record b = records.get(random.nextInt(records.size()));
+                int expected = compareUnpacked(a, b);
+                if (expected == 0) {
+                    expected = Integer.compare(a.index, b.index);
+                }
+                assertEquals(Integer.signum(expected), Integer.signum(a.record.compareTo(b.record)));
+            }
+        }
+    }
+
+    /**
+     * The parallel merge sort gives the same order as a sequential sort.
+     */
+    @Test
+    public void testSortWorker() {
+        List<Record> records = createRecords(new Random(7), 5000);
+        List<StyleRecord> expected = new ArrayList<>(records.size());
+        for (Record r : records) {
+            expected.add(r.record);
+        }
+        StyleRecord[] sorted = expected.toArray(new StyleRecord[0]);
+        Collections.sort(expected);
+        new ForkJoinPool(4).invoke(new SortWorker(sorted, new StyleRecord[sorted.length], 0, sorted.length, 37));
+        assertEquals(expected.size(), sorted.length);
+        for (int i = 0; i < sorted.length; i++) {
+            assertSame(expected.get(i), sorted[i]);
+        }
+        Map<StyleRecord, Record> byRecord = new IdentityHashMap<>();
+        for (Record r : records) {
+            byRecord.put(r.record, r);
+        }
+        for (int i = 1; i < sorted.length; i++) {
+            assertTrue(compareUnpacked(byRecord.get(sorted[i - 1]), byRecord.get(sorted[i])) <= 0);
+        }
+    }
+
+    /**
+     * The pool keeps the records used by the last rendering only.
+     */
+    @Test
+    public void testPoolTrim() {
+        StyleRecordPool pool = new StyleRecordPool();
+        List<Record> records = createRecords(new Random(3), 3 * StyleRecordPool.CHUNK_SIZE);
+        for (int i = 0; i < 3; i++) {
+            StyleRecordPool.Chunk chunk = pool.nextChunk();
+            for (Record r : records.subList(i * StyleRecordPool.CHUNK_SIZE, (i + 1) * StyleRecordPool.CHUNK_SIZE)) {
+                chunk.add(r.style, r.osm, r.flags, r.index);
+            }
+        }
+        assertEquals(records.size(), pool.sort().size());
+        pool.clear();
+        assertEquals(3 * StyleRecordPool.CHUNK_SIZE, pool.getCapacity());
+
+        Record r = records.get(0);
+        pool.nextChunk().add(r.style, r.osm, r.flags, r.index);
+        assertEquals(1, pool.sort().size());
+        pool.clear();
+        assertEquals(StyleRecordPool.CHUNK_SIZE, pool.getCapacity());
+    }
+}
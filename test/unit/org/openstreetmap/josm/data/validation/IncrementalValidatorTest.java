@@ -0,0 +1,139 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.tagging.presets.TaggingPresets;
+
+/**
+ * Unit tests of {@link IncrementalValidator} class.
+ */
+public class IncrementalValidatorTest {
+
+    private DataSet ds;
+    private Node a;
+    private Node b;
+    private IncrementalValidator validator;
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() {
+        JOSMFixture.createUnitTestFixture().init();
+        TaggingPresets.readFromPreferences();
+    }
+
+    /**
+     * Creates a data set with two benches and a road, and validates it.
+     */
+    @Before
+    public void setUp() {
+        ds = new DataSet();
+        a = new Node(new LatLon(10.0, 5.0));
+        b = new Node(new LatLon(10.0, 5.1));
+        a.put("amenity", "bench");
+        b.put("amenity", "bench");
+        ds.addPrimitive(a);
+        ds.addPrimitive(b);
+        Way w = new Way();
+        for (int i = 0; i < 2; i++) {
+            Node n = new Node(new LatLon(10.1, 5.0 + i * 0.1));
+            ds.addPrimitive(n);
+            w.addNode(n);
+        }
+        w.put("highway", "residential");
+        ds.addPrimitive(w);
+        validator = new IncrementalValidator(ds);
+    }
+
+    /**
+     * Stops the validator.
+     */
+    @After
+    public void tearDown() {
+        validator.destroy();
+    }
+
+    private static Set<String> toStrings(List<TestError> errors) {
+        Set<String> result = new HashSet<>();
+        for (TestError error : errors) {
+            result.add(error.getMessage() + ' ' + error.getDescription() + ' ' + new HashSet<>(error.getPrimitives()));
+        }
+        return result;
+    }
+
+    private Set<String> getMessages() throws InterruptedException {
+        Set<String> result = new HashSet<>();
+        for (TestError error : validator.getErrors()) {
+            result.add(error.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * The errors are updated after each change of the data set.
+     * @throws InterruptedException never
+     */
+    @Test
+    public void testUpdates() throws InterruptedException {
+        assertFalse(getMessages().contains("Duplicated nodes"));
+
+        // the error involves the moved node and a node around it
+        b.setCoor(a.getCoor());
+        assertTrue(getMessages().contains("Duplicated nodes"));
+        assertEquals(1, validator.getErrors(Collections.<OsmPrimitive>singleton(a)).size());
+
+        b.put("Name", "Bench");
+        assertTrue(getMessages().contains("Misspelled property key"));
+        b.remove("Name");
+        assertFalse(getMessages().contains("Misspelled property key"));
+
+        ds.removePrimitive(b);
+        assertFalse(getMessages().contains("Duplicated nodes"));
+
+        // the errors are the ones of a full validation
+        assertEquals(toStrings(ValidationRunner.runTests(OsmValidator.getEnabledTests(true), ds.allNonDeletedPrimitives(), true, true, null)),
+                toStrings(validator.getErrors()));
+    }
+
+    /**
+     * The errors found by the validation of a copy of the whole data set involve the primitives of the data set.
+     * @throws InterruptedException never
+     */
+    @Test
+    public void testFullValidation() throws InterruptedException {
+        validator.destroy();
+        b.setCoor(a.getCoor());
+        b.put("Name", "Bench");
+        validator = new IncrementalValidator(ds);
+        Set<String> messages = getMessages();
+        // the nodes have different tags
+        assertTrue(messages.contains("Nodes at same position"));
+        assertTrue(messages.contains("Misspelled property key"));
+        for (TestError error : validator.getErrors()) {
+            for (OsmPrimitive p : error.getPrimitives()) {
+                assertSame(ds, p.getDataSet());
+            }
+        }
+        assertEquals(2, validator.getErrors(Collections.<OsmPrimitive>singleton(b)).size());
+    }
+}
@@ -0,0 +1,110 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.validation.tests.NameMismatch;
+import org.openstreetmap.josm.data.validation.tests.TagChecker;
+import org.openstreetmap.josm.data.validation.tests.UntaggedNode;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.gui.tagging.presets.TaggingPresets;
+
+/**
+ * Unit tests of {@link ValidationRunner} class.
+ */
+public class ValidationRunnerTest {
+
+    private static final String[][] TAGS = {
+        {},
+        {"amenity", "bench"},
+        {"Name", "Main"},
+        {"fixme", "yes"},
+        {"name:en", "Main"},
+        {"name", "Main - Haupt", "name:en", "Main"},
+        {"highway", "residental"},
+    };
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void setUp() {
+        JOSMFixture.createUnitTestFixture().init();
+        TaggingPresets.readFromPreferences();
+    }
+
+    private static DataSet createDataSet() {
+        DataSet ds = new DataSet();
+        for (int i = 0; i < 5000; i++) {
+            Node n = new Node(new LatLon(i * 1e-5, 0));
+            String[] tags = TAGS[i % TAGS.length];
+            for (int j = 0; j < tags.length; j += 2) {
+                n.put(tags[j], tags[j + 1]);
+            }
+            ds.addPrimitive(n);
+        }
+        return ds;
+    }
+
+    private static List<String> run(Collection<? extends org.openstreetmap.josm.data.validation.Test> tests,
+            Collection<OsmPrimitive> primitives, boolean parallel) {
+        Main.pref.put("validator.parallel", parallel);
+        try {
+            List<String> result = new ArrayList<>();
+            for (TestError e : ValidationRunner.runTests(tests, primitives, false, false, NullProgressMonitor.INSTANCE)) {
+                result.add(e.getTester().getName() + ' ' + e.getDescription() + ' ' + e.getPrimitives());
+            }
+            return result;
+        } finally {
+            Main.pref.put("validator.parallel", null);
+        }
+    }
+
+    /**
+     * Running the tests concurrently gives the same errors in the same order as running them sequentially.
+     * @throws Exception if the tests cannot be initialized
+     */
+    @Test
+    public void testParallelAndSequentialErrors() throws Exception {
+        List<org.openstreetmap.josm.data.validation.Test> tests = Arrays.asList(
+                new TagChecker(), new UntaggedNode(), new NameMismatch());
+        for (org.openstreetmap.josm.data.validation.Test test : tests) {
+            test.initialize();
+        }
+        assertTrue(((org.openstreetmap.josm.data.validation.Test.TagTest) tests.get(0)).isConcurrent());
+        Collection<OsmPrimitive> primitives = createDataSet().allPrimitives();
+        List<String> sequential = run(tests, primitives, false);
+        assertTrue(sequential.size() > 1000);
+        assertEquals(sequential, run(tests, primitives, true));
+    }
+
+    /**
+     * A test which is not concurrent reports the errors of a primitive in the given list.
+     */
+    @Test
+    public void testCheckNotConcurrent() {
+        NameMismatch test = new NameMismatch();
+        test.startTest(null);
+        Node n = new Node(LatLon.ZERO);
+        n.put("name:en", "Main");
+        List<TestError> errors = new ArrayList<>();
+        test.check(n, errors);
+        assertEquals(1, errors.size());
+        assertTrue(test.getErrors().isEmpty());
+        test.endTest();
+    }
+}
@@ -0,0 +1,81 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.WaySegment;
+import org.openstreetmap.josm.data.validation.TestError;
+
+/**
+ * Unit tests of {@code CrossingWays} class.
+ */
+public class CrossingWaysTest {
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void setUp() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    private static Way createWay(DataSet ds, String highway, LatLon... coors) {
+        Way w = new Way();
+        for (LatLon coor : coors) {
+            Node n = new Node(coor);
+            ds.addPrimitive(n);
+            w.addNode(n);
+        }
+        w.put("highway", highway);
+        ds.addPrimitive(w);
+        return w;
+    }
+
+    /**
+     * Crossing segments are found through the segment index of the data set, once per pair of ways.
+     */
+    @Test
+    public void testCrossingWays() {
+        DataSet ds = new DataSet();
+        Way w1 = createWay(ds, "residential", new LatLon(0, 0), new LatLon(0.01, 0.01), new LatLon(0, 0.02));
+        Way w2 = createWay(ds, "residential", new LatLon(0.005, 0), new LatLon(0.005, 0.02));
+        Way w3 = createWay(ds, "residential", new LatLon(0.02, 0), new LatLon(0.02, 0.02));
+
+        CrossingWays test = new CrossingWays.Ways();
+        test.startTest(null);
+        test.visit(Arrays.<OsmPrimitive>asList(w1, w2, w3));
+        test.endTest();
+        assertEquals(1, test.getErrors().size());
+        TestError error = test.getErrors().get(0);
+        assertEquals(Arrays.asList(w2, w1), error.getPrimitives());
+        assertEquals(4, error.getHighlighted().size());
+        assertTrue(error.getHighlighted().containsAll(Arrays.asList(
+                new WaySegment(w1, 0), new WaySegment(w1, 1), new WaySegment(w2, 0))));
+
+        // only the visited ways are checked
+        test.startTest(null);
+        test.visit(Collections.<OsmPrimitive>singleton(w2));
+        test.visit(Collections.<OsmPrimitive>singleton(w3));
+        test.endTest();
+        assertTrue(test.getErrors().isEmpty());
+
+        // layers
+        w2.put("layer", "1");
+        test.startTest(null);
+        test.visit(ds.allPrimitives());
+        test.endTest();
+        assertTrue(test.getErrors().isEmpty());
+    }
+}
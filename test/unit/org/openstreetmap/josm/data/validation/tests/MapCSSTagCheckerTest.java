@@ -7,6 +7,8 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
@@ -128,6 +130,36 @@ public class MapCSSTagCheckerTest {
         assertEquals(0, test.getErrorsForPrimitive(OsmUtils.createPrimitive("way bar=1"), false).size());
     }
 
+    private static List<String> toStrings(Collection<TestError> errors) {
+        List<String> result = new ArrayList<>();
+        for (TestError e : errors) {
+            result.add(e.getMessage() + ' ' + e.getIgnoreSubGroup());
+        }
+        return result;
+    }
+
+    /**
+     * The index of the checks gives the same errors, in the same order, as evaluating all the checks.
+     * @throws Exception if the checks cannot be parsed
+     */
+    @Test
+    public void testIndex() throws Exception {
+        final MapCSSTagChecker test = buildTagChecker("" +
+                "*[amenity=bench] { set bench; }\n" +
+                "*.bench[!backrest] { throwOther: \"no backrest\"; }\n" +
+                "node[foo=bar], way[baz], *[/^qux$/] { throwWarning: \"{0.tag}\"; }\n" +
+                "*[amenity=bench][foo] { throwWarning: \"foo bench\"; }\n" +
+                "*[!name] { throwWarning: \"no name\"; }\n");
+        for (String s : Arrays.asList("node amenity=bench", "node amenity=bench foo=bar backrest=yes name=x",
+                "way foo=bar baz=1", "node qux=1", "way amenity=bench qux=2 name=y")) {
+            final OsmPrimitive p = OsmUtils.createPrimitive(s);
+            assertEquals(s, toStrings(MapCSSTagChecker.getErrorsForPrimitive(p, true, test.checks.values())),
+                    toStrings(test.getErrorsForPrimitive(p, true)));
+        }
+        assertEquals(Arrays.asList("no backrest 3000_*.bench[!backrest]", "no name 3000_*[!name]"),
+                toStrings(test.getErrorsForPrimitive(OsmUtils.createPrimitive("node amenity=bench"), true)));
+    }
+
     @Test
     public void testInit() throws Exception {
         MapCSSTagChecker c = new MapCSSTagChecker();
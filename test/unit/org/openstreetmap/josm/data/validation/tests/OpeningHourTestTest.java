@@ -9,11 +9,16 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -225,4 +230,43 @@ public class OpeningHourTestTest {
             assertThat(t + " is valid", errors, isEmpty());
         }
     }
+
+    /**
+     * The opening hours test and the conditional keys test share the script engine, and can be run concurrently.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testConcurrentCheck() throws Exception {
+        final ConditionalKeys conditionalKeys = new ConditionalKeys();
+        conditionalKeys.initialize();
+        final List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            final boolean conditional = i % 2 == 0;
+            tasks.add(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    int count = 0;
+                    for (int j = 0; j < 50; j++) {
+                        if (conditional) {
+                            count += conditionalKeys.isValueValid("maxspeed:conditional", "120 @ (Mo-Fr 06:00-20:00)") ? 0 : 1;
+                        } else {
+                            count += OPENING_HOUR_TEST.checkOpeningHourSyntax("opening_hours", "Mo-Fr 08:30-20:00").size();
+                            count += OPENING_HOUR_TEST.checkOpeningHourSyntax("opening_hours", "Mo-Fr 08:30-20:00;").size();
+                        }
+                    }
+                    return count;
+                }
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            int expectedOpeningHours = 50 * OPENING_HOUR_TEST.checkOpeningHourSyntax("opening_hours", "Mo-Fr 08:30-20:00;").size();
+            List<Future<Integer>> results = executor.invokeAll(tasks);
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(i % 2 == 0 ? 0 : expectedOpeningHours, (int) results.get(i).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
 }
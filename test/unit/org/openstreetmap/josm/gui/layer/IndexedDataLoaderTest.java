@@ -0,0 +1,139 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.command.AddCommand;
+import org.openstreetmap.josm.command.Command;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.io.IndexedOsmFile;
+import org.openstreetmap.josm.io.IndexedOsmFileWriter;
+
+/**
+ * Unit tests of {@link IndexedDataLoader} class.
+ */
+public class IndexedDataLoaderTest {
+
+    private static final String OSM = "<osm version='0.6'>"
+            + "<node id='1' version='1' lat='10.5' lon='10.5'/>"
+            + "<node id='2' version='1' lat='10.5' lon='11.5'/>"
+            + "<node id='3' version='1' lat='10.6' lon='11.6'/>"
+            + "<node id='4' version='1' lat='10.7' lon='11.7'/>"
+            + "<node id='5' version='1' lat='10.8' lon='11.8'/>"
+            + "<node id='6' version='1' lat='10.9' lon='11.9'/>"
+            + "<way id='10' version='1'><nd ref='2'/><nd ref='3'/></way>"
+            + "<way id='11' version='1'><nd ref='1'/><nd ref='6'/></way>"
+            + "<relation id='20' version='1'><member type='node' ref='1' role=''/><member type='node' ref='5' role=''/></relation>"
+            + "</osm>";
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void setUp() {
+        JOSMFixture.createUnitTestFixture().init(true);
+    }
+
+    /**
+     * An unloaded cell keeps the modified primitives, and the primitives needed by the other cells. It can be loaded again.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testUnload() throws Exception {
+        File file = File.createTempFile("josm", ".idx");
+        try {
+            new IndexedOsmFileWriter(1).write(new ByteArrayInputStream(OSM.getBytes(StandardCharsets.UTF_8)), file, null);
+            DataSet ds = new DataSet();
+            OsmDataLayer layer = new OsmDataLayer(ds, "", null);
+            try (IndexedOsmFile indexed = IndexedOsmFile.open(file)) {
+                IndexedDataLoader loader = new IndexedDataLoader(layer, indexed, "test");
+                List<Integer> cellsA = new ArrayList<>(indexed.getCells(new Bounds(10.1, 10.1, 10.9, 10.9)));
+                List<Integer> cellsB = indexed.getCells(new Bounds(10.1, 11.1, 10.9, 11.9));
+                cellsA.add(IndexedOsmFile.GLOBAL_CELL);
+                loader.loaded(cellsA, indexed.read(cellsA));
+                loader.loaded(cellsB, indexed.read(cellsB));
+                assertEquals(9, ds.allPrimitives().size());
+                assertEquals(2, ds.dataSources.size());
+                Node n4 = (Node) ds.getPrimitiveById(4, OsmPrimitiveType.NODE);
+                n4.put("name", "modified");
+                n4.setModified(true);
+
+                loader.unload(cellsB);
+                assertEquals(1, ds.dataSources.size());
+                // the way of the unloaded cell is purged, the way crossing the loaded cell is kept
+                assertNull(ds.getPrimitiveById(10, OsmPrimitiveType.WAY));
+                assertNull(ds.getPrimitiveById(2, OsmPrimitiveType.NODE));
+                assertNotNull(ds.getPrimitiveById(11, OsmPrimitiveType.WAY));
+                assertNotNull(ds.getPrimitiveById(6, OsmPrimitiveType.NODE));
+                assertEquals("modified", ds.getPrimitiveById(4, OsmPrimitiveType.NODE).get("name"));
+                Relation r = (Relation) ds.getPrimitiveById(20, OsmPrimitiveType.RELATION);
+                assertEquals(2, r.getMembersCount());
+                assertTrue(r.getMember(1).getMember().isIncomplete());
+
+                loader.loaded(cellsB, indexed.read(cellsB));
+                assertEquals(9, ds.allPrimitives().size());
+                assertEquals(2, ds.dataSources.size());
+                assertNotNull(ds.getPrimitiveById(10, OsmPrimitiveType.WAY));
+                assertFalse(r.getMember(1).getMember().isIncomplete());
+                assertEquals("modified", ds.getPrimitiveById(4, OsmPrimitiveType.NODE).get("name"));
+            }
+        } finally {
+            Files.delete(file.toPath());
+        }
+    }
+
+    /**
+     * Nothing is unloaded while the undo/redo commands involve the layer, and the layer cannot be saved.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testUndoRedo() throws Exception {
+        File file = File.createTempFile("josm", ".idx");
+        try {
+            new IndexedOsmFileWriter(1).write(new ByteArrayInputStream(OSM.getBytes(StandardCharsets.UTF_8)), file, null);
+            DataSet ds = new DataSet();
+            OsmDataLayer layer = new OsmDataLayer(ds, "", null);
+            try (IndexedOsmFile indexed = IndexedOsmFile.open(file)) {
+                IndexedDataLoader loader = new IndexedDataLoader(layer, indexed, "test");
+                assertTrue(layer.isPartiallyLoaded());
+                assertFalse(layer.isSavable());
+                List<Integer> cells = new ArrayList<>(indexed.getCells(new Bounds(10.1, 10.1, 10.9, 11.9)));
+                cells.add(IndexedOsmFile.GLOBAL_CELL);
+                loader.loaded(cells, indexed.read(cells));
+                int size = ds.allPrimitives().size();
+                Command command = new AddCommand(layer, new Node(new LatLon(10.5, 10.5)));
+                command.executeCommand();
+                Main.main.undoRedo.commands.add(command);
+                try {
+                    loader.unload(indexed.getCells(new Bounds(10.1, 11.1, 10.9, 11.9)));
+                    assertEquals(size + 1, ds.allPrimitives().size());
+                    assertEquals(2, ds.dataSources.size());
+                } finally {
+                    Main.main.undoRedo.commands.remove(command);
+                }
+            }
+        } finally {
+            Files.delete(file.toPath());
+        }
+    }
+}
@@ -0,0 +1,126 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.mappaint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSStyleSource;
+import org.openstreetmap.josm.gui.util.GuiHelper;
+
+/**
+ * Unit tests of {@link ElemStyles} class.
+ */
+public class ElemStylesTest {
+
+    private static final double SCALE = 1;
+
+    private ElemStyles styles;
+    private DataSet ds;
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    /**
+     * Creates the styles.
+     */
+    @Before
+    public void setUp() {
+        MapCSSStyleSource source = new MapCSSStyleSource(""
+                + "node[amenity=bench] { symbol-shape: circle; symbol-size: 5; }\n"
+                + "way > node[amenity=bench] { symbol-size: 10; }\n"
+                + "node[amenity=bench][man_made=tower] { symbol-size: eval(tag(\"height\")); }\n"
+                + "node[amenity=bench][man_made=mast] { symbol-size: eval(osm_id()); }\n"
+                + "way[highway] { width: eval(JOSM_pref(\"elemstyles.test.width\", 2)); }\n"
+                + "way[railway] { width: eval(JOSM_pref(\"elemstyles.test.railway\", 2)); }\n");
+        source.loadStyleSource();
+        styles = new ElemStyles();
+        styles.add(source);
+        ds = new DataSet();
+    }
+
+    private Node createNode(String... tags) {
+        Node n = new Node(LatLon.ZERO);
+        for (int i = 0; i < tags.length; i += 2) {
+            n.put(tags[i], tags[i + 1]);
+        }
+        ds.addPrimitive(n);
+        return n;
+    }
+
+    private Way createWay(String key, String value) {
+        Way w = new Way();
+        w.addNode(createNode());
+        w.addNode(createNode());
+        w.put(key, value);
+        ds.addPrimitive(w);
+        return w;
+    }
+
+    /**
+     * Primitives with the same tags and context share their styles.
+     */
+    @Test
+    public void testSharedStyles() {
+        Node n1 = createNode("amenity", "bench");
+        Node n2 = createNode("amenity", "bench");
+        assertSame(styles.get(n1, SCALE, null), styles.get(n2, SCALE, null));
+        assertEquals(n1.mappaintStyle, n2.mappaintStyle);
+        assertEquals(1, styles.getSharedStyleCount());
+
+        // the child selector matches a node of a way, so its context is different
+        Way w = new Way();
+        Node n3 = createNode("amenity", "bench");
+        w.addNode(n3);
+        w.addNode(createNode());
+        ds.addPrimitive(w);
+        assertNotSame(styles.get(n1, SCALE, null), styles.get(n3, SCALE, null));
+        assertEquals(2, styles.getSharedStyleCount());
+
+        // expressions only depending on tags are shared, others are not
+        styles.get(createNode("amenity", "bench", "man_made", "tower"), SCALE, null);
+        assertEquals(3, styles.getSharedStyleCount());
+        Node m1 = createNode("amenity", "bench", "man_made", "mast");
+        Node m2 = createNode("amenity", "bench", "man_made", "mast");
+        assertNotSame(styles.get(m1, SCALE, null), styles.get(m2, SCALE, null));
+        assertEquals(3, styles.getSharedStyleCount());
+    }
+
+    /**
+     * A preference change only invalidates the styles depending on it.
+     */
+    @Test
+    public void testPreferenceChanged() {
+        Way highway = createWay("highway", "residential");
+        Way railway = createWay("railway", "rail");
+        StyleElementList highwayStyles = styles.get(highway, SCALE, null);
+        StyleElementList railwayStyles = styles.get(railway, SCALE, null);
+        assertEquals(2, styles.getSharedStyleCount());
+
+        Main.pref.put("elemstyles.test.width", "5");
+        GuiHelper.runInEDTAndWait(new Runnable() {
+            @Override
+            public void run() {
+                // wait for the cache to be cleared
+            }
+        });
+        assertEquals(1, styles.getSharedStyleCount());
+        assertNotSame(highwayStyles, styles.get(highway, SCALE, null));
+        assertSame(railwayStyles, styles.get(railway, SCALE, null));
+        assertEquals(2, styles.getSharedStyleCount());
+    }
+}
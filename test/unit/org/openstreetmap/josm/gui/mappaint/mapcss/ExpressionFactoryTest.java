@@ -0,0 +1,86 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.mappaint.mapcss;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.gui.mappaint.Environment;
+import org.openstreetmap.josm.gui.mappaint.MultiCascade;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ExpressionFactory.PropFunction;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ExpressionFactory.TagFunction;
+
+/**
+ * Unit tests of {@link ExpressionFactory} class.
+ */
+public class ExpressionFactoryTest {
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void setUp() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    private static Expression function(String name, Expression... args) {
+        return ExpressionFactory.createFunctionExpression(name, Arrays.asList(args));
+    }
+
+    private static Expression literal(Object value) {
+        return new LiteralExpression(value);
+    }
+
+    /**
+     * Functions with constant arguments are only evaluated once, unless they return a list.
+     */
+    @Test
+    public void testConstantFunctions() {
+        Expression concat = function("concat", literal("b"), literal(1));
+        Object value = concat.evaluate(null);
+        assertEquals("b1", value);
+        assertSame(value, concat.evaluate(null));
+        Expression list = function("list", literal("a"), concat);
+        value = list.evaluate(null);
+        assertEquals(Arrays.asList("a", "b1"), value);
+        assertNotSame(value, list.evaluate(null));
+        Expression split = function("split", literal(";"), literal("a;b"));
+        assertNotSame(split.evaluate(null), split.evaluate(null));
+        assertEquals("b", function("get", split, literal(1f)).evaluate(null));
+        assertEquals(3f, function("plus", literal("1"), literal(2f)).evaluate(null));
+        assertNull(function("html2color", literal("invalid")).evaluate(null));
+    }
+
+    /**
+     * Functions depending on the primitive are evaluated each time.
+     */
+    @Test
+    public void testEnvironmentFunctions() {
+        Expression tag = function("tag", literal("name"));
+        assertTrue(tag instanceof TagFunction);
+        Expression exclaimed = function("concat", tag, literal("!"));
+        Node n = new Node();
+        Environment env = new Environment(n, new MultiCascade(), "default", null);
+        assertNull(tag.evaluate(env));
+        n.put("name", "foo");
+        assertEquals("foo", tag.evaluate(env));
+        assertEquals("foo!", exclaimed.evaluate(env));
+        n.put("name", "bar");
+        assertEquals("bar!", exclaimed.evaluate(env));
+
+        Expression prop = function("prop", function("concat", literal("wid"), literal("th")));
+        assertTrue(prop instanceof PropFunction);
+        assertNull(prop.evaluate(env));
+        env.mc.getOrCreateCascade("default").putOrClear("width", 2f);
+        assertEquals(2f, prop.evaluate(env));
+        assertSame(ExpressionFactory.NullExpression.INSTANCE, function("prop"));
+    }
+}
@@ -0,0 +1,190 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.data.osm.Way;
+
+/**
+ * Unit tests of {@link IndexedOsmFile} class.
+ */
+public class IndexedOsmFileTest {
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void setUp() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    private static Node node(DataSet ds, long id, double lat, double lon) {
+        Node n = new Node(new LatLon(lat, lon));
+        if (id > 0) {
+            n.setOsmId(id, 1);
+        }
+        ds.addPrimitive(n);
+        return n;
+    }
+
+    private static OsmPrimitive find(DataSet ds, String name) {
+        for (OsmPrimitive p : ds.allPrimitives()) {
+            if (name.equals(p.get("name")))
+                return p;
+        }
+        return null;
+    }
+
+    private static File convert(DataSet ds) throws IOException, IllegalDataException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OsmWriter w = OsmWriterFactory.createOsmWriter(
+                new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)), false, ds.getVersion())) {
+            w.header();
+            w.writeContent(ds);
+            w.footer();
+        }
+        File file = File.createTempFile("josm", ".idx");
+        new IndexedOsmFileWriter(1).write(new ByteArrayInputStream(out.toByteArray()), file, null);
+        return file;
+    }
+
+    /**
+     * Cells are loaded independently, without replacing the primitives already loaded.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testLoad() throws Exception {
+        DataSet ds = new DataSet();
+        ds.setVersion("0.6");
+        // a way crossing two cells of one degree, and a relation with a member in each cell
+        Node a1 = node(ds, 1, 10.5, 10.5);
+        Node a2 = node(ds, 2, 10.6, 10.6);
+        Node b1 = node(ds, 3, 10.5, 11.5);
+        b1.put("name", "b1");
+        b1.setUser(User.createOsmUser(42, "mapper"));
+        Node b2 = node(ds, 4, 10.6, 11.6);
+        b2.put("name", "b2");
+        Node b3 = node(ds, -1, 10.7, 11.7);
+        b3.put("name", "b3");
+        Way crossing = new Way(10, 1);
+        ds.addPrimitive(crossing);
+        crossing.setNodes(Arrays.asList(a1, a2, b1));
+        crossing.put("name", "crossing");
+        Way inB = new Way(11, 1);
+        ds.addPrimitive(inB);
+        inB.setNodes(Arrays.asList(b2, b3));
+        Relation r = new Relation(20, 1);
+        ds.addPrimitive(r);
+        r.setMembers(Arrays.asList(new RelationMember("a", a2), new RelationMember("b", inB)));
+        r.put("name", "r");
+
+        File file = convert(ds);
+        try (IndexedOsmFile indexed = IndexedOsmFile.open(file)) {
+            assertEquals(new Bounds(10.5, 10.5, 10.7, 11.7), indexed.getBounds());
+            assertEquals("0.6", indexed.getVersion());
+            List<Integer> cells = indexed.getCells(new Bounds(10.1, 10.1, 10.9, 10.9));
+            assertEquals(1, cells.size());
+            assertEquals(new Bounds(10, 10, 11, 11), indexed.getCellBounds(cells.get(0)));
+            assertEquals(2, indexed.getCells(new Bounds(9, 9, 12, 12)).size());
+            assertTrue(indexed.getCells(new Bounds(-50, -50, -40, -40)).isEmpty());
+
+            // first cell: the crossing way is complete, with its node of the second cell
+            DataSet loaded = new DataSet();
+            indexed.load(loaded, indexed.read(cells));
+            Way lCrossing = (Way) loaded.getPrimitiveById(10, OsmPrimitiveType.WAY);
+            assertFalse(lCrossing.isIncomplete());
+            assertEquals(3, lCrossing.getNodesCount());
+            Node lb1 = lCrossing.getNode(2);
+            assertEquals("b1", lb1.get("name"));
+            assertEquals(42, lb1.getUser().getId());
+            Relation lr = (Relation) loaded.getPrimitiveById(20, OsmPrimitiveType.RELATION);
+            assertEquals("r", lr.get("name"));
+            assertTrue(lr.getMember(1).getMember().isIncomplete());
+            assertNull(find(loaded, "b2"));
+
+            // loading the same cell again does nothing
+            assertEquals(0, indexed.load(loaded, indexed.read(cells)));
+
+            // modifications are kept when the second cell is loaded
+            lb1.put("name", "modified");
+            indexed.load(loaded, indexed.read(indexed.getCells(new Bounds(9, 9, 12, 12))));
+            assertEquals("modified", lb1.get("name"));
+            Way lInB = (Way) loaded.getPrimitiveById(11, OsmPrimitiveType.WAY);
+            assertFalse(lInB.isIncomplete());
+            assertEquals(lInB, lr.getMember(1).getMember());
+            Node lb3 = lInB.getNode(1);
+            assertEquals("b3", lb3.get("name"));
+            assertTrue(lb3.isNew());
+            assertEquals(8, loaded.allPrimitives().size());
+
+            // the new node is not duplicated when it is loaded again
+            assertEquals(0, indexed.load(loaded, indexed.read(Collections.singleton(IndexedOsmFile.GLOBAL_CELL))));
+            assertEquals(0, indexed.load(loaded, indexed.read(indexed.getCells(new Bounds(9, 9, 12, 12)))));
+        } finally {
+            Files.delete(file.toPath());
+        }
+    }
+
+    /**
+     * A new member of a relation is loaded with the relation, even if its cell has not been loaded yet.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testNewMember() throws Exception {
+        DataSet ds = new DataSet();
+        ds.setVersion("0.6");
+        Node a = node(ds, 1, 10.5, 10.5);
+        Node b = node(ds, -1, 10.5, 11.5);
+        b.put("name", "b");
+        Relation r = new Relation(20, 1);
+        ds.addPrimitive(r);
+        r.setMembers(Arrays.asList(new RelationMember("a", a), new RelationMember("b", b)));
+
+        File file = convert(ds);
+        try (IndexedOsmFile indexed = IndexedOsmFile.open(file)) {
+            DataSet loaded = new DataSet();
+            List<Integer> cells = new ArrayList<>(indexed.getCells(new Bounds(10.1, 10.1, 10.9, 10.9)));
+            cells.add(IndexedOsmFile.GLOBAL_CELL);
+            indexed.load(loaded, indexed.read(cells));
+            Relation lr = (Relation) loaded.getPrimitiveById(20, OsmPrimitiveType.RELATION);
+            assertEquals(2, lr.getMembersCount());
+
+            indexed.load(loaded, indexed.read(indexed.getCells(new Bounds(10.1, 11.1, 10.9, 11.9))));
+            assertEquals(2, lr.getMembersCount());
+            Node lb = (Node) lr.getMember(1).getMember();
+            assertTrue(lb.isNew());
+            assertEquals("b", lb.get("name"));
+            assertEquals(3, loaded.allPrimitives().size());
+        } finally {
+            Files.delete(file.toPath());
+        }
+    }
+}
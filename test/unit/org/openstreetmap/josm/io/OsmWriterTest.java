@@ -3,20 +3,44 @@ package org.openstreetmap.josm.io;
 
 import static org.junit.Assert.assertEquals;
 
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
+import org.junit.BeforeClass;
 import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.DataSetSnapshot;
+import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.NodeData;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.tools.Utils;
+import org.openstreetmap.josm.tools.date.DateUtils;
 
 /**
  * Unit tests of {@link OsmWriter} class.
  */
 public class OsmWriterTest {
 
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void setUp() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
     /**
      * Unit test of {@link OsmWriter#byIdComparator}.
      */
@@ -41,4 +65,101 @@ public class OsmWriterTest {
 
         assertEquals("[-3, -12, -20, -9223372036854775808, 0, 2, 12, 65, 9223372036854775807]", idsAsString);
     }
+
+    private static String write(DataSet ds) throws IOException {
+        StringWriter result = new StringWriter();
+        try (OsmWriter w = OsmWriterFactory.createOsmWriter(new PrintWriter(result), false, ds.getVersion())) {
+            w.header(!ds.isUploadDiscouraged());
+            w.writeDataSources(ds);
+            w.writeContent(ds);
+            w.footer();
+        }
+        return result.toString();
+    }
+
+    private static String write(DataSetSnapshot snapshot) throws IOException {
+        StringWriter result = new StringWriter();
+        try (OsmWriter w = OsmWriterFactory.createOsmWriter(new PrintWriter(result), false, snapshot.getVersion())) {
+            w.writeSnapshot(snapshot);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Unit test of {@link OsmWriter#writeSnapshot}.
+     * @throws IOException never
+     */
+    @Test
+    public void testWriteSnapshot() throws IOException {
+        DataSet ds = new DataSet();
+        ds.setVersion("0.6");
+        ds.dataSources.add(new DataSource(new Bounds(0, 0, 1, 1), "test"));
+        Node n1 = new Node(new LatLon(0.5, 0.5));
+        n1.put("name", "n1");
+        Node n2 = new Node(new LatLon(0.25, 0.75));
+        n2.setOsmId(10, 2);
+        Node n3 = new Node(new LatLon(0.75, 0.25));
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        ds.addPrimitive(n3);
+        n3.setDeleted(true);
+        Way w = new Way();
+        w.setNodes(Arrays.asList(n1, n2));
+        w.put("highway", "residential");
+        ds.addPrimitive(w);
+        Relation r = new Relation(20, 1);
+        ds.addPrimitive(r);
+        r.setMembers(Arrays.asList(new RelationMember("outer", w), new RelationMember("", n2)));
+        r.put("type", "multipolygon");
+
+        String expected = write(ds);
+        DataSetSnapshot snapshot = new DataSetSnapshot(ds);
+        assertEquals(expected, write(snapshot));
+
+        // the snapshot is not affected by later changes
+        n1.setCoor(new LatLon(0.1, 0.1));
+        w.removeNode(n2);
+        r.remove("type");
+        ds.addPrimitive(new Node(new LatLon(0.9, 0.9)));
+        assertEquals(expected, write(snapshot));
+    }
+
+    /**
+     * Numbers, coordinates and dates are written as by the standard formatters.
+     */
+    @Test
+    public void testWriteNumbers() {
+        StringWriter result = new StringWriter();
+        OsmWriter w = OsmWriterFactory.createOsmWriter(new PrintWriter(result), false, OsmWriter.DEFAULT_API_VERSION);
+        StringBuilder expected = new StringBuilder();
+        for (long l : new long[] {0, 1, -1, 10, 1234567890123L, Long.MAX_VALUE, Long.MIN_VALUE}) {
+            w.writeLong(l);
+            w.out.write(' ');
+            expected.append(l).append(' ');
+        }
+        List<Double> coordinates = new ArrayList<>(Arrays.asList(0.0, -0.0, 1.0, -1.0, 0.1, -0.0000001, 0.00000001, 1e-20,
+                180.0, -180.0, 90.0, 53.1234567, -13.0000001, 1e6, 1e7 + 0.5, 1e20, Double.NaN, Double.POSITIVE_INFINITY));
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            // values read from OSM data, and other values
+            coordinates.add(LatLon.roundToOsmPrecision((random.nextDouble() - 0.5) * 360));
+            coordinates.add((random.nextDouble() - 0.5) * 360);
+        }
+        for (double d : coordinates) {
+            w.writeCoordinate(d);
+            w.out.write(' ');
+            expected.append(LatLon.cDdHighPecisionFormatter.format(d)).append(' ');
+        }
+        List<Integer> timestamps = new ArrayList<>(Arrays.asList(0, 1, -1, 951782400, 1456790399, Integer.MAX_VALUE, Integer.MIN_VALUE));
+        for (int i = 0; i < 10000; i++) {
+            timestamps.add(random.nextInt());
+        }
+        for (int t : timestamps) {
+            w.writeTimestamp(t);
+            w.out.write(' ');
+            expected.append(DateUtils.fromTimestamp(t)).append(' ');
+        }
+        w.flush();
+        assertEquals(expected.toString(), result.toString());
+    }
 }
@@ -0,0 +1,169 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+
+/**
+ * Unit tests of {@link ParallelBZip2InputStream} class.
+ */
+public class ParallelBZip2InputStreamTest {
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void setUp() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    private static byte[] createData(int size) {
+        // compressible, but not too much, so that there are several blocks
+        Random random = new Random(42);
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) ('a' + random.nextInt(16));
+        }
+        return data;
+    }
+
+    private static byte[] compress(byte[] data, int blockSize) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream bzip2 = new BZip2CompressorOutputStream(out, blockSize)) {
+            bzip2.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] decompress(byte[] compressed) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new ParallelBZip2InputStream(new ByteArrayInputStream(compressed))) {
+            byte[] buffer = new byte[4321];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Checks that a stream made of several blocks is decompressed.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testSeveralBlocks() throws IOException {
+        byte[] data = createData(1000 * 1000);
+        assertArrayEquals(data, decompress(compress(data, 1)));
+    }
+
+    /**
+     * Checks that a stream made of a single block, or empty, is decompressed.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testSingleBlock() throws IOException {
+        byte[] data = createData(1000);
+        assertArrayEquals(data, decompress(compress(data, 9)));
+        assertArrayEquals(new byte[0], decompress(compress(new byte[0], 9)));
+    }
+
+    /**
+     * Checks that concatenated streams are decompressed.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testConcatenatedStreams() throws IOException {
+        byte[] data = createData(300 * 1000);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        compressed.write(compress(Arrays.copyOfRange(data, 0, 150 * 1000), 1));
+        compressed.write(compress(Arrays.copyOfRange(data, 150 * 1000, data.length), 2));
+        assertArrayEquals(data, decompress(compressed.toByteArray()));
+    }
+
+    /**
+     * Checks that invalid data is rejected.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test(expected = IOException.class)
+    public void testInvalidHeader() throws IOException {
+        decompress("<osm version='0.6'/>".getBytes("UTF-8"));
+    }
+
+    /**
+     * Checks that truncated data is reported.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test(expected = IOException.class)
+    public void testTruncated() throws IOException {
+        byte[] compressed = compress(createData(300 * 1000), 1);
+        decompress(Arrays.copyOf(compressed, compressed.length - 1000));
+    }
+
+    /**
+     * Checks that a corrupted stream CRC is reported.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test(expected = IOException.class)
+    public void testStreamCrc() throws IOException {
+        byte[] compressed = compress(createData(300 * 1000), 1);
+        // the last bytes are the end of stream marker, the stream CRC and the padding
+        compressed[compressed.length - 2] ^= 0x10;
+        decompress(compressed);
+    }
+
+    private static void writeBits(byte[] data, int offset, long value, int count) {
+        for (int i = 0; i < count; i++) {
+            int bit = offset + i;
+            if (((value >>> (count - 1 - i)) & 1) != 0) {
+                data[bit / 8] |= 0x80 >>> (bit % 8);
+            }
+        }
+    }
+
+    /**
+     * Checks that the end of stream magic number is only accepted when followed by the end of the input or another stream.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testIsEndOfStream() throws IOException {
+        long eos = 0x177245385090L;
+        long crc = 0x12345678L;
+        // marker and CRC, starting at bit 3 and padded to 11 bytes
+        byte[] end = new byte[11];
+        writeBits(end, 3, eos, 48);
+        writeBits(end, 3 + 48, crc, 32);
+        assertTrue(ParallelBZip2InputStream.isEndOfStream(end, end.length, 3, true));
+        assertFalse(ParallelBZip2InputStream.isEndOfStream(end, end.length, 3, false));
+
+        // the same bits followed by compressed data
+        byte[] data = Arrays.copyOf(end, end.length + 20);
+        Arrays.fill(data, end.length, data.length, (byte) 0x5a);
+        assertFalse(ParallelBZip2InputStream.isEndOfStream(data, data.length, 3, true));
+
+        // the same bits followed by another stream
+        ByteArrayOutputStream concatenated = new ByteArrayOutputStream();
+        concatenated.write(end);
+        concatenated.write("BZh9".getBytes("UTF-8"));
+        byte[] magic = new byte[6];
+        writeBits(magic, 0, 0x314159265359L, 48);
+        concatenated.write(magic);
+        concatenated.write(data, end.length, 10);
+        byte[] streams = concatenated.toByteArray();
+        assertTrue(ParallelBZip2InputStream.isEndOfStream(streams, streams.length, 3, false));
+    }
+}
@@ -0,0 +1,99 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+
+/**
+ * Unit tests of {@link ParallelCompressorOutputStream} class.
+ */
+public class ParallelCompressorOutputStreamTest {
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void setUp() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    private static byte[] createData(int size) {
+        Random random = new Random(42);
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) ('a' + random.nextInt(16));
+        }
+        return data;
+    }
+
+    private static byte[] compress(byte[] data, Compression compression, int chunkSize) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream compressor = new ParallelCompressorOutputStream(out, compression, chunkSize)) {
+            // write single bytes and arrays crossing the chunk boundaries
+            int i = 0;
+            while (i < data.length && i < 10) {
+                compressor.write(data[i++]);
+            }
+            while (i < data.length) {
+                int length = Math.min(data.length - i, 3001);
+                compressor.write(data, i, length);
+                i += length;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] decompress(byte[] compressed, Compression compression) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = compression.getUncompressedInputStream(new ByteArrayInputStream(compressed))) {
+            byte[] buffer = new byte[4321];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Checks that data compressed in several chunks is decompressed by the standard gzip stream.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testGzip() throws IOException {
+        byte[] data = createData(100 * 1000);
+        assertArrayEquals(data, decompress(compress(data, Compression.GZIP, 10 * 1000), Compression.GZIP));
+        assertArrayEquals(data, decompress(compress(data, Compression.GZIP, 7777), Compression.GZIP));
+    }
+
+    /**
+     * Checks that data compressed in several chunks is decompressed by the standard bzip2 stream.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testBzip2() throws IOException {
+        byte[] data = createData(100 * 1000);
+        assertArrayEquals(data, decompress(compress(data, Compression.BZIP2, 10 * 1000), Compression.BZIP2));
+        assertArrayEquals(data, decompress(compress(data, Compression.BZIP2, 7777), Compression.BZIP2));
+    }
+
+    /**
+     * Checks that an empty stream is still a valid compressed stream.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testEmpty() throws IOException {
+        assertArrayEquals(new byte[0], decompress(compress(new byte[0], Compression.GZIP, 1000), Compression.GZIP));
+        assertArrayEquals(new byte[0], decompress(compress(new byte[0], Compression.BZIP2, 1000), Compression.BZIP2));
+    }
+}
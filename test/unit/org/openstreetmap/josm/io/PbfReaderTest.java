@@ -0,0 +1,188 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.data.osm.Way;
+
+/**
+ * Unit tests of {@link PbfReader} and {@link PbfWriter} classes.
+ */
+public class PbfReaderTest {
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    private static DataSet writeAndRead(DataSet ds) throws IOException, IllegalDataException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PbfWriter writer = new PbfWriter(out)) {
+            writer.writeData(ds);
+        }
+        return PbfReader.parseDataSet(new ByteArrayInputStream(out.toByteArray()), null);
+    }
+
+    private static Node createNode(long id, double lat, double lon) {
+        Node n = new Node(id, 3);
+        n.setCoor(new LatLon(lat, lon));
+        return n;
+    }
+
+    /**
+     * Checks that data written by {@link PbfWriter} is read back by {@link PbfReader}.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testWriteAndRead() throws Exception {
+        DataSet ds = new DataSet();
+        ds.dataSources.add(new DataSource(new Bounds(53.5, 13.2, 53.6, 13.3), "test"));
+        Node n1 = createNode(10, 53.5512345, 13.2512345);
+        n1.put("amenity", "bench");
+        n1.put("name", "Bänk");
+        n1.setUser(User.createOsmUser(1234, "user"));
+        n1.setChangesetId(42);
+        n1.setRawTimestamp(1400000000);
+        Node n2 = createNode(5, -33.8, 151.2);
+        Node n3 = new Node(new LatLon(0.5, -0.5));
+        n3.put("highway", "crossing");
+        Node incomplete = new Node(99);
+        Way w = new Way(20, 1);
+        w.setNodes(Arrays.asList(n1, n2, n3, n1));
+        w.put("area", "yes");
+        Relation r = new Relation(30, 2);
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        ds.addPrimitive(n3);
+        ds.addPrimitive(incomplete);
+        ds.addPrimitive(w);
+        ds.addPrimitive(r);
+        r.setMembers(Arrays.asList(new RelationMember("outer", w), new RelationMember("", n2),
+                new RelationMember("label", incomplete), new RelationMember(null, r)));
+        r.put("type", "multipolygon");
+
+        DataSet result = writeAndRead(ds);
+        assertEquals(1, result.dataSources.size());
+        DataSource source = result.dataSources.iterator().next();
+        assertEquals("test", source.origin);
+        assertEquals(new Bounds(53.5, 13.2, 53.6, 13.3), source.bounds);
+
+        Node m1 = (Node) result.getPrimitiveById(10, OsmPrimitiveType.NODE);
+        assertNotNull(m1);
+        assertEquals(n1.getCoor(), m1.getCoor());
+        assertEquals(n1.getKeys(), m1.getKeys());
+        assertEquals(3, m1.getVersion());
+        assertEquals(42, m1.getChangesetId());
+        assertEquals(1400000000, m1.getRawTimestamp());
+        assertEquals(User.createOsmUser(1234, "user"), m1.getUser());
+        assertFalse(m1.isIncomplete());
+        assertFalse(m1.isModified());
+        Node m2 = (Node) result.getPrimitiveById(5, OsmPrimitiveType.NODE);
+        assertEquals(n2.getCoor(), m2.getCoor());
+        assertFalse(m2.hasKeys());
+        assertNull(m2.getUser());
+        assertTrue(result.getPrimitiveById(99, OsmPrimitiveType.NODE).isIncomplete());
+
+        Way v = (Way) result.getPrimitiveById(20, OsmPrimitiveType.WAY);
+        assertEquals(4, v.getNodesCount());
+        assertEquals(m1, v.firstNode());
+        assertEquals(m2, v.getNode(1));
+        assertTrue(v.getNode(2).isNew());
+        assertEquals(n3.getCoor(), v.getNode(2).getCoor());
+        assertEquals("crossing", v.getNode(2).get("highway"));
+        assertTrue(v.isClosed());
+        assertEquals("yes", v.get("area"));
+
+        Relation s = (Relation) result.getPrimitiveById(30, OsmPrimitiveType.RELATION);
+        assertEquals(2, s.getVersion());
+        assertEquals("multipolygon", s.get("type"));
+        assertEquals(4, s.getMembersCount());
+        assertEquals(v, s.getMember(0).getMember());
+        assertEquals("outer", s.getMember(0).getRole());
+        assertEquals(m2, s.getMember(1).getMember());
+        assertEquals("label", s.getRole(2));
+        assertEquals(99, s.getMemberId(2));
+        assertEquals(s, s.getMember(3).getMember());
+        assertEquals(6, result.allPrimitives().size());
+    }
+
+    /**
+     * Checks that more than one block of each primitive type is handled.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testManyBlocks() throws Exception {
+        DataSet ds = new DataSet();
+        Way w = new Way(1, 1);
+        for (int i = 1; i <= 20000; i++) {
+            Node n = createNode(i, i / 1000.0, -i / 1000.0);
+            n.put("ref", Integer.toString(i % 100));
+            ds.addPrimitive(n);
+            if (i % 2 == 0) {
+                w.addNode(n);
+            }
+        }
+        ds.addPrimitive(w);
+        DataSet result = writeAndRead(ds);
+        assertEquals(20000, result.getNodes().size());
+        assertEquals(1, result.getWays().size());
+        Node n = (Node) result.getPrimitiveById(12345, OsmPrimitiveType.NODE);
+        assertEquals(new LatLon(12.345, -12.345), n.getCoor());
+        assertEquals("45", n.get("ref"));
+        // the keys read from different blocks are shared
+        Node first = (Node) result.getPrimitiveById(1, OsmPrimitiveType.NODE);
+        assertSame(first.keySet().iterator().next(), n.keySet().iterator().next());
+        assertEquals(10000, result.getWays().iterator().next().getNodesCount());
+    }
+
+    /**
+     * Checks that invalid data is reported.
+     * @throws Exception if an error occurs
+     */
+    @Test(expected = IllegalDataException.class)
+    public void testInvalidData() throws Exception {
+        PbfReader.parseDataSet(new ByteArrayInputStream("<osm version='0.6'/>".getBytes("UTF-8")), null);
+    }
+
+    /**
+     * Checks that primitives appearing twice are reported.
+     * @throws Exception if an error occurs
+     */
+    @Test(expected = IllegalDataException.class)
+    public void testDuplicateId() throws Exception {
+        DataSet ds = new DataSet();
+        ds.addPrimitive(createNode(1, 1, 1));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < 2; i++) {
+            try (PbfWriter writer = new PbfWriter(out)) {
+                writer.writeData(ds);
+            }
+        }
+        PbfReader.parseDataSet(new ByteArrayInputStream(out.toByteArray()), null);
+    }
+}
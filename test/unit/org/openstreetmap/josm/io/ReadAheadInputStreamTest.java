@@ -0,0 +1,134 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link ReadAheadInputStream} class.
+ */
+public class ReadAheadInputStreamTest {
+
+    /**
+     * Checks that all bytes are read, in the right order.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testRead() throws IOException {
+        byte[] data = new byte[1000 * 1000];
+        new Random(42).nextBytes(data);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new ReadAheadInputStream(new ByteArrayInputStream(data))) {
+            assertEquals(data[0] & 0xff, in.read());
+            out.write(data[0]);
+            byte[] buffer = new byte[1234];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            assertEquals(-1, in.read());
+        }
+        assertArrayEquals(data, out.toByteArray());
+    }
+
+    /**
+     * Checks that an empty stream is supported.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testEmpty() throws IOException {
+        try (InputStream in = new ReadAheadInputStream(new ByteArrayInputStream(new byte[0]))) {
+            assertEquals(-1, in.read());
+            assertEquals(-1, in.read(new byte[10]));
+        }
+    }
+
+    /**
+     * Checks that errors of the source stream are reported to the reader.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testError() throws IOException {
+        InputStream source = new InputStream() {
+            private int count;
+
+            @Override
+            public int read() throws IOException {
+                if (count++ < 100)
+                    return 1;
+                throw new IOException("test");
+            }
+        };
+        try (InputStream in = new ReadAheadInputStream(source)) {
+            for (int i = 0; i < 100; i++) {
+                assertEquals(1, in.read());
+            }
+            in.read();
+            fail("IOException expected");
+        } catch (IOException e) {
+            assertEquals("test", e.getMessage());
+        }
+    }
+
+    /**
+     * Checks that the stream can be closed before the whole source has been read.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testCloseEarly() throws IOException {
+        final boolean[] closed = new boolean[1];
+        InputStream source = new InputStream() {
+            @Override
+            public int read() {
+                return 0;
+            }
+
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+        InputStream in = new ReadAheadInputStream(source);
+        assertEquals(0, in.read());
+        in.close();
+        assertTrue(closed[0]);
+    }
+
+    /**
+     * Checks that the stream can be closed while the source blocks, until it is closed.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test(timeout = 10000)
+    public void testCloseBlocked() throws IOException {
+        final CountDownLatch closed = new CountDownLatch(1);
+        InputStream source = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                try {
+                    closed.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IOException("Stream closed");
+            }
+
+            @Override
+            public void close() {
+                closed.countDown();
+            }
+        };
+        new ReadAheadInputStream(source).close();
+        assertEquals(0, closed.getCount());
+    }
+}
@@ -1,6 +1,7 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.tools;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -133,6 +134,24 @@ public class PredicatesTest {
         assertTrue(stringContainsPattern.evaluate("xx\nabc\nx"));
     }
 
+    /**
+     * Test {@link Predicates#stringContainsPattern(String)}
+     */
+    @Test
+    public void testStringContainsPatternString() {
+        List<String> regexes = Arrays.asList("abc", "^abc", "abc$", "^abc$", ".*abc.*", ".*abc", "abc.*", "^.*abc",
+                "a\\.c", "a.c", "a\\sc", "", "^", "$", ".*", "ab|c", "(?i)abc", "a\\$", "a\\.*");
+        List<String> strings = Arrays.asList("", "abc", "xabc", "abcx", "xabcx", "ABC", "a.c", "axc", "a c", "abc\n",
+                "x\nabc", "ab", "c", "a$", "a.", "a\\.c");
+        for (String regex : regexes) {
+            Pattern p = Pattern.compile(regex);
+            Predicate<String> stringContainsPattern = Predicates.stringContainsPattern(regex);
+            for (String s : strings) {
+                assertEquals(regex + " / " + s, p.matcher(s).find(), stringContainsPattern.evaluate(s));
+            }
+        }
+    }
+
     /**
      * Test {@link Predicates#stringContains(String)}
      */